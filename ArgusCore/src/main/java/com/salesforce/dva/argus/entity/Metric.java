@@ -317,24 +317,24 @@ public class Metric extends TSDBEntity implements Serializable {
 	@JsonIgnore
 	public String getIdentifier() {
 
-		String tags = "";
+		StringBuilder identifier = new StringBuilder();
+		String namespace = getNamespace();
+
+		if (namespace != null) {
+			identifier.append(namespace).append(':');
+		}
+		identifier.append(getScope()).append(':').append(getMetric());
 
-		Map<String, String> sortedTags = new TreeMap<>();
-		sortedTags.putAll(getTags());
+		Map<String, String> sortedTags = new TreeMap<>(getTags());
 		if(!sortedTags.isEmpty()) {
-			StringBuilder tagListBuffer = new StringBuilder("{");
-			for (String tagKey : sortedTags.keySet()) {
-				tagListBuffer.append(tagKey).append('=').append(sortedTags.get(tagKey)).append(',');
+			char separator = '{';
+			for (Entry<String, String> tag : sortedTags.entrySet()) {
+				identifier.append(separator).append(tag.getKey()).append('=').append(tag.getValue());
+				separator = ',';
 			}
-
-			tags = tagListBuffer.substring(0, tagListBuffer.length() - 1).concat("}");
+			identifier.append('}');
 		}
-
-		String namespace = getNamespace();
-		Object[] params = { namespace == null ? "" : namespace + ":", getScope(), getMetric(), tags };
-		String format = "{0}{1}:{2}" + "{3}";
-
-		return MessageFormat.format(format, params);
+		return identifier.toString();
 	}
 
 }
@@ -36,6 +36,7 @@ import java.io.Serializable;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -59,6 +60,7 @@ import javax.persistence.ManyToOne;
 import javax.persistence.NoResultException;
 import javax.persistence.Query;
 import javax.persistence.Table;
+import javax.persistence.TypedQuery;
 import javax.persistence.UniqueConstraint;
 
 import com.fasterxml.jackson.core.JsonGenerator;
@@ -280,6 +282,34 @@ public class Notification extends JPAEntity implements Serializable {
         setCooldownPeriod(cooldownPeriod);
     }
 
+    /**
+     * Creates a read only copy of the given notification. The copy keeps the identity and state the notification has at the time it is made,
+     * its collections cannot be modified and it does not see later changes to the original.
+     *
+     * @param  notification  The notification to copy. Cannot be null.
+     */
+    public Notification(Notification notification) {
+        this();
+        requireArgument(notification != null, "Notification to copy cannot be null.");
+        this.id = notification.id;
+        this.createdBy = notification.createdBy;
+        this.createdDate = notification.createdDate;
+        this.modifiedBy = notification.modifiedBy;
+        this.modifiedDate = notification.modifiedDate;
+        this.name = notification.name;
+        this.notifierName = notification.notifierName;
+        this.subscriptions = Collections.unmodifiableList(new ArrayList<>(notification.subscriptions));
+        this.metricsToAnnotate = Collections.unmodifiableList(new ArrayList<>(notification.metricsToAnnotate));
+        this.cooldownPeriod = notification.cooldownPeriod;
+        this.alert = notification.alert;
+        this.triggers = Collections.unmodifiableList(new ArrayList<>(notification.triggers));
+        this.isSRActionable = notification.isSRActionable;
+        this.severityLevel = notification.severityLevel;
+        this.customText = notification.customText;
+        this.cooldownExpirationByTriggerAndMetric = Collections.unmodifiableMap(new HashMap<>(notification.cooldownExpirationByTriggerAndMetric));
+        this.activeStatusByTriggerAndMetric = Collections.unmodifiableMap(new HashMap<>(notification.activeStatusByTriggerAndMetric));
+    }
+
     /** Creates a new Notification object. */
     protected Notification() {
         super(null);
@@ -338,6 +368,24 @@ public class Notification extends JPAEntity implements Serializable {
     	
     }
 
+    /**
+     * Finds the IDs of notifications modified after the given time, including changes to their cool down and active status.
+     *
+     * @param   em     The entity manager to use. Cannot be null.
+     * @param   since  The time after which notifications must have been modified. Cannot be null.
+     *
+     * @return  The IDs of the modified notifications. Will never be null, but may be empty.
+     */
+    public static List<BigInteger> findIdsModifiedSince(EntityManager em, Date since) {
+    	requireArgument(em != null, "Entity manager can not be null.");
+    	requireArgument(since != null, "Since date can not be null.");
+
+    	TypedQuery<BigInteger> query = em.createQuery("SELECT n.id FROM Notification n WHERE n.modifiedDate > :since", BigInteger.class);
+
+    	query.setParameter("since", since);
+    	return query.getResultList();
+    }
+
     //~ Methods **************************************************************************************************************************************
 
     /**
@@ -129,6 +129,15 @@ public interface AlertService extends Service {
 	 */
 	void enqueueAlerts(List<Alert> alerts);
 
+	/**
+	 * Enqueues alerts to be executed by the next available alert client, as if they were enqueued at the given time. Relative times in the alert
+	 * expressions are evaluated with respect to that time.
+	 *
+	 * @param  alerts            The alerts to enqueue. Cannot be null, but may be empty.
+	 * @param  alertEnqueueTime  The time at which the alerts are logically enqueued, in milliseconds.
+	 */
+	void enqueueAlerts(List<Alert> alerts, long alertEnqueueTime);
+
 	/**
 	 * Returns a list of alerts for an owner.
 	 *
@@ -61,6 +61,13 @@ public interface HistoryService extends Service {
      */
     History createHistory(JPAEntity entity, String message, JobStatus jobStatus, long executionTime);
 
+    /**
+     * Creates job history records in bulk. Each record keeps the creation time it was built with.
+     *
+     * @param  histories  The job history records to create. Cannot be null, but may be empty.
+     */
+    void createHistories(List<History> histories);
+
     /**
      * Finds Job history for a given job.
      *
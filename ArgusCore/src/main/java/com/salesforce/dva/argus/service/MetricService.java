@@ -158,6 +158,16 @@ public interface MetricService extends Service {
      * @return  The corresponding list of metric query objects.  Will never return null.
      */
     List<MetricQuery> getQueries(List<String> expression, long relativeTo);
+
+    /**
+     * Describes how the given expression is evaluated: the sub-expressions that are evaluated once and shared, and the transforms that are pushed
+     * down into the TSDB queries.
+     *
+     * @param   expression  The metric expression to explain. Cannot be null and must be a valid metric expression.
+     *
+     * @return  A human readable explanation of the evaluation plan.
+     */
+    String explain(String expression);
     
     /**
      * Returns the range of time series that current query has expanded to.
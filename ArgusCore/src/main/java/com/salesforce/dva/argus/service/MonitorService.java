@@ -194,7 +194,12 @@ public interface MonitorService extends Service {
         ALERTS_FAILED("argus.core", "alerts.failed"),
         ALERTS_EVALUATION_LATENCY("argus.core", "alerts.evaluation.latency"),
         ALERTS_SKIPPED("argus.core", "alerts.skipped"),
+        ALERTS_EXPRESSIONS_EVALUATED("argus.core", "alerts.expressions.evaluated"),
+        ALERTS_EXPRESSIONS_SHARED("argus.core", "alerts.expressions.shared"),
         NOTIFICATIONS_SENT("argus.core", "notifications.sent"),
+        NOTIFICATIONS_DELIVERY_LATENCY("argus.core", "notifications.delivery.latency"),
+        NOTIFICATIONS_FAILED("argus.core", "notifications.failed"),
+        NOTIFICATIONS_DROPPED("argus.core", "notifications.dropped"),
         TRIGGERS_VIOLATED("argus.core", "triggers.violated"),
         ALERTS_MAX("argus.core", "alerts.max"),
         ALERT_EVALUATION_KPI("argus.core", "alert.evaluation.kpi"),
@@ -220,7 +225,13 @@ public interface MonitorService extends Service {
         SCHEMARECORDS_WRITTEN("argus.core", "schemarecords.written"),
         SCHEMARECORDS_WRITE_LATENCY("argus.core", "schemarecords.write.latency"),
         SCHEMARECORDS_QUERY_COUNT("argus.core", "schemarecords.query.count"),
-        SCHEMARECORDS_QUERY_LATENCY("argus.core", "schemarecords.query.latency");
+        SCHEMARECORDS_QUERY_LATENCY("argus.core", "schemarecords.query.latency"),
+
+        DISCOVERY_CACHE_HITS("argus.core", "discovery.cache.hits"),
+        DISCOVERY_CACHE_NEGATIVE_HITS("argus.core", "discovery.cache.negative.hits"),
+        DISCOVERY_CACHE_LIMIT_EXCEEDED_HITS("argus.core", "discovery.cache.limit.exceeded.hits"),
+        DISCOVERY_CACHE_MISSES("argus.core", "discovery.cache.misses"),
+        DISCOVERY_CACHE_REFRESHES("argus.core", "discovery.cache.refreshes");
 
         private final String _scope;
         private final String _metric;
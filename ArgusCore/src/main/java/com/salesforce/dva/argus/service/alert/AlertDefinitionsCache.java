@@ -32,22 +32,20 @@ package com.salesforce.dva.argus.service.alert;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collections;
-import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.exception.ExceptionUtils;
-import org.quartz.CronScheduleBuilder;
-import org.quartz.CronTrigger;
-import org.quartz.TriggerBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.salesforce.dva.argus.entity.Alert;
 import com.salesforce.dva.argus.service.AlertService;
-import com.salesforce.dva.argus.util.Cron;
+import com.salesforce.dva.argus.util.CronSchedule;
 
 public class AlertDefinitionsCache {
 
@@ -58,6 +56,11 @@ public class AlertDefinitionsCache {
 	private static Map<BigInteger/*alertId*/, Alert> alertsMapById = new ConcurrentHashMap<BigInteger, Alert>();
 
 	private static Map<String/*cronEntry*/, List<BigInteger/*alertId*/>> alertsMapByCronEntry = new ConcurrentHashMap<String, List<BigInteger>>();
+
+	private static Map<String/*cronEntry*/, CronSchedule> schedulesByCronEntry = new ConcurrentHashMap<String, CronSchedule>();
+
+	// timing wheel of the compiled cron entries, bucketed by the minutes of the hour at which they can fire
+	private static List<Set<String/*cronEntry*/>> cronEntriesByMinute = createTimingWheel();
 	
 	private boolean alertsCacheInitialized = false;
 
@@ -81,6 +84,51 @@ public class AlertDefinitionsCache {
 
 	public void setAlertsMapByCronEntry(Map<String, List<BigInteger>> alertsMapByCronEntry) {
 		this.alertsMapByCronEntry = alertsMapByCronEntry;
+		schedulesByCronEntry.clear();
+		for(Set<String> cronEntries : cronEntriesByMinute) {
+			cronEntries.clear();
+		}
+		for(String cronEntry : alertsMapByCronEntry.keySet()) {
+			indexCronEntry(cronEntry);
+		}
+	}
+
+	/**
+	 * Compiles a cron entry and adds it to the schedule index, unless it is already indexed. Invalid entries are logged and never fire. The
+	 * schedule is published before the entry is added to the timing wheel, so that readers always find the schedule of an entry in the wheel.
+	 *
+	 * @param  cronEntry  The cron entry of an alert.
+	 */
+	static void indexCronEntry(String cronEntry) {
+		if(cronEntry == null || schedulesByCronEntry.containsKey(cronEntry)) {
+			return;
+		}
+		try {
+			CronSchedule schedule = CronSchedule.compile(cronEntry);
+			schedulesByCronEntry.put(cronEntry, schedule);
+			for(int minute = 0; minute < cronEntriesByMinute.size(); minute++) {
+				if(schedule.mayFireAtMinute(minute)) {
+					cronEntriesByMinute.get(minute).add(cronEntry);
+				}
+			}
+		}catch(Exception e) {
+			_logger.error("Exception occured when trying to parse cron entry - " + cronEntry + " Exception - "+ ExceptionUtils.getFullStackTrace(e));
+		}
+	}
+
+	/**
+	 * Removes a cron entry that no alert uses any more from the schedule index. The entry leaves the timing wheel before its schedule is dropped.
+	 *
+	 * @param  cronEntry  The cron entry to remove.
+	 */
+	static void unindexCronEntry(String cronEntry) {
+		if(cronEntry == null) {
+			return;
+		}
+		for(Set<String> cronEntries : cronEntriesByMinute) {
+			cronEntries.remove(cronEntry);
+		}
+		schedulesByCronEntry.remove(cronEntry);
 	}
 	
 	public boolean isAlertsCacheInitialized() {
@@ -95,16 +143,19 @@ public class AlertDefinitionsCache {
 		List<Alert> enabledAlerts = new ArrayList<Alert>();
 		List<BigInteger> enabledAlertIds = new ArrayList<BigInteger>();
 
-		for(String cronEntry : alertsMapByCronEntry.keySet()) {
+		Calendar minuteStartTime = Calendar.getInstance();
+		minuteStartTime.setTimeInMillis(minuteStartTimeMillis);
+
+		// only the cron entries that can fire at this minute of the hour are evaluated
+		for(String cronEntry : cronEntriesByMinute.get(minuteStartTime.get(Calendar.MINUTE))) {
 			try {
-				String quartzCronEntry = Cron.convertToQuartzCronEntry(cronEntry);
-				CronTrigger cronTrigger = TriggerBuilder.newTrigger().withSchedule(CronScheduleBuilder.cronSchedule(quartzCronEntry)).build();
-				Date nextFireTime = cronTrigger.getFireTimeAfter(new Date(minuteStartTimeMillis-1000));
-				if(nextFireTime.equals(new Date(minuteStartTimeMillis))) {
-					enabledAlertIds.addAll(alertsMapByCronEntry.get(cronEntry));
+				CronSchedule schedule = schedulesByCronEntry.get(cronEntry);
+				List<BigInteger> alertIds = alertsMapByCronEntry.get(cronEntry);
+				if(schedule != null && alertIds != null && schedule.isSatisfiedBy(minuteStartTime)) {
+					enabledAlertIds.addAll(alertIds);
 				}
 			}catch(Exception e) {
-                _logger.error("Exception occured when trying to parse cron entry - " + cronEntry + " Exception - "+ ExceptionUtils.getFullStackTrace(e));
+                _logger.error("Exception occured when trying to evaluate cron entry - " + cronEntry + " Exception - "+ ExceptionUtils.getFullStackTrace(e));
 			}
 		}
 		Collections.sort(enabledAlertIds);
@@ -117,4 +168,12 @@ public class AlertDefinitionsCache {
 		return enabledAlerts;
 	}
 
+	private static List<Set<String>> createTimingWheel() {
+		List<Set<String>> wheel = new ArrayList<Set<String>>(60);
+		for(int minute = 0; minute < 60; minute++) {
+			wheel.add(ConcurrentHashMap.<String>newKeySet());
+		}
+		return wheel;
+	}
+
 }
@@ -113,6 +113,7 @@ public class AlertDefinitionsCacheRefresherThread extends Thread{
 	}
 
 	private void addEntrytoCronMap(Alert a) {
+		AlertDefinitionsCache.indexCronEntry(a.getCronEntry());
 		if(alertDefinitionsCache.getAlertsMapByCronEntry().get(a.getCronEntry())==null) {
 			alertDefinitionsCache.getAlertsMapByCronEntry().put(a.getCronEntry(), new ArrayList<BigInteger>());
 		}
@@ -121,8 +122,14 @@ public class AlertDefinitionsCacheRefresherThread extends Thread{
 	
 	private void removeEntryFromCronMap(BigInteger alertId) {
 		for(String cronEntry : alertDefinitionsCache.getAlertsMapByCronEntry().keySet()) {
-			if(alertDefinitionsCache.getAlertsMapByCronEntry().get(cronEntry).contains(alertId)) {
-				alertDefinitionsCache.getAlertsMapByCronEntry().get(cronEntry).remove(alertId);
+			List<BigInteger> alertIds = alertDefinitionsCache.getAlertsMapByCronEntry().get(cronEntry);
+			if(alertIds.contains(alertId)) {
+				alertIds.remove(alertId);
+				// cron entries no alert uses any more are dropped, so that the timing wheel does not keep visiting them
+				if(alertIds.isEmpty()) {
+					alertDefinitionsCache.getAlertsMapByCronEntry().remove(cronEntry);
+					AlertDefinitionsCache.unindexCronEntry(cronEntry);
+				}
 			}
 		}
 	}
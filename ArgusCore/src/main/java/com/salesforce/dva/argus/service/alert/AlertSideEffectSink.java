@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.service.alert;
+
+import com.salesforce.dva.argus.entity.History;
+import com.salesforce.dva.argus.entity.Metric;
+import com.salesforce.dva.argus.service.HistoryService;
+import com.salesforce.dva.argus.service.TSDBService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static com.salesforce.dva.argus.system.SystemAssert.requireArgument;
+
+/**
+ * Buffers the history records and tracking metrics produced while evaluating alerts and writes them in bulk from a background thread. The buffer
+ * is bounded: once it is full, callers write their record inline instead of dropping it. Records still buffered when the sink is closed are
+ * flushed before {@link #close()} returns.
+ *
+ * @author  agent (agent@local)
+ */
+class AlertSideEffectSink {
+
+    //~ Static fields/initializers *******************************************************************************************************************
+
+    static final int MAX_BATCH_SIZE = 500;
+
+    //~ Instance fields ******************************************************************************************************************************
+
+    private final Logger _logger = LoggerFactory.getLogger(AlertSideEffectSink.class);
+    private final HistoryService _historyService;
+    private final TSDBService _tsdbService;
+    private final BlockingQueue<Object> _pending;
+    private final long _flushIntervalMillis;
+    private final Thread _flusher;
+    private volatile boolean _closed;
+
+    //~ Constructors *********************************************************************************************************************************
+
+    /**
+     * Creates a new AlertSideEffectSink object and starts its flusher thread.
+     *
+     * @param  historyService       The history service to write history records to. Cannot be null.
+     * @param  tsdbService          The TSDB service to write tracking metrics to. Cannot be null.
+     * @param  capacity             The maximum number of records buffered at any time. Must be positive.
+     * @param  flushIntervalMillis  The interval at which buffered records are written. Must be positive.
+     */
+    AlertSideEffectSink(HistoryService historyService, TSDBService tsdbService, int capacity, long flushIntervalMillis) {
+        requireArgument(historyService != null, "History service cannot be null.");
+        requireArgument(tsdbService != null, "TSDB service cannot be null.");
+        requireArgument(capacity > 0, "Capacity must be positive.");
+        requireArgument(flushIntervalMillis > 0, "Flush interval must be positive.");
+        _historyService = historyService;
+        _tsdbService = tsdbService;
+        _pending = new ArrayBlockingQueue<>(capacity);
+        _flushIntervalMillis = flushIntervalMillis;
+        _flusher = new Thread(this::_run, "alert-side-effect-flusher");
+        _flusher.setDaemon(true);
+        _flusher.start();
+    }
+
+    //~ Methods **************************************************************************************************************************************
+
+    /**
+     * Buffers a history record. The record is written inline if the buffer is full or the sink has been closed.
+     *
+     * @param  history  The history record to write. Cannot be null.
+     */
+    void addHistory(History history) {
+        requireArgument(history != null, "History cannot be null.");
+        if (_closed || !_pending.offer(history)) {
+            _flush(Collections.<Object>singletonList(history));
+        }
+    }
+
+    /**
+     * Buffers a tracking metric. The metric is written inline if the buffer is full or the sink has been closed.
+     *
+     * @param  metric  The metric to write. Cannot be null.
+     */
+    void addMetric(Metric metric) {
+        requireArgument(metric != null, "Metric cannot be null.");
+        if (_closed || !_pending.offer(metric)) {
+            _flush(Collections.<Object>singletonList(metric));
+        }
+    }
+
+    /** Writes everything currently buffered. */
+    void flush() {
+        List<Object> batch = new ArrayList<>(MAX_BATCH_SIZE);
+
+        while (_pending.drainTo(batch, MAX_BATCH_SIZE) > 0) {
+            _flush(batch);
+            batch.clear();
+        }
+    }
+
+    /** Stops the flusher thread and writes any records that are still buffered. */
+    void close() {
+        _closed = true;
+        _flusher.interrupt();
+        try {
+            _flusher.join(_flushIntervalMillis + 10000L);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void _run() {
+        while (!_closed) {
+            try {
+                Thread.sleep(_flushIntervalMillis);
+            } catch (InterruptedException ex) {
+                break;
+            }
+            flush();
+        }
+    }
+
+    private void _flush(List<Object> records) {
+        List<History> histories = new ArrayList<>();
+        List<Metric> metrics = new ArrayList<>();
+
+        for (Object record : records) {
+            if (record instanceof History) {
+                histories.add(History.class.cast(record));
+            } else {
+                metrics.add(Metric.class.cast(record));
+            }
+        }
+        if (!histories.isEmpty()) {
+            try {
+                _historyService.createHistories(histories);
+            } catch (Exception ex) {
+                _logger.warn("Failed to write {} alert history records in bulk, writing them one at a time - {}", histories.size(), ex.getMessage());
+                _flushHistoriesIndividually(histories);
+            }
+        }
+        if (!metrics.isEmpty()) {
+            try {
+                _tsdbService.putMetrics(metrics);
+            } catch (Exception ex) {
+                _logger.error("Failed to write {} alert tracking metrics - {}", metrics.size(), ex.getMessage());
+            }
+        }
+    }
+
+    /*
+     * A bulk history write runs in a single transaction, so one bad record rolls back the whole batch. Each record is retried in its own write
+     * so that only the records which fail on their own are lost.
+     */
+    private void _flushHistoriesIndividually(List<History> histories) {
+        int failed = 0;
+        String lastError = null;
+
+        for (History history : histories) {
+            try {
+                _historyService.createHistories(Collections.singletonList(history));
+            } catch (Exception ex) {
+                failed++;
+                lastError = ex.getMessage();
+            }
+        }
+        if (failed > 0) {
+            _logger.error("Failed to write {} of {} alert history records - {}", failed, histories.size(), lastError);
+        }
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
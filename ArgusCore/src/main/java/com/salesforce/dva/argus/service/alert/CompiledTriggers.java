@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.service.alert;
+
+import com.salesforce.dva.argus.entity.Trigger;
+import com.salesforce.dva.argus.system.SystemException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoublePredicate;
+
+import static com.salesforce.dva.argus.system.SystemAssert.requireArgument;
+
+/**
+ * A set of triggers compiled for repeated evaluation. Each trigger is turned into a predicate specialized for its type and thresholds once, and
+ * every series is then scanned a single time in timestamp order for all triggers together, without copying or sorting its datapoints.
+ *
+ * <p>A trigger fires at the last timestamp of the latest run of consecutive violating datapoints that spans at least the trigger's inertia.
+ * Instances keep per evaluation state and are not thread safe.</p>
+ *
+ * @author  agent (agent@local)
+ */
+final class CompiledTriggers {
+
+    //~ Static fields/initializers *******************************************************************************************************************
+
+    private static final DoublePredicate NEVER = value -> false;
+
+    //~ Instance fields ******************************************************************************************************************************
+
+    private final DoublePredicate[] _predicates;
+    private final long[] _inertias;
+    private final boolean[] _inRun;
+    private final long[] _runStarts;
+    private final long[] _firedTimes;
+    private final boolean[] _fired;
+
+    //~ Constructors *********************************************************************************************************************************
+
+    /**
+     * Compiles the given triggers.
+     *
+     * @param  triggers  The triggers to compile. Cannot be null. Trigger indexes into this list are used to read the results.
+     */
+    CompiledTriggers(List<Trigger> triggers) {
+        requireArgument(triggers != null, "Triggers cannot be null.");
+
+        int size = triggers.size();
+
+        _predicates = new DoublePredicate[size];
+        _inertias = new long[size];
+        _inRun = new boolean[size];
+        _runStarts = new long[size];
+        _firedTimes = new long[size];
+        _fired = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            Trigger trigger = triggers.get(i);
+
+            requireArgument(trigger != null, "Trigger cannot be null.");
+            _predicates[i] = compile(trigger);
+            _inertias[i] = trigger.getInertia();
+        }
+    }
+
+    //~ Methods **************************************************************************************************************************************
+
+    /**
+     * Returns a predicate equivalent to {@link Trigger#evaluateTrigger(Trigger, Double)} for non-null values.
+     *
+     * @param   trigger  The trigger to compile. Cannot be null.
+     *
+     * @return  The predicate that is true for values that violate the trigger.
+     */
+    static DoublePredicate compile(Trigger trigger) {
+        final double threshold;
+        final double low;
+        final double high;
+
+        switch (trigger.getType()) {
+            case GREATER_THAN:
+                threshold = trigger.getThreshold();
+                return value -> Double.compare(value, threshold) > 0;
+            case GREATER_THAN_OR_EQ:
+                threshold = trigger.getThreshold();
+                return value -> Double.compare(value, threshold) >= 0;
+            case LESS_THAN:
+                threshold = trigger.getThreshold();
+                return value -> Double.compare(value, threshold) < 0;
+            case LESS_THAN_OR_EQ:
+                threshold = trigger.getThreshold();
+                return value -> Double.compare(value, threshold) <= 0;
+            case EQUAL:
+                threshold = trigger.getThreshold();
+                return value -> Double.compare(value, threshold) == 0;
+            case NOT_EQUAL:
+                threshold = trigger.getThreshold();
+                return value -> Double.compare(value, threshold) != 0;
+            case BETWEEN:
+                low = Math.min(trigger.getThreshold(), trigger.getSecondaryThreshold());
+                high = Math.max(trigger.getThreshold(), trigger.getSecondaryThreshold());
+                return value -> Double.compare(value, low) >= 0 && Double.compare(value, high) <= 0;
+            case NOT_BETWEEN:
+                low = Math.min(trigger.getThreshold(), trigger.getSecondaryThreshold());
+                high = Math.max(trigger.getThreshold(), trigger.getSecondaryThreshold());
+                return value -> Double.compare(value, low) < 0 || Double.compare(value, high) > 0;
+            case NO_DATA:
+                return NEVER;
+            default:
+                throw new SystemException("Unsupported trigger type " + trigger.getType());
+        }
+    }
+
+    /**
+     * Evaluates all triggers against a series. The results are available from {@link #isFired(int)} and {@link #getFiredTime(int)} until the
+     * next call.
+     *
+     * @param  datapoints  The datapoints of the series, ordered by timestamp as in {@link com.salesforce.dva.argus.entity.Metric}. Cannot be
+     *                     null. Null values break a run of violating datapoints.
+     */
+    void evaluate(Map<Long, Double> datapoints) {
+        int size = _predicates.length;
+
+        for (int i = 0; i < size; i++) {
+            _inRun[i] = false;
+            _fired[i] = false;
+        }
+        for (Map.Entry<Long, Double> datapoint : datapoints.entrySet()) {
+            long timestamp = datapoint.getKey();
+            Double value = datapoint.getValue();
+
+            for (int i = 0; i < size; i++) {
+                if (value == null || !_predicates[i].test(value)) {
+                    _inRun[i] = false;
+                    continue;
+                }
+                if (!_inRun[i]) {
+                    _inRun[i] = true;
+                    _runStarts[i] = timestamp;
+                }
+                if (timestamp - _runStarts[i] >= _inertias[i]) {
+                    _fired[i] = true;
+                    _firedTimes[i] = timestamp;
+                }
+            }
+        }
+    }
+
+    /**
+     * Indicates whether a trigger fired during the last evaluation.
+     *
+     * @param   index  The index of the trigger.
+     *
+     * @return  True if the trigger fired.
+     */
+    boolean isFired(int index) {
+        return _fired[index];
+    }
+
+    /**
+     * Returns the time at which a trigger fired during the last evaluation.
+     *
+     * @param   index  The index of the trigger.
+     *
+     * @return  The fired time, or null if the trigger did not fire.
+     */
+    Long getFiredTime(int index) {
+        return _fired[index] ? _firedTimes[index] : null;
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
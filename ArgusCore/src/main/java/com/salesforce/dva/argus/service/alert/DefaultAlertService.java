@@ -56,6 +56,7 @@ import com.salesforce.dva.argus.service.MonitorService.Counter;
 import com.salesforce.dva.argus.service.NotifierFactory;
 import com.salesforce.dva.argus.service.TSDBService;
 import com.salesforce.dva.argus.service.jpa.DefaultJPAService;
+import com.salesforce.dva.argus.service.metric.MetricExpressionPlan;
 import com.salesforce.dva.argus.service.metric.transform.MissingDataException;
 import com.salesforce.dva.argus.system.SystemConfiguration;
 import com.salesforce.dva.argus.util.AlertUtils;
@@ -74,15 +75,16 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -127,6 +129,10 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 	private final MonitorService _monitorService;
 	private final NotifierFactory _notifierFactory;
 	private final ObjectMapper _mapper = new ObjectMapper();
+	private final Map<BigInteger, VersionedAlert> _alertDefinitions;
+	private final AlertSideEffectSink _sideEffects;
+	private final NotificationDispatcher _notificationDispatcher;
+	private final Queue<NotificationStatusChange> _undeliveredNotifications = new ConcurrentLinkedQueue<>();
 	private static NotificationsCache _notificationsCache = null;
 	private static List<Pattern> _whiteListedScopeRegexPatterns = null;
 
@@ -164,6 +170,38 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 		_notifierFactory = notifierFactory;
 		_emProvider = emProvider;
 
+		final int maxAlertDefinitions = Integer.parseInt(_configuration.getValue(SystemConfiguration.Property.ALERT_DEFINITION_CACHE_MAX_ENTRIES));
+		_alertDefinitions = Collections.synchronizedMap(new LinkedHashMap<BigInteger, VersionedAlert>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<BigInteger, VersionedAlert> eldest) {
+				return size() > maxAlertDefinitions;
+			}
+		});
+
+		if(Boolean.valueOf(_configuration.getValue(SystemConfiguration.Property.ALERT_SIDE_EFFECTS_ASYNC))) {
+			_sideEffects = new AlertSideEffectSink(_historyService, _tsdbService,
+					Integer.parseInt(_configuration.getValue(SystemConfiguration.Property.ALERT_SIDE_EFFECTS_CAPACITY)),
+					Long.parseLong(_configuration.getValue(SystemConfiguration.Property.ALERT_SIDE_EFFECTS_FLUSH_INTERVAL_MILLIS)));
+		} else {
+			_sideEffects = null;
+		}
+
+		if(Boolean.valueOf(_configuration.getValue(SystemConfiguration.Property.NOTIFICATION_DISPATCH_ASYNC))) {
+			_notificationDispatcher = new NotificationDispatcher(_monitorService,
+					NotificationDispatcher.parseConcurrency(_configuration.getValue(SystemConfiguration.Property.NOTIFICATION_DISPATCH_CONCURRENCY)),
+					Integer.parseInt(_configuration.getValue(SystemConfiguration.Property.NOTIFICATION_DISPATCH_DEFAULT_CONCURRENCY)),
+					Integer.parseInt(_configuration.getValue(SystemConfiguration.Property.NOTIFICATION_DISPATCH_QUEUE_CAPACITY)),
+					Integer.parseInt(_configuration.getValue(SystemConfiguration.Property.NOTIFICATION_DISPATCH_MAX_ATTEMPTS)),
+					Long.parseLong(_configuration.getValue(SystemConfiguration.Property.NOTIFICATION_DISPATCH_BACKOFF_MILLIS)),
+					Integer.parseInt(_configuration.getValue(SystemConfiguration.Property.NOTIFICATION_DISPATCH_BREAKER_THRESHOLD)),
+					Long.parseLong(_configuration.getValue(SystemConfiguration.Property.NOTIFICATION_DISPATCH_BREAKER_COOLDOWN_MILLIS)));
+		} else {
+			_notificationDispatcher = null;
+		}
+
 		_initializeObjectMapper();
 	}
 
@@ -331,16 +369,17 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 
 		// if cache is refreshed, we read the cooldown and trigger info from cache, else we query the db directly
 		if(_notificationsCache.isNotificationsCacheRefreshed()) {
+			List<Notification> uncached = new ArrayList<>();
 			for(Notification notification : notifications) {
-				if(_notificationsCache.getNotificationActiveStatusMap().get(notification.getId())!=null) {
-					notification.setActiveStatusMap(_notificationsCache.getNotificationActiveStatusMap().get(notification.getId()));
-				}else {
-					notification.getActiveStatusMap().clear();
+				if(!_notificationsCache.apply(notification)) {
+					uncached.add(notification);
 				}
-				if(_notificationsCache.getNotificationCooldownExpirationMap().get(notification.getId())!=null) {
-					notification.setCooldownExpirationMap(_notificationsCache.getNotificationCooldownExpirationMap().get(notification.getId()));
-				}else {
-					notification.getCooldownExpirationMap().clear();
+			}
+			// notifications the cache has not seen yet are read from the db once and cached
+			if(!uncached.isEmpty()) {
+				Notification.updateActiveStatusAndCooldown(_emProvider.get(), uncached);
+				for(Notification notification : uncached) {
+					_notificationsCache.put(notification);
 				}
 			}
 		}else {
@@ -365,6 +404,12 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 
 		for(AlertWithTimestamp alertWithTimestamp : alertsWithTimestamp) {
 			String serializedAlert = alertWithTimestamp.getSerializedAlert();
+			if(serializedAlert == null) {
+				serializedAlert = _getSerializedAlert(alertWithTimestamp.getAlertId(), alertWithTimestamp.getAlertVersion());
+				if(serializedAlert == null) {
+					continue;
+				}
+			}
 			Alert alert;
 			try {
 				alert = _mapper.readValue(serializedAlert, Alert.class);
@@ -387,6 +432,8 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 			allNotifications.addAll(notifications);
 		}
 
+		_rollbackUndeliveredNotifications();
+
 		// Update the state of notification objects from the database since the notification contained 	
 		// in the serialized alert might be stale. This is because the scheduler only refreshes the alerts	
 		// after a specified REFRESH_INTERVAL. And within this interval, the notification state may have changed.	
@@ -398,6 +445,7 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 		}
 
 		Set<Alert> alerts = new HashSet<>(alertsByNotificationId.values());
+		Map<String, SharedQueryResult> sharedQueryResults = new HashMap<>();
 		for (Alert alert : alerts) {
 			long jobStartTime = System.currentTimeMillis();
 			long jobEndTime = 0;
@@ -423,7 +471,7 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 						logMessage = MessageFormat.format("Skipping evaluating the alert with id: {0}. because metric data was lagging", alert.getId());
 						_logger.info(logMessage);
 						_appendMessageNUpdateHistory(history, logMessage, null, 0);
-						history = _historyService.createHistory(alert, history.getMessage(), history.getJobStatus(), history.getExecutionTime());
+						history = _createHistory(alert, history);
 						historyList.add(history);
 						Map<String, String> tags = new HashMap<>();
 						tags.put(USERTAG, alert.getOwner().getUserName());
@@ -444,7 +492,7 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 			
 			try {
 				alertEnqueueTimestamp = alertEnqueueTimestampsByAlertId.get(alert.getId());
-				List<Metric> metrics = _metricService.getMetrics(alert.getExpression(), alertEnqueueTimestamp);
+				List<Metric> metrics = _getSharedMetrics(alert.getExpression(), alertEnqueueTimestamp, sharedQueryResults);
 
 				if(metrics.isEmpty()) {
 					if (alert.isMissingDataNotificationEnabled()) {
@@ -552,13 +600,81 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 				Map<String, String> tags = new HashMap<>();
 				tags.put(USERTAG, alert.getOwner().getUserName());
 				_monitorService.modifyCounter(Counter.ALERTS_EVALUATED, 1, tags);
-				history = _historyService.createHistory(alert, history.getMessage(), history.getJobStatus(), history.getExecutionTime());
+				history = _createHistory(alert, history);
 				historyList.add(history);
 			}
 		} // end for
+
+		int sharedQueryCount = 0;
+		for(SharedQueryResult result : sharedQueryResults.values()) {
+			sharedQueryCount += result.uses - 1;
+		}
+		_monitorService.modifyCounter(Counter.ALERTS_EXPRESSIONS_EVALUATED, sharedQueryResults.size(), null);
+		_monitorService.modifyCounter(Counter.ALERTS_EXPRESSIONS_SHARED, sharedQueryCount, null);
 		return historyList;
 	}
 
+	/*
+	 * Returns the serialized definition of an alert enqueued by id and version. Definitions are kept in a local cache and reloaded from the
+	 * database only when the enqueued version is newer than the cached one, so a batch still carrying an older version never evicts a newer
+	 * definition. Returns null if the alert no longer exists.
+	 */
+	private String _getSerializedAlert(BigInteger alertId, long alertVersion) {
+		VersionedAlert cached = _alertDefinitions.get(alertId);
+		if(cached != null && cached.version >= alertVersion) {
+			return cached.serializedAlert;
+		}
+
+		Alert alert = findAlertByPrimaryKey(alertId);
+		if(alert == null) {
+			_logger.warn("Alert {} enqueued for evaluation no longer exists.", alertId);
+			return null;
+		}
+		try {
+			cached = new VersionedAlert(_getAlertVersion(alert), _mapper.writeValueAsString(alert));
+		} catch (JsonProcessingException e) {
+			_logger.warn("Failed to serialize alert: {}.", alertId, e);
+			return null;
+		}
+		_alertDefinitions.put(alertId, cached);
+		return cached.serializedAlert;
+	}
+
+	private static long _getAlertVersion(Alert alert) {
+		Date modifiedDate = alert.getModifiedDate();
+		return modifiedDate == null ? 0L : modifiedDate.getTime();
+	}
+
+	/*
+	 * Evaluates an alert expression once for all the alerts of a batch that share it and were enqueued in the same minute. The expression is
+	 * evaluated relative to the enqueue time of the first of these alerts. Each alert gets its own copy of the metrics, since notification
+	 * processing may modify them, and failures are rethrown for every alert sharing the expression.
+	 */
+	private List<Metric> _getSharedMetrics(String expression, long alertEnqueueTimestamp, Map<String, SharedQueryResult> sharedQueryResults) {
+		String key = MetricExpressionPlan.normalize(expression) + "@" + alertEnqueueTimestamp / (60 * 1000);
+		SharedQueryResult result = sharedQueryResults.get(key);
+
+		if(result == null) {
+			result = new SharedQueryResult();
+			sharedQueryResults.put(key, result);
+			try {
+				result.metrics = _metricService.getMetrics(expression, alertEnqueueTimestamp);
+			} catch(RuntimeException ex) {
+				result.exception = ex;
+			}
+		}
+		result.uses++;
+		if(result.exception != null) {
+			throw result.exception;
+		}
+
+		List<Metric> metrics = new ArrayList<>(result.metrics.size());
+		for(Metric metric : result.metrics) {
+			metrics.add(new Metric(metric));
+		}
+		return metrics;
+	}
+
 
 
 	/**
@@ -575,8 +691,10 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 					String logMessage = MessageFormat.format("The trigger {0} was evaluated against metric {1} and it is fired.", trigger.getName(), m.getIdentifier());
 					_appendMessageNUpdateHistory(history, logMessage, null, 0);
 					if(!notification.onCooldown(trigger, m)) {
-						_updateNotificationSetActiveStatus(trigger, m, history, notification);
-						sendNotification(trigger, m, history, notification, alert, triggerFiredTimesForMetrics.get(m), alertEnqueueTimestamp);
+						if(_admitNotification(history, notification)) {
+							NotificationStatusChange change = _updateNotificationSetActiveStatus(trigger, m, history, notification);
+							_sendNotification(trigger, m, history, notification, alert, triggerFiredTimesForMetrics.get(m), alertEnqueueTimestamp, change);
+						}
 					} else {
 						logMessage = MessageFormat.format("The notification {0} is on cooldown until {1}.", notification.getName(), getDateMMDDYYYY(notification.getCooldownExpirationByTriggerAndMetric(trigger, m)));
 						_appendMessageNUpdateHistory(history, logMessage, null, 0);
@@ -584,11 +702,11 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 				} else {
 					String logMessage = MessageFormat.format("The trigger {0} was evaluated against metric {1} and it is not fired.", trigger.getName(), m.getIdentifier());
 					_appendMessageNUpdateHistory(history, logMessage, null, 0);
-					if(notification.isActiveForTriggerAndMetric(trigger, m)) {
+					if(notification.isActiveForTriggerAndMetric(trigger, m) && _admitNotification(history, notification)) {
 						// This is case when the notification was active for the given trigger, metric combination
 						// and the metric did not violate triggering condition on current evaluation. Hence we must clear it.
-						_updateNotificationClearActiveStatus(trigger, m, notification);
-						sendClearNotification(trigger, m, history, notification, alert, alertEnqueueTimestamp);
+						NotificationStatusChange change = _updateNotificationClearActiveStatus(trigger, m, notification);
+						_sendClearNotification(trigger, m, history, notification, alert, alertEnqueueTimestamp, change);
 					}
 				}
 			}
@@ -606,8 +724,10 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 					String logMessage = MessageFormat.format("The trigger {0} was evaluated and it is fired as data for the metric expression {1} does not exist", trigger.getName(), alert.getExpression());
 					_appendMessageNUpdateHistory(history, logMessage, null, 0);
 					if(!notification.onCooldown(trigger, m)) {
-						_updateNotificationSetActiveStatus(trigger, m, history, notification);
-						sendNotification(trigger, m, history, notification, alert, System.currentTimeMillis(), alertEnqueueTimestamp);
+						if(_admitNotification(history, notification)) {
+							NotificationStatusChange change = _updateNotificationSetActiveStatus(trigger, m, history, notification);
+							_sendNotification(trigger, m, history, notification, alert, System.currentTimeMillis(), alertEnqueueTimestamp, change);
+						}
 					} else {
 						logMessage = MessageFormat.format("The notification {0} is on cooldown until {1}.", notification.getName(), getDateMMDDYYYY(notification.getCooldownExpirationByTriggerAndMetric(trigger, m)));
 						_appendMessageNUpdateHistory(history, logMessage, null, 0);
@@ -615,11 +735,11 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 				} else {
 					String logMessage = MessageFormat.format("The trigger {0} was evaluated and it is not fired as data exists for the expression {1}", trigger.getName(), alert.getExpression());
 					_appendMessageNUpdateHistory(history, logMessage, null, 0);
-					if(notification.isActiveForTriggerAndMetric(trigger, m)) {
+					if(notification.isActiveForTriggerAndMetric(trigger, m) && _admitNotification(history, notification)) {
 						// This is case when the notification was active for the given trigger, metric combination
 						// and the metric did not violate triggering condition on current evaluation. Hence we must clear it.
-						_updateNotificationClearActiveStatus(trigger, m, notification);
-						sendClearNotification(trigger, m, history, notification, alert, alertEnqueueTimestamp);
+						NotificationStatusChange change = _updateNotificationClearActiveStatus(trigger, m, notification);
+						_sendClearNotification(trigger, m, history, notification, alert, alertEnqueueTimestamp, change);
 					}
 				}
 			}
@@ -650,20 +770,28 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 	 */
 	private Map<BigInteger, Map<Metric, Long>> _evaluateTriggers(Set<Trigger> triggers, List<Metric> metrics, History history) {
 		Map<BigInteger, Map<Metric, Long>> triggerFiredTimesAndMetricsByTrigger = new HashMap<>();
+		List<Trigger> triggerList = new ArrayList<>(triggers);
+		List<Map<Metric, Long>> triggerFiredTimesForMetrics = new ArrayList<>(triggerList.size());
+		CompiledTriggers compiledTriggers = new CompiledTriggers(triggerList);
+
+		for(Trigger trigger : triggerList) {
+			Map<Metric, Long> firedTimes = new HashMap<>(metrics.size());
+			triggerFiredTimesForMetrics.add(firedTimes);
+			triggerFiredTimesAndMetricsByTrigger.put(trigger.getId(), firedTimes);
+		}
 
-		for(Trigger trigger : triggers) {
-			Map<Metric, Long> triggerFiredTimesForMetrics = new HashMap<>(metrics.size());
-			for(Metric metric : metrics) {
-				Long triggerFiredTime = getTriggerFiredDatapointTime(trigger, metric);
-
-				if (triggerFiredTime != null) {
-					triggerFiredTimesForMetrics.put(metric, triggerFiredTime);
+		// every series is scanned once for all triggers of the alert
+		for(Metric metric : metrics) {
+			compiledTriggers.evaluate(metric.getDatapoints());
+			for(int i = 0; i < triggerList.size(); i++) {
+				if (compiledTriggers.isFired(i)) {
+					Trigger trigger = triggerList.get(i);
+					triggerFiredTimesForMetrics.get(i).put(metric, compiledTriggers.getFiredTime(i));
 					Map<String, String> tags = new HashMap<>();
 					tags.put(USERTAG, trigger.getAlert().getOwner().getUserName());
 					_monitorService.modifyCounter(Counter.TRIGGERS_VIOLATED, 1, tags);
 				}
 			}
-			triggerFiredTimesAndMetricsByTrigger.put(trigger.getId(), triggerFiredTimesForMetrics);
 		}
 		return triggerFiredTimesAndMetricsByTrigger;
 	}
@@ -671,6 +799,19 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 
 	public void sendNotification(Trigger trigger, Metric metric, History history, Notification notification, Alert alert,
 			Long triggerFiredTime, Long alertEnqueueTime) {
+		_sendNotification(trigger, metric, history, notification, alert, triggerFiredTime, alertEnqueueTime, null);
+	}
+
+	public void sendClearNotification(Trigger trigger, Metric metric, History history, Notification notification, Alert alert, Long alertEnqueueTime) {
+		_sendClearNotification(trigger, metric, history, notification, alert, alertEnqueueTime, null);
+	}
+
+	/*
+	 * Sends the notification. If it is dropped, or its asynchronous delivery fails, the given status change is rolled back so that a later
+	 * evaluation notifies again instead of waiting out a cool down nobody was told about.
+	 */
+	private void _sendNotification(Trigger trigger, Metric metric, History history, Notification notification, Alert alert,
+			Long triggerFiredTime, Long alertEnqueueTime, NotificationStatusChange change) {
 
 		double value = 0.0;
 		if(!trigger.getType().equals(TriggerType.NO_DATA)){
@@ -678,8 +819,11 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 		}
 		NotificationContext context = new NotificationContext(alert, trigger, notification, triggerFiredTime, value, metric);
 		context.setAlertEnqueueTimestamp(alertEnqueueTime);
-		Notifier notifier = getNotifier(SupportedNotifier.fromClassName(notification.getNotifierName()));
-		notifier.sendNotification(context);
+		if(!_dispatchNotification(notification, context, false, change)) {
+			_rollbackNotificationStatus(notification, change);
+			_appendDroppedMessage(history, notification);
+			return;
+		}
 
 		Map<String, String> tags = new HashMap<>();
 		tags.put("status", "active");
@@ -693,12 +837,15 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 		_appendMessageNUpdateHistory(history, logMessage, null, 0);
 	}
 
-	public void sendClearNotification(Trigger trigger, Metric metric, History history, Notification notification, Alert alert, Long alertEnqueueTime) {
+	private void _sendClearNotification(Trigger trigger, Metric metric, History history, Notification notification, Alert alert,
+			Long alertEnqueueTime, NotificationStatusChange change) {
 		NotificationContext context = new NotificationContext(alert, trigger, notification, System.currentTimeMillis(), 0.0, metric);
 		context.setAlertEnqueueTimestamp(alertEnqueueTime);
-		Notifier notifier = getNotifier(SupportedNotifier.fromClassName(notification.getNotifierName()));
-
-		notifier.clearNotification(context);
+		if(!_dispatchNotification(notification, context, true, change)) {
+			_rollbackNotificationStatus(notification, change);
+			_appendDroppedMessage(history, notification);
+			return;
+		}
 
 		Map<String, String> tags = new HashMap<>();
 		tags.put("status", "clear");
@@ -711,11 +858,71 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 		_appendMessageNUpdateHistory(history, logMessage, null, 0);
 	}
 
+	/*
+	 * Delivers the notification inline, or hands a snapshot of it to the dispatcher when asynchronous dispatch is enabled so that evaluation
+	 * does not wait on the notifier endpoint. Returns false if the dispatcher dropped the notification. If a queued notification cannot be
+	 * delivered, the status change is queued for rollback by the next evaluation.
+	 */
+	private boolean _dispatchNotification(Notification notification, NotificationContext context, boolean clear, NotificationStatusChange change) {
+		SupportedNotifier type = SupportedNotifier.fromClassName(notification.getNotifierName());
+		Notifier notifier = getNotifier(type);
+
+		if(_notificationDispatcher != null) {
+			return _notificationDispatcher.dispatch(type, notifier, context.snapshot(), clear,
+					change == null ? null : () -> _undeliveredNotifications.add(change));
+		} else if(clear) {
+			notifier.clearNotification(context);
+		} else {
+			notifier.sendNotification(context);
+		}
+		return true;
+	}
+
+	/*
+	 * Checks that the dispatcher would take a notification of this type before its status is changed, so that a notification that would be
+	 * dropped does not put the trigger on cool down. Always true when notifications are delivered inline.
+	 */
+	private boolean _admitNotification(History history, Notification notification) {
+		if(_notificationDispatcher == null || _notificationDispatcher.admit(SupportedNotifier.fromClassName(notification.getNotifierName()))) {
+			return true;
+		}
+		_appendDroppedMessage(history, notification);
+		return false;
+	}
+
+	private void _appendDroppedMessage(History history, Notification notification) {
+		String logMessage = MessageFormat.format("The notification {0} was dropped because its notifier is overloaded or unavailable.",
+				notification.getName());
+
+		_logger.warn(logMessage);
+		_appendMessageNUpdateHistory(history, logMessage, null, 0);
+	}
+
+	/*
+	 * Records the final history of an alert evaluation. With asynchronous side effects enabled, the record is handed to the sink and written
+	 * in bulk with the rest of the batch.
+	 */
+	private History _createHistory(Alert alert, History history) {
+		if(_sideEffects == null) {
+			return _historyService.createHistory(alert, history.getMessage(), history.getJobStatus(), history.getExecutionTime());
+		}
+
+		History result = new History(history.getMessage(), SystemConfiguration.getHostname(), alert.getId(), history.getJobStatus(),
+				history.getExecutionTime());
+
+		_sideEffects.addHistory(result);
+		return result;
+	}
+
 	private void publishAlertTrackingMetric(String scope, BigInteger alertId, double value) {
 		Map<Long, Double> datapoints = new HashMap<>();
 		datapoints.put(1000 * 60 * (System.currentTimeMillis()/(1000 *60)), value);
 		Metric trackingMetric = new Metric(scope, "alert-" + alertId.intValue());
 		trackingMetric.addDatapoints(datapoints);
+		if(_sideEffects != null) {
+			_sideEffects.addMetric(trackingMetric);
+			return;
+		}
 		try {
 			_tsdbService.putMetrics(Arrays.asList(new Metric[] {trackingMetric}));
 		} catch (Exception ex) {
@@ -723,16 +930,62 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 		}
 	}
 
-	private void _updateNotificationSetActiveStatus(Trigger trigger, Metric metric, History history, Notification notification) {
-		notification.setCooldownExpirationByTriggerAndMetric(trigger, metric, System.currentTimeMillis() + notification.getCooldownPeriod());
-		notification.setActiveForTriggerAndMetric(trigger, metric, true);
-		notification = mergeEntity(_emProvider.get(), notification);
+	private NotificationStatusChange _updateNotificationSetActiveStatus(Trigger trigger, Metric metric, History history, Notification notification) {
+		return _updateNotificationStatus(trigger, metric, notification, System.currentTimeMillis() + notification.getCooldownPeriod(), true);
+	}
+
+	private NotificationStatusChange _updateNotificationClearActiveStatus(Trigger trigger, Metric metric, Notification notification) {
+		return _updateNotificationStatus(trigger, metric, notification, System.currentTimeMillis(), false);
+	}
+
+	private NotificationStatusChange _updateNotificationStatus(Trigger trigger, Metric metric, Notification notification, long cooldownExpiration,
+			boolean active) {
+		NotificationStatusChange change = new NotificationStatusChange(notification, trigger, metric, cooldownExpiration, active);
+
+		notification.setCooldownExpirationByTriggerAndMetric(trigger, metric, cooldownExpiration);
+		notification.setActiveForTriggerAndMetric(trigger, metric, active);
+		_mergeNotificationState(notification);
+		return change;
+	}
+
+	/*
+	 * Restores the active status and cool down the notification had before the given change, unless its status has changed again since.
+	 * Returns true if the status was restored.
+	 */
+	private boolean _rollbackNotificationStatus(Notification notification, NotificationStatusChange change) {
+		if(notification == null || change == null || !change.isCurrent(notification)) {
+			return false;
+		}
+		notification.setCooldownExpirationByTriggerAndMetric(change.trigger, change.metric, change.previousCooldownExpiration);
+		notification.setActiveForTriggerAndMetric(change.trigger, change.metric, change.previousActive);
+		_mergeNotificationState(notification);
+		return true;
+	}
+
+	/*
+	 * Rolls back the status changes of notifications whose asynchronous delivery failed. The dispatcher only queues them, so that the entity
+	 * manager is used on the evaluation thread, before the next batch reads the notification state.
+	 */
+	private void _rollbackUndeliveredNotifications() {
+		EntityManager em = _emProvider.get();
+
+		for(NotificationStatusChange change = _undeliveredNotifications.poll(); change != null; change = _undeliveredNotifications.poll()) {
+			if(_rollbackNotificationStatus(findEntity(em, change.notificationId, Notification.class), change)) {
+				_logger.info("Rolled back the status of undelivered notification {} for trigger {}.", change.notificationId, change.trigger.getId());
+			}
+		}
 	}
 
-	private void _updateNotificationClearActiveStatus(Trigger trigger, Metric metric, Notification notification) {
-		notification.setCooldownExpirationByTriggerAndMetric(trigger, metric, System.currentTimeMillis());
-		notification.setActiveForTriggerAndMetric(trigger, metric, false);
-		notification = mergeEntity(_emProvider.get(), notification);
+	/*
+	 * Persists the notification state and applies it to the local cache right away. Bumping the modified date makes the change visible to the
+	 * incremental refresh of the notifications cache on other hosts.
+	 */
+	private void _mergeNotificationState(Notification notification) {
+		notification.setModifiedDate(new Date());
+		mergeEntity(_emProvider.get(), notification);
+		if(_notificationsCache != null) {
+			_notificationsCache.put(notification);
+		}
 	}
 
 	private void _appendMessageNUpdateHistory(History history, String message, JobStatus jobStatus, long executionTime) {
@@ -800,15 +1053,31 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 
 	@Override
 	public void enqueueAlerts(List<Alert> alerts) {
+		_enqueueAlerts(alerts, null);
+	}
+
+	@Override
+	public void enqueueAlerts(List<Alert> alerts, long alertEnqueueTime) {
+		_enqueueAlerts(alerts, alertEnqueueTime);
+	}
+
+	private void _enqueueAlerts(List<Alert> alerts, Long alertEnqueueTime) {
 		requireNotDisposed();
 		requireArgument(alerts != null, "The list of alerts cannot be null.");
 
 		List<AlertWithTimestamp> alertsWithTimestamp = new ArrayList<>(alerts.size());
+		boolean compact = Boolean.valueOf(_configuration.getValue(SystemConfiguration.Property.ALERT_ENQUEUE_COMPACT));
 		for (Alert alert : alerts) {
 			AlertWithTimestamp obj;
+			if (compact) {
+				// evaluators resolve the definition from the id and version
+				alertsWithTimestamp.add(new AlertWithTimestamp(alert.getId(), _getAlertVersion(alert),
+						alertEnqueueTime == null ? System.currentTimeMillis() : alertEnqueueTime));
+				continue;
+			}
 			try {
 				String serializedAlert = _mapper.writeValueAsString(alert);
-				obj = new AlertWithTimestamp(serializedAlert, System.currentTimeMillis());
+				obj = new AlertWithTimestamp(serializedAlert, alertEnqueueTime == null ? System.currentTimeMillis() : alertEnqueueTime);
 			} catch (JsonProcessingException e) {
 				_logger.warn("Failed to serialize alert: {}.", alert.getId().intValue());
 				_logger.warn("", e);
@@ -1000,6 +1269,12 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 	@Override
 	public void dispose() {
 		super.dispose();
+		if(_notificationDispatcher != null) {
+			_notificationDispatcher.close(30000L);
+		}
+		if(_sideEffects != null) {
+			_sideEffects.close();
+		}
 		_metricService.dispose();
 	}
 
@@ -1012,42 +1287,10 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 	 * @return  The time stamp of the last data point in metric at which the trigger was decided to be fired.
 	 */
 	public Long getTriggerFiredDatapointTime(Trigger trigger, Metric metric) {
-		List<Map.Entry<Long, Double>> sortedDatapoints = new ArrayList<>(metric.getDatapoints().entrySet());
-
-		if (metric.getDatapoints().isEmpty()) {
-			return null;
-		} else if (metric.getDatapoints().size() == 1) {
-			if (trigger.getInertia().compareTo(0L) <= 0) {
-				if (Trigger.evaluateTrigger(trigger, sortedDatapoints.get(0).getValue())) {
-					return sortedDatapoints.get(0).getKey();
-				} else {
-					return null;
-				}
-			} else {
-				return null;
-			}
-		}
-
-		Collections.sort(sortedDatapoints, new Comparator<Map.Entry<Long, Double>>() {
-
-			@Override
-			public int compare(Entry<Long, Double> e1, Entry<Long, Double> e2) {
-				return e1.getKey().compareTo(e2.getKey());
-			}
-		});
-
-		int endIndex = sortedDatapoints.size();
+		CompiledTriggers compiledTriggers = new CompiledTriggers(Collections.singletonList(trigger));
 
-		for(int startIndex=sortedDatapoints.size()-1; startIndex>=0; startIndex--){
-			if(Trigger.evaluateTrigger(trigger, sortedDatapoints.get(startIndex).getValue())){
-				Long interval = sortedDatapoints.get(endIndex-1).getKey() - sortedDatapoints.get(startIndex).getKey();
-				if(interval >= trigger.getInertia())
-					return sortedDatapoints.get(endIndex-1).getKey();
-			}else{
-				endIndex=startIndex;
-			}
-		}
-		return null;
+		compiledTriggers.evaluate(metric.getDatapoints());
+		return compiledTriggers.getFiredTime(0);
 	}
 
 	@Override
@@ -1094,9 +1337,64 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 
 	//~ Inner Classes ********************************************************************************************************************************
 
+	/**
+	 * A serialized alert definition and the modification time it was serialized at.
+	 */
+	private static class VersionedAlert {
+
+		private final long version;
+		private final String serializedAlert;
+
+		VersionedAlert(long version, String serializedAlert) {
+			this.version = version;
+			this.serializedAlert = serializedAlert;
+		}
+	}
+
+	/**
+	 * A change of the active status and cool down of a notification for a trigger and metric, kept so that it can be rolled back when the
+	 * notification is not delivered.
+	 */
+	private static class NotificationStatusChange {
+
+		private final BigInteger notificationId;
+		private final Trigger trigger;
+		private final Metric metric;
+		private final long previousCooldownExpiration;
+		private final boolean previousActive;
+		private final long cooldownExpiration;
+		private final boolean active;
+
+		NotificationStatusChange(Notification notification, Trigger trigger, Metric metric, long cooldownExpiration, boolean active) {
+			this.notificationId = notification.getId();
+			this.trigger = trigger;
+			this.metric = metric;
+			this.previousCooldownExpiration = notification.getCooldownExpirationByTriggerAndMetric(trigger, metric);
+			this.previousActive = notification.isActiveForTriggerAndMetric(trigger, metric);
+			this.cooldownExpiration = cooldownExpiration;
+			this.active = active;
+		}
+
+		boolean isCurrent(Notification notification) {
+			return notification.getCooldownExpirationByTriggerAndMetric(trigger, metric) == cooldownExpiration &&
+					notification.isActiveForTriggerAndMetric(trigger, metric) == active;
+		}
+	}
+
+	/**
+	 * The result of evaluating an expression shared by several alerts of a batch.
+	 */
+	private static class SharedQueryResult {
+
+		private List<Metric> metrics;
+		private RuntimeException exception;
+		private int uses;
+	}
+
 	/**
 	 * Used to enqueue alerts to evaluate.  The timestamp is used to reconcile lag between enqueue time 
 	 * and evaluation time by adjusting relative times in the alert metric expression being evaluated.
+	 * The alert is carried either serialized in full or, in the compact form, as its id and version only.
 	 *
 	 * @author  Bhinav Sura (bhinav.sura@salesforce.com)
 	 */
@@ -1105,6 +1403,8 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 		/** The serial version UID. */
 		private static final long serialVersionUID = 1L;
 		protected String serializedAlert;
+		protected BigInteger alertId;
+		protected long alertVersion;
 		protected long alertEnqueueTime;
 
 		/** Creates a new AlertIdWithTimestamp object. */
@@ -1121,6 +1421,19 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 			this.alertEnqueueTime = timestamp;
 		}
 
+		/**
+		 * Creates a new compact AlertWithTimestamp object that references the alert by id.
+		 *
+		 * @param  alertId       The id of the alert.
+		 * @param  alertVersion  The version of the alert definition, its modification time in milliseconds.
+		 * @param  timestamp     The epoch timestamp the alert was enqueued for evaluation.
+		 */
+		public AlertWithTimestamp(BigInteger alertId, long alertVersion, long timestamp) {
+			this.alertId = alertId;
+			this.alertVersion = alertVersion;
+			this.alertEnqueueTime = timestamp;
+		}
+
 		public String getSerializedAlert() {
 			return serializedAlert;
 		}
@@ -1129,6 +1442,22 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 			this.serializedAlert = serializedAlert;
 		}
 
+		public BigInteger getAlertId() {
+			return alertId;
+		}
+
+		public void setAlertId(BigInteger alertId) {
+			this.alertId = alertId;
+		}
+
+		public long getAlertVersion() {
+			return alertVersion;
+		}
+
+		public void setAlertVersion(long alertVersion) {
+			this.alertVersion = alertVersion;
+		}
+
 		public long getAlertEnqueueTime() {
 			return alertEnqueueTime;
 		}
@@ -1180,6 +1509,19 @@ public class DefaultAlertService extends DefaultJPAService implements AlertServi
 		/** Creates a new NotificationContext object. */
 		protected NotificationContext() { }
 
+		/*
+		 * Returns a copy of the context with read only copies of the notification and the triggered metric, so that a notifier running on
+		 * another thread does not see changes the evaluation makes after the notification was queued.
+		 */
+		NotificationContext snapshot() {
+			NotificationContext snapshot = new NotificationContext(alert, trigger, new Notification(notification), triggerFiredTime, triggerEventValue,
+					new Metric(triggeredMetric));
+
+			snapshot.coolDownExpiration = coolDownExpiration;
+			snapshot.alertEnqueueTimestamp = alertEnqueueTimestamp;
+			return snapshot;
+		}
+
 		/**
 		 * returns the alert id.
 		 *
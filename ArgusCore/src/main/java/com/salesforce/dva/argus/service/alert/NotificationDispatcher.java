@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.service.alert;
+
+import com.salesforce.dva.argus.service.AlertService.Notifier;
+import com.salesforce.dva.argus.service.AlertService.SupportedNotifier;
+import com.salesforce.dva.argus.service.MonitorService;
+import com.salesforce.dva.argus.service.MonitorService.Counter;
+import com.salesforce.dva.argus.service.alert.DefaultAlertService.NotificationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.salesforce.dva.argus.system.SystemAssert.requireArgument;
+
+/**
+ * Delivers notifications off the alert evaluation thread. Every notifier type has its own lane: a bounded queue drained by a fixed number of
+ * workers, so a slow or unavailable endpoint only holds up notifications of its own type. Failed deliveries are retried with exponential backoff
+ * and jitter. A lane whose deliveries keep failing opens its circuit breaker and drops notifications until the cool down has passed, after
+ * which the next delivery is let through as a probe.
+ *
+ * @author  agent (agent@local)
+ */
+class NotificationDispatcher {
+
+    //~ Instance fields ******************************************************************************************************************************
+
+    private final Logger _logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+    private final MonitorService _monitorService;
+    private final Map<SupportedNotifier, Lane> _lanes = new EnumMap<>(SupportedNotifier.class);
+    private final int _maxAttempts;
+    private final long _backoffMillis;
+    private final int _breakerThreshold;
+    private final long _breakerCooldownMillis;
+
+    //~ Constructors *********************************************************************************************************************************
+
+    /**
+     * Creates a new NotificationDispatcher object.
+     *
+     * @param  monitorService         The monitor service used to record delivery counters. Cannot be null.
+     * @param  concurrency            The number of workers per notifier type. Types that are not present get <tt>defaultConcurrency</tt>.
+     * @param  defaultConcurrency     The number of workers for notifier types without an explicit limit. Must be positive.
+     * @param  queueCapacity          The number of notifications each lane may hold before new ones are dropped. Must be positive.
+     * @param  maxAttempts            The maximum number of delivery attempts per notification. Must be positive.
+     * @param  backoffMillis          The base backoff between attempts. Cannot be negative.
+     * @param  breakerThreshold       The number of consecutive failures that opens a lane's circuit breaker. Must be positive.
+     * @param  breakerCooldownMillis  The time an open circuit breaker stays open. Cannot be negative.
+     */
+    NotificationDispatcher(MonitorService monitorService, Map<SupportedNotifier, Integer> concurrency, int defaultConcurrency, int queueCapacity,
+        int maxAttempts, long backoffMillis, int breakerThreshold, long breakerCooldownMillis) {
+        requireArgument(monitorService != null, "Monitor service cannot be null.");
+        requireArgument(concurrency != null, "Concurrency limits cannot be null.");
+        requireArgument(defaultConcurrency > 0, "Default concurrency must be positive.");
+        requireArgument(queueCapacity > 0, "Queue capacity must be positive.");
+        requireArgument(maxAttempts > 0, "Max attempts must be positive.");
+        requireArgument(backoffMillis >= 0, "Backoff cannot be negative.");
+        requireArgument(breakerThreshold > 0, "Circuit breaker threshold must be positive.");
+        requireArgument(breakerCooldownMillis >= 0, "Circuit breaker cool down cannot be negative.");
+        _monitorService = monitorService;
+        _maxAttempts = maxAttempts;
+        _backoffMillis = backoffMillis;
+        _breakerThreshold = breakerThreshold;
+        _breakerCooldownMillis = breakerCooldownMillis;
+        for (SupportedNotifier type : SupportedNotifier.values()) {
+            Integer workers = concurrency.get(type);
+
+            requireArgument(workers == null || workers > 0, "Concurrency for " + type + " must be positive.");
+            _lanes.put(type, new Lane(type, workers == null ? defaultConcurrency : workers, queueCapacity));
+        }
+    }
+
+    //~ Methods **************************************************************************************************************************************
+
+    /**
+     * Parses per notifier concurrency limits of the form <tt>GOC:4,GUS:2</tt>.
+     *
+     * @param   value  The limits to parse. May be null or empty.
+     *
+     * @return  The concurrency limit by notifier type. Will never be null.
+     */
+    static Map<SupportedNotifier, Integer> parseConcurrency(String value) {
+        Map<SupportedNotifier, Integer> result = new HashMap<>();
+
+        if (value == null || value.trim().isEmpty()) {
+            return result;
+        }
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split(":");
+
+            requireArgument(parts.length == 2, "Invalid notifier concurrency entry: " + entry);
+            result.put(SupportedNotifier.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the backoff before the given retry. The delay doubles with every attempt and half of it is randomized so that retries of
+     * notifications that failed together do not hit the endpoint together again.
+     *
+     * @param   attempt        The attempt that failed, starting at 1.
+     * @param   backoffMillis  The base backoff.
+     *
+     * @return  The delay in milliseconds.
+     */
+    static long getBackoff(int attempt, long backoffMillis) {
+        long delay = backoffMillis << Math.min(attempt - 1, 16);
+        long half = delay / 2;
+
+        return half + (half > 0 ? ThreadLocalRandom.current().nextLong(delay - half + 1) : 0);
+    }
+
+    /**
+     * Indicates whether a notification of the given type would be queued right now. Callers check this before they change any notification
+     * state, so that a notification the lane cannot take leaves nothing behind. A notification that is not admitted is counted as dropped.
+     *
+     * @param   type  The notifier type. Cannot be null.
+     *
+     * @return  True if the lane accepts notifications, false if it is full, closed or its circuit breaker is open.
+     */
+    boolean admit(SupportedNotifier type) {
+        requireArgument(type != null, "Notifier type cannot be null.");
+
+        Lane lane = _lanes.get(type);
+
+        if (!lane.isOpen() && !lane.executor.isShutdown() && lane.executor.getQueue().remainingCapacity() > 0) {
+            return true;
+        }
+
+        Map<String, String> tags = new HashMap<>();
+
+        tags.put("type", lane.type.name());
+        _monitorService.modifyCounter(Counter.NOTIFICATIONS_DROPPED, 1, tags);
+        return false;
+    }
+
+    /**
+     * Queues a notification for delivery. Returns immediately.
+     *
+     * @param   type       The notifier type. Cannot be null.
+     * @param   notifier   The notifier to deliver with. Cannot be null.
+     * @param   context    The notification context. Cannot be null.
+     * @param   clear      True to clear the notification, false to send it.
+     * @param   onFailure  Run on the worker thread if the queued notification is dropped or its last delivery attempt fails. May be null.
+     *
+     * @return  True if the notification was queued, false if it was dropped because the lane is full or its circuit breaker is open.
+     */
+    boolean dispatch(SupportedNotifier type, Notifier notifier, NotificationContext context, boolean clear, Runnable onFailure) {
+        requireArgument(type != null, "Notifier type cannot be null.");
+        requireArgument(notifier != null, "Notifier cannot be null.");
+        requireArgument(context != null, "Notification context cannot be null.");
+
+        Lane lane = _lanes.get(type);
+
+        if (lane.isOpen()) {
+            _drop(lane, context, "its circuit breaker is open");
+            return false;
+        }
+
+        long queuedTime = System.currentTimeMillis();
+
+        try {
+            lane.executor.execute(() -> _deliver(lane, notifier, context, clear, queuedTime, onFailure));
+            return true;
+        } catch (RejectedExecutionException ex) {
+            _drop(lane, context, "its queue is full");
+            return false;
+        }
+    }
+
+    /**
+     * Stops accepting notifications and waits for the queued ones to be delivered.
+     *
+     * @param  timeoutMillis  The maximum time to wait for each lane.
+     */
+    void close(long timeoutMillis) {
+        for (Lane lane : _lanes.values()) {
+            lane.executor.shutdown();
+        }
+        for (Lane lane : _lanes.values()) {
+            try {
+                if (!lane.executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    _logger.warn("{} notifications still queued for {} at shutdown.", lane.executor.shutdownNow().size(), lane.type);
+                }
+            } catch (InterruptedException ex) {
+                lane.executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void _deliver(Lane lane, Notifier notifier, NotificationContext context, boolean clear, long queuedTime, Runnable onFailure) {
+        Map<String, String> tags = new HashMap<>();
+
+        tags.put("type", lane.type.name());
+        for (int attempt = 1; attempt <= _maxAttempts; attempt++) {
+            if (lane.isOpen()) {
+                _drop(lane, context, "its circuit breaker is open");
+                _fail(onFailure);
+                return;
+            }
+            try {
+                if (clear) {
+                    notifier.clearNotification(context);
+                } else {
+                    notifier.sendNotification(context);
+                }
+                lane.onSuccess();
+                _monitorService.modifyCounter(Counter.NOTIFICATIONS_DELIVERY_LATENCY, System.currentTimeMillis() - queuedTime, tags);
+                return;
+            } catch (RuntimeException ex) {
+                lane.onFailure();
+                _logger.warn("Attempt {} of {} to deliver notification {} via {} failed - {}", attempt, _maxAttempts,
+                    context.getNotification().getName(), lane.type, ex.getMessage());
+            }
+            if (attempt < _maxAttempts) {
+                try {
+                    Thread.sleep(getBackoff(attempt, _backoffMillis));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        _monitorService.modifyCounter(Counter.NOTIFICATIONS_FAILED, 1, tags);
+        _logger.error("Failed to deliver notification {} for alert {} via {}.", context.getNotification().getName(), context.getAlert().getId(),
+            lane.type);
+        _fail(onFailure);
+    }
+
+    private void _drop(Lane lane, NotificationContext context, String reason) {
+        Map<String, String> tags = new HashMap<>();
+
+        tags.put("type", lane.type.name());
+        _monitorService.modifyCounter(Counter.NOTIFICATIONS_DROPPED, 1, tags);
+        _logger.error("Dropped notification {} for alert {} via {} because {}.", context.getNotification().getName(), context.getAlert().getId(),
+            lane.type, reason);
+    }
+
+    private void _fail(Runnable onFailure) {
+        if (onFailure == null) {
+            return;
+        }
+        try {
+            onFailure.run();
+        } catch (RuntimeException ex) {
+            _logger.warn("Failed to handle an undelivered notification - {}", ex.getMessage());
+        }
+    }
+
+    //~ Inner Classes ********************************************************************************************************************************
+
+    /**
+     * The queue, workers and circuit breaker of a single notifier type.
+     *
+     * @author  agent (agent@local)
+     */
+    private class Lane {
+
+        private final SupportedNotifier type;
+        private final ThreadPoolExecutor executor;
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile long openUntil;
+
+        Lane(SupportedNotifier type, int workers, int queueCapacity) {
+            AtomicInteger threadCount = new AtomicInteger();
+
+            this.type = type;
+            this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "notification-dispatch-" + type.name().toLowerCase() + "-" + threadCount.incrementAndGet());
+
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        }
+
+        boolean isOpen() {
+            return System.currentTimeMillis() < openUntil;
+        }
+
+        void onSuccess() {
+            consecutiveFailures.set(0);
+        }
+
+        /* Past the threshold every failure, including the probe after a cool down, keeps the breaker open. */
+        void onFailure() {
+            if (consecutiveFailures.incrementAndGet() >= _breakerThreshold) {
+                openUntil = System.currentTimeMillis() + _breakerCooldownMillis;
+                _logger.warn("Circuit breaker for {} notifications is open for {} ms.", type, _breakerCooldownMillis);
+            }
+        }
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
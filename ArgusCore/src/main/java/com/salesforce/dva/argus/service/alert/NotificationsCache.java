@@ -30,28 +30,32 @@
  */
 package com.salesforce.dva.argus.service.alert;
 
-import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.EntityManager;
 
 import com.google.inject.Provider;
+import com.salesforce.dva.argus.entity.Notification;
 
 /*
  * This class maintains a cache which has the latest status of notification properties like cool down and active trigger status. 
  * 
- * The cache is kept up to date by a refresher thread which updates the cache periodically
+ * Updates made by the local evaluator are applied to the cache immediately. Changes made elsewhere are picked up by a refresher thread which
+ * periodically reloads the notifications modified since the last refresh, and the whole cache once in a while.
  */
 public class NotificationsCache {
 	
 	private NotificationsCacheRefresherThread refresherThread;
 
-	private Map<BigInteger/*notificationId*/, Map<String/*metricKey*/, Long/*coolDownExpiration*/>> notificationCooldownExpirationMap = new HashMap<BigInteger, Map<String, Long>>();
+	private final Map<Long/*notificationId*/, NotificationState> notificationStates = new ConcurrentHashMap<>();
 
-	private Map<BigInteger/*notificationId*/, Map<String/*metricKey*/, Boolean/*activeStatus*/>> notificationActiveStatusMap = new HashMap<BigInteger, Map<String, Boolean>>();
+	private volatile boolean isNotificationsCacheRefreshed = false;
 
-	private boolean isNotificationsCacheRefreshed = false;
+	private volatile long watermark = 0L;
 	
 	public NotificationsCache(Provider<EntityManager> em) {
 		refresherThread = new NotificationsCacheRefresherThread(this, em);
@@ -59,20 +63,75 @@ public class NotificationsCache {
 		refresherThread.start();
 	}
 
-	public Map<BigInteger, Map<String, Long>> getNotificationCooldownExpirationMap() {
-		return notificationCooldownExpirationMap;
+	/* Creates a cache that is only updated by its callers. */
+	NotificationsCache() {
 	}
 
-	public void setNotificationCooldownExpirationMap(Map<BigInteger, Map<String, Long>> notificationCooldownExpirationMap) {
-		this.notificationCooldownExpirationMap = notificationCooldownExpirationMap;
+	/*
+	 * Copies the cached cool down and active status into the notification. Returns false, leaving the notification unchanged, if it is not cached.
+	 */
+	public boolean apply(Notification notification) {
+		NotificationState state = notificationStates.get(notification.getId().longValue());
+
+		if(state == null) {
+			return false;
+		}
+		notification.setCooldownExpirationMap(new HashMap<>(state.cooldownExpirations));
+		notification.setActiveStatusMap(new HashMap<>(state.activeStatuses));
+		return true;
+	}
+
+	/*
+	 * Caches the current cool down and active status of a notification that was just updated or loaded by this host.
+	 */
+	public void put(Notification notification) {
+		notificationStates.put(notification.getId().longValue(), new NotificationState(notification.getCooldownExpirationMap(),
+				notification.getActiveStatusMap(), System.currentTimeMillis()));
+	}
+
+	/*
+	 * Replaces the whole cache with the given states, read from the database by a refresh that started at refreshTime. Entries cached by this
+	 * host after the refresh started are newer than what the refresh read, so they are kept.
+	 */
+	public void replaceAll(Map<Long, NotificationState> states, long refreshTime) {
+		for(Long notificationId : notificationStates.keySet()) {
+			if(!states.containsKey(notificationId)) {
+				notificationStates.computeIfPresent(notificationId, (id, current) -> _newer(current, null, refreshTime));
+			}
+		}
+		for(Map.Entry<Long, NotificationState> entry : states.entrySet()) {
+			notificationStates.compute(entry.getKey(), (id, current) -> _newer(current, entry.getValue(), refreshTime));
+		}
+	}
+
+	/*
+	 * Replaces the state of the given notifications, read from the database by a refresh that started at refreshTime. Notifications without an
+	 * entry in states no longer have any state. Entries cached by this host after the refresh started are kept.
+	 */
+	public void replace(Collection<Long> notificationIds, Map<Long, NotificationState> states, long refreshTime) {
+		for(Long notificationId : notificationIds) {
+			notificationStates.compute(notificationId, (id, current) -> _newer(current, states.get(id), refreshTime));
+		}
+	}
+
+	/*
+	 * A state cached at or after the start of a refresh may not have been visible to it yet. Such states win over the refreshed one; a local
+	 * update that had not committed when the refresh read the database is re-read by the next refresh, since the watermark overlaps it.
+	 */
+	private static NotificationState _newer(NotificationState current, NotificationState refreshed, long refreshTime) {
+		return current != null && current.updateTime >= refreshTime ? current : refreshed;
 	}
 
-	public Map<BigInteger, Map<String, Boolean>> getNotificationActiveStatusMap() {
-		return notificationActiveStatusMap;
+	public int size() {
+		return notificationStates.size();
 	}
 
-	public void setNotificationActiveStatusMap(Map<BigInteger, Map<String, Boolean>> notificationActiveStatusMap) {
-		this.notificationActiveStatusMap = notificationActiveStatusMap;
+	public long getWatermark() {
+		return watermark;
+	}
+
+	public void setWatermark(long watermark) {
+		this.watermark = watermark;
 	}
 	
 	public boolean isNotificationsCacheRefreshed() {
@@ -82,4 +141,33 @@ public class NotificationsCache {
 	public void setNotificationsCacheRefreshed(boolean isNotificationsCacheRefreshed) {
 		this.isNotificationsCacheRefreshed = isNotificationsCacheRefreshed;
 	}
+
+	/*
+	 * The cool down expirations and active statuses of one notification, keyed by trigger and metric, and the time they were read or updated at.
+	 * Instances are never modified once cached.
+	 */
+	public static class NotificationState {
+
+		private final Map<String/*metricKey*/, Long/*coolDownExpiration*/> cooldownExpirations;
+		private final Map<String/*metricKey*/, Boolean/*activeStatus*/> activeStatuses;
+		private final long updateTime;
+
+		public NotificationState(Map<String, Long> cooldownExpirations, Map<String, Boolean> activeStatuses, long updateTime) {
+			this.cooldownExpirations = Collections.unmodifiableMap(new HashMap<>(cooldownExpirations));
+			this.activeStatuses = Collections.unmodifiableMap(new HashMap<>(activeStatuses));
+			this.updateTime = updateTime;
+		}
+
+		public Map<String, Long> getCooldownExpirations() {
+			return cooldownExpirations;
+		}
+
+		public Map<String, Boolean> getActiveStatuses() {
+			return activeStatuses;
+		}
+
+		public long getUpdateTime() {
+			return updateTime;
+		}
+	}
 }
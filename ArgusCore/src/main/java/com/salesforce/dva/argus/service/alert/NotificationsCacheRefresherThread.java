@@ -31,6 +31,8 @@
 package com.salesforce.dva.argus.service.alert;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -43,21 +45,32 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.inject.Provider;
+import com.salesforce.dva.argus.entity.Notification;
+import com.salesforce.dva.argus.service.alert.NotificationsCache.NotificationState;
 
 /* 
- * This thread refreshes the notifications cache periodically
+ * This thread keeps the notifications cache in sync with the database. Every refresh only reloads the notifications modified since the
+ * previous one; the whole cache is reloaded when it is cold and once every full refresh interval.
  */
 public class NotificationsCacheRefresherThread extends Thread{
 
 	private final Logger _logger = LoggerFactory.getLogger(NotificationsCacheRefresherThread.class);
 	
-	// keeping the refresh interval at 1 minute, as this corresponds to the minimum alert execution interval based on cron expression
-	private static final Long REFRESH_INTERVAL_MILLIS = 60*1000L;
+	private static final Long REFRESH_INTERVAL_MILLIS = 10*1000L;
+	
+	private static final Long FULL_REFRESH_INTERVAL_MILLIS = 60*60*1000L;
+	
+	// modifications are re-read for this long after they were first seen, to cover clock skew between hosts and transactions that commit late
+	private static final Long WATERMARK_OVERLAP_MILLIS = 60*1000L;
+	
+	private static final int MAX_IDS_PER_QUERY = 1000;
 	
 	private NotificationsCache notificationsCache = null;
 	
 	private Provider<EntityManager> _emProvider;
 	
+	private long lastFullRefreshTime = 0L;
+	
 	public NotificationsCacheRefresherThread(NotificationsCache cache, Provider<EntityManager> em) {
         this.notificationsCache = cache;
         this._emProvider = em;
@@ -67,55 +80,107 @@ public class NotificationsCacheRefresherThread extends Thread{
 	public void run() {
 		while (!isInterrupted()) {
 			try {
+				refresh(_emProvider.get(), System.currentTimeMillis());
 				sleep(REFRESH_INTERVAL_MILLIS);
-				_logger.info("Starting notifications cache refresh");
-	
-				EntityManager em = _emProvider.get();
-				
-				// populating notifications cooldown cache
-				Query q = em.createNativeQuery("select * from notification_cooldownexpirationbytriggerandmetric");
-				List<Object[]> objects = q.getResultList();
-				Map<BigInteger/*notificationId*/, Map<String/*metricKey*/, Long/*coolDownExpiration*/>> currNotificationCooldownExpirationMap = new HashMap<BigInteger, Map<String, Long>>();
-
-				for(Object[] object : objects) {
-					BigInteger notificationId = new BigInteger(String.valueOf(Long.class.cast(object[0])));
-					Long cooldownExpiration = Long.class.cast(object[1]);
-					String key = String.class.cast(object[2]);
-					if(currNotificationCooldownExpirationMap.get(notificationId)==null) {
-						currNotificationCooldownExpirationMap.put(notificationId, new HashMap<String, Long>());
-					}
-					currNotificationCooldownExpirationMap.get(notificationId).put(key, cooldownExpiration);
-				}
-				notificationsCache.setNotificationCooldownExpirationMap(currNotificationCooldownExpirationMap);
-
-				// populating the active status cache
-				q = em.createNativeQuery("select * from notification_activestatusbytriggerandmetric");
-				objects = q.getResultList();
-				Map<BigInteger/*notificationId*/, Map<String/*metricKey*/, Boolean/*activeStatus*/>> currNotificationActiveStatusMap = new HashMap<BigInteger, Map<String, Boolean>>();
-
-				for(Object[] object : objects) {
-					BigInteger notificationId = new BigInteger(String.valueOf(Long.class.cast(object[0])));
-					Boolean isActive;
-					try {
-						isActive = Boolean.class.cast(object[1]);
-					} catch (ClassCastException e) {
-						// This is because Embedded Derby stores booleans as 0, 1.
-						isActive = Integer.class.cast(object[1]) == 0 ? Boolean.FALSE : Boolean.TRUE;
-					}
-					String key = String.class.cast(object[2]);
-					if(currNotificationActiveStatusMap.get(notificationId)==null) {
-						currNotificationActiveStatusMap.put(notificationId, new HashMap<String, Boolean>());
-					}
-					currNotificationActiveStatusMap.get(notificationId).put(key, isActive);
-				}
-				notificationsCache.setNotificationActiveStatusMap(currNotificationActiveStatusMap);
-				
-				notificationsCache.setNotificationsCacheRefreshed(true);
-				_logger.info("Notifications cache refresh successful.");
-			}catch(Exception e) {
+			} catch(InterruptedException e) {
+				_logger.info("Notifications cache refresher was interrupted.");
+				interrupt();
+			} catch(Exception e) {
 				_logger.error("Exception occured when trying to refresh notifications cache - " + ExceptionUtils.getFullStackTrace(e));
 				notificationsCache.setNotificationsCacheRefreshed(false);
+				try {
+					sleep(REFRESH_INTERVAL_MILLIS);
+				} catch(InterruptedException ex) {
+					interrupt();
+				}
+			}
+		}
+	}
+
+	/*
+	 * Runs one refresh that started at refreshTime. The whole cache is reloaded if it is cold or the full refresh interval has elapsed, otherwise
+	 * only the notifications modified since the watermark are.
+	 */
+	void refresh(EntityManager em, long refreshTime) {
+		if(!notificationsCache.isNotificationsCacheRefreshed() || refreshTime - lastFullRefreshTime >= FULL_REFRESH_INTERVAL_MILLIS) {
+			_logger.info("Starting full notifications cache refresh");
+			notificationsCache.replaceAll(_loadStates(em, null, refreshTime), refreshTime);
+			lastFullRefreshTime = refreshTime;
+			_logger.info("Full notifications cache refresh successful. {} notifications cached.", notificationsCache.size());
+		} else {
+			List<BigInteger> modifiedIds = Notification.findIdsModifiedSince(em, new Date(notificationsCache.getWatermark()));
+			List<Long> ids = new ArrayList<>(modifiedIds.size());
+
+			for(BigInteger id : modifiedIds) {
+				ids.add(id.longValue());
+			}
+			for(int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+				List<Long> chunk = ids.subList(i, Math.min(i + MAX_IDS_PER_QUERY, ids.size()));
+
+				notificationsCache.replace(chunk, _loadStates(em, chunk, refreshTime), refreshTime);
+			}
+			_logger.debug("Refreshed {} modified notifications in the notifications cache.", ids.size());
+		}
+		notificationsCache.setWatermark(refreshTime - WATERMARK_OVERLAP_MILLIS);
+		notificationsCache.setNotificationsCacheRefreshed(true);
+	}
+
+	/*
+	 * Loads the cool down and active status of the given notifications, or of all notifications if ids is null.
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<Long, NotificationState> _loadStates(EntityManager em, List<Long> ids, long refreshTime) {
+		String where = "";
+
+		if(ids != null) {
+			StringBuilder sb = new StringBuilder(" where notification_id IN (");
+
+			for(Long id : ids) {
+				sb.append(id).append(",");
+			}
+			sb.setCharAt(sb.length() - 1, ')');
+			where = sb.toString();
+		}
+
+		Map<Long/*notificationId*/, Map<String/*metricKey*/, Long/*coolDownExpiration*/>> cooldownExpirations = new HashMap<>();
+		Query q = em.createNativeQuery("select * from notification_cooldownexpirationbytriggerandmetric" + where);
+
+		for(Object[] object : (List<Object[]>) q.getResultList()) {
+			Long notificationId = Long.class.cast(object[0]);
+			Long cooldownExpiration = Long.class.cast(object[1]);
+			String key = String.class.cast(object[2]);
+
+			cooldownExpirations.computeIfAbsent(notificationId, k -> new HashMap<>()).put(key, cooldownExpiration);
+		}
+
+		Map<Long/*notificationId*/, Map<String/*metricKey*/, Boolean/*activeStatus*/>> activeStatuses = new HashMap<>();
+		q = em.createNativeQuery("select * from notification_activestatusbytriggerandmetric" + where);
+
+		for(Object[] object : (List<Object[]>) q.getResultList()) {
+			Long notificationId = Long.class.cast(object[0]);
+			Boolean isActive;
+			try {
+				isActive = Boolean.class.cast(object[1]);
+			} catch (ClassCastException e) {
+				// This is because Embedded Derby stores booleans as 0, 1.
+				isActive = Integer.class.cast(object[1]) == 0 ? Boolean.FALSE : Boolean.TRUE;
+			}
+			String key = String.class.cast(object[2]);
+
+			activeStatuses.computeIfAbsent(notificationId, k -> new HashMap<>()).put(key, isActive);
+		}
+
+		Map<Long, NotificationState> states = new HashMap<>();
+
+		for(Long notificationId : cooldownExpirations.keySet()) {
+			states.put(notificationId, new NotificationState(cooldownExpirations.get(notificationId),
+					activeStatuses.getOrDefault(notificationId, new HashMap<>()), refreshTime));
+		}
+		for(Long notificationId : activeStatuses.keySet()) {
+			if(!states.containsKey(notificationId)) {
+				states.put(notificationId, new NotificationState(new HashMap<>(), activeStatuses.get(notificationId), refreshTime));
 			}
 		}
+		return states;
 	}
 }
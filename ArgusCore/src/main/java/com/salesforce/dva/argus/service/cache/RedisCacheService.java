@@ -43,10 +43,18 @@ import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisCluster;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+import redis.clients.util.JedisClusterCRC16;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -54,6 +62,11 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Cache service implementation that uses Redis client.
@@ -65,9 +78,13 @@ public class RedisCacheService extends DefaultService implements CacheService {
 
 	//~ Instance fields ******************************************************************************************************************************
 
+	private static final int CLUSTER_SLOT_COUNT = 16384;
+
 	private final Logger _logger = LoggerFactory.getLogger(getClass());
 	private final SystemConfiguration _config;
 	private JedisCluster _jedisClusterClient;
+	private final ExecutorService _bulkExecutorService;
+	private volatile JedisPool[] _slotOwners;
 
 	//~ Constructors *********************************************************************************************************************************
 
@@ -78,13 +95,32 @@ public class RedisCacheService extends DefaultService implements CacheService {
 	 */
 	@Inject
 	public RedisCacheService(SystemConfiguration config) {
+		this(config, _createClusterClient(config));
+	}
+
+	/* Creates a new RedisCacheService object over the given cluster client. */
+	RedisCacheService(SystemConfiguration config, JedisCluster jedisClusterClient) {
 		super(config);
 		_config = config;
+		_jedisClusterClient = jedisClusterClient;
+
+		int bulkThreads = Integer.parseInt(
+				_config.getValue(Property.REDIS_BULK_OPERATION_THREADS.getName(), Property.REDIS_BULK_OPERATION_THREADS.getDefaultValue()));
+		_bulkExecutorService = Executors.newFixedThreadPool(bulkThreads, r -> {
+			Thread t = Executors.defaultThreadFactory().newThread(r);
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	//~ Methods **************************************************************************************************************************************
+
+	private static JedisCluster _createClusterClient(SystemConfiguration config) {
 		GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
 		poolConfig.setMaxTotal(Integer.parseInt(
-				_config.getValue(Property.REDIS_SERVER_MAX_CONNECTIONS.getName(), Property.REDIS_SERVER_MAX_CONNECTIONS.getDefaultValue())));
+				config.getValue(Property.REDIS_SERVER_MAX_CONNECTIONS.getName(), Property.REDIS_SERVER_MAX_CONNECTIONS.getDefaultValue())));
 
-		String[] hostsPorts = _config.getValue(Property.REDIS_CLUSTER.getName(), Property.REDIS_CLUSTER.getDefaultValue()).split(",");
+		String[] hostsPorts = config.getValue(Property.REDIS_CLUSTER.getName(), Property.REDIS_CLUSTER.getDefaultValue()).split(",");
 
 		Set<HostAndPort> jedisClusterNodes = new HashSet<HostAndPort>();
 		for (String hostPort : hostsPorts) {
@@ -92,11 +128,9 @@ public class RedisCacheService extends DefaultService implements CacheService {
 
 			jedisClusterNodes.add(new HostAndPort(hostPortPair[0], Integer.parseInt(hostPortPair[1])));
 		}
-		_jedisClusterClient = new JedisCluster(jedisClusterNodes, poolConfig);
+		return new JedisCluster(jedisClusterNodes, poolConfig);
 	}
 
-	//~ Methods **************************************************************************************************************************************
-
 	@SuppressWarnings("unchecked")
 	@Override
 	public <V> V get(String key) {
@@ -112,12 +146,10 @@ public class RedisCacheService extends DefaultService implements CacheService {
 	@SuppressWarnings("unchecked")
 	@Override
 	public <V> Map<String, V> get(Set<String> keySet) {
-		Map<String, V> map = new HashMap<String, V>();
+		Map<String, V> map;
 
 		try {
-			for (String key : keySet) {
-				map.put(key, (V) get(key));
-			}
+			map = (Map<String, V>) _executeBulk(keySet, (pipeline, key) -> pipeline.get(key), key -> _jedisClusterClient.get(key));
 		} catch (Exception ex) {
 			_logger.error("Exception in cache service: {} ", ex.getMessage());
 			map = null;
@@ -129,8 +161,7 @@ public class RedisCacheService extends DefaultService implements CacheService {
 	public <V> void put(String key, V value, int ttl) {
 
 		try {
-			_jedisClusterClient.set(key, (String) value);
-			_jedisClusterClient.expire(key, ttl);
+			_jedisClusterClient.setex(key, ttl, (String) value);
 		} catch (Exception ex) {
 			_logger.error("Exception in cache service: {} ", ex.getMessage());
 		}
@@ -138,8 +169,11 @@ public class RedisCacheService extends DefaultService implements CacheService {
 
 	@Override
 	public <V> void put(Map<String, V> entries, int ttl) {
-		for (Map.Entry<String, V> entry : entries.entrySet()) {
-			put(entry.getKey(), entry.getValue(), ttl);
+		try {
+			_executeBulk(entries.keySet(), (pipeline, key) -> pipeline.setex(key, ttl, (String) entries.get(key)),
+					key -> _jedisClusterClient.setex(key, ttl, (String) entries.get(key)));
+		} catch (Exception ex) {
+			_logger.error("Exception in cache service: {} ", ex.getMessage());
 		}
 	}
 
@@ -154,8 +188,10 @@ public class RedisCacheService extends DefaultService implements CacheService {
 
 	@Override
 	public <V> void expire(Set<String> keys, int ttl) {
-		for (String key : keys) {
-			expire(key, ttl);
+		try {
+			_executeBulk(keys, (pipeline, key) -> pipeline.expire(key, ttl), key -> _jedisClusterClient.expire(key, ttl));
+		} catch (Exception ex) {
+			_logger.error("Exception in cache service: {} ", ex.getMessage());
 		}
 	}
 
@@ -188,8 +224,14 @@ public class RedisCacheService extends DefaultService implements CacheService {
 	public Map<String, Boolean> exist(Set<String> keys) {
 		Map<String, Boolean> map = new LinkedHashMap<String, Boolean>();
 
-		for (String key : keys) {
-			map.put(key, exist(key));
+		try {
+			Map<String, Boolean> existing = _executeBulk(keys, (pipeline, key) -> pipeline.exists(key), key -> _jedisClusterClient.exists(key));
+
+			for (String key : keys) {
+				map.put(key, Boolean.TRUE.equals(existing.get(key)));
+			}
+		} catch (Exception ex) {
+			_logger.error("Exception in cache service: {} ", ex.getMessage());
 		}
 		return map;
 	}
@@ -230,8 +272,10 @@ public class RedisCacheService extends DefaultService implements CacheService {
 
 	@Override
 	public void delete(Set<String> keySet) {
-		for (String key : keySet) {
-			delete(key);
+		try {
+			_executeBulk(keySet, (pipeline, key) -> pipeline.del(key), key -> _jedisClusterClient.del(key));
+		} catch (Exception ex) {
+			_logger.error("Exception in cache service: {} ", ex.getMessage());
 		}
 	}
 
@@ -271,12 +315,11 @@ public class RedisCacheService extends DefaultService implements CacheService {
 	@SuppressWarnings("unchecked")
 	@Override
 	public <V> Map<String, V> getRange(Set<String> keys, int startOffset, int endOffset) {
-		Map<String, V> map = new HashMap<String, V>();
+		Map<String, V> map;
 
 		try {
-			for (String key : keys) {
-				map.put(key, (V) getRange(key, startOffset, endOffset));
-			}
+			map = (Map<String, V>) _executeBulk(keys, (pipeline, key) -> pipeline.lrange(key, startOffset, endOffset),
+					key -> _jedisClusterClient.lrange(key, startOffset, endOffset));
 		} catch (Exception ex) {
 			_logger.error("Exception in cache service: {} ", ex.getMessage());
 			map = null;
@@ -284,6 +327,124 @@ public class RedisCacheService extends DefaultService implements CacheService {
 		return map;
 	}
 
+	/*
+	 * Executes a single key command for each of the given keys. Keys are grouped by the cluster node owning their slot, the commands for
+	 * each node are pipelined over one connection and the nodes are processed concurrently. Keys whose owner is unknown, or whose command 
+	 * is redirected because the cluster was resharded, are executed through the cluster client instead.
+	 */
+	private <R> Map<String, R> _executeBulk(Collection<String> keys, BiFunction<Pipeline, String, Response<R>> command,
+			Function<String, R> fallback) throws Exception {
+		Map<String, R> result = new HashMap<>(keys.size());
+
+		if (keys.isEmpty()) {
+			return result;
+		}
+
+		Map<JedisPool, List<String>> keysByNode = new IdentityHashMap<>();
+		List<String> unownedKeys = new ArrayList<>();
+		JedisPool[] slotOwners = _getSlotOwners();
+
+		for (String key : keys) {
+			JedisPool owner = slotOwners == null ? null : slotOwners[JedisClusterCRC16.getSlot(key)];
+
+			if (owner == null) {
+				unownedKeys.add(key);
+			} else {
+				keysByNode.computeIfAbsent(owner, pool -> new ArrayList<>()).add(key);
+			}
+		}
+
+		List<Future<Map<String, R>>> futures = new ArrayList<>(keysByNode.size());
+
+		for (Map.Entry<JedisPool, List<String>> entry : keysByNode.entrySet()) {
+			futures.add(_bulkExecutorService.submit(() -> _executePipelined(entry.getKey(), entry.getValue(), command, fallback)));
+		}
+		for (String key : unownedKeys) {
+			result.put(key, _executeSingle(key, fallback));
+		}
+		for (Future<Map<String, R>> future : futures) {
+			result.putAll(future.get());
+		}
+		return result;
+	}
+
+	private <R> Map<String, R> _executePipelined(JedisPool pool, List<String> keys, BiFunction<Pipeline, String, Response<R>> command,
+			Function<String, R> fallback) {
+		Map<String, R> result = new HashMap<>(keys.size());
+		Map<String, Response<R>> responses = new LinkedHashMap<>(keys.size());
+
+		try (Jedis jedis = pool.getResource()) {
+			Pipeline pipeline = jedis.pipelined();
+
+			for (String key : keys) {
+				responses.put(key, command.apply(pipeline, key));
+			}
+			pipeline.sync();
+		} catch (Exception ex) {
+			_logger.warn("Pipelined cache operation failed. Will retry {} keys individually. Reason: {}", keys.size(), ex.getMessage());
+			_slotOwners = null;
+			for (String key : keys) {
+				result.put(key, _executeSingle(key, fallback));
+			}
+			return result;
+		}
+
+		for (Map.Entry<String, Response<R>> entry : responses.entrySet()) {
+			try {
+				result.put(entry.getKey(), entry.getValue().get());
+			} catch (JedisRedirectionException ex) {
+				_slotOwners = null;
+				result.put(entry.getKey(), _executeSingle(entry.getKey(), fallback));
+			} catch (JedisDataException ex) {
+				_logger.warn("Pipelined cache command failed for key {}. Will retry it individually. Reason: {}", entry.getKey(), ex.getMessage());
+				result.put(entry.getKey(), _executeSingle(entry.getKey(), fallback));
+			}
+		}
+		return result;
+	}
+
+	/* Executes the command for one key through the cluster client. A key that still fails is mapped to null so callers see it as missing. */
+	private <R> R _executeSingle(String key, Function<String, R> fallback) {
+		try {
+			return fallback.apply(key);
+		} catch (Exception ex) {
+			_logger.error("Exception in cache service: {} ", ex.getMessage());
+			return null;
+		}
+	}
+
+	/* Returns the pool of the master node serving each slot, reading the slot layout from the cluster when it is unknown or was invalidated. */
+	private JedisPool[] _getSlotOwners() {
+		JedisPool[] slotOwners = _slotOwners;
+
+		if (slotOwners != null) {
+			return slotOwners;
+		}
+
+		Map<String, JedisPool> nodes = _jedisClusterClient.getClusterNodes();
+
+		for (JedisPool pool : nodes.values()) {
+			try (Jedis jedis = pool.getResource()) {
+				slotOwners = new JedisPool[CLUSTER_SLOT_COUNT];
+				for (Object slotInfoObj : jedis.clusterSlots()) {
+					List<?> slotInfo = (List<?>) slotInfoObj;
+					List<?> master = (List<?>) slotInfo.get(2);
+					String nodeKey = new String((byte[]) master.get(0)) + ":" + master.get(1);
+					JedisPool owner = nodes.get(nodeKey);
+
+					for (int slot = ((Long) slotInfo.get(0)).intValue(); slot <= ((Long) slotInfo.get(1)).intValue(); slot++) {
+						slotOwners[slot] = owner;
+					}
+				}
+				_slotOwners = slotOwners;
+				return slotOwners;
+			} catch (Exception ex) {
+				_logger.warn("Failed to read the cluster slot layout from a node. Reason: {}", ex.getMessage());
+			}
+		}
+		return null;
+	}
+
 	@Override
 	public int getCacheExpirationTime() {
 		return Integer.parseInt(_config.getValue(Property.REDIS_CACHE_EXPIRY_IN_SEC.getName(), Property.REDIS_CACHE_EXPIRY_IN_SEC.getDefaultValue()));
@@ -302,6 +463,7 @@ public class RedisCacheService extends DefaultService implements CacheService {
 	@Override
 	public void dispose() {
 		super.dispose();
+		_bulkExecutorService.shutdown();
 		try {
 			_jedisClusterClient.close();
 		} catch (IOException e) {
@@ -323,7 +485,9 @@ public class RedisCacheService extends DefaultService implements CacheService {
 		/** The cache endpoint. */
 		REDIS_CLUSTER("service.property.cache.redis.cluster", "default_value"),
 		/** The maximum number of cache connections. */
-		REDIS_SERVER_MAX_CONNECTIONS("service.property.cache.redis.server.max.connections", "100");
+		REDIS_SERVER_MAX_CONNECTIONS("service.property.cache.redis.server.max.connections", "100"),
+		/** The number of threads used to run the per node pipelines of bulk operations concurrently. */
+		REDIS_BULK_OPERATION_THREADS("service.property.cache.redis.bulk.operation.threads", "16");
 
 		private final String _name;
 		private final String _defaultValue;
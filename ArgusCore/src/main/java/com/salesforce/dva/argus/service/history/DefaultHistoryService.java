@@ -109,6 +109,20 @@ public class DefaultHistoryService extends DefaultJPAService implements HistoryS
         return _updateHistory(history);
     }
 
+    @Override
+    @Transactional
+    public void createHistories(List<History> histories) {
+        requireNotDisposed();
+        requireArgument(histories != null, "Histories cannot be null.");
+
+        EntityManager em = emf.get();
+
+        for (History history : histories) {
+            mergeEntity(em, history);
+        }
+        _logger.debug("Created {} job history records", histories.size());
+    }
+
 //    @Override
 //    @Transactional
 //    public History findHistoryByPrimaryKey(BigInteger id) {
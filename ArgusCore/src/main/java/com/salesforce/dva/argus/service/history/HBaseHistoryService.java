@@ -94,39 +94,11 @@ public class HBaseHistoryService extends DefaultService implements HistoryServic
 		SystemAssert.requireArgument(jobStatus != null, "jobStatus cannot be null.");
 		
 		long creationTime = System.currentTimeMillis();
-		String rowKey = new StringBuilder(entity.getId().toString()).
-						append(ROWKEY_SEPARATOR).
-						append(HBaseUtils._9sComplement(creationTime)).
-						append(ROWKEY_SEPARATOR).
-						append(jobStatus).
-						toString();
-		_logger.debug("Creating history with row key: {}", rowKey);
-		
 		History history = new History(message, SystemConfiguration.getHostname(), entity.getId(), jobStatus, 
 				executionTime, creationTime);
 		
 		try {
-			byte[] value = _mapper.writeValueAsBytes(Arrays.asList(history));
-			final PutRequest put = new PutRequest(tablename, Bytes.toBytes(rowKey), COLUMN_FAMILY, 
-					COLUMN_QUALIFIER, value);
-			
-			Deferred<Object> deferred = _client.put(put);
-			
-			
-			deferred.addCallback(new Callback<Object, Object>() {
-				@Override
-				public Object call(Object arg) throws Exception {
-					_logger.trace(MessageFormat.format("Put to {0} successful.", tablename));
-					return null;
-				}
-			});
-			
-			deferred.addErrback(new Callback<Object, Exception>() {
-			    @Override
-			    public Object call(Exception e) throws Exception {
-			        throw new SystemException("Error occurred while trying to execute put().", e);
-			    }
-			});
+			Deferred<Object> deferred = _put(history);
 			
 			if(_syncPut) {
 				deferred.join(PUT_TIMEOUT_MS);
@@ -146,6 +118,64 @@ public class HBaseHistoryService extends DefaultService implements HistoryServic
 		return history;
 	}
 
+	@Override
+	public void createHistories(List<History> histories) {
+		requireNotDisposed();
+		SystemAssert.requireArgument(histories != null, "histories cannot be null.");
+		
+		List<Deferred<Object>> deferreds = new ArrayList<>(histories.size());
+		try {
+			for (History history : histories) {
+				deferreds.add(_put(history));
+			}
+			if(_syncPut) {
+				for (Deferred<Object> deferred : deferreds) {
+					deferred.join(PUT_TIMEOUT_MS);
+				}
+			}
+		} catch (JsonProcessingException e) {
+			throw new SystemException("Failed to parse history object to bytes.", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SystemException("Interrupted while waiting for puts to finish.", e);
+		} catch (Exception e) {
+			_logger.error("Exception while trying to create histories.", e);
+			throw new SystemException(e);
+		}
+	}
+
+	private Deferred<Object> _put(History history) throws JsonProcessingException {
+		String rowKey = new StringBuilder(history.getEntityId().toString()).
+						append(ROWKEY_SEPARATOR).
+						append(HBaseUtils._9sComplement(history.getCreationTime())).
+						append(ROWKEY_SEPARATOR).
+						append(history.getJobStatus()).
+						toString();
+		_logger.debug("Creating history with row key: {}", rowKey);
+		
+		byte[] value = _mapper.writeValueAsBytes(Arrays.asList(history));
+		final PutRequest put = new PutRequest(tablename, Bytes.toBytes(rowKey), COLUMN_FAMILY, 
+				COLUMN_QUALIFIER, value);
+		
+		Deferred<Object> deferred = _client.put(put);
+		
+		deferred.addCallback(new Callback<Object, Object>() {
+			@Override
+			public Object call(Object arg) throws Exception {
+				_logger.trace(MessageFormat.format("Put to {0} successful.", tablename));
+				return null;
+			}
+		});
+		
+		deferred.addErrback(new Callback<Object, Exception>() {
+		    @Override
+		    public Object call(Exception e) throws Exception {
+		        throw new SystemException("Error occurred while trying to execute put().", e);
+		    }
+		});
+		return deferred;
+	}
+
 	@Override
 	public List<History> findByJob(BigInteger entityId) {
 		return findByJob(entityId, Integer.MAX_VALUE);
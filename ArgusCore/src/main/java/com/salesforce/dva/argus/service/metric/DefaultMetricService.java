@@ -41,7 +41,6 @@ import com.salesforce.dva.argus.service.MonitorService.Counter;
 import com.salesforce.dva.argus.service.tsdb.MetricQuery;
 import com.salesforce.dva.argus.system.SystemAssert;
 import com.salesforce.dva.argus.system.SystemConfiguration;
-import com.salesforce.dva.argus.system.SystemException;
 
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.slf4j.Logger;
@@ -60,6 +59,11 @@ import static com.salesforce.dva.argus.system.SystemAssert.requireArgument;
  */
 public class DefaultMetricService extends DefaultService implements MetricService {
 
+	//~ Static fields/initializers *******************************************************************************************************************
+
+	// The service is not scoped, so a new instance serves every request. The compiled plans are shared by all of them.
+	private static volatile MetricExpressionCache _expressionCache = null;
+
 	//~ Instance fields ******************************************************************************************************************************
 	private final Logger _logger = LoggerFactory.getLogger(DefaultMetricService.class);
 	private final MonitorService _monitorService;
@@ -88,6 +92,15 @@ public class DefaultMetricService extends DefaultService implements MetricServic
 		_monitorService = monitorService;
 		_metricReaderProviderForMetrics = metricsprovider;
 		_metricReaderProviderForQueries = queryprovider;
+		if(_expressionCache == null) {
+			synchronized(DefaultMetricService.class) {
+				if(_expressionCache == null) {
+					_expressionCache = new MetricExpressionCache(Integer.parseInt(config.getValue(Property.EXPRESSION_CACHE_MAX_ENTRIES.getName(),
+							Property.EXPRESSION_CACHE_MAX_ENTRIES.getDefaultValue())), Boolean.parseBoolean(config.getValue(
+							Property.EXPRESSION_PUSHDOWN_ENABLED.getName(), Property.EXPRESSION_PUSHDOWN_ENABLED.getDefaultValue())));
+				}
+			}
+		}
 	}
 
 	//~ Methods **************************************************************************************************************************************
@@ -113,24 +126,21 @@ public class DefaultMetricService extends DefaultService implements MetricServic
 	@Override
 	public List<Metric> getMetrics(List<String> expressions, long relativeTo) {
 		requireNotDisposed();
-		SystemAssert.requireArgument(MetricReader.isValid(expressions), "Illegal metric expression found: " + expressions);
-
+		List<MetricExpressionPlan> plans = _compile(expressions);
 		MetricReader<Metric> reader = _metricReaderProviderForMetrics.get();
 		List<Metric> metrics = new ArrayList<>(expressions.size());
 
 		try {
 			numDiscoveryResults = 0;
 			numDiscoveryQueries = 0;
-			for (String expression : expressions) {
-				_logger.debug("Reading metric for expression {}", expression);
-				metrics.addAll(reader.parse(expression, relativeTo, Metric.class));
+			for (MetricExpressionPlan plan : plans) {
+				_logger.debug("Reading metric for expression {}", plan.getExpression());
+				metrics.addAll(reader.evaluate(plan, relativeTo, Metric.class));
 				expandedTimeSeriesRange = reader.getExpandedTimeSeriesRange();
 				queryTimeWindow = reader.getQueryTimeWindow();
 				numDiscoveryResults += reader.getNumDiscoveryResults();
 				numDiscoveryQueries += reader.getNumDiscoveryQueries();
 			}
-		} catch (ParseException ex) {
-			throw new SystemException("Failed to parse the given expression", ex);
 		} catch(Exception ex) {
 			_logger.error("Exception occured when evaluating metric expressions {} - {}" , Arrays.toString(expressions.toArray()), ExceptionUtils.getFullStackTrace(ex));
 			throw ex;
@@ -165,22 +175,23 @@ public class DefaultMetricService extends DefaultService implements MetricServic
 	@Override
 	public List<MetricQuery> getQueries(List<String> expressions, long relativeTo) {
 		requireNotDisposed();
-		SystemAssert.requireArgument(MetricReader.isValid(expressions), "Illegal metric expression found: " + expressions);
-
+		List<MetricExpressionPlan> plans = _compile(expressions);
 		MetricReader<MetricQuery> reader = _metricReaderProviderForQueries.get();
 		List<MetricQuery> queries = new ArrayList<>(expressions.size());
 
-		try {
-			for (String expression : expressions) {
-				_logger.debug("Creating metric query for expression {}", expression);
-				queries.addAll(reader.parse(expression, relativeTo, MetricQuery.class));
-			}
-		} catch (ParseException ex) {
-			throw new SystemException("Failed to parse the given expression", ex);
+		for (MetricExpressionPlan plan : plans) {
+			_logger.debug("Creating metric query for expression {}", plan.getExpression());
+			queries.addAll(reader.evaluate(plan, relativeTo, MetricQuery.class));
 		}
 		return queries;
 	}
 
+	@Override
+	public String explain(String expression) {
+		requireNotDisposed();
+		return _compile(Arrays.asList(expression)).get(0).explain();
+	}
+
 	@Override
 	public String getExpandedTimeSeriesRange()
 	{
@@ -219,6 +230,22 @@ public class DefaultMetricService extends DefaultService implements MetricServic
 		// _tsdbService.dispose();
 	}
 
+	/* Repeated expressions are served from the cache, which skips parsing, validation and query construction. */
+	private List<MetricExpressionPlan> _compile(List<String> expressions) {
+		SystemAssert.requireArgument(expressions != null, "Illegal metric expression found: " + expressions);
+
+		List<MetricExpressionPlan> plans = new ArrayList<>(expressions.size());
+
+		for (String expression : expressions) {
+			try {
+				plans.add(_expressionCache.get(expression));
+			} catch (ParseException | RuntimeException ex) {
+				throw new IllegalArgumentException("Illegal metric expression found: " + expressions, ex);
+			}
+		}
+		return plans;
+	}
+
 	private long _getDatapointsAcrossMetrics(List<Metric> metrics) {
 		long dataPointsSize = 0;
 
@@ -227,5 +254,46 @@ public class DefaultMetricService extends DefaultService implements MetricServic
 		}
 		return dataPointsSize;
 	}
+
+	//~ Enums ****************************************************************************************************************************************
+
+	/**
+	 * The set of implementation specific configuration properties.
+	 *
+	 * @author  agent (agent@local)
+	 */
+	public enum Property {
+
+		/** The maximum number of compiled expressions retained. */
+		EXPRESSION_CACHE_MAX_ENTRIES("service.property.metric.expression.cache.max.entries", "50000"),
+		/** Whether aggregation and downsampling the TSDB performs identically are pushed down into the queries. Off unless enabled. */
+		EXPRESSION_PUSHDOWN_ENABLED("service.property.metric.expression.pushdown.enabled", "false");
+
+		private final String _name;
+		private final String _defaultValue;
+
+		private Property(String name, String defaultValue) {
+			_name = name;
+			_defaultValue = defaultValue;
+		}
+
+		/**
+		 * Returns the property name.
+		 *
+		 * @return  The property name.
+		 */
+		public String getName() {
+			return _name;
+		}
+
+		/**
+		 * Returns the default value for the property.
+		 *
+		 * @return  The default value.
+		 */
+		public String getDefaultValue() {
+			return _defaultValue;
+		}
+	}
 }
 	/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
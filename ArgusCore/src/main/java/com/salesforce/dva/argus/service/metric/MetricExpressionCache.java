@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.service.metric;
+
+import com.salesforce.dva.argus.entity.Metric;
+import com.salesforce.dva.argus.service.DiscoveryService;
+import com.salesforce.dva.argus.service.TSDBService;
+import com.salesforce.dva.argus.service.metric.transform.TransformFactory;
+import com.salesforce.dva.argus.system.SystemAssert;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, least recently used store of compiled metric expressions. Alerts and dashboards evaluate the same expression text over and over, and a
+ * compiled plan keeps its relative times symbolic, so a plan compiled once can be evaluated at any time without parsing the expression again.
+ *
+ * <p>Plans are keyed by the expression with the whitespace the parser skips removed, so that expressions differing only in such whitespace share a
+ * plan.</p>
+ *
+ * @author  agent (agent@local)
+ */
+final class MetricExpressionCache {
+
+    //~ Static fields/initializers *******************************************************************************************************************
+
+    private static final String SEPARATORS = "(),:";
+
+    //~ Instance fields ******************************************************************************************************************************
+
+    private final Map<String, MetricExpressionPlan> _plans;
+    private final boolean _pushDown;
+
+    //~ Constructors *********************************************************************************************************************************
+
+    /**
+     * Creates a new MetricExpressionCache object.
+     *
+     * @param  maxEntries  The maximum number of plans to retain. Must be positive.
+     * @param  pushDown    Whether plans are rewritten to push aggregation and downsampling into the TSDB queries.
+     */
+    MetricExpressionCache(final int maxEntries, boolean pushDown) {
+        SystemAssert.requireArgument(maxEntries > 0, "The maximum number of cached expressions must be positive.");
+        _plans = Collections.synchronizedMap(new LinkedHashMap<String, MetricExpressionPlan>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, MetricExpressionPlan> eldest) {
+                    return size() > maxEntries;
+                }
+            });
+        _pushDown = pushDown;
+    }
+
+    //~ Methods **************************************************************************************************************************************
+
+    /**
+     * Returns the compiled plan of an expression, compiling it if it is not cached.
+     *
+     * @param   expression  The metric expression. Cannot be null.
+     *
+     * @return  The compiled plan.
+     *
+     * @throws  ParseException  If the expression is not valid.
+     */
+    MetricExpressionPlan get(String expression) throws ParseException {
+        SystemAssert.requireArgument(expression != null, "Expression cannot be null.");
+
+        String key = normalize(expression);
+        MetricExpressionPlan plan = _plans.get(key);
+
+        if (plan == null) {
+            plan = new MetricReader<Metric>((TSDBService) null, (DiscoveryService) null, (TransformFactory) null).compile(expression);
+            if (_pushDown) {
+                plan = plan.pushDown();
+            }
+            _plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Returns the number of cached plans.
+     *
+     * @return  The number of cached plans.
+     */
+    int size() {
+        return _plans.size();
+    }
+
+    /**
+     * Removes the whitespace the parser skips where it only separates a token from a parenthesis, comma or colon. Whitespace inside constants and
+     * tag lists is kept, since it is significant there, as is whitespace between two other tokens.
+     *
+     * @param   expression  The expression to normalize.
+     *
+     * @return  The normalized expression.
+     */
+    static String normalize(String expression) {
+        StringBuilder sb = new StringBuilder(expression.length());
+        boolean inConstant = false;
+        boolean inTags = false;
+        int length = expression.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = expression.charAt(i);
+
+            if (c == '#' && !inTags) {
+                inConstant = !inConstant;
+            } else if (!inConstant && (c == '{' || c == '}')) {
+                inTags = c == '{';
+            } else if (!inConstant && !inTags && _isSkipped(c)) {
+                int next = i + 1;
+
+                while (next < length && _isSkipped(expression.charAt(next))) {
+                    next++;
+                }
+
+                boolean afterSeparator = sb.length() == 0 || SEPARATORS.indexOf(sb.charAt(sb.length() - 1)) >= 0;
+                boolean beforeSeparator = next == length || SEPARATORS.indexOf(expression.charAt(next)) >= 0;
+
+                if (afterSeparator || beforeSeparator) {
+                    i = next - 1;
+                    continue;
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static boolean _isSkipped(char c) {
+        return c == ' ' || c == '\n' || c == '\r';
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
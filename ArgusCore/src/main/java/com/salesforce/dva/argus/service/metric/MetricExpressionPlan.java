@@ -0,0 +1,742 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.service.metric;
+
+import com.salesforce.dva.argus.entity.Metric;
+import com.salesforce.dva.argus.service.DiscoveryService;
+import com.salesforce.dva.argus.service.TSDBService;
+import com.salesforce.dva.argus.service.TSDBService.QueryTimeSeriesExpansion;
+import com.salesforce.dva.argus.service.TSDBService.QueryTimeWindow;
+import com.salesforce.dva.argus.service.metric.transform.Transform;
+import com.salesforce.dva.argus.service.metric.transform.TransformFactory;
+import com.salesforce.dva.argus.service.tsdb.MetricQuery;
+import com.salesforce.dva.argus.service.tsdb.MetricQuery.Aggregator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.salesforce.dva.argus.system.SystemAssert.requireArgument;
+
+/**
+ * A compiled metric expression. The plan is a directed acyclic graph in which structurally identical queries and function calls are represented by a
+ * single node, so that every distinct sub-expression is fetched and transformed once per evaluation regardless of how often it occurs in the
+ * expression text. Relative times are kept as written and are only bound when the plan is evaluated, hence a plan is immutable and can be reused for
+ * any number of evaluations, concurrently if need be.
+ *
+ * <p>A plan can be rewritten by {@link #pushDown()} so that aggregation and downsampling that the TSDB performs identically are folded into the
+ * queries. The rewritten plan keeps the transforms, which then operate on the reduced series, and keeps the original queries for
+ * {@link #getQueries(DiscoveryService, long)}.</p>
+ *
+ * @author  agent (agent@local)
+ */
+public final class MetricExpressionPlan {
+
+    //~ Instance fields ******************************************************************************************************************************
+
+    private final String _expression;
+    private final Node _root;
+    private final Node _queryRoot;
+    private final int _nodeCount;
+    private final List<String> _pushedDown;
+
+    //~ Constructors *********************************************************************************************************************************
+
+    private MetricExpressionPlan(String expression, Node root, Node queryRoot, int nodeCount, List<String> pushedDown) {
+        _expression = expression;
+        _root = root;
+        _queryRoot = queryRoot;
+        _nodeCount = nodeCount;
+        _pushedDown = Collections.unmodifiableList(pushedDown);
+    }
+
+    //~ Methods **************************************************************************************************************************************
+
+    /**
+     * Normalizes an expression the way compiled plans are keyed, so that expressions differing only in whitespace the parser skips compare equal.
+     *
+     * @param   expression  The expression to normalize. Cannot be null.
+     *
+     * @return  The normalized expression.
+     */
+    public static String normalize(String expression) {
+        requireArgument(expression != null, "Expression cannot be null.");
+        return MetricExpressionCache.normalize(expression);
+    }
+
+    /**
+     * Returns the expression this plan was compiled from.
+     *
+     * @return  The expression text.
+     */
+    public String getExpression() {
+        return _expression;
+    }
+
+    /**
+     * Returns the number of distinct queries and function calls in the plan.
+     *
+     * @return  The number of nodes in the plan.
+     */
+    public int getNodeCount() {
+        return _nodeCount;
+    }
+
+    /**
+     * Evaluates the plan, fetching the data of every distinct query once and applying every distinct function call once.
+     *
+     * @param   tsdbService       The TSDB service used to fetch data. Cannot be null.
+     * @param   discoveryService  The discovery service used to expand wildcard queries. Cannot be null.
+     * @param   factory           The transform factory. Cannot be null.
+     * @param   relativeTo        The timestamp relative times are bound against.
+     *
+     * @return  The evaluation holding the resulting metrics.
+     */
+    public Evaluation evaluate(TSDBService tsdbService, DiscoveryService discoveryService, TransformFactory factory, long relativeTo) {
+        requireArgument(tsdbService != null && discoveryService != null && factory != null, "Services used for evaluation cannot be null.");
+
+        MetricWalker walker = new MetricWalker(tsdbService, discoveryService, factory, relativeTo);
+
+        walker._evaluation._metrics = walker.consume(_root);
+        return walker._evaluation;
+    }
+
+    /**
+     * Returns the queries the plan would fetch, one list entry per occurrence in the expression text.
+     *
+     * @param   discoveryService  The discovery service used to expand wildcard queries. Cannot be null.
+     * @param   relativeTo        The timestamp relative times are bound against.
+     *
+     * @return  The queries of the plan.
+     */
+    public List<MetricQuery> getQueries(DiscoveryService discoveryService, long relativeTo) {
+        requireArgument(discoveryService != null, "Discovery service cannot be null.");
+        return new QueryWalker(discoveryService, relativeTo).consume(_queryRoot);
+    }
+
+    /**
+     * Returns a plan in which the cross series aggregation of SUM, MIN, MAX and GROUPBYTAG and the downsampling of DOWNSAMPLE are performed by the
+     * TSDB wherever the result is provably the same. A transform qualifies only if all its arguments are queries without aggregation, and:
+     *
+     * <ul>
+     *   <li>SUM, MIN and MAX without constants become the zimsum, mimmin and mimmax aggregators, which do not interpolate.</li>
+     *   <li>GROUPBYTAG with SUM, MIN or MAX becomes the same aggregators if every grouping tag is a tag of the query, since the TSDB groups by the
+     *     query tags.</li>
+     *   <li>DOWNSAMPLE with an avg, min, max or sum window of 1s or 1m becomes the query downsampler, as only these windows start on the same
+     *     boundaries as the TSDB buckets.</li>
+     * </ul>
+     *
+     * <p>The transforms stay in the plan. Applied to the series the TSDB already reduced, they produce the same result as before, including the
+     * naming of the resulting series.</p>
+     *
+     * @return  The rewritten plan.
+     */
+    public MetricExpressionPlan pushDown() {
+        Builder builder = new Builder();
+        List<String> pushedDown = new ArrayList<>();
+        Node root = _pushDown(_root, builder, new IdentityHashMap<Node, Node>(), pushedDown);
+
+        return builder.build(_expression, root, _queryRoot, pushedDown);
+    }
+
+    /**
+     * Returns the transforms that {@link #pushDown()} folded into the queries.
+     *
+     * @return  A description of every push down. Will never be null, but may be empty.
+     */
+    public List<String> getPushedDown() {
+        return _pushedDown;
+    }
+
+    /**
+     * Describes how the plan is evaluated: the plan itself, the sub-expressions that are evaluated once and shared, and the transforms pushed down
+     * into the TSDB queries.
+     *
+     * @return  The explanation.
+     */
+    public String explain() {
+        StringBuilder sb = new StringBuilder("plan: ").append(_root).append('\n').append("distinct nodes: ").append(_nodeCount);
+        Set<Node> shared = new LinkedHashSet<>();
+
+        _collectShared(_root, shared, Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>()));
+        for (Node node : shared) {
+            sb.append('\n').append("shared x").append(node.uses).append(": ").append(node);
+        }
+        for (String pushedDown : _pushedDown) {
+            sb.append('\n').append("pushed down: ").append(pushedDown);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return _root.toString();
+    }
+
+    private static void _collectShared(Node node, Set<Node> shared, Set<Node> visited) {
+        if (visited.add(node)) {
+            if (node.uses > 1) {
+                shared.add(node);
+            }
+            if (node instanceof FunctionNode) {
+                for (Node argument : ((FunctionNode) node).arguments) {
+                    _collectShared(argument, shared, visited);
+                }
+            }
+        }
+    }
+
+    private static Node _pushDown(Node node, Builder builder, Map<Node, Node> rewritten, List<String> pushedDown) {
+        Node result = rewritten.get(node);
+
+        if (result != null) {
+            return result;
+        }
+        if (node instanceof QueryNode) {
+            QueryNode query = (QueryNode) node;
+
+            result = builder.query(query.startTime, query.endTime, query.scope, query.metric, query.tags, query.aggregator, query.downsampler,
+                query.downsamplingPeriod, query.namespace);
+        } else {
+            FunctionNode function = (FunctionNode) node;
+            List<Node> arguments = new ArrayList<>(function.arguments.size());
+
+            for (Node argument : function.arguments) {
+                arguments.add(_pushDown(argument, builder, rewritten, pushedDown));
+            }
+
+            List<Node> pushedArguments = _pushDownArguments(function, arguments, builder, pushedDown);
+
+            result = builder.function(function.functionName, pushedArguments == null ? arguments : pushedArguments, function.constants,
+                function.constantsOnly);
+        }
+        rewritten.put(node, result);
+        return result;
+    }
+
+    /* Returns the arguments with the work of the function folded into the queries, or null if the function does not qualify. */
+    private static List<Node> _pushDownArguments(FunctionNode function, List<Node> arguments, Builder builder, List<String> pushedDown) {
+        List<String> constants = function.constants;
+        List<String> groupTags = Collections.emptyList();
+        Aggregator aggregator = null;
+        Aggregator downsampler = null;
+        Long downsamplingPeriod = null;
+
+        switch (function.functionName) {
+            case "SUM":
+            case "MIN":
+            case "MAX":
+                aggregator = constants.isEmpty() ? _crossSeriesAggregator(function.functionName) : null;
+                break;
+            case "GROUPBYTAG":
+                int functionIndex = _lastFunctionIndex(constants);
+
+                if (functionIndex > 0 && functionIndex == constants.size() - 1) {
+                    aggregator = _crossSeriesAggregator(constants.get(functionIndex));
+                    groupTags = constants.subList(0, functionIndex);
+                }
+                break;
+            case "DOWNSAMPLE":
+                if (constants.size() == 1) {
+                    String[] parts = constants.get(0).split("-");
+
+                    if (parts.length == 2 && ("1s".equals(parts[0]) || "1m".equals(parts[0])) && parts[1].matches("avg|min|max|sum")) {
+                        downsampler = Aggregator.fromString(parts[1]);
+                        downsamplingPeriod = "1s".equals(parts[0]) ? 1000L : 60000L;
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        if ((aggregator == null && downsampler == null) || arguments.isEmpty()) {
+            return null;
+        }
+
+        List<Node> result = new ArrayList<>(arguments.size());
+
+        for (Node argument : arguments) {
+            if (!(argument instanceof QueryNode)) {
+                return null;
+            }
+
+            QueryNode query = (QueryNode) argument;
+
+            if (query.aggregator != Aggregator.NONE || !query.tags.keySet().containsAll(groupTags) ||
+                (downsampler != null && query.downsampler != null)) {
+                return null;
+            }
+            result.add(builder.query(query.startTime, query.endTime, query.scope, query.metric, query.tags,
+                aggregator == null ? query.aggregator : aggregator, downsampler == null ? query.downsampler : downsampler,
+                downsampler == null ? query.downsamplingPeriod : downsamplingPeriod, query.namespace));
+        }
+        pushedDown.add(function + " as " + (aggregator != null ? "aggregator " + aggregator.getDescription()
+                                                                 : "downsampler " + constants.get(0)));
+        return result;
+    }
+
+    private static Aggregator _crossSeriesAggregator(String functionName) {
+        switch (functionName) {
+            case "SUM":
+                return Aggregator.ZIMSUM;
+            case "MIN":
+                return Aggregator.MIMMIN;
+            case "MAX":
+                return Aggregator.MIMMAX;
+            default:
+                return null;
+        }
+    }
+
+    /* GROUPBYTAG takes the last constant naming a transform as its function, see GroupByTagTransform. */
+    private static int _lastFunctionIndex(List<String> constants) {
+        for (int i = constants.size() - 1; i >= 0; i--) {
+            for (TransformFactory.Function function : TransformFactory.Function.values()) {
+                if (function.name().equals(constants.get(i))) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    //~ Inner Classes ********************************************************************************************************************************
+
+    /**
+     * The outcome of a plan evaluation.
+     *
+     * @author  agent (agent@local)
+     */
+    public static final class Evaluation {
+
+        private List<Metric> _metrics;
+        private String _expandedTimeSeriesRange;
+        private String _queryTimeWindow;
+        private int _numDiscoveryResults;
+        private int _numDiscoveryQueries;
+
+        private Evaluation() { }
+
+        /**
+         * Returns the resulting metrics.
+         *
+         * @return  The resulting metrics.
+         */
+        public List<Metric> getMetrics() {
+            return _metrics;
+        }
+
+        /**
+         * Returns the expanded time series range of the last query fetched.
+         *
+         * @return  The expanded time series range or null if the plan has no query.
+         */
+        public String getExpandedTimeSeriesRange() {
+            return _expandedTimeSeriesRange;
+        }
+
+        /**
+         * Returns the time window of the last query fetched.
+         *
+         * @return  The query time window or null if the plan has no query.
+         */
+        public String getQueryTimeWindow() {
+            return _queryTimeWindow;
+        }
+
+        /**
+         * Returns the number of queries the last discovered query expanded to.
+         *
+         * @return  The number of discovery results.
+         */
+        public int getNumDiscoveryResults() {
+            return _numDiscoveryResults;
+        }
+
+        /**
+         * Returns the number of discovery lookups the last query required.
+         *
+         * @return  The number of discovery queries.
+         */
+        public int getNumDiscoveryQueries() {
+            return _numDiscoveryQueries;
+        }
+    }
+
+    /**
+     * Builds a plan while the expression is parsed, interning structurally identical nodes.
+     *
+     * @author  agent (agent@local)
+     */
+    static final class Builder {
+
+        private final Map<Node, Node> _nodes = new HashMap<>();
+
+        Node query(String startTime, String endTime, String scope, String metric, Map<String, String> tags, Aggregator aggregator,
+            Aggregator downsampler, Long downsamplingPeriod, String namespace) {
+            return _intern(new QueryNode(startTime, endTime, scope, metric, tags, aggregator, downsampler, downsamplingPeriod, namespace));
+        }
+
+        Node function(String functionName, List<Node> arguments, List<String> constants, boolean constantsOnly) {
+            return _intern(new FunctionNode(functionName, arguments, constants, constantsOnly));
+        }
+
+        MetricExpressionPlan build(String expression, Node root) {
+            return build(expression, root, root, new ArrayList<String>());
+        }
+
+        MetricExpressionPlan build(String expression, Node root, Node queryRoot, List<String> pushedDown) {
+            requireArgument(root != null, "Plan root cannot be null.");
+            for (Node node : _nodes.values()) {
+                node.uses = 0;
+            }
+
+            Set<Node> reachable = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+
+            _countUses(root, reachable);
+            return new MetricExpressionPlan(expression, root, queryRoot, reachable.size(), pushedDown);
+        }
+
+        private Node _intern(Node node) {
+            Node existing = _nodes.putIfAbsent(node, node);
+
+            return existing == null ? node : existing;
+        }
+
+        private void _countUses(Node node, Set<Node> visited) {
+            if (visited.add(node) && node instanceof FunctionNode) {
+                for (Node argument : ((FunctionNode) node).arguments) {
+                    argument.uses++;
+                    _countUses(argument, visited);
+                }
+            }
+        }
+    }
+
+    /** A node of the plan. Equality is structural, which is what the builder interns nodes by. */
+    abstract static class Node {
+
+        int uses;
+        private int _hashCode;
+
+        @Override
+        public final int hashCode() {
+            if (_hashCode == 0) {
+                _hashCode = _computeHashCode();
+            }
+            return _hashCode;
+        }
+
+        abstract int _computeHashCode();
+    }
+
+    /** A metric query, the leaf of the plan. */
+    static final class QueryNode extends Node {
+
+        final String startTime;
+        final String endTime;
+        final String scope;
+        final String metric;
+        final Map<String, String> tags;
+        final Aggregator aggregator;
+        final Aggregator downsampler;
+        final Long downsamplingPeriod;
+        final String namespace;
+
+        QueryNode(String startTime, String endTime, String scope, String metric, Map<String, String> tags, Aggregator aggregator,
+            Aggregator downsampler, Long downsamplingPeriod, String namespace) {
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.scope = scope;
+            this.metric = metric;
+            this.tags = Collections.unmodifiableMap(new HashMap<>(tags));
+            this.aggregator = aggregator;
+            this.downsampler = downsampler;
+            this.downsamplingPeriod = downsamplingPeriod;
+            this.namespace = namespace;
+        }
+
+        MetricQuery toQuery(long relativeTo) {
+            Long endTimestamp = endTime == null ? relativeTo : MetricReader.getTime(relativeTo, endTime);
+            MetricQuery query = new MetricQuery(scope, metric, new HashMap<>(tags), MetricReader.getTime(relativeTo, startTime), endTimestamp);
+
+            query.setNamespace(namespace);
+            query.setAggregator(aggregator);
+            query.setDownsampler(downsampler);
+            query.setDownsamplingPeriod(downsamplingPeriod);
+            return query;
+        }
+
+        @Override
+        int _computeHashCode() {
+            return Objects.hash(startTime, endTime, scope, metric, tags, aggregator, downsampler, downsamplingPeriod, namespace);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof QueryNode)) {
+                return false;
+            }
+
+            QueryNode other = (QueryNode) obj;
+
+            return hashCode() == other.hashCode() && Objects.equals(startTime, other.startTime) && Objects.equals(endTime, other.endTime) &&
+                Objects.equals(scope, other.scope) && Objects.equals(metric, other.metric) && Objects.equals(tags, other.tags) &&
+                aggregator == other.aggregator && downsampler == other.downsampler && Objects.equals(downsamplingPeriod, other.downsamplingPeriod) &&
+                Objects.equals(namespace, other.namespace);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(startTime).append(':');
+
+            if (endTime != null) {
+                sb.append(endTime).append(':');
+            }
+            sb.append(scope).append(':').append(metric);
+            if (!tags.isEmpty()) {
+                sb.append(tags.toString().replace(", ", ","));
+            }
+            sb.append(':').append(aggregator.getDescription());
+            if (downsampler != null) {
+                sb.append(':').append(downsamplingPeriod / 1000).append("s-").append(downsampler.getDescription());
+            }
+            if (namespace != null) {
+                sb.append(':').append(namespace);
+            }
+            return sb.toString();
+        }
+    }
+
+    /** A function call over the results of its argument nodes. */
+    static final class FunctionNode extends Node {
+
+        final String functionName;
+        final List<Node> arguments;
+        final List<String> constants;
+        final boolean constantsOnly;
+
+        FunctionNode(String functionName, List<Node> arguments, List<String> constants, boolean constantsOnly) {
+            this.functionName = functionName;
+            this.arguments = Collections.unmodifiableList(new ArrayList<>(arguments));
+            this.constants = Collections.unmodifiableList(new ArrayList<>(constants));
+            this.constantsOnly = constantsOnly;
+        }
+
+        @Override
+        int _computeHashCode() {
+            return Objects.hash(functionName, arguments, constants, constantsOnly);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof FunctionNode)) {
+                return false;
+            }
+
+            FunctionNode other = (FunctionNode) obj;
+
+            return hashCode() == other.hashCode() && functionName.equals(other.functionName) && constantsOnly == other.constantsOnly &&
+                constants.equals(other.constants) && arguments.equals(other.arguments);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(functionName).append('(');
+            String separator = "";
+
+            for (Node argument : arguments) {
+                sb.append(separator).append(argument);
+                separator = ",";
+            }
+            for (String constant : constants) {
+                sb.append(separator).append('#').append(constant).append('#');
+                separator = ",";
+            }
+            return sb.append(')').toString();
+        }
+    }
+
+    /**
+     * Walks the plan depth first. The result of a node with several parents is computed once and handed to every parent but the last as a copy,
+     * since transforms are free to modify their input.
+     */
+    private abstract static class Walker<T> {
+
+        private final Map<Node, List<T>> _shared = new IdentityHashMap<>();
+        private final Map<Node, Integer> _remaining = new IdentityHashMap<>();
+
+        List<T> consume(Node node) {
+            List<T> result = _shared.get(node);
+
+            if (result == null) {
+                result = node instanceof QueryNode ? evaluateQuery((QueryNode) node) : evaluateFunction((FunctionNode) node);
+                if (node.uses <= 1) {
+                    return result;
+                }
+                _shared.put(node, result);
+                _remaining.put(node, node.uses);
+            }
+
+            int remaining = _remaining.get(node) - 1;
+
+            if (remaining == 0) {
+                _shared.remove(node);
+                _remaining.remove(node);
+                return result;
+            }
+            _remaining.put(node, remaining);
+
+            List<T> copies = new ArrayList<>(result.size());
+
+            for (T element : result) {
+                copies.add(copy(element));
+            }
+            return copies;
+        }
+
+        List<T> evaluateArguments(FunctionNode node) {
+            List<T> result = new ArrayList<>();
+
+            for (Node argument : node.arguments) {
+                result.addAll(consume(argument));
+            }
+            return result;
+        }
+
+        abstract List<T> evaluateQuery(QueryNode node);
+
+        abstract List<T> evaluateFunction(FunctionNode node);
+
+        abstract T copy(T element);
+    }
+
+    private static final class MetricWalker extends Walker<Metric> {
+
+        private final TSDBService _tsdbService;
+        private final DiscoveryService _discoveryService;
+        private final TransformFactory _factory;
+        private final long _relativeTo;
+        private final Evaluation _evaluation = new Evaluation();
+
+        MetricWalker(TSDBService tsdbService, DiscoveryService discoveryService, TransformFactory factory, long relativeTo) {
+            _tsdbService = tsdbService;
+            _discoveryService = discoveryService;
+            _factory = factory;
+            _relativeTo = relativeTo;
+        }
+
+        @Override
+        List<Metric> evaluateQuery(QueryNode node) {
+            MetricQuery query = node.toQuery(_relativeTo);
+
+            _evaluation._queryTimeWindow = QueryTimeWindow.getWindow(query.getEndTimestamp() - query.getStartTimestamp());
+
+            List<MetricQuery> queries = _discoveryService.getMatchingQueries(query);
+
+            if (queries.size() != 1 || queries.get(0) != query) {
+                _evaluation._numDiscoveryResults = queries.size();
+                _evaluation._numDiscoveryQueries = 1;
+            } else {
+                _evaluation._numDiscoveryResults = 0;
+                _evaluation._numDiscoveryQueries = 0;
+            }
+
+            List<Metric> metrics = new ArrayList<>();
+
+            for (List<Metric> m : _tsdbService.getMetrics(queries).values()) {
+                metrics.addAll(m);
+            }
+            _evaluation._expandedTimeSeriesRange = QueryTimeSeriesExpansion.getExpandedTimeSeriesRange(metrics.size());
+            return metrics;
+        }
+
+        @Override
+        List<Metric> evaluateFunction(FunctionNode node) {
+            List<Metric> result = evaluateArguments(node);
+            List<String> constants = new ArrayList<>(node.constants);
+
+            if (TransformFactory.Function.FILL.getName().equals(node.functionName)) {
+                constants.add(String.valueOf(_relativeTo));
+                constants.add(String.valueOf(node.constantsOnly));
+            }
+
+            Transform transform = _factory.getTransform(node.functionName);
+
+            return constants.isEmpty() ? transform.transform(result) : transform.transform(result, constants);
+        }
+
+        @Override
+        Metric copy(Metric element) {
+            return new Metric(element);
+        }
+    }
+
+    private static final class QueryWalker extends Walker<MetricQuery> {
+
+        private final DiscoveryService _discoveryService;
+        private final long _relativeTo;
+
+        QueryWalker(DiscoveryService discoveryService, long relativeTo) {
+            _discoveryService = discoveryService;
+            _relativeTo = relativeTo;
+        }
+
+        @Override
+        List<MetricQuery> evaluateQuery(QueryNode node) {
+            return _discoveryService.getMatchingQueries(node.toQuery(_relativeTo));
+        }
+
+        @Override
+        List<MetricQuery> evaluateFunction(FunctionNode node) {
+            return evaluateArguments(node);
+        }
+
+        @Override
+        MetricQuery copy(MetricQuery element) {
+            return new MetricQuery(element);
+        }
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -41,7 +41,7 @@ import java.util.Map.Entry;
  *
  * @author  Ruofan Zhang (rzhang@salesforce.com)
  */
-public class AbsoluteValueMapping implements ValueMapping {
+public class AbsoluteValueMapping implements ValueMapping, ValueMappingKernel {
 
     //~ Methods **************************************************************************************************************************************
 
@@ -62,6 +62,20 @@ public class AbsoluteValueMapping implements ValueMapping {
         throw new UnsupportedOperationException("Absolute transform doesn't need a constant!");
     }
 
+    @Override
+    public DatapointArrays mapping(DatapointArrays datapoints, List<String> constants) {
+        if (constants != null) {
+            throw new UnsupportedOperationException("Absolute transform doesn't need a constant!");
+        }
+
+        double[] values = datapoints.getValues();
+
+        for (int i = 0; i < datapoints.size(); i++) {
+            values[i] = Math.abs(values[i]);
+        }
+        return datapoints;
+    }
+
     @Override
     public String name() {
         return TransformFactory.Function.ABSOLUTE.name();
@@ -34,6 +34,7 @@ package com.salesforce.dva.argus.service.metric.transform;
 import com.salesforce.dva.argus.entity.Metric;
 import com.salesforce.dva.argus.system.SystemAssert;
 import java.util.List;
+import java.util.regex.Matcher;
 
 /**
  * Transforms the name of one or more metrics.<br>
@@ -103,12 +104,15 @@ public class AliasTransform implements Transform {
             }
         }
         
+        Matcher metricMatcher = MetricPatterns.compile(metricSearchRegex).matcher("");
+        Matcher scopeMatcher = constants.size() == 4 ? MetricPatterns.compile(scopeSearchRegex).matcher("") : null;
+
         for (Metric metric : metrics) {
-            String newMetricName = metric.getMetric().replaceAll(metricSearchRegex, metricReplaceText);
+            String newMetricName = metricMatcher.reset(metric.getMetric()).replaceAll(metricReplaceText);
             metric.setMetric(newMetricName);
             
             if(constants.size() == 4) {
-            	String newScopeName = metric.getScope().replaceAll(scopeSearchRegex, scopeReplaceText);
+            	String newScopeName = scopeMatcher.reset(metric.getScope()).replaceAll(scopeReplaceText);
             	metric.setScope(newScopeName);
             }
         }
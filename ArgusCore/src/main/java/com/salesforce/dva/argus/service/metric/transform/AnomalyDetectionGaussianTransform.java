@@ -48,12 +48,17 @@ import java.util.Map.Entry;
  *
  * @author  Shouvik Mani (shouvik.mani@salesforce.com)
  */
-public abstract class AnomalyDetectionGaussianTransform extends AnomalyDetectionTransform {
+public abstract class AnomalyDetectionGaussianTransform extends AnomalyDetectionTransform implements IncrementalTransform {
 
     //Parameters for Gaussian distribution
     protected double mean;
     protected double variance;
 
+    @Override
+    public void setStateCache(TransformStateCache stateCache) {
+        this.stateCache = stateCache;
+    }
+
     @Override
     public List<Metric> transform(List<Metric> metrics) {
         if (metrics == null) {
@@ -46,6 +46,9 @@ import java.util.Map.Entry;
  */
 public abstract class AnomalyDetectionTransform implements Transform {
 
+    /** Holds the contextual anomaly scores of previous evaluations, or null if they are recomputed on every evaluation. */
+    protected TransformStateCache stateCache;
+
     @Override
     /**
      * This implementation of transform() handles contextual anomaly detection, which
@@ -70,8 +73,18 @@ public abstract class AnomalyDetectionTransform implements Transform {
         int currentIndex = 0;
         currentIndex = advanceCurrentIndexByInterval(currentIndex, predictionDatapoints,
                         timestamps, detectionIntervalInSeconds);
-        calculateContextualAnomalyScores(predictionDatapoints, completeDatapoints, timestamps,
-                currentIndex, detectionIntervalInSeconds);
+
+        String stateKey = stateCache == null ? null : TransformStateCache.key(getResultScopeName(), constants, metrics.get(0));
+        ContextualScores previousScores = stateKey == null ? null : stateCache.get(stateKey, ContextualScores.class);
+        Map<Long, Double> contextualScores = new TreeMap<>();
+
+        calculateContextualAnomalyScores(contextualScores, completeDatapoints, timestamps,
+                currentIndex, detectionIntervalInSeconds, previousScores);
+        predictionDatapoints.putAll(contextualScores);
+        if (stateKey != null) {
+            stateCache.put(stateKey, new ContextualScores(completeDatapoints, contextualScores),
+                completeDatapoints.size() + contextualScores.size());
+        }
 
         predictions.setDatapoints(predictionDatapoints);
         List<Metric> resultMetrics = new ArrayList<>();
@@ -213,13 +226,24 @@ public abstract class AnomalyDetectionTransform implements Transform {
      * @param timestamps sorted timestamps of the original metric
      * @param currentIndex index at which to start contextual anomaly detection
      * @param detectionIntervalInSeconds anomaly detection interval
+     * @param previousScores contextual anomaly scores of the previous evaluation of the metric, or null.
+     *                       Scores of data points whose interval has not changed since are reused.
      */
     private void calculateContextualAnomalyScores(Map<Long, Double> predictionDatapoints,
                                                   Map<Long, Double> completeDatapoints,
                                                   Long[] timestamps,
-                                                  int currentIndex, long detectionIntervalInSeconds) {
+                                                  int currentIndex, long detectionIntervalInSeconds,
+                                                  ContextualScores previousScores) {
+        long firstChange = previousScores == null || timestamps.length == 0 ? Long.MIN_VALUE
+                : previousScores.firstChange(completeDatapoints, timestamps[0]);
+
         for (int i = currentIndex; i < timestamps.length; i++) {
             long timestampAtCurrentIndex = timestamps[i];
+
+            if (timestampAtCurrentIndex < firstChange && previousScores.scores.containsKey(timestampAtCurrentIndex)) {
+                predictionDatapoints.put(timestampAtCurrentIndex, previousScores.scores.get(timestampAtCurrentIndex));
+                continue;
+            }
             long projectedIntervalStartTime = timestampAtCurrentIndex - detectionIntervalInSeconds;
 
             Metric intervalMetric = createIntervalMetric(i, completeDatapoints, timestamps,
@@ -264,6 +288,46 @@ public abstract class AnomalyDetectionTransform implements Transform {
         return intervalMetric;
     }
 
+    /**
+     * The input data points and contextual anomaly scores of an evaluation. The score of a data point only depends on the data points in the
+     * interval ending at it, so it can be reused by a later evaluation as long as none of the data points in that interval changed.
+     */
+    static final class ContextualScores {
+
+        private final TreeMap<Long, Double> datapoints;
+        private final Map<Long, Double> scores;
+
+        ContextualScores(Map<Long, Double> datapoints, Map<Long, Double> scores) {
+            this.datapoints = new TreeMap<>(datapoints);
+            this.scores = scores;
+        }
+
+        /**
+         * Returns the first timestamp, at or after the first data point of a new evaluation, from which the data points of the new
+         * evaluation differ from the ones of this evaluation. Scores of earlier data points can be reused. The data points of a
+         * metric are held in timestamp order.
+         */
+        long firstChange(Map<Long, Double> newDatapoints, long firstTimestamp) {
+            Iterator<Entry<Long, Double>> previous = datapoints.tailMap(firstTimestamp, true).entrySet().iterator();
+            Iterator<Entry<Long, Double>> current = newDatapoints.entrySet().iterator();
+
+            while (true) {
+                Entry<Long, Double> previousEntry = previous.hasNext() ? previous.next() : null;
+                Entry<Long, Double> currentEntry = current.hasNext() ? current.next() : null;
+
+                if (previousEntry == null || currentEntry == null) {
+                    return previousEntry != null ? previousEntry.getKey() : currentEntry != null ? currentEntry.getKey() : Long.MAX_VALUE;
+                }
+                if (!previousEntry.getKey().equals(currentEntry.getKey())) {
+                    return Math.min(previousEntry.getKey(), currentEntry.getKey());
+                }
+                if (!Objects.equals(previousEntry.getValue(), currentEntry.getValue())) {
+                    return currentEntry.getKey();
+                }
+            }
+        }
+    }
+
     @Override
     abstract public List<Metric> transform(List<Metric> metrics);
 
@@ -42,14 +42,26 @@ import java.util.*;
 /**
  * Created by vmuruganantham on 7/13/16.
  */
-public class AnomalySTLTransform implements Transform {
+public class AnomalySTLTransform implements Transform, IncrementalTransform {
 
     //~ Variables **************************************************************************************************************************************
 
     private double max_norm_prob = normPDF(0);
+    private TransformStateCache stateCache;
 
     //~ Methods **************************************************************************************************************************************
 
+    /**
+     * The decomposition is a global fit over the whole series, so in incremental mode only evaluations over unchanged data points reuse the
+     * previous result.
+     *
+     * @param  stateCache  The cache holding the previous results.
+     */
+    @Override
+    public void setStateCache(TransformStateCache stateCache) {
+        this.stateCache = stateCache;
+    }
+
     @Override
     public List<Metric> transform(List<Metric> metrics) {
         List<String> l = new ArrayList<String>();
@@ -89,6 +101,12 @@ public class AnomalySTLTransform implements Transform {
 
         Metric metric = metrics.get(0);
         Map<Long, Double> datapoints = metric.getDatapoints();
+        String stateKey = stateCache == null ? null : TransformStateCache.key(getResultScopeName(), constants, metric);
+        StlState previous = stateKey == null ? null : stateCache.get(stateKey, StlState.class);
+
+        if (previous != null && previous.datapoints.equals(datapoints)) {
+            return _result(previous.scores, metrics.size());
+        }
 
         double[] values = new double[datapoints.size()];
         List<Long> time_list = new ArrayList<>(datapoints.keySet());
@@ -126,9 +144,16 @@ public class AnomalySTLTransform implements Transform {
             }
         }
 
+        if (stateKey != null) {
+            stateCache.put(stateKey, new StlState(datapoints, remainder_map), datapoints.size() + remainder_map.size());
+        }
+        return _result(remainder_map, metrics.size());
+    }
+
+    private List<Metric> _result(Map<Long, Double> remainder_map, int size) {
         Metric remainder_metric = new Metric(getResultScopeName(), "STL Anomaly Score");
         remainder_metric.setDatapoints(remainder_map);
-        List<Metric> result = new ArrayList<>(metrics.size());
+        List<Metric> result = new ArrayList<>(size);
         result.add(0, remainder_metric);
 
         return result;
@@ -186,4 +211,18 @@ public class AnomalySTLTransform implements Transform {
         throw new UnsupportedOperationException("This class is deprecated!");
     }
 
+    //~ Inner Classes ********************************************************************************************************************************
+
+    /* The input data points and the result of an evaluation. */
+    private static final class StlState {
+
+        private final Map<Long, Double> datapoints;
+        private final Map<Long, Double> scores;
+
+        StlState(Map<Long, Double> datapoints, Map<Long, Double> scores) {
+            this.datapoints = new TreeMap<>(datapoints);
+            this.scores = new TreeMap<>(scores);
+        }
+    }
+
 }
@@ -38,7 +38,7 @@ import java.util.List;
  *
  * @author  Ruofan Zhang (rzhang@salesforce.com)
  */
-public class AverageValueReducer implements ValueReducer {
+public class AverageValueReducer implements ValueReducer, ValueReducerKernel {
 
     //~ Methods **************************************************************************************************************************************
 
@@ -55,6 +55,16 @@ public class AverageValueReducer implements ValueReducer {
         return (sum / values.size());
     }
 
+    @Override
+    public double reduce(double[] values, int length) {
+        double sum = 0.0;
+
+        for (int i = 0; i < length; i++) {
+            sum += values[i];
+        }
+        return sum / length;
+    }
+
     @Override
     public String name() {
         return TransformFactory.Function.AVERAGE.name();
@@ -35,9 +35,9 @@ import com.salesforce.dva.argus.entity.Metric;
 import com.salesforce.dva.argus.system.SystemAssert;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Prepare the datapoints of every metric for count transform.
@@ -76,17 +76,18 @@ public class CountTransformWrapUnion implements Transform {
     }
     
     private Map<Long, Double> _collate(List<Metric> metrics) {
-        Map<Long, Double> collated = new HashMap<>();
+        Map<Long, Double> collated = new TreeMap<>();
+        DatapointMerger merger = new DatapointMerger(metrics);
 
-        for (Metric metric : metrics) {
-            for (Map.Entry<Long, Double> point : metric.getDatapoints().entrySet()) {
-                if (!collated.containsKey(point.getKey())) {
-                    collated.put(point.getKey(), 1.0);
-                } else {
-                	double oldValue = collated.get(point.getKey());
-                	collated.put(point.getKey(), oldValue + 1.0);
-                }
+        while (merger.hasNext()) {
+            long timestamp = merger.nextTimestamp();
+            double count = 0.0;
+
+            while (merger.hasNext() && merger.nextTimestamp() == timestamp) {
+                merger.next();
+                count++;
             }
+            collated.put(timestamp, count);
         }
         return collated;
     }
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.service.metric.transform;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Datapoints of a single series held in two aligned primitive arrays, sorted by timestamp. This is the representation used by the transform
+ * kernels, which avoid boxing every timestamp and value and building per timestamp collections.
+ *
+ * @author  agent (agent@local)
+ */
+public final class DatapointArrays {
+
+    //~ Instance fields ******************************************************************************************************************************
+
+    private long[] timestamps;
+    private double[] values;
+    private int size;
+
+    //~ Constructors *********************************************************************************************************************************
+
+    /**
+     * Creates a new empty DatapointArrays object.
+     *
+     * @param  capacity  The initial capacity.
+     */
+    public DatapointArrays(int capacity) {
+        timestamps = new long[Math.max(capacity, 1)];
+        values = new double[timestamps.length];
+    }
+
+    //~ Methods **************************************************************************************************************************************
+
+    /**
+     * Copies a datapoint map into primitive arrays.
+     *
+     * @param   datapoints  The datapoints to copy.
+     * @param   nullValue   The value to use in place of null values. If null, the datapoints are only copied if they contain no null values.
+     *
+     * @return  The sorted datapoint arrays, or null if the datapoints contain a null value and no replacement is given.
+     */
+    public static DatapointArrays of(Map<Long, Double> datapoints, Double nullValue) {
+        DatapointArrays result = new DatapointArrays(datapoints.size());
+        boolean sorted = true;
+
+        for (Map.Entry<Long, Double> entry : datapoints.entrySet()) {
+            Double value = entry.getValue();
+
+            if (value == null) {
+                if (nullValue == null) {
+                    return null;
+                }
+                value = nullValue;
+            }
+            sorted &= result.size == 0 || entry.getKey() > result.timestamps[result.size - 1];
+            result.add(entry.getKey(), value);
+        }
+        if (!sorted) {
+            result._sort();
+        }
+        return result;
+    }
+
+    /**
+     * Appends a datapoint. Timestamps must be appended in increasing order.
+     *
+     * @param  timestamp  The timestamp.
+     * @param  value      The value.
+     */
+    public void add(long timestamp, double value) {
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        timestamps[size] = timestamp;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Returns the timestamps. Only the first <tt>size()</tt> elements are valid.
+     *
+     * @return  The timestamp array.
+     */
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     * Returns the values. Only the first <tt>size()</tt> elements are valid. Kernels may update the values in place.
+     *
+     * @return  The value array.
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    /**
+     * Returns the number of datapoints.
+     *
+     * @return  The number of datapoints.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the datapoints into a sorted map, in a form that a metric can take over without re-sorting.
+     *
+     * @return  The datapoint map.
+     */
+    public SortedMap<Long, Double> toMap() {
+        SortedMap<Long, Double> result = new TreeMap<>();
+
+        for (int i = 0; i < size; i++) {
+            result.put(timestamps[i], values[i]);
+        }
+        return result;
+    }
+
+    private void _sort() {
+        Integer[] order = new Integer[size];
+
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(timestamps[a], timestamps[b]));
+
+        long[] sortedTimestamps = new long[timestamps.length];
+        double[] sortedValues = new double[values.length];
+
+        for (int i = 0; i < size; i++) {
+            sortedTimestamps[i] = timestamps[order[i]];
+            sortedValues[i] = values[order[i]];
+        }
+        timestamps = sortedTimestamps;
+        values = sortedValues;
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.service.metric.transform;
+
+import com.salesforce.dva.argus.entity.Metric;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Streams the datapoints of several metrics in timestamp order with a k-way merge over their datapoint iterators. The datapoints of a metric are
+ * always held in timestamp order, so nothing is copied or sorted and the working memory is proportional to the number of metrics. Datapoints with
+ * equal timestamps are returned in the order of the metrics.
+ *
+ * @author  agent (agent@local)
+ */
+final class DatapointMerger {
+
+    //~ Instance fields ******************************************************************************************************************************
+
+    private final List<Iterator<Map.Entry<Long, Double>>> iterators;
+    private final long[] timestamps;
+    private final Double[] values;
+    private final int[] heap;
+    private int heapSize;
+    private int current = -1;
+
+    //~ Constructors *********************************************************************************************************************************
+
+    /**
+     * Creates a new DatapointMerger object.
+     *
+     * @param  metrics  The metrics to merge.
+     */
+    DatapointMerger(List<Metric> metrics) {
+        int k = metrics.size();
+
+        iterators = new ArrayList<>(k);
+        timestamps = new long[k];
+        values = new Double[k];
+        heap = new int[k];
+        for (int i = 0; i < k; i++) {
+            iterators.add(metrics.get(i).getDatapoints().entrySet().iterator());
+            if (_advance(i)) {
+                heap[heapSize] = i;
+                _siftUp(heapSize++);
+            }
+        }
+    }
+
+    //~ Methods **************************************************************************************************************************************
+
+    /**
+     * Reduces the metrics timestamp by timestamp. The values of a timestamp are passed to the reducer in the order of the metrics. The primitive
+     * kernel is used for every timestamp that has no null value, the boxed reducer otherwise.
+     *
+     * @param   metrics     The metrics to reduce.
+     * @param   requireAll  If true, timestamps which are missing from any of the metrics are dropped.
+     * @param   kernel      The primitive kernel of the reducer or null if it has none.
+     * @param   reducer     The boxed reducer. The list it is given is reused for the next timestamp.
+     *
+     * @return  The reduced datapoints.
+     */
+    static SortedMap<Long, Double> reduce(List<Metric> metrics, boolean requireAll, ValueReducerKernel kernel, Function<List<Double>, Double> reducer) {
+        DatapointMerger merger = new DatapointMerger(metrics);
+        SortedMap<Long, Double> result = new TreeMap<>();
+        double[] column = new double[metrics.size()];
+        List<Double> boxedColumn = new ArrayList<>(metrics.size());
+
+        while (merger.hasNext()) {
+            long timestamp = merger.nextTimestamp();
+            boolean hasNull = false;
+
+            boxedColumn.clear();
+            while (merger.hasNext() && merger.nextTimestamp() == timestamp) {
+                Double value = merger.next();
+
+                if (value == null) {
+                    hasNull = true;
+                } else {
+                    column[boxedColumn.size()] = value;
+                }
+                boxedColumn.add(value);
+            }
+            if (requireAll && boxedColumn.size() < metrics.size()) {
+                continue;
+            }
+            result.put(timestamp, kernel != null && !hasNull ? kernel.reduce(column, boxedColumn.size()) : reducer.apply(boxedColumn));
+        }
+        return result;
+    }
+
+    /**
+     * Indicates whether any datapoints remain.
+     *
+     * @return  True if datapoints remain.
+     */
+    boolean hasNext() {
+        return heapSize > 0;
+    }
+
+    /**
+     * Returns the timestamp of the next datapoint without consuming it.
+     *
+     * @return  The timestamp of the next datapoint.
+     */
+    long nextTimestamp() {
+        return timestamps[heap[0]];
+    }
+
+    /**
+     * Consumes the next datapoint.
+     *
+     * @return  The value of the datapoint. May be null.
+     */
+    Double next() {
+        current = heap[0];
+
+        Double value = values[current];
+
+        if (!_advance(current)) {
+            heap[0] = heap[--heapSize];
+        }
+        _siftDown(0);
+        return value;
+    }
+
+    /**
+     * Returns the index of the metric of the datapoint last returned by <tt>next()</tt>.
+     *
+     * @return  The metric index.
+     */
+    int currentSeries() {
+        return current;
+    }
+
+    private boolean _advance(int series) {
+        Iterator<Map.Entry<Long, Double>> iterator = iterators.get(series);
+
+        if (!iterator.hasNext()) {
+            return false;
+        }
+
+        Map.Entry<Long, Double> entry = iterator.next();
+
+        timestamps[series] = entry.getKey();
+        values[series] = entry.getValue();
+        return true;
+    }
+
+    private boolean _less(int a, int b) {
+        return timestamps[a] < timestamps[b] || (timestamps[a] == timestamps[b] && a < b);
+    }
+
+    private void _siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+
+            if (!_less(heap[index], heap[parent])) {
+                return;
+            }
+            _swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void _siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+
+            if (left < heapSize && _less(heap[left], heap[smallest])) {
+                smallest = left;
+            }
+            if (right < heapSize && _less(heap[right], heap[smallest])) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            _swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void _swap(int i, int j) {
+        int tmp = heap[i];
+
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -43,7 +43,7 @@ import java.util.Map;
  *
  * @author  Ruofan Zhang (rzhang@salesforce.com)
  */
-public class DivideValueReducerOrMapping implements ValueReducerOrMapping {
+public class DivideValueReducerOrMapping implements ValueReducerOrMapping, ValueReducerKernel, ValueMappingKernel {
 
     //~ Methods **************************************************************************************************************************************
 
@@ -98,6 +98,40 @@ public class DivideValueReducerOrMapping implements ValueReducerOrMapping {
         throw new UnsupportedOperationException("Divide Transform with reducer is not supposed to be used without a constant");
     }
 
+    @Override
+    public double reduce(double[] values, int length) {
+        double quotient = values[0];
+
+        for (int i = 1; i < length; i++) {
+            if (values[i] == 0.0) {
+                throw new ArithmeticException("this datapoints sets have a value of zero!");
+            }
+            quotient /= values[i];
+        }
+        return quotient;
+    }
+
+    @Override
+    public DatapointArrays mapping(DatapointArrays datapoints, List<String> constants) {
+        if (constants == null) {
+            throw new UnsupportedOperationException("Divide Transform with mapping is not supposed to be used without a constant");
+        }
+        SystemAssert.requireArgument(constants.size() == 1, "If constants provided for divide transform, only exactly one constant allowed.");
+
+        try {
+            double divisor = Double.parseDouble(constants.get(0));
+            double[] values = datapoints.getValues();
+
+            SystemAssert.requireArgument(divisor != 0, "The constant divisor cannot be zero.");
+            for (int i = 0; i < datapoints.size(); i++) {
+                values[i] /= divisor;
+            }
+            return datapoints;
+        } catch (NumberFormatException nfe) {
+            throw new SystemException("Illegal constant value supplied to divide transform", nfe);
+        }
+    }
+
     @Override
     public String name() {
         return TransformFactory.Function.DIVIDE.name();
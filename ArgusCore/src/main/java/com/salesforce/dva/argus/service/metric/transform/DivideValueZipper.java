@@ -41,7 +41,7 @@ import com.salesforce.dva.argus.system.SystemException;
  *
  * @author  Ruofan Zhang (rzhang@salesforce.com)
  */
-public class DivideValueZipper implements ValueZipper {
+public class DivideValueZipper implements ValueZipper, ValueZipperKernel {
 
     //~ Methods **************************************************************************************************************************************
 
@@ -59,6 +59,15 @@ public class DivideValueZipper implements ValueZipper {
         }
     }
 
+    @Override
+    public double zip(double originalDatapoint, double baseDatapoint) {
+        if (baseDatapoint == 0.0) {
+            throw new SystemException("Fail to parse the double value of original Datapoint or base Datapoint!",
+                new IllegalArgumentException("Datapoints in base metric shouldn't contain zero!"));
+        }
+        return originalDatapoint / baseDatapoint;
+    }
+
     @Override
     public String name() {
         return TransformFactory.Function.DIVIDE_V.name();
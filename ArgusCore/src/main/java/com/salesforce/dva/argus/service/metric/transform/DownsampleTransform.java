@@ -100,6 +100,54 @@ public class DownsampleTransform implements Transform {
         }
     }
 
+    /**
+     * Implements down sampling over a range of a primitive array. Produces the same result as the list based reducer for values without nulls.
+     *
+     * @param   values       The values to down sample.
+     * @param   begin        The index of the first value.
+     * @param   length       The number of values.
+     * @param   reducerType  The type of down sampling to perform.
+     *
+     * @return  The down sampled result.
+     *
+     * @throws  UnsupportedOperationException  If an unknown down sampling type is specified.
+     */
+    public static double downsamplerReducer(double[] values, int begin, int length, String reducerType) {
+        InternalReducerType type = InternalReducerType.fromString(reducerType);
+        switch (type) {
+            case AVG:
+                return new Mean().evaluate(values, begin, length);
+            case MIN:
+                double min = values[begin];
+
+                for (int i = begin + 1; i < begin + length; i++) {
+                    if (Double.compare(values[i], min) < 0) {
+                        min = values[i];
+                    }
+                }
+                return min;
+            case MAX:
+                double max = values[begin];
+
+                for (int i = begin + 1; i < begin + length; i++) {
+                    if (Double.compare(values[i], max) > 0) {
+                        max = values[i];
+                    }
+                }
+                return max;
+            case SUM:
+                return new Sum().evaluate(values, begin, length);
+            case DEVIATION:
+                return new StandardDeviation().evaluate(values, begin, length);
+            case COUNT:
+                return length;
+            case PERCENTILE:
+                return new Percentile().evaluate(values, begin, length, Double.parseDouble(reducerType.substring(1)));
+            default:
+                throw new UnsupportedOperationException("Illegal type: " + reducerType + ". Please provide a valid type.");
+        }
+    }
+
     /**
      * Creating timestamp for downsampling in order to be consistent with TSDB downsampling func on hour/minute level
      *
@@ -154,6 +202,12 @@ public class DownsampleTransform implements Transform {
     }
 
     private Map<Long, Double> createDownsampleDatapoints(Map<Long, Double> originalDatapoints, long windowSize, String type, String windowUnit) {
+        DatapointArrays datapoints = DatapointArrays.of(originalDatapoints, null);
+
+        if (datapoints != null) {
+            return createDownsampleDatapoints(datapoints, windowSize, type, windowUnit).toMap();
+        }
+
         Map<Long, Double> downsampleDatapoints = new HashMap<>();
         TreeMap<Long, Double> sortedDatapoints = new TreeMap<>(originalDatapoints);
         
@@ -187,6 +241,30 @@ public class DownsampleTransform implements Transform {
         return downsampleDatapoints;
     }
 
+    /* Primitive array version of the down sampling above, for datapoints without null values. Windows are reduced in place over the arrays. */
+    private DatapointArrays createDownsampleDatapoints(DatapointArrays datapoints, long windowSize, String type, String windowUnit) {
+        DatapointArrays downsampleDatapoints = new DatapointArrays(16);
+
+        if (datapoints.size() == 0) {
+            return downsampleDatapoints;
+        }
+
+        long[] timestamps = datapoints.getTimestamps();
+        double[] values = datapoints.getValues();
+        long windowStart = getWindowStartTime(timestamps[0], windowUnit, windowSize);
+        int begin = 0;
+
+        for (int i = 1; i < datapoints.size(); i++) {
+            if (timestamps[i] >= windowStart + windowSize) {
+                downsampleDatapoints.add(windowStart, downsamplerReducer(values, begin, i - begin, type));
+                windowStart = getWindowStartTime(windowStart, timestamps[i], windowSize);
+                begin = i;
+            }
+        }
+        downsampleDatapoints.add(windowStart, downsamplerReducer(values, begin, datapoints.size() - begin, type));
+        return downsampleDatapoints;
+    }
+
     private long getWindowStartTime(long previousStartTime, long firstDatapoint, long windowSize){
     	long result=previousStartTime;
     	while(firstDatapoint>=(result+windowSize)){
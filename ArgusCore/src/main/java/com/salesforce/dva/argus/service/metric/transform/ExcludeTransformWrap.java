@@ -32,7 +32,9 @@
 package com.salesforce.dva.argus.service.metric.transform;
 
 import com.salesforce.dva.argus.entity.Metric;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Culls metrics based on the matching of a regular expression against the metric name.<br>
@@ -51,10 +53,11 @@ public class ExcludeTransformWrap implements Transform {
 
     @Override
     public List<Metric> transform(List<Metric> metrics, List<String> constants) {
-        List<Metric> removedMetrics = new IncludeTransform().transform(metrics, constants);
+        Set<Metric> removedMetrics = new HashSet<>(new IncludeTransform().transform(metrics, constants));
 
+        // Removes every metric equal to a matching one, as a removeAll would, in a single pass.
         try {
-            metrics.removeAll(removedMetrics);
+            metrics.removeIf(removedMetrics::contains);
         } catch (Exception e) {
             throw new RuntimeException("Fail to remove some metrics for Exclude Transform!");
         }
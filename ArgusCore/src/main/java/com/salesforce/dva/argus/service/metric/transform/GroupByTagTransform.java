@@ -7,8 +7,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 public class GroupByTagTransform implements Transform {
 
@@ -59,13 +57,18 @@ public class GroupByTagTransform implements Transform {
 
 		Map<String, List<Metric>> groups = new HashMap<>();
 		for(Metric metric : metrics) {
-			String key = tags.stream()
-				.map(metric::getTag)
-                .filter(Objects::nonNull)
-				.collect(Collectors.joining(","));
+			StringBuilder key = new StringBuilder();
+			for (String tag : tags) {
+				String value = metric.getTag(tag);
+				if (value != null) {
+					if (key.length() > 0) {
+						key.append(',');
+					}
+					key.append(value);
+				}
+			}
 
-            groups.putIfAbsent(key, new ArrayList<>());
-            groups.get(key).add(metric);
+			groups.computeIfAbsent(key.toString(), k -> new ArrayList<>()).add(metric);
 		}
 
 		Transform transform = _factory.getTransform(functionName.getName());
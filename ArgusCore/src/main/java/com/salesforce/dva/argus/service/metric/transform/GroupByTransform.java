@@ -6,7 +6,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import com.salesforce.dva.argus.entity.Metric;
 import com.salesforce.dva.argus.system.SystemAssert;
@@ -30,15 +29,13 @@ public class GroupByTransform implements Transform {
 		SystemAssert.requireArgument(constants != null && constants.size() >= 2, "Constants list cannot be null and its size must be 2 or more.");
 		
 		//Remove first constant which is the regex to group by.
-		Pattern pattern = Pattern.compile(constants.remove(0));
+		Matcher matcher = MetricPatterns.compile(constants.remove(0)).matcher("");
 		//Remove second constant which is the function to perform on the grouped metrics. 
 		String functionName = constants.remove(0);
 		
 		Map<String, List<Metric>> groups = new HashMap<>();
 		for(Metric metric : metrics) {
-			String identifier = metric.getIdentifier();
-			Matcher matcher = pattern.matcher(identifier);
-			if(matcher.find()) {
+			if(matcher.reset(metric.getIdentifier()).find()) {
 				String group = "";
 				int i = 1;
 				while(i <= matcher.groupCount()) {
@@ -33,7 +33,6 @@ package com.salesforce.dva.argus.service.metric.transform;
 
 import com.salesforce.dva.argus.entity.Metric;
 import com.salesforce.dva.argus.system.SystemAssert;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -83,19 +82,7 @@ public class GroupTransformWrapUnion implements Transform {
     }
 
     private List<Metric> filterMetrics(List<Metric> metrics, String expr, String type) {
-        List<Metric> matchMetricList = new ArrayList<Metric>();
-
-        for (Metric metric : metrics) {
-            String name = metric.getIdentifier();
-            boolean isMatch = name.matches(expr);
-
-            if (isMatch && type.equals(INCLUSIVE)) {
-                matchMetricList.add(metric);
-            } else if (!isMatch && type.equals(EXCLUSIVE)) {
-                matchMetricList.add(metric);
-            }
-        }
-        return matchMetricList;
+        return MetricPatterns.select(metrics, expr, type.equals(INCLUSIVE));
     }
 
     @Override
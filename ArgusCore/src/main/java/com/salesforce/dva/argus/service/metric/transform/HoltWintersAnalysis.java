@@ -31,10 +31,14 @@
 	 
 package com.salesforce.dva.argus.service.metric.transform;
 
+import com.salesforce.dva.argus.entity.Metric;
+import com.salesforce.dva.argus.service.TSDBService;
+import com.salesforce.dva.argus.service.tsdb.MetricQuery;
 import java.math.RoundingMode;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -45,12 +49,13 @@ import java.util.TreeMap;
  *
  * @author  Tom Valine (tvaline@salesforce.com)
  */
-public class HoltWintersAnalysis {
+public class HoltWintersAnalysis implements SeriesParallelTransform, IncrementalTransform {
 
     //~ Static fields/initializers *******************************************************************************************************************
 
     protected static final long ONE_WEEK_IN_MILLIS = 7 * 24 * 60 * 60 * 100;
-    protected static final NumberFormat DECIMAL_FORMAT = getDecimalFormat();
+    /* NumberFormat is not thread safe and series may be analysed concurrently. */
+    protected static final ThreadLocal<NumberFormat> DECIMAL_FORMAT = ThreadLocal.withInitial(HoltWintersAnalysis::getDecimalFormat);
 
     private static NumberFormat getDecimalFormat() {
         DecimalFormat df = (DecimalFormat) NumberFormat.getInstance(Locale.US);
@@ -59,94 +64,285 @@ public class HoltWintersAnalysis {
         return df;
     }
 
+    //~ Instance fields ******************************************************************************************************************************
+
+    protected SeriesExecutor _seriesExecutor = SeriesExecutor.SEQUENTIAL;
+    protected TransformStateCache _stateCache;
+
     //~ Methods **************************************************************************************************************************************
 
+    @Override
+    public void setSeriesExecutor(SeriesExecutor seriesExecutor) {
+        _seriesExecutor = seriesExecutor;
+    }
+
+    @Override
+    public void setStateCache(TransformStateCache stateCache) {
+        _stateCache = stateCache;
+    }
+
     HoltWintersData _performHoltWintersAnalysis(Map<Long, Double> bootstrappedDps, double alpha, double beta, double gamma, int seasonLength,
         long startTimestamp) {
-
-        List<Double> intercepts = new ArrayList<Double>();
-        List<Double> slopes = new ArrayList<Double>();
-        List<Double> seasonals = new ArrayList<Double>();
-        List<Double> deviations = new ArrayList<Double>();
-        Map<Long, Double> deviationDatapoints = new TreeMap<>();
-        Map<Long, Double> forecastedDatapoints = new TreeMap<>();
-        double next_pred = 0.0, prediction = 0.0;
-        int i = 0;
+        HoltWintersModel model = new HoltWintersModel(alpha, beta, gamma, seasonLength, startTimestamp, false);
 
         for (Map.Entry<Long, Double> entry : bootstrappedDps.entrySet()) {
-            Long timestamp = entry.getKey();
-            Double value = entry.getValue();
-            double lastIntercept = 0.0;
-            double lastSlope = 0.0;
+            model.fold(entry.getKey(), entry.getValue());
+        }
+        return new HoltWintersData(model.forecastedDatapoints, model.deviationDatapoints);
+    }
 
-            if (i == 0) {
-                lastIntercept = value;
-                lastSlope = 0;
+    /**
+     * Performs the analysis of a series over its query window, bootstrapped with the datapoints of the week before the window. In incremental mode
+     * the model of the previous evaluation of the series is extended with the new datapoints instead, without fetching the bootstrap again,
+     * unless the window moved backwards, there is a gap between the model and the window or datapoints already folded into the model changed. In
+     * those cases the model is rebuilt.
+     *
+     * @param   tsdbService   The TSDB service used to fetch the bootstrap datapoints.
+     * @param   metric        The series to analyse.
+     * @param   alpha         The level smoothing parameter.
+     * @param   beta          The trend smoothing parameter.
+     * @param   gamma         The seasonal smoothing parameter.
+     * @param   seasonLength  The number of datapoints in a season.
+     *
+     * @return  The forecast and deviation datapoints within the query window.
+     */
+    HoltWintersData _performHoltWintersAnalysis(TSDBService tsdbService, Metric metric, double alpha, double beta, double gamma, int seasonLength) {
+        long startTimestamp = metric.getQuery().getStartTimestamp().longValue();
+        String key = _stateCache == null ? null
+                                         : TransformStateCache.key("HOLT_WINTERS",
+                                             Arrays.asList(String.valueOf(alpha), String.valueOf(beta), String.valueOf(gamma), String.valueOf(seasonLength)),
+                                             metric);
 
-                // seed the first prediction as the first actual
-                prediction = value;
-            } else {
-                lastIntercept = intercepts.get(i - 1);
-                lastSlope = slopes.get(i - 1);
-                if (lastIntercept == 0.0) {
-                    lastIntercept = value;
+        if (key != null) {
+            HoltWintersModel model = _stateCache.get(key, HoltWintersModel.class);
+
+            if (model != null) {
+                synchronized (model) {
+                    if (model.extend(metric.getDatapoints(), startTimestamp)) {
+                        _stateCache.put(key, model, model.size());
+                        return model.snapshot();
+                    }
                 }
-                prediction = next_pred;
             }
+        }
 
-            double last_seasonal = getLast(seasonals, i, seasonLength);
-            double next_last_seasonal = getLast(seasonals, i + 1, seasonLength);
-            double last_seasonal_dev = getLast(deviations, i, seasonLength);
-            double intercept = _holtWintersIntercept(alpha, value, last_seasonal, lastIntercept, lastSlope);
-            double slope = _holtWintersSlope(beta, intercept, lastIntercept, lastSlope);
-            double seasonal = _holtWintersSeasonal(gamma, value, intercept, last_seasonal);
+        MetricQuery oneWeekBeforeQuery = new MetricQuery(metric.getQuery());
 
-            next_pred = intercept + slope + next_last_seasonal;
+        oneWeekBeforeQuery.setEndTimestamp(oneWeekBeforeQuery.getStartTimestamp());
+        oneWeekBeforeQuery.setStartTimestamp(oneWeekBeforeQuery.getStartTimestamp() - ONE_WEEK_IN_MILLIS);
 
-            double deviation = _holtWintersDeviation(gamma, value, prediction, last_seasonal_dev);
+        List<Metric> metricsList = SeriesExecutor.block(() -> tsdbService.getMetrics(Arrays.asList(new MetricQuery[] { oneWeekBeforeQuery })))
+            .get(oneWeekBeforeQuery);
+        Metric oneWeekBeforeMetric = null;
 
-            intercepts.add(intercept);
-            slopes.add(slope);
-            seasonals.add(seasonal);
-            deviations.add(deviation);
-            if (timestamp >= startTimestamp) {
-                forecastedDatapoints.put(timestamp, Double.parseDouble(DECIMAL_FORMAT.format(prediction)));
-                deviationDatapoints.put(timestamp, Double.parseDouble(DECIMAL_FORMAT.format(deviation)));
+        for (Metric m : metricsList) {
+            if (metric.equals(m)) {
+                oneWeekBeforeMetric = m;
+                break;
             }
-            i++;
         }
 
-        HoltWintersData data = new HoltWintersData(forecastedDatapoints, deviationDatapoints);
+        Map<Long, Double> bootstrappedDps = new TreeMap<>(metric.getDatapoints());
+
+        if (oneWeekBeforeMetric != null) {
+            bootstrappedDps.putAll(oneWeekBeforeMetric.getDatapoints());
+        }
+
+        HoltWintersModel model = new HoltWintersModel(alpha, beta, gamma, seasonLength, startTimestamp, key != null);
 
+        for (Map.Entry<Long, Double> entry : bootstrappedDps.entrySet()) {
+            model.fold(entry.getKey(), entry.getValue());
+        }
+        if (key == null) {
+            return new HoltWintersData(model.forecastedDatapoints, model.deviationDatapoints);
+        }
+
+        HoltWintersData data = model.snapshot();
+
+        _stateCache.put(key, model, model.size());
         return data;
     }
 
-    private double _holtWintersDeviation(double gamma, double actualValue, double prediction, double last_seasonal_dev) {
+    private static double _holtWintersDeviation(double gamma, double actualValue, double prediction, double last_seasonal_dev) {
         return gamma * Math.abs(actualValue - prediction) + (1 - gamma) * last_seasonal_dev;
     }
 
-    private double _holtWintersSeasonal(double gamma, double actualValue, double intercept, double last_seasonal) {
+    private static double _holtWintersSeasonal(double gamma, double actualValue, double intercept, double last_seasonal) {
         return gamma * (actualValue - intercept) + (1 - gamma) * last_seasonal;
     }
 
-    private double _holtWintersSlope(double beta, double intercept, double last_intercept, double last_slope) {
+    private static double _holtWintersSlope(double beta, double intercept, double last_intercept, double last_slope) {
         return beta * (intercept - last_intercept) + (1 - beta) * last_slope;
     }
 
-    private double _holtWintersIntercept(double alpha, double actualValue, double last_seasonal, double last_intercept, double last_slope) {
+    private static double _holtWintersIntercept(double alpha, double actualValue, double last_seasonal, double last_intercept, double last_slope) {
         return alpha * (actualValue - last_seasonal) + (1 - alpha) * (last_intercept + last_slope);
     }
 
-    private double getLast(List<Double> list, int i, int seasonLength) {
-        int j = i - seasonLength;
+    //~ Inner Classes ********************************************************************************************************************************
+
+    /**
+     * The state of the Holt-Winters recursion after folding in a sequence of datapoints. Only the last season of seasonal components is kept.
+     *
+     * <p>A model that retains values keeps the datapoints it folded, bootstrap included, back to a week before its window. If the window keeps
+     * its start, the model is extended by folding in the new datapoints. If the window slides, the recursion is seeded again from the retained
+     * datapoints of the week before the new window, since that is where a fresh evaluation of the new window starts. Either way the forecasts
+     * and deviations equal those of a fresh evaluation, as long as the TSDB returns the same datapoints for the same timestamps.</p>
+     *
+     * @author  agent (agent@local)
+     */
+    static final class HoltWintersModel {
+
+        private final double alpha;
+        private final double beta;
+        private final double gamma;
+        private final int seasonLength;
+        private double[] seasonals;
+        private double[] seasonalDeviations;
+        private final boolean retainValues;
+        private final TreeMap<Long, Double> values = new TreeMap<>();
+        private final TreeMap<Long, Double> forecastedDatapoints = new TreeMap<>();
+        private final TreeMap<Long, Double> deviationDatapoints = new TreeMap<>();
+        private long startTimestamp;
+        private long lastTimestamp = Long.MIN_VALUE;
+        private int count;
+        private double intercept;
+        private double slope;
+        private double nextPrediction;
 
-        if (j >= 0 && j < list.size()) {
-            return list.get(j);
+        HoltWintersModel(double alpha, double beta, double gamma, int seasonLength, long startTimestamp, boolean retainValues) {
+            this.alpha = alpha;
+            this.beta = beta;
+            this.gamma = gamma;
+            this.seasonLength = seasonLength;
+            this.seasonals = new double[Math.max(seasonLength, 1)];
+            this.seasonalDeviations = new double[seasonals.length];
+            this.startTimestamp = startTimestamp;
+            this.retainValues = retainValues;
         }
-        return 0;
-    }
 
-    //~ Inner Classes ********************************************************************************************************************************
+        /* Folds in the next datapoint. Datapoints at or after the start timestamp produce a forecast and a deviation. */
+        void fold(long timestamp, double value) {
+            double lastIntercept;
+            double lastSlope;
+            double prediction;
+
+            if (count == 0) {
+                lastIntercept = value;
+                lastSlope = 0;
+
+                // seed the first prediction as the first actual
+                prediction = value;
+            } else {
+                lastIntercept = intercept;
+                lastSlope = slope;
+                if (lastIntercept == 0.0) {
+                    lastIntercept = value;
+                }
+                prediction = nextPrediction;
+            }
+
+            double last_seasonal = _last(seasonals, count);
+            double next_last_seasonal = _last(seasonals, count + 1);
+            double last_seasonal_dev = _last(seasonalDeviations, count);
+
+            intercept = _holtWintersIntercept(alpha, value, last_seasonal, lastIntercept, lastSlope);
+            slope = _holtWintersSlope(beta, intercept, lastIntercept, lastSlope);
+            seasonals[count % seasonals.length] = _holtWintersSeasonal(gamma, value, intercept, last_seasonal);
+            nextPrediction = intercept + slope + next_last_seasonal;
+
+            double deviation = _holtWintersDeviation(gamma, value, prediction, last_seasonal_dev);
+
+            seasonalDeviations[count % seasonalDeviations.length] = deviation;
+            count++;
+            lastTimestamp = timestamp;
+            if (retainValues) {
+                values.put(timestamp, value);
+            }
+            if (timestamp >= startTimestamp) {
+                forecastedDatapoints.put(timestamp, Double.parseDouble(DECIMAL_FORMAT.get().format(prediction)));
+                deviationDatapoints.put(timestamp, Double.parseDouble(DECIMAL_FORMAT.get().format(deviation)));
+            }
+        }
+
+        /*
+         * Moves the model to a new window and folds in the datapoints after the last folded one. If the window slid, the recursion is seeded again
+         * from the retained datapoints of the week before it. Returns false, leaving the model untouched, if the window moved backwards, does not
+         * overlap the folded datapoints or the datapoints up to the last folded one differ from those folded.
+         */
+        boolean extend(Map<Long, Double> datapoints, long newStartTimestamp) {
+            if (!retainValues || newStartTimestamp < startTimestamp || newStartTimestamp > lastTimestamp) {
+                return false;
+            }
+
+            Iterator<Map.Entry<Long, Double>> folded = values.tailMap(newStartTimestamp, true).entrySet().iterator();
+
+            for (Map.Entry<Long, Double> entry : datapoints.entrySet()) {
+                if (entry.getValue() == null) {
+                    return false;
+                }
+                if (entry.getKey() < newStartTimestamp || entry.getKey() > lastTimestamp) {
+                    continue;
+                }
+                if (!folded.hasNext() || !folded.next().equals(entry)) {
+                    return false;
+                }
+            }
+            if (folded.hasNext()) {
+                return false;
+            }
+
+            long foldedUntil = lastTimestamp;
+
+            if (newStartTimestamp > startTimestamp) {
+                _reseed(newStartTimestamp);
+            }
+            for (Map.Entry<Long, Double> entry : datapoints.entrySet()) {
+                if (entry.getKey() > foldedUntil) {
+                    fold(entry.getKey(), entry.getValue());
+                }
+            }
+            return true;
+        }
+
+        /* Starts the recursion over from the retained datapoints of the week before the new window, as a fresh evaluation would. */
+        private void _reseed(long newStartTimestamp) {
+            TreeMap<Long, Double> bootstrap = new TreeMap<>(values.tailMap(newStartTimestamp - ONE_WEEK_IN_MILLIS, true));
+
+            values.clear();
+            forecastedDatapoints.clear();
+            deviationDatapoints.clear();
+            seasonals = new double[seasonals.length];
+            seasonalDeviations = new double[seasonalDeviations.length];
+            startTimestamp = newStartTimestamp;
+            lastTimestamp = Long.MIN_VALUE;
+            count = 0;
+            intercept = 0;
+            slope = 0;
+            nextPrediction = 0;
+            for (Map.Entry<Long, Double> entry : bootstrap.entrySet()) {
+                fold(entry.getKey(), entry.getValue());
+            }
+        }
+
+        /* Returns the number of datapoints retained by the model. */
+        int size() {
+            return values.size() + forecastedDatapoints.size() + deviationDatapoints.size();
+        }
+
+        HoltWintersData snapshot() {
+            return new HoltWintersData(new TreeMap<>(forecastedDatapoints), new TreeMap<>(deviationDatapoints));
+        }
+
+        private double _last(double[] components, int i) {
+            int j = i - seasonLength;
+
+            if (j >= 0 && j < count) {
+                return components[j % components.length];
+            }
+            return 0;
+        }
+    }
 
     /**
      * Encapsulates the analysis decomposition.
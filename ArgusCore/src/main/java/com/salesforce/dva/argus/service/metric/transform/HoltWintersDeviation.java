@@ -33,13 +33,8 @@ package com.salesforce.dva.argus.service.metric.transform;
 
 import com.salesforce.dva.argus.entity.Metric;
 import com.salesforce.dva.argus.service.TSDBService;
-import com.salesforce.dva.argus.service.tsdb.MetricQuery;
 import com.salesforce.dva.argus.system.SystemAssert;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 /**
  * Calculates the Holt-Winters deviation.
@@ -79,37 +74,13 @@ public class HoltWintersDeviation extends HoltWintersAnalysis implements Transfo
         double beta = Double.parseDouble(constants.get(1));
         double gamma = Double.parseDouble(constants.get(2));
         int seasonLength = Integer.parseInt(constants.get(3));
-        List<Metric> result = new ArrayList<Metric>(metrics.size());
 
-        for (Metric metric : metrics) {
-            MetricQuery oneWeekBeforeQuery = new MetricQuery(metric.getQuery());
+        return _seriesExecutor.map(metrics, metric -> {
+                Metric resultMetric = new Metric(metric);
 
-            oneWeekBeforeQuery.setEndTimestamp(oneWeekBeforeQuery.getStartTimestamp());
-            oneWeekBeforeQuery.setStartTimestamp(oneWeekBeforeQuery.getStartTimestamp() - ONE_WEEK_IN_MILLIS);
-
-            List<Metric> metricsList = _tsdbService.getMetrics(Arrays.asList(new MetricQuery[] { oneWeekBeforeQuery })).get(oneWeekBeforeQuery);
-            Metric oneWeekBeforeMetric = null;
-
-            for (Metric m : metricsList) {
-                if (metric.equals(m)) {
-                    oneWeekBeforeMetric = m;
-                    break;
-                }
-            }
-
-            Map<Long, Double> bootstrappedDps = new TreeMap<>(metric.getDatapoints());
-
-            if (oneWeekBeforeMetric != null) {
-                bootstrappedDps.putAll(oneWeekBeforeMetric.getDatapoints());
-            }
-
-            Metric resultMetric = new Metric(metric);
-
-            resultMetric.setDatapoints(_performHoltWintersAnalysis(bootstrappedDps, alpha, beta, gamma, seasonLength,
-                    metric.getQuery().getStartTimestamp().longValue()).getDeviationDatapoints());
-            result.add(resultMetric);
-        }
-        return result;
+                resultMetric.setDatapoints(_performHoltWintersAnalysis(_tsdbService, metric, alpha, beta, gamma, seasonLength).getDeviationDatapoints());
+                return resultMetric;
+            });
     }
 
     @SuppressWarnings("unchecked")
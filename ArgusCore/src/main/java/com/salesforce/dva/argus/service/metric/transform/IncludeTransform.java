@@ -33,7 +33,6 @@ package com.salesforce.dva.argus.service.metric.transform;
 
 import com.salesforce.dva.argus.entity.Metric;
 import com.salesforce.dva.argus.system.SystemAssert;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -58,18 +57,7 @@ public class IncludeTransform implements Transform {
             "Include transform require regex, only exactly one constant allowed.");
         SystemAssert.requireArgument(!constants.get(0).equals(""), "Expression can't be an empty string");
 
-        List<Metric> includeMetricList = new ArrayList<Metric>();
-        String expr = constants.get(0);
-
-        for (Metric metric : metrics) {
-            String name = metric.getIdentifier();
-            boolean isMatch = name.matches(expr);
-
-            if (isMatch) {
-                includeMetricList.add(metric);
-            }
-        }
-        return includeMetricList;
+        return MetricPatterns.select(metrics, constants.get(0), true);
     }
 
     @Override
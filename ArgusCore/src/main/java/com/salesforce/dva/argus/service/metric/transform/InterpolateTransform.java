@@ -1,10 +1,10 @@
 package com.salesforce.dva.argus.service.metric.transform;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.Map.Entry;
 
 import org.slf4j.LoggerFactory;
@@ -57,7 +57,8 @@ public class InterpolateTransform implements Transform {
 		result.setDisplayName(metrics.get(0).getDisplayName());
 		result.setTags(metrics.get(0).getTags());
 
-		Map<Long, Double> resultDatapoints = new HashMap<>();
+		// Timestamps are produced in increasing order, so the result metric takes over the sorted map without re-sorting it.
+		Map<Long, Double> resultDatapoints = new TreeMap<>();
 		Aggregator aggregator = Aggregator.valueOf(constants.get(0));
 
 		int size = metrics.size();
@@ -40,7 +40,7 @@ import java.util.stream.StreamSupport;
  *
  * @author  seamus.carroll
  */
-public class MaxValueReducer implements ValueReducer {
+public class MaxValueReducer implements ValueReducer, ValueReducerKernel {
 
     //~ Methods **************************************************************************************************************************************
 
@@ -71,6 +71,18 @@ public class MaxValueReducer implements ValueReducer {
         return max;
     }
 
+    @Override
+    public double reduce(double[] values, int length) {
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < length; i++) {
+            if (values[i] > max) {
+                max = values[i];
+            }
+        }
+        return max;
+    }
+
     @Override
     public String name() {
         return TransformFactory.Function.MAX.name();
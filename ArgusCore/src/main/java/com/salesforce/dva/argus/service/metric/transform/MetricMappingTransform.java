@@ -33,7 +33,6 @@ package com.salesforce.dva.argus.service.metric.transform;
 
 import com.salesforce.dva.argus.entity.Metric;
 import com.salesforce.dva.argus.system.SystemAssert;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -44,12 +43,13 @@ import java.util.TreeMap;
  *
  * @author  Ruofan Zhang (rzhang@salesforce.com)
  */
-public class MetricMappingTransform implements Transform {
+public class MetricMappingTransform implements Transform, SeriesParallelTransform {
 
     //~ Instance fields ******************************************************************************************************************************
 
     private final ValueMapping valueMapping;
     private final String defaultScope;
+    private SeriesExecutor seriesExecutor = SeriesExecutor.SEQUENTIAL;
 
     //~ Constructors *********************************************************************************************************************************
 
@@ -70,6 +70,11 @@ public class MetricMappingTransform implements Transform {
         return defaultScope;
     }
 
+    @Override
+    public void setSeriesExecutor(SeriesExecutor seriesExecutor) {
+        this.seriesExecutor = seriesExecutor;
+    }
+
     @Override
     public List<Metric> transform(List<Metric> metrics) {
         return mapping(metrics);
@@ -88,15 +93,18 @@ public class MetricMappingTransform implements Transform {
             return metrics;
         }
 
-        List<Metric> newMetricsList = new ArrayList<Metric>();
+        return seriesExecutor.map(metrics, metric -> {
+                if (valueMapping instanceof ValueMappingKernel) {
+                    DatapointArrays datapoints = DatapointArrays.of(metric.getDatapoints(), 0.0);
 
-        for (Metric metric : metrics) {
-            Map<Long, Double> cleanDatapoints = cleanDPs(metric.getDatapoints());
+                    metric.setDatapoints(ValueMappingKernel.class.cast(valueMapping).mapping(datapoints, null).toMap());
+                } else {
+                    Map<Long, Double> cleanDatapoints = cleanDPs(metric.getDatapoints());
 
-            metric.setDatapoints(this.valueMapping.mapping(cleanDatapoints));
-            newMetricsList.add(metric);
-        }
-        return newMetricsList;
+                    metric.setDatapoints(this.valueMapping.mapping(cleanDatapoints));
+                }
+                return metric;
+            });
     }
 
     @Override
@@ -110,15 +118,18 @@ public class MetricMappingTransform implements Transform {
             return metrics;
         }
 
-        List<Metric> newMetricsList = new ArrayList<Metric>();
+        return seriesExecutor.map(metrics, metric -> {
+                if (valueMapping instanceof ValueMappingKernel) {
+                    DatapointArrays datapoints = DatapointArrays.of(metric.getDatapoints(), 0.0);
 
-        for (Metric metric : metrics) {
-            Map<Long, Double> cleanDatapoints = cleanDPs(metric.getDatapoints());
+                    metric.setDatapoints(ValueMappingKernel.class.cast(valueMapping).mapping(datapoints, constants).toMap());
+                } else {
+                    Map<Long, Double> cleanDatapoints = cleanDPs(metric.getDatapoints());
 
-            metric.setDatapoints(this.valueMapping.mapping(cleanDatapoints, constants));
-            newMetricsList.add(metric);
-        }
-        return newMetricsList;
+                    metric.setDatapoints(this.valueMapping.mapping(cleanDatapoints, constants));
+                }
+                return metric;
+            });
     }
 
     private Map<Long, Double> cleanDPs(Map<Long, Double> originalDPs) {
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.service.metric.transform;
+
+import com.salesforce.dva.argus.entity.Metric;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled regular expressions shared by the transforms that select or group metrics by name. Every pattern is compiled once and kept across
+ * evaluations, since alerts apply the same expressions every few minutes, and a single matcher is reset for every metric of an evaluation.
+ *
+ * @author  agent (agent@local)
+ */
+final class MetricPatterns {
+
+    //~ Static fields/initializers *******************************************************************************************************************
+
+    private static final int MAX_PATTERNS = 4096;
+    private static final Map<String, Pattern> PATTERNS = Collections.synchronizedMap(new LinkedHashMap<String, Pattern>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+                    return size() > MAX_PATTERNS;
+                }
+            });
+
+    //~ Constructors *********************************************************************************************************************************
+
+    private MetricPatterns() { }
+
+    //~ Methods **************************************************************************************************************************************
+
+    /**
+     * Returns the compiled form of a regular expression.
+     *
+     * @param   regex  The regular expression.
+     *
+     * @return  The compiled pattern.
+     */
+    static Pattern compile(String regex) {
+        Pattern pattern = PATTERNS.get(regex);
+
+        if (pattern == null) {
+            pattern = Pattern.compile(regex);
+            PATTERNS.put(regex, pattern);
+        }
+        return pattern;
+    }
+
+    /**
+     * Selects the metrics whose identifier entirely matches, or does not match, a regular expression. Equivalent to testing
+     * <tt>metric.getIdentifier().matches(regex)</tt> for every metric.
+     *
+     * @param   metrics   The metrics to select from.
+     * @param   regex     The regular expression.
+     * @param   matching  True to select the matching metrics, false to select the others.
+     *
+     * @return  The selected metrics in their original order.
+     */
+    static List<Metric> select(List<Metric> metrics, String regex, boolean matching) {
+        Matcher matcher = compile(regex).matcher("");
+        List<Metric> result = new ArrayList<>();
+
+        for (Metric metric : metrics) {
+            if (matcher.reset(metric.getIdentifier()).matches() == matching) {
+                result.add(metric);
+            }
+        }
+        return result;
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
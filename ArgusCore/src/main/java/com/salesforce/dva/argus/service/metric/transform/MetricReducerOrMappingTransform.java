@@ -35,7 +35,6 @@ import com.salesforce.dva.argus.entity.Metric;
 import com.salesforce.dva.argus.system.SystemAssert;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -123,7 +122,13 @@ public class MetricReducerOrMappingTransform implements Transform {
         List<Metric> newMetricsList = new ArrayList<Metric>();
 
         for (Metric metric : metrics) {
-            metric.setDatapoints(this.valueReducerOrMapping.mapping(metric.getDatapoints(), constants));
+            DatapointArrays datapoints = valueReducerOrMapping instanceof ValueMappingKernel ? DatapointArrays.of(metric.getDatapoints(), null) : null;
+
+            if (datapoints != null) {
+                metric.setDatapoints(ValueMappingKernel.class.cast(valueReducerOrMapping).mapping(datapoints, constants).toMap());
+            } else {
+                metric.setDatapoints(this.valueReducerOrMapping.mapping(metric.getDatapoints(), constants));
+            }
             newMetricsList.add(metric);
         }
         return newMetricsList;
@@ -147,8 +152,8 @@ public class MetricReducerOrMappingTransform implements Transform {
 
         distiller.distill(metrics);
 
-        Map<Long, List<Double>> collated = collate(metrics);
-        Map<Long, Double> reducedDatapoints = reduce(collated, constants, metrics);
+        Map<Long, Double> reducedDatapoints = reduce(metrics, constants, !fulljoinIndicator);
+
         String newMetricName = distiller.getMetric() == null ? defaultMetricName : distiller.getMetric();
         String newScopeName = distiller.getScope() == null ? defaultScope : distiller.getScope();
         Metric newMetric = new Metric(newScopeName, newMetricName);
@@ -160,50 +165,25 @@ public class MetricReducerOrMappingTransform implements Transform {
         return newMetric;
     }
     
-    /*
-    private Map<Long, Double> reduce(Map<Long, List<Double>> collated, List<Metric> metrics) {
-        Map<Long, Double> reducedDatapoints = new HashMap<>();
-        for (Map.Entry<Long, List<Double>> entry : collated.entrySet()) {
-            if (entry.getValue().size() < metrics.size() && !fulljoinIndicator) {
-                continue;
-            }
-            reducedDatapoints.put(entry.getKey(), this.valueReducerOrMapping.reduce(entry.getValue()));
-        }
-        return reducedDatapoints;
-    }
-    */
-    
-    protected Map<Long, Double> reduce(Map<Long, List<Double>> collated, List<String> constants, List<Metric> metrics) {
-        Map<Long, Double> reducedDatapoints = new HashMap<>();
-
-        for (Map.Entry<Long, List<Double>> entry : collated.entrySet()) {
-            if (entry.getValue().size() < metrics.size()  && !fulljoinIndicator) {
-                continue;
-            }
-            
-            Double reducedValue = constants == null || constants.isEmpty() ? 
-										            		this.valueReducerOrMapping.reduce(entry.getValue()) :
-										            		this.valueReducerOrMapping.reduce(entry.getValue(), constants);
-            reducedDatapoints.put(entry.getKey(), reducedValue);
-        }
-        return reducedDatapoints;
-    }
-    
-    protected Map<Long, List<Double>> collate(List<Metric> metrics) {
-        Map<Long, List<Double>> collated = new HashMap<>();
+    /**
+     * Reduces the datapoints of the metrics timestamp by timestamp, streaming them in timestamp order.
+     *
+     * @param   metrics     The list of metrics to reduce.
+     * @param   constants   The list of transform specific constants supplied to the transform or null.
+     * @param   requireAll  If true, timestamps which are missing from any of the metrics are dropped.
+     *
+     * @return  The reduced datapoints.
+     */
+    protected Map<Long, Double> reduce(List<Metric> metrics, List<String> constants, boolean requireAll) {
+        if (constants == null || constants.isEmpty()) {
+            ValueReducerKernel kernel = valueReducerOrMapping instanceof ValueReducerKernel ? ValueReducerKernel.class.cast(valueReducerOrMapping)
+                                                                                            : null;
 
-        for (Metric metric : metrics) {
-            for (Map.Entry<Long, Double> point : metric.getDatapoints().entrySet()) {
-                if (!collated.containsKey(point.getKey())) {
-                    collated.put(point.getKey(), new ArrayList<Double>());
-                }
-                collated.get(point.getKey()).add(point.getValue());
-            }
+            return DatapointMerger.reduce(metrics, requireAll, kernel, valueReducerOrMapping::reduce);
         }
-        return collated;
+        return DatapointMerger.reduce(metrics, requireAll, null, values -> valueReducerOrMapping.reduce(values, constants));
     }
 
-   
     @Override
     public List<Metric> transform(List<Metric>... listOfList) {
         throw new UnsupportedOperationException("ReducerOrMapping doesn't need list of list!");
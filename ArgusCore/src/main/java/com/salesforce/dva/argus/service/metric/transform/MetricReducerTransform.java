@@ -31,9 +31,7 @@
 
 package com.salesforce.dva.argus.service.metric.transform;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -79,8 +77,8 @@ public class MetricReducerTransform implements Transform {
 	}
 
 	/**
-	 * O(n * m), where n is the max number of data points and m is the number of metrics. This becomes O(n) as the number of data points becomes
-	 * large.
+	 * O(n * log(m)), where n is the total number of data points and m is the number of metrics. The metrics are merged in timestamp order, so the
+	 * working memory is O(m).
 	 *
 	 * @param   metrics  The list of metrics to reduce.
 	 *
@@ -96,8 +94,8 @@ public class MetricReducerTransform implements Transform {
 
 		distiller.distill(metrics);
 
-		Map<Long, List<Double>> collated = collate(metrics);
-		Map<Long, Double> minDatapoints = reduce(collated);
+		ValueReducerKernel kernel = valueReducer instanceof ValueReducerKernel ? ValueReducerKernel.class.cast(valueReducer) : null;
+		Map<Long, Double> minDatapoints = DatapointMerger.reduce(metrics, false, kernel, valueReducer::reduce);
 		String newMetricName = distiller.getMetric() == null ? defaultMetricName : distiller.getMetric();
 		String newScopeName = distiller.getScope() == null ? defaultScope : distiller.getScope();
 		Metric newMetric = new Metric(newScopeName, newMetricName);
@@ -109,32 +107,6 @@ public class MetricReducerTransform implements Transform {
 		return newMetric;
 	}
 
-	/*
-	 * Collate all datapoint values for a given timestamp 
-	 */
-	private Map<Long, List<Double>> collate(List<Metric> metrics) {
-		Map<Long, List<Double>> collated = new HashMap<>();
-
-		for (Metric metric : metrics) {
-			for (Map.Entry<Long, Double> point : metric.getDatapoints().entrySet()) {
-				if (!collated.containsKey(point.getKey())) {
-					collated.put(point.getKey(), new ArrayList<Double>());
-				}
-				collated.get(point.getKey()).add(point.getValue());
-			}
-		}
-		return collated;
-	}
-
-	private Map<Long, Double> reduce(Map<Long, List<Double>> collated) {
-		Map<Long, Double> reducedDatapoints = new HashMap<>();
-
-		for (Map.Entry<Long, List<Double>> entry : collated.entrySet()) {
-			reducedDatapoints.put(entry.getKey(), this.valueReducer.reduce(entry.getValue()));
-		}
-		return reducedDatapoints;
-	}
-
 	@Override
 	public List<Metric> transform(List<Metric> metrics, List<String> constants) {
 		throw new UnsupportedOperationException("Metric Reducer Transform is not supposed to be used with a constant");
@@ -34,8 +34,6 @@ package com.salesforce.dva.argus.service.metric.transform;
 import com.salesforce.dva.argus.entity.Metric;
 import com.salesforce.dva.argus.system.SystemAssert;
 import java.util.*;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -103,15 +101,21 @@ public class MetricUnionTransform implements Transform {
         }
 
         Metric newMetric = reduce(metrics);
-        Map<Long, Double> reducedDatapoints = newMetric.getDatapoints();
-        Set<Long> sharedTimestamps = reducedDatapoints.keySet();
         Map<Long, Double> unionDatapoints = new TreeMap<>();
+        DatapointMerger merger = new DatapointMerger(metrics);
 
-        for (Metric metric : metrics) {
-            for (Map.Entry<Long, Double> entry : metric.getDatapoints().entrySet()) {
-                if (!sharedTimestamps.contains(entry.getKey())) {
-                    unionDatapoints.put(entry.getKey(), entry.getValue());
-                }
+        while (merger.hasNext()) {
+            long timestamp = merger.nextTimestamp();
+            Double value = null;
+            int count = 0;
+
+            // The timestamps shared by all metrics are already reduced, for the others the value of the last metric wins.
+            while (merger.hasNext() && merger.nextTimestamp() == timestamp) {
+                value = merger.next();
+                count++;
+            }
+            if (count < metrics.size()) {
+                unionDatapoints.put(timestamp, value);
             }
         }
         
@@ -136,8 +140,7 @@ public class MetricUnionTransform implements Transform {
 
         distiller.distill(metrics);
 
-        Map<Long, List<Double>> collated = collate(metrics);
-        Map<Long, Double> minDatapoints = reduce(collated, metrics);
+        Map<Long, Double> minDatapoints = DatapointMerger.reduce(metrics, true, null, valueUnionReducer::reduce);
         String newMetricName = distiller.getMetric() == null ? defaultMetricName : distiller.getMetric();
         Metric newMetric = new Metric(defaultScope, newMetricName);
 
@@ -148,32 +151,6 @@ public class MetricUnionTransform implements Transform {
         return newMetric;
     }
 
-    private Map<Long, List<Double>> collate(List<Metric> metrics) {
-        Map<Long, List<Double>> collated = new HashMap<>();
-
-        for (Metric metric : metrics) {
-            for (Map.Entry<Long, Double> point : metric.getDatapoints().entrySet()) {
-                if (!collated.containsKey(point.getKey())) {
-                    collated.put(point.getKey(), new ArrayList<Double>());
-                }
-                collated.get(point.getKey()).add(point.getValue());
-            }
-        }
-        return collated;
-    }
-
-    private Map<Long, Double> reduce(Map<Long, List<Double>> collated, List<Metric> metrics) {
-        Map<Long, Double> reducedDatapoints = new HashMap<>();
-
-        for (Map.Entry<Long, List<Double>> entry : collated.entrySet()) {
-            if (entry.getValue().size() < metrics.size()) {
-                continue;
-            }
-            reducedDatapoints.put(entry.getKey(), this.valueUnionReducer.reduce(entry.getValue()));
-        }
-        return reducedDatapoints;
-    }
-
     @Override
     public List<Metric> transform(List<Metric> metrics, List<String> constants) {
         throw new UnsupportedOperationException("Union transform can't be used with constants!");
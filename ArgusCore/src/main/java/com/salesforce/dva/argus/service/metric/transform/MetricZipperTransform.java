@@ -34,9 +34,10 @@ package com.salesforce.dva.argus.service.metric.transform;
 import com.salesforce.dva.argus.entity.Metric;
 import com.salesforce.dva.argus.system.SystemAssert;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * This class transforms a list of metrics in a mapping way, which means apply the same function to every metric. More specifically, an interface
@@ -106,18 +107,57 @@ public class MetricZipperTransform implements Transform {
         SystemAssert.requireArgument(baseMetric != null, "Zipper transform requires base metric as second param!");
 
         List<Metric> zippedMetrics = new ArrayList<Metric>();
-        Map<Long, Double> baseDatapoints = baseMetric.getDatapoints();
 
         for (Metric metric : metrics) {
-            Map<Long, Double> originalDatapoints = metric.getDatapoints();
-            Map<Long, Double> zippedDatadpoints = this.zip(originalDatapoints, baseDatapoints);
-
-            metric.setDatapoints(zippedDatadpoints);
+            SystemAssert.requireArgument(!baseMetric.getDatapoints().isEmpty(), "Zipper transform requires valid baseDatapoints from base metric!");
+            metric.setDatapoints(_zip(metric, baseMetric));
             zippedMetrics.add(metric);
         }
         return zippedMetrics;
     }
 
+    /*
+     * Zips the datapoints of a metric against the base metric with a single merge pass over both, in timestamp order.
+     */
+    private Map<Long, Double> _zip(Metric metric, Metric baseMetric) {
+        ValueZipperKernel kernel = valueZipper instanceof ValueZipperKernel ? ValueZipperKernel.class.cast(valueZipper) : null;
+        DatapointMerger merger = new DatapointMerger(Arrays.asList(metric, baseMetric));
+        Map<Long, Double> zippedDP = new TreeMap<>();
+
+        while (merger.hasNext()) {
+            long timestamp = merger.nextTimestamp();
+            Double originalVal = null;
+            Double baseVal = null;
+            boolean hasOriginal = false;
+            boolean hasBase = false;
+
+            while (merger.hasNext() && merger.nextTimestamp() == timestamp) {
+                Double value = merger.next();
+
+                if (merger.currentSeries() == 0) {
+                    originalVal = value;
+                    hasOriginal = true;
+                } else {
+                    baseVal = value;
+                    hasBase = true;
+                }
+            }
+
+            // if a point exists in the baseDP but does not exist in the original set,
+            // then only add it to the result when fullJoinIndicator is true.
+            if (!hasOriginal && !fulljoinIndicator) {
+                continue;
+            }
+            // missing and null values go through the boxed zipper, which supplies their defaults
+            if (kernel != null && originalVal != null && baseVal != null) {
+                zippedDP.put(timestamp, kernel.zip(originalVal, baseVal));
+            } else {
+                zippedDP.put(timestamp, this.valueZipper.zip(originalVal, baseVal));
+            }
+        }
+        return zippedDP;
+    }
+
     /**
      * Merges data points.
      *
@@ -130,31 +170,12 @@ public class MetricZipperTransform implements Transform {
         SystemAssert.requireArgument(baseDatapoints != null && !baseDatapoints.isEmpty(),
             "Zipper transform requires valid baseDatapoints from base metric!");
 
-        Map<Long, Double> zippedDP = new HashMap<>();
-
-        for (Map.Entry<Long, Double> originalDP : originalDatapoints.entrySet()) {
-            Long originalKey = originalDP.getKey();
-            Double originalVal = originalDP.getValue();
-
-            // if base datapoints doesn't have the key, give it null
-            Double baseVal = baseDatapoints.containsKey(originalKey) ? baseDatapoints.get(originalKey) : null;
+        Metric original = new Metric(defaultScope, "original");
+        Metric base = new Metric(defaultScope, "base");
 
-            zippedDP.put(originalKey, this.valueZipper.zip(originalVal, baseVal));
-        }
-        
-        // if a point exists in the baseDP but does not exist in the original set, 
-        // then only add it to the result when fullJoinIndicator is true.
-        if(fulljoinIndicator) {
-        	for (Map.Entry<Long, Double> baseDP : baseDatapoints.entrySet()) {
-                Long baseDPKey = baseDP.getKey();
-
-                if(!zippedDP.containsKey(baseDPKey)) {
-                    zippedDP.put(baseDPKey, this.valueZipper.zip(null, baseDP.getValue()));
-                }
-            }
-        }
-        
-        return zippedDP;
+        original.setDatapoints(originalDatapoints);
+        base.setDatapoints(baseDatapoints);
+        return _zip(original, base);
     }
 
     @Override
@@ -40,7 +40,7 @@ import java.util.stream.StreamSupport;
  *
  * @author  seamus.carroll
  */
-public class MinValueReducer implements ValueReducer {
+public class MinValueReducer implements ValueReducer, ValueReducerKernel {
 
     //~ Methods **************************************************************************************************************************************
 
@@ -71,6 +71,18 @@ public class MinValueReducer implements ValueReducer {
         return min;
     }
 
+    @Override
+    public double reduce(double[] values, int length) {
+        double min = Double.MAX_VALUE;
+
+        for (int i = 0; i < length; i++) {
+            if (values[i] < min) {
+                min = values[i];
+            }
+        }
+        return min;
+    }
+
     @Override
     public String name() {
         return TransformFactory.Function.MIN.name();
@@ -34,25 +34,16 @@ package com.salesforce.dva.argus.service.metric.transform;
 import com.salesforce.dva.argus.service.metric.MetricReader;
 import com.salesforce.dva.argus.system.SystemAssert;
 import com.salesforce.dva.argus.system.SystemException;
-import org.apache.commons.lang.ArrayUtils;
-import org.apache.commons.math3.stat.descriptive.rank.Percentile;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
 /**
- * Evaluates input metrics using a moving window. calculate either median or average value of the window
+ * Evaluates input metrics using a moving window. calculate either median or average value of the window. The sum, min, max or a percentile of
+ * the window can also be calculated. Windows are evaluated incrementally by {@link SlidingWindow}.
  *
  * @author  Ruofan Zhang (rzhang@salesforce.com)
  */
-public class MovingValueMapping implements ValueMapping {
-
-    //~ Instance fields ******************************************************************************************************************************
-
-    private final Logger _logger = LoggerFactory.getLogger(MetricMappingTransform.class);
+public class MovingValueMapping implements ValueMapping, ValueMappingKernel {
 
     //~ Methods **************************************************************************************************************************************
 
@@ -63,127 +54,44 @@ public class MovingValueMapping implements ValueMapping {
 
     @Override
     public Map<Long, Double> mapping(Map<Long, Double> originalDatapoints, List<String> constants) {
-        SystemAssert.requireArgument(constants != null && !constants.isEmpty(), 
+        return mapping(DatapointArrays.of(originalDatapoints, 0.0), constants).toMap();
+    }
+
+    @Override
+    public DatapointArrays mapping(DatapointArrays datapoints, List<String> constants) {
+        if (constants == null) {
+            throw new UnsupportedOperationException("Moving Average Transform needs a window size of time interval");
+        }
+        SystemAssert.requireArgument(!constants.isEmpty(), 
         		"MOVING Transform must provide at least 1 constant which is windowSize of time interval.");
         
         //Default is to perform Moving Average.
         InternalReducerType type = InternalReducerType.AVG;
+        double percentile = 50.0;
         if (constants.size() > 1) {
             SystemAssert.requireArgument(constants.size() == 2, "MOVING Transform can't have more than 2 contants!");
             
             type = InternalReducerType.fromString(constants.get(1));
-            SystemAssert.requireArgument((InternalReducerType.AVG.equals(type) ||
-                    InternalReducerType.MEDIAN.equals(type) || InternalReducerType.SUM.equals(type)), "Type can be one of <avg,median,sum>");
+            SystemAssert.requireArgument((InternalReducerType.AVG.equals(type) || InternalReducerType.MEDIAN.equals(type) || 
+            		InternalReducerType.SUM.equals(type) || InternalReducerType.MIN.equals(type) || InternalReducerType.MAX.equals(type) || 
+            		InternalReducerType.PERCENTILE.equals(type)), "Type can be one of <avg,median,sum,min,max,pNN>");
+            if (InternalReducerType.PERCENTILE.equals(type)) {
+            	percentile = Double.parseDouble(constants.get(1).substring(1));
+            	SystemAssert.requireArgument(percentile > 0 && percentile <= 100, "Percentile must be greater than 0 and at most 100.");
+            }
         }
 
         long windowSizeInSeconds = getWindowInSeconds(constants.get(0));
         SystemAssert.requireArgument(windowSizeInSeconds != 0, "Time Interval cannot be 0 for Moving Average Transform");
         
-        Map<Long, Double> movingDatapoints = new TreeMap<>();
-        Map<Long, Double> sortedDatapoints = new TreeMap<>(originalDatapoints);
-
-        for (Map.Entry<Long, Double> entry : originalDatapoints.entrySet()) {
-            if (entry.getValue() == null) {
-                sortedDatapoints.put(entry.getKey(), 0.0);
-            } else {
-                sortedDatapoints.put(entry.getKey(), entry.getValue());
-            }
-        }
-
-        Long[] timestamps = new Long[sortedDatapoints.size()];
-
-        sortedDatapoints.keySet().toArray(timestamps);
-
-        double sum = 0.0;
-        double value = 0.0;
-        List<Double> numberArr = new ArrayList<Double>();
-
-        try {
-            sum = sortedDatapoints.get(timestamps[0]);
-            numberArr.add(sortedDatapoints.get(timestamps[0]));
-        } catch (NumberFormatException | NullPointerException e) {
-            _logger.warn("Failed to parse datapoint: " + sortedDatapoints.get(timestamps[0]));
-            throw new UnsupportedOperationException("Bad datapoint!");
-        }
-
-        // if only one point
-        movingDatapoints.put(timestamps[0], sortedDatapoints.get(timestamps[0]));
-
-        Long firstTimestamp = timestamps[0];
-        int count = 1;
-
-        for (int head = 1, tail = 0; head < timestamps.length; head++) {
-            // When moving window, maintain a invariant that timestamps[head] - timestamps[end] < windowSize
-            // if timestamps[head] - timestamps[end] == windowSize, some points need to be kicked off
-            // For first window, exclude timestamps[head]
-            // For a regular window, exclude timestamps[tail]
-            if (tail == 0) {
-                while (timestamps[head] - firstTimestamp < windowSizeInSeconds * 1000) {
-                    try {
-                        // run out of points before hitting the end of first window
-                        if (head >= timestamps.length - 1) {
-                            break;
-                        }
-                        value = _calculateValue(sum, numberArr, count, type);
-                        movingDatapoints.put(timestamps[head - 1], value);
-                        sum += sortedDatapoints.get(timestamps[head]);
-                        numberArr.add(sortedDatapoints.get(timestamps[head]));
-                    } catch (NumberFormatException | NullPointerException e) {
-                        _logger.warn("Failed to parse datapoint: " + sortedDatapoints.get(timestamps[head]));
-                        throw new IllegalArgumentException("Bad datapoint!");
-                    }
-                    head++;
-                    count++;
-                }
-                
-                value = _calculateValue(sum, numberArr, count, type);
-                movingDatapoints.put(timestamps[head - 1], value);
-            }
-            
-            try {
-                sum += sortedDatapoints.get(timestamps[head]);
-                numberArr.add(sortedDatapoints.get(timestamps[head]));
-                while (timestamps[head] - timestamps[tail] >= windowSizeInSeconds * 1000) {
-                    sum = _subtractWithinWindow(sum, sortedDatapoints, timestamps[tail], timestamps[head]);
-                    numberArr.remove(sortedDatapoints.get(timestamps[tail]));
-                    count--;
-                    tail++;
-                }
-            } catch (NumberFormatException | NullPointerException e) {
-                _logger.warn("Failed to parse datapoint: " + sortedDatapoints.get(timestamps[head]));
-                throw new UnsupportedOperationException("Bad datapoint!");
-            }
-            count++;
-            value = _calculateValue(sum, numberArr, count, type);
-            movingDatapoints.put(timestamps[head], value);
-        } // end for
-        return movingDatapoints;
+        return SlidingWindow.apply(datapoints, windowSizeInSeconds * 1000, type, percentile);
     }
 
-	private double _calculateValue(double sum, List<Double> numberArr, int count, InternalReducerType type) {
-			
-		if (InternalReducerType.MEDIAN.equals(type)) {
-		    double[] numbers = ArrayUtils.toPrimitive(numberArr.toArray(new Double[numberArr.size()]));
-		    return new Percentile().evaluate(numbers, 50.0);
-		} 
-		
-		if(InternalReducerType.AVG.equals(type)) {
-			return (sum / count);
-		}
-		
-		return sum;
-	}
-
     @Override
     public String name() {
         return TransformFactory.Function.MOVING.name();
     }
 
-    private double _subtractWithinWindow(double sum, Map<Long, Double> sortedDatapoints, long end, long start) {
-        sum -= sortedDatapoints.get(end);
-        return sum;
-    }
-
     private long getWindowInSeconds(String window) {
         SystemAssert.requireArgument(!window.startsWith("-"), "Window size doesn't allow negative value.");
 
@@ -31,53 +31,75 @@
 
 package com.salesforce.dva.argus.service.metric.transform;
 
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
 import org.apache.commons.math3.linear.MatrixUtils;
 import org.apache.commons.math3.linear.RealMatrix;
-import org.apache.commons.math3.linear.SingularValueDecomposition;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 
 /**
  * RPCA code taken from Netflix Surus Project.
  * Source: https://github.com/Netflix/Surus/blob/master/src/main/java/org/surus/math/RPCA.java
  *
+ * The matrices are held in column major primitive arrays that are updated in place. The singular value decomposition of every iteration is a
+ * one-sided Jacobi decomposition that starts from the right singular vectors of the previous iteration, since the decomposed matrix changes
+ * little between iterations, and the low rank matrix is rebuilt only from the singular values that survive the threshold. Matrices with fewer
+ * rows than columns are decomposed in transposed form, which leaves the objective unchanged.
  */
 public class RPCA {
 
-	private RealMatrix X;
-	private RealMatrix L;
-	private RealMatrix S;
-	private RealMatrix E;
+	private static final int MAX_ITERS = 228;
+	private static final int MAX_SWEEPS = 60;
+	private static final double JACOBI_TOLERANCE = 1e-15;
+	private static final long PARALLEL_THRESHOLD = 1L << 18;
+
+	private final int rows;
+	private final int cols;
+	private final boolean transposed;
+
+	private final double[] X;
+	private final double[] L;
+	private final double[] S;
+	private final double[] E;
+	private final double[] W;
+	private final double[] V;
+	private final double[] singularValues;
 	
 	private double lpenalty;
 	private double spenalty;
 	
-	private static final int MAX_ITERS = 228;
-	
 	public RPCA(double[][] data, double lpenalty, double spenalty) {
-		this.X = MatrixUtils.createRealMatrix(data);
+		this.transposed = data.length < data[0].length;
+		this.rows = transposed ? data[0].length : data.length;
+		this.cols = transposed ? data.length : data[0].length;
+		this.X = new double[rows * cols];
+		for (int i = 0; i < data.length; i++) {
+			for (int j = 0; j < data[i].length; j++) {
+				X[transposed ? i * rows + j : j * rows + i] = data[i][j];
+			}
+		}
+		this.L = new double[X.length];
+		this.S = new double[X.length];
+		this.E = new double[X.length];
+		this.W = new double[X.length];
+		this.V = new double[cols * cols];
+		for (int j = 0; j < cols; j++) {
+			V[j * cols + j] = 1;
+		}
+		this.singularValues = new double[cols];
 		this.lpenalty = lpenalty;
 		this.spenalty = spenalty;
-		initMatrices();
 		computeRSVD();
 	}
 	
 	public RPCA(RealMatrix X, double lpenalty, double spenalty) {
-		this.X = X;
-		this.lpenalty = lpenalty;
-		this.spenalty = spenalty;
-		initMatrices();
-		computeRSVD();
-	}
-	
-	private void initMatrices() {
-		this.L = MatrixUtils.createRealMatrix(this.X.getRowDimension(), this.X.getColumnDimension());
-		this.S = MatrixUtils.createRealMatrix(this.X.getRowDimension(), this.X.getColumnDimension());
-		this.E = MatrixUtils.createRealMatrix(this.X.getRowDimension(), this.X.getColumnDimension());
+		this(X.getData(), lpenalty, spenalty);
 	}
 	
 	private void computeRSVD() {
-		double mu = X.getColumnDimension() * X.getRowDimension() / (4 * l1norm(X.getData()));
-		double objPrev = 0.5*Math.pow(X.getFrobeniusNorm(), 2);
+		double mu = cols * rows / (4 * l1norm(X));
+		double objPrev = 0.5 * squaredSum(X);
 		double obj = objPrev;
 		double tol = 1e-8 * objPrev;
 		double diff = 2 * tol;
@@ -97,60 +119,157 @@ public class RPCA {
 			iter = iter + 1;
 		}
 	}
-		
-	private double[] softThreshold(double[] x, double penalty) {
-		for(int i = 0; i < x.length; i++) {
-			x[i] = Math.signum(x[i]) * Math.max(Math.abs(x[i]) - penalty, 0);
-		}
-		return x;
-	}
 	
-	private double[][] softThreshold(double[][] x, double penalty) {
-		for(int i = 0; i < x.length; i++) {
-			for(int j = 0; j < x[i].length; j++) {
-				x[i][j] = Math.signum(x[i][j]) * Math.max(Math.abs(x[i][j]) - penalty, 0);
-			}
-		}
-		return x;
-	}
-	
-	private double sum(double[] x) {
-		double sum = 0;
-		for (int i = 0; i < x.length; i++)
-			sum += x[i];
-		return (sum);
+	private double softThreshold(double x, double penalty) {
+		return Math.signum(x) * Math.max(Math.abs(x) - penalty, 0);
 	}
 	
-	private double l1norm(double[][] x) {
+	private double l1norm(double[] x) {
 		double l1norm = 0;
 		for (int i = 0; i < x.length; i++) {
-			for (int j = 0; j < x[i].length; j++) {
-				l1norm += Math.abs(x[i][j]);
-			}
+			l1norm += Math.abs(x[i]);
 		}
 		return l1norm;
 	}
+
+	private double squaredSum(double[] x) {
+		double sum = 0;
+		for (int i = 0; i < x.length; i++) {
+			sum += x[i] * x[i];
+		}
+		return sum;
+	}
 	
 	private double computeL(double mu) {
 		double LPenalty = lpenalty * mu;
-		SingularValueDecomposition svd = new SingularValueDecomposition(X.subtract(S));
-		double[] penalizedD = softThreshold(svd.getSingularValues(), LPenalty);
-		RealMatrix D_matrix = MatrixUtils.createRealDiagonalMatrix(penalizedD);
-		L = svd.getU().multiply(D_matrix).multiply(svd.getVT());
-		return sum(penalizedD) * LPenalty;
+
+		// W = (X - S) * V, the previous right singular vectors, so that its columns are already nearly orthogonal.
+		forEachColumn(rows * (long) cols * cols, j -> {
+			int offset = j * rows;
+			Arrays.fill(W, offset, offset + rows, 0);
+			for (int k = 0; k < cols; k++) {
+				double v = V[k * cols + j];
+				if (v != 0) {
+					int source = k * rows;
+					for (int i = 0; i < rows; i++) {
+						W[offset + i] += (X[source + i] - S[source + i]) * v;
+					}
+				}
+			}
+		});
+		jacobiSweeps();
+
+		double penalizedSum = 0;
+		int rank = 0;
+		final double[] scale = new double[cols];
+		for (int k = 0; k < cols; k++) {
+			double penalized = Math.max(singularValues[k] - LPenalty, 0);
+			penalizedSum += penalized;
+			if (penalized > 0) {
+				scale[k] = penalized / singularValues[k];
+				rank++;
+			}
+		}
+
+		// L = U * D * VT = sum over the surviving components of (d_k / s_k) * w_k * v_k^T
+		forEachColumn(rows * (long) cols * Math.max(rank, 1), j -> {
+			int offset = j * rows;
+			Arrays.fill(L, offset, offset + rows, 0);
+			for (int k = 0; k < cols; k++) {
+				double coefficient = scale[k] * V[j * cols + k];
+				if (coefficient != 0) {
+					int source = k * rows;
+					for (int i = 0; i < rows; i++) {
+						L[offset + i] += coefficient * W[source + i];
+					}
+				}
+			}
+		});
+		return penalizedSum * LPenalty;
+	}
+
+	/*
+	 * Orthogonalizes the columns of W with plane rotations, accumulating them into V, until all pairs of columns are orthogonal to working
+	 * precision. The singular values are the norms of the resulting columns.
+	 */
+	private void jacobiSweeps() {
+		boolean rotated = true;
+		for (int sweep = 0; rotated && sweep < MAX_SWEEPS; sweep++) {
+			rotated = false;
+			for (int p = 0; p < cols - 1; p++) {
+				for (int q = p + 1; q < cols; q++) {
+					int wp = p * rows;
+					int wq = q * rows;
+					double alpha = 0;
+					double beta = 0;
+					double gamma = 0;
+					for (int i = 0; i < rows; i++) {
+						alpha += W[wp + i] * W[wp + i];
+						beta += W[wq + i] * W[wq + i];
+						gamma += W[wp + i] * W[wq + i];
+					}
+					if (gamma == 0 || Math.abs(gamma) <= JACOBI_TOLERANCE * Math.sqrt(alpha * beta)) {
+						continue;
+					}
+					rotated = true;
+
+					double zeta = (beta - alpha) / (2 * gamma);
+					double t = Math.signum(zeta) / (Math.abs(zeta) + Math.sqrt(1 + zeta * zeta));
+					if (zeta == 0) {
+						t = 1;
+					}
+					double c = 1 / Math.sqrt(1 + t * t);
+					double s = c * t;
+					rotateColumns(wp, wq, c, s);
+					rotateVectors(p, q, c, s);
+				}
+			}
+		}
+		for (int k = 0; k < cols; k++) {
+			singularValues[k] = Math.sqrt(squaredSum(W, k * rows, rows));
+		}
+	}
+
+	private void rotateColumns(int p, int q, double c, double s) {
+		for (int i = 0; i < rows; i++) {
+			double a = W[p + i];
+			double b = W[q + i];
+			W[p + i] = c * a - s * b;
+			W[q + i] = s * a + c * b;
+		}
+	}
+
+	/* V is row major, V[j * cols + k] being the j-th component of the k-th right singular vector. */
+	private void rotateVectors(int p, int q, double c, double s) {
+		for (int j = 0; j < cols; j++) {
+			double a = V[j * cols + p];
+			double b = V[j * cols + q];
+			V[j * cols + p] = c * a - s * b;
+			V[j * cols + q] = s * a + c * b;
+		}
+	}
+
+	private double squaredSum(double[] x, int offset, int length) {
+		double sum = 0;
+		for (int i = offset; i < offset + length; i++) {
+			sum += x[i] * x[i];
+		}
+		return sum;
 	}
 	
 	private double computeS(double mu) {
 		double SPenalty = spenalty * mu;
-		double[][] penalizedS = softThreshold(X.subtract(L).getData(), SPenalty);
-		S = MatrixUtils.createRealMatrix(penalizedS);
-		return l1norm(penalizedS) * SPenalty;
+		for (int i = 0; i < S.length; i++) {
+			S[i] = softThreshold(X[i] - L[i], SPenalty);
+		}
+		return l1norm(S) * SPenalty;
 	}
 	
 	private double computeE() {
-		E = X.subtract(L).subtract(S);
-		double norm = E.getFrobeniusNorm();
-		return Math.pow(norm, 2);
+		for (int i = 0; i < E.length; i++) {
+			E[i] = X[i] - L[i] - S[i];
+		}
+		return squaredSum(E);
 	}
 	
 	private double computeObjective(double nuclearnorm, double l1norm, double l2norm) {
@@ -158,33 +277,67 @@ public class RPCA {
 	}
 	
 	private double computeDynamicMu() {
-		int m = E.getRowDimension();
-		int n = E.getColumnDimension();
-		
-		double E_sd = standardDeviation(E.getData());
-		double mu = E_sd * Math.sqrt(2*Math.max(m,n));
+		double E_sd = standardDeviation(E);
+		double mu = E_sd * Math.sqrt(2*Math.max(rows,cols));
 		
 		return Math.max(.01, mu);
 	}
 
-	private double standardDeviation(double[][] x) {
-		DescriptiveStatistics stats = new DescriptiveStatistics();
-		for (int i = 0; i < x.length; i ++)
-			for (int j = 0; j < x[i].length; j++)
-				stats.addValue(x[i][j]);
-		return stats.getStandardDeviation();
+	/* Sample standard deviation, computed with the corrected two-pass algorithm. */
+	private double standardDeviation(double[] x) {
+		if (x.length < 2) {
+			return 0;
+		}
+		double mean = 0;
+		for (int i = 0; i < x.length; i++) {
+			mean += x[i];
+		}
+		mean /= x.length;
+
+		double squares = 0;
+		double correction = 0;
+		for (int i = 0; i < x.length; i++) {
+			double deviation = x[i] - mean;
+			squares += deviation * deviation;
+			correction += deviation;
+		}
+		return Math.sqrt((squares - correction * correction / x.length) / (x.length - 1));
+	}
+
+	private void forEachColumn(long work, IntConsumer column) {
+		if (work >= PARALLEL_THRESHOLD) {
+			IntStream.range(0, cols).parallel().forEach(column);
+		} else {
+			for (int j = 0; j < cols; j++) {
+				column.accept(j);
+			}
+		}
+	}
+
+	private RealMatrix toMatrix(double[] x) {
+		double[][] data = transposed ? new double[cols][rows] : new double[rows][cols];
+		for (int j = 0; j < cols; j++) {
+			for (int i = 0; i < rows; i++) {
+				if (transposed) {
+					data[j][i] = x[j * rows + i];
+				} else {
+					data[i][j] = x[j * rows + i];
+				}
+			}
+		}
+		return MatrixUtils.createRealMatrix(data);
 	}
 
 	public RealMatrix getL() {
-		return L;
+		return toMatrix(L);
 	}
 
 	public RealMatrix getS() {
-		return S;
+		return toMatrix(S);
 	}
 
 	public RealMatrix getE() {
-		return E;
+		return toMatrix(E);
 	}
 	
 }
@@ -43,7 +43,7 @@ import java.util.Map;
  *
  * @author  Ruofan Zhang (rzhang@salesforce.com)
  */
-public class ScaleValueReducerOrMapping implements ValueReducerOrMapping {
+public class ScaleValueReducerOrMapping implements ValueReducerOrMapping, ValueReducerKernel, ValueMappingKernel {
 
     //~ Methods **************************************************************************************************************************************
 
@@ -91,6 +91,36 @@ public class ScaleValueReducerOrMapping implements ValueReducerOrMapping {
         throw new UnsupportedOperationException("Scale Transform with reducer is not supposed to be used without a constant");
     }
 
+    @Override
+    public double reduce(double[] values, int length) {
+        double product = 1.0;
+
+        for (int i = 0; i < length; i++) {
+            product *= values[i];
+        }
+        return product;
+    }
+
+    @Override
+    public DatapointArrays mapping(DatapointArrays datapoints, List<String> constants) {
+        if (constants == null) {
+            throw new UnsupportedOperationException("Scale Transform with mapping is not supposed to be used without a constant");
+        }
+        SystemAssert.requireArgument(constants.size() == 1, "If constants provided for scale transform, only exactly one constant allowed.");
+
+        try {
+            double multiplicand = Double.parseDouble(constants.get(0));
+            double[] values = datapoints.getValues();
+
+            for (int i = 0; i < datapoints.size(); i++) {
+                values[i] *= multiplicand;
+            }
+            return datapoints;
+        } catch (NumberFormatException nfe) {
+            throw new SystemException("Illegal constant value supplied to scale transform", nfe);
+        }
+    }
+
     @Override
     public String name() {
         return TransformFactory.Function.SCALE.name();
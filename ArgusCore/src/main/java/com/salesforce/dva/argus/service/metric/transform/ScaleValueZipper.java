@@ -40,7 +40,7 @@ import com.salesforce.dva.argus.system.SystemException;
  *
  * @author  Ruofan Zhang (rzhang@salesforce.com)
  */
-public class ScaleValueZipper implements ValueZipper {
+public class ScaleValueZipper implements ValueZipper, ValueZipperKernel {
 
     //~ Methods **************************************************************************************************************************************
 
@@ -56,6 +56,11 @@ public class ScaleValueZipper implements ValueZipper {
         }
     }
 
+    @Override
+    public double zip(double originalDatapoint, double baseDatapoint) {
+        return originalDatapoint * baseDatapoint;
+    }
+
     @Override
     public String name() {
         return TransformFactory.Function.SCALE_V.name();
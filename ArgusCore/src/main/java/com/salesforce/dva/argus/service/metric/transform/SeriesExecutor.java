@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.service.metric.transform;
+
+import com.salesforce.dva.argus.entity.Metric;
+import com.salesforce.dva.argus.system.SystemException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ManagedBlocker;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Applies a function to every series of a transform, in parallel on a bounded fork/join pool once the number of series reaches a threshold.
+ * Results are always returned in the order of the input series. The pools are shared process-wide, one per parallelism, so that transform
+ * factories created by repeated injection do not each leave a pool behind.
+ *
+ * @author  agent (agent@local)
+ */
+public final class SeriesExecutor {
+
+    //~ Static fields/initializers *******************************************************************************************************************
+
+    /** Executes every series on the calling thread. */
+    public static final SeriesExecutor SEQUENTIAL = new SeriesExecutor(null, Integer.MAX_VALUE);
+    private static final int TASKS_PER_THREAD = 4;
+    private static final ConcurrentMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    //~ Instance fields ******************************************************************************************************************************
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    //~ Constructors *********************************************************************************************************************************
+
+    private SeriesExecutor(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    //~ Methods **************************************************************************************************************************************
+
+    /**
+     * Creates an executor that runs on the shared pool of the given parallelism, creating the pool on first use.
+     *
+     * @param   parallelism  The parallelism of the pool. If not positive, the number of available processors is used.
+     * @param   threshold    The minimum number of series for which the series are processed in parallel.
+     *
+     * @return  The executor.
+     */
+    public static SeriesExecutor create(int parallelism, int threshold) {
+        ForkJoinPool pool = POOLS.computeIfAbsent(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(), ForkJoinPool::new);
+
+        return new SeriesExecutor(pool, Math.max(threshold, 1));
+    }
+
+    /**
+     * Performs a blocking call, such as a TSDB query, from within a series function. On a pool thread the pool may start a spare thread while
+     * the call blocks so that the remaining series keep being processed.
+     *
+     * @param   <T>   The result type.
+     * @param   call  The blocking call.
+     *
+     * @return  The result of the call.
+     */
+    public static <T> T block(Supplier<T> call) {
+        BlockingCall<T> blocker = new BlockingCall<>(call);
+
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SystemException("Interrupted while waiting for a blocking call.", ex);
+        }
+        return blocker.result;
+    }
+
+    /**
+     * Applies a function to every series.
+     *
+     * @param   <T>      The result type.
+     * @param   metrics  The series.
+     * @param   mapper   The function to apply. Must be safe to call concurrently for different series.
+     *
+     * @return  The results, in the order of the series.
+     */
+    public <T> List<T> map(List<Metric> metrics, Function<Metric, T> mapper) {
+        if (pool == null || metrics.size() < threshold) {
+            List<T> result = new ArrayList<>(metrics.size());
+
+            for (Metric metric : metrics) {
+                result.add(mapper.apply(metric));
+            }
+            return result;
+        }
+
+        Metric[] input = metrics.toArray(new Metric[metrics.size()]);
+        Object[] output = new Object[input.length];
+        int batchSize = Math.max(1, input.length / (pool.getParallelism() * TASKS_PER_THREAD));
+
+        pool.invoke(new MapTask<>(input, output, mapper, 0, input.length, batchSize));
+
+        @SuppressWarnings("unchecked")
+        List<T> result = (List<T>) Arrays.asList(output);
+
+        return new ArrayList<>(result);
+    }
+
+    //~ Inner Classes ********************************************************************************************************************************
+
+    /* Runs a call once, reporting it releasable after it completed. */
+    private static final class BlockingCall<T> implements ManagedBlocker {
+
+        private final Supplier<T> call;
+        private boolean done;
+        private T result;
+
+        BlockingCall(Supplier<T> call) {
+            this.call = call;
+        }
+
+        @Override
+        public boolean block() {
+            if (!done) {
+                result = call.get();
+                done = true;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+
+    /* Splits the series range in halves until it is no larger than the batch size. */
+    private static final class MapTask<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final Metric[] input;
+        private final Object[] output;
+        private final Function<Metric, T> mapper;
+        private final int from;
+        private final int to;
+        private final int batchSize;
+
+        MapTask(Metric[] input, Object[] output, Function<Metric, T> mapper, int from, int to, int batchSize) {
+            this.input = input;
+            this.output = output;
+            this.mapper = mapper;
+            this.from = from;
+            this.to = to;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= batchSize) {
+                for (int i = from; i < to; i++) {
+                    output[i] = mapper.apply(input[i]);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+
+            invokeAll(new MapTask<>(input, output, mapper, from, middle, batchSize), new MapTask<>(input, output, mapper, middle, to, batchSize));
+        }
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.service.metric.transform;
+
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
+import java.util.Arrays;
+
+/**
+ * Sliding time window aggregation over the primitive datapoint arrays of a series. For every datapoint, the window holds all datapoints whose
+ * timestamp is less than the window size older than it, including the datapoint itself. Each datapoint enters and leaves the window once, and
+ * the aggregates are maintained incrementally, so that a series is evaluated in O(n log n) instead of O(n * w log w).
+ *
+ * <ul>
+ *   <li>Sum and average use a running sum.</li>
+ *   <li>Min and max use a monotonic deque.</li>
+ *   <li>Median and percentiles use a Fenwick tree of counts over the ranks of the series values.</li>
+ * </ul>
+ *
+ * @author  agent (agent@local)
+ */
+public final class SlidingWindow {
+
+    //~ Constructors *********************************************************************************************************************************
+
+    private SlidingWindow() { }
+
+    //~ Methods **************************************************************************************************************************************
+
+    /**
+     * Replaces every value of a series with the aggregate of its window.
+     *
+     * @param   datapoints    The datapoints of the series. Updated in place.
+     * @param   windowMillis  The window size in milliseconds. Must be positive.
+     * @param   type          The aggregation to perform. One of AVG, SUM, MIN, MAX, MEDIAN or PERCENTILE.
+     * @param   percentile    The percentile to compute, only used by the PERCENTILE type.
+     *
+     * @return  The updated datapoints.
+     */
+    public static DatapointArrays apply(DatapointArrays datapoints, long windowMillis, InternalReducerType type, double percentile) {
+        long[] timestamps = datapoints.getTimestamps();
+        double[] values = datapoints.getValues();
+        int size = datapoints.size();
+        Aggregate aggregate = create(type, percentile, values, size);
+        double[] result = new double[size];
+
+        for (int head = 0, tail = 0; head < size; head++) {
+            aggregate.add(values[head]);
+            while (timestamps[head] - timestamps[tail] >= windowMillis) {
+                aggregate.remove(values[tail]);
+                tail++;
+            }
+            result[head] = aggregate.value(values, tail, head + 1 - tail);
+        }
+        System.arraycopy(result, 0, values, 0, size);
+        return datapoints;
+    }
+
+    /**
+     * Creates the incremental aggregate for a reducer type.
+     *
+     * @param   type        The aggregation to perform.
+     * @param   percentile  The percentile to compute, only used by the PERCENTILE type.
+     * @param   values      All values that will be added to the aggregate. Used to rank values for the order statistics.
+     * @param   size        The number of values.
+     *
+     * @return  The aggregate.
+     *
+     * @throws  UnsupportedOperationException  If the type cannot be evaluated over a sliding window.
+     */
+    static Aggregate create(InternalReducerType type, double percentile, double[] values, int size) {
+        switch (type) {
+            case AVG:
+                return new SumAggregate(true);
+            case SUM:
+                return new SumAggregate(false);
+            case MIN:
+                return new ExtremumAggregate(size, false);
+            case MAX:
+                return new ExtremumAggregate(size, true);
+            case MEDIAN:
+                return new PercentileAggregate(values, size, 50.0);
+            case PERCENTILE:
+                return new PercentileAggregate(values, size, percentile);
+            default:
+                throw new UnsupportedOperationException("Illegal type: " + type + " for a sliding window.");
+        }
+    }
+
+    //~ Inner Interfaces *****************************************************************************************************************************
+
+    /**
+     * An aggregate over the values of a sliding window. Values are removed in the order in which they were added.
+     *
+     * @author  agent (agent@local)
+     */
+    interface Aggregate {
+
+        /**
+         * Adds the newest value to the window.
+         *
+         * @param  value  The value.
+         */
+        void add(double value);
+
+        /**
+         * Removes the oldest value from the window.
+         *
+         * @param  value  The value.
+         */
+        void remove(double value);
+
+        /**
+         * Returns the aggregate of the window.
+         *
+         * @param   values  The series values.
+         * @param   begin   The index of the oldest value in the window.
+         * @param   length  The number of values in the window.
+         *
+         * @return  The aggregate.
+         */
+        double value(double[] values, int begin, int length);
+    }
+
+    //~ Inner Classes ********************************************************************************************************************************
+
+    /* Running sum. The first value seeds the sum rather than being added to zero, so that the result matches a plain sum exactly. */
+    private static final class SumAggregate implements Aggregate {
+
+        private final boolean average;
+        private double sum;
+        private int count;
+
+        SumAggregate(boolean average) {
+            this.average = average;
+        }
+
+        @Override
+        public void add(double value) {
+            sum = count == 0 ? value : sum + value;
+            count++;
+        }
+
+        @Override
+        public void remove(double value) {
+            sum -= value;
+            count--;
+        }
+
+        @Override
+        public double value(double[] values, int begin, int length) {
+            return average ? sum / count : sum;
+        }
+    }
+
+    /* Monotonic deque of the values that can still become the extremum of the window, front being the current extremum. */
+    private static final class ExtremumAggregate implements Aggregate {
+
+        private final boolean max;
+        private final double[] deque;
+        private final long[] sequence;
+        private int front;
+        private int back;
+        private long added;
+        private long removed;
+
+        ExtremumAggregate(int capacity, boolean max) {
+            this.max = max;
+            this.deque = new double[Math.max(capacity, 1)];
+            this.sequence = new long[deque.length];
+        }
+
+        @Override
+        public void add(double value) {
+            while (back > front && (max ? deque[back - 1] <= value : deque[back - 1] >= value)) {
+                back--;
+            }
+            deque[back] = value;
+            sequence[back++] = added++;
+        }
+
+        @Override
+        public void remove(double value) {
+            if (back > front && sequence[front] == removed) {
+                front++;
+            }
+            removed++;
+        }
+
+        @Override
+        public double value(double[] values, int begin, int length) {
+            return deque[front];
+        }
+    }
+
+    /*
+     * Order statistics over a Fenwick tree of value counts, indexed by the rank of each value among all values of the series. Matches the
+     * legacy estimation of commons-math Percentile. Windows containing NaN fall back to Percentile itself.
+     */
+    private static final class PercentileAggregate implements Aggregate {
+
+        private final double quantile;
+        private final double[] ranked;
+        private final int[] tree;
+        private int count;
+        private int nanCount;
+
+        PercentileAggregate(double[] values, int size, double percentile) {
+            double[] sorted = Arrays.copyOf(values, size);
+            int distinct = 0;
+
+            Arrays.sort(sorted);
+            for (int i = 0; i < size && !Double.isNaN(sorted[i]); i++) {
+                if (distinct == 0 || Double.compare(sorted[i], sorted[distinct - 1]) != 0) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            this.quantile = percentile;
+            this.ranked = Arrays.copyOf(sorted, distinct);
+            this.tree = new int[distinct + 1];
+        }
+
+        @Override
+        public void add(double value) {
+            _update(value, 1);
+        }
+
+        @Override
+        public void remove(double value) {
+            _update(value, -1);
+        }
+
+        @Override
+        public double value(double[] values, int begin, int length) {
+            if (nanCount > 0) {
+                return new Percentile().evaluate(values, begin, length, quantile);
+            }
+
+            double pos = quantile / 100 * (count + 1);
+            double fpos = Math.floor(pos);
+            int intPos = (int) fpos;
+
+            if (pos < 1) {
+                return _select(0);
+            }
+            if (pos >= count) {
+                return _select(count - 1);
+            }
+
+            double lower = _select(intPos - 1);
+            double upper = _select(intPos);
+
+            return lower + (pos - fpos) * (upper - lower);
+        }
+
+        private void _update(double value, int delta) {
+            if (Double.isNaN(value)) {
+                nanCount += delta;
+                return;
+            }
+            count += delta;
+            for (int i = Arrays.binarySearch(ranked, value) + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        /* Returns the k-th smallest value in the window, 0 based. */
+        private double _select(int k) {
+            int index = 0;
+            int remaining = k + 1;
+
+            for (int step = Integer.highestOneBit(tree.length); step > 0; step >>= 1) {
+                if (index + step < tree.length && tree[index + step] < remaining) {
+                    index += step;
+                    remaining -= tree[index];
+                }
+            }
+            return ranked[index];
+        }
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -44,7 +44,7 @@ import java.util.stream.Collectors;
  *
  * @author  Ruofan Zhang (rzhang@salesforce.com)
  */
-public class SumValueReducerOrMapping implements ValueReducerOrMapping {
+public class SumValueReducerOrMapping implements ValueReducerOrMapping, ValueReducerKernel, ValueMappingKernel {
 
     //~ Methods **************************************************************************************************************************************
 
@@ -81,6 +81,36 @@ public class SumValueReducerOrMapping implements ValueReducerOrMapping {
         throw new UnsupportedOperationException("Sum Transform with reducer is not supposed to be used without a constant");
     }
 
+    @Override
+    public double reduce(double[] values, int length) {
+        double sum = 0.0;
+
+        for (int i = 0; i < length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public DatapointArrays mapping(DatapointArrays datapoints, List<String> constants) {
+        if (constants == null) {
+            throw new UnsupportedOperationException("Sum Transform with mapping is not supposed to be used without a constant");
+        }
+        SystemAssert.requireArgument(constants.size() == 1, "If constants provided for sum transform, only exactly one constant allowed.");
+
+        try {
+            double addend = Double.parseDouble(constants.get(0));
+            double[] values = datapoints.getValues();
+
+            for (int i = 0; i < datapoints.size(); i++) {
+                values[i] += addend;
+            }
+            return datapoints;
+        } catch (NullPointerException|NumberFormatException nfe) {
+            throw new SystemException("Illegal constant value supplied to sum transform", nfe);
+        }
+    }
+
     @Override
     public String name() {
         return TransformFactory.Function.SUM.name();
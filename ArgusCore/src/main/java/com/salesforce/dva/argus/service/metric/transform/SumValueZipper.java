@@ -39,7 +39,7 @@ import com.salesforce.dva.argus.system.SystemException;
  *
  * @author  Ruofan Zhang (rzhang@salesforce.com)
  */
-public class SumValueZipper implements ValueZipper {
+public class SumValueZipper implements ValueZipper, ValueZipperKernel {
 
     //~ Methods **************************************************************************************************************************************
 
@@ -55,6 +55,11 @@ public class SumValueZipper implements ValueZipper {
         }
     }
 
+    @Override
+    public double zip(double originalDatapoint, double baseDatapoint) {
+        return originalDatapoint + baseDatapoint;
+    }
+
     @Override
     public String name() {
         return TransformFactory.Function.SUM_V.name();
@@ -34,6 +34,9 @@ package com.salesforce.dva.argus.service.metric.transform;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.salesforce.dva.argus.service.TSDBService;
+import com.salesforce.dva.argus.system.SystemConfiguration;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Factory for metric transforms.
@@ -51,17 +54,45 @@ public class TransformFactory {
     //~ Instance fields ******************************************************************************************************************************
 
     private final TSDBService _tsdbService;
+    private final Set<Function> _parallelFunctions;
+    private final SeriesExecutor _seriesExecutor;
+    private final Set<Function> _incrementalFunctions;
+    private final TransformStateCache _stateCache;
 
     //~ Constructors *********************************************************************************************************************************
 
     /**
-     * Creates a new TransformFactory object.
+     * Creates a new TransformFactory object whose transforms process series sequentially.
      *
      * @param  tsdbService  The TSDB service to use.
      */
-    @Inject
     public TransformFactory(TSDBService tsdbService) {
         _tsdbService = tsdbService;
+        _parallelFunctions = EnumSet.noneOf(Function.class);
+        _seriesExecutor = SeriesExecutor.SEQUENTIAL;
+        _incrementalFunctions = EnumSet.noneOf(Function.class);
+        _stateCache = null;
+    }
+
+    /**
+     * Creates a new TransformFactory object. The configured per series transforms process large series lists in parallel and the configured
+     * incremental transforms keep their models between evaluations.
+     *
+     * @param  tsdbService  The TSDB service to use.
+     * @param  config       The system configuration. Cannot be null.
+     */
+    @Inject
+    public TransformFactory(TSDBService tsdbService, SystemConfiguration config) {
+        _tsdbService = tsdbService;
+        _parallelFunctions = _parseFunctions(config.getValue(SystemConfiguration.Property.TRANSFORM_PARALLEL_FUNCTIONS));
+        _seriesExecutor = _parallelFunctions.isEmpty() ? SeriesExecutor.SEQUENTIAL
+                                                       : SeriesExecutor.create(
+                                                           Integer.parseInt(config.getValue(SystemConfiguration.Property.TRANSFORM_PARALLELISM)),
+                                                           Integer.parseInt(config.getValue(SystemConfiguration.Property.TRANSFORM_PARALLEL_THRESHOLD)));
+        _incrementalFunctions = _parseFunctions(config.getValue(SystemConfiguration.Property.TRANSFORM_INCREMENTAL_FUNCTIONS));
+        _stateCache = _incrementalFunctions.isEmpty() ? null
+                                                      : new TransformStateCache(
+                                                          Long.parseLong(config.getValue(SystemConfiguration.Property.TRANSFORM_INCREMENTAL_MAX_DATAPOINTS)));
     }
 
     //~ Methods **************************************************************************************************************************************
@@ -77,7 +108,29 @@ public class TransformFactory {
      */
     public Transform getTransform(String functionName) {
         Function function = Function.fromString(functionName);
+        Transform transform = _createTransform(function, functionName);
+
+        if (_parallelFunctions.contains(function) && transform instanceof SeriesParallelTransform) {
+            SeriesParallelTransform.class.cast(transform).setSeriesExecutor(_seriesExecutor);
+        }
+        if (_incrementalFunctions.contains(function) && transform instanceof IncrementalTransform) {
+            IncrementalTransform.class.cast(transform).setStateCache(_stateCache);
+        }
+        return transform;
+    }
+
+    private static Set<Function> _parseFunctions(String names) {
+        Set<Function> functions = EnumSet.noneOf(Function.class);
+
+        for (String name : names.split(",")) {
+            if (!name.trim().isEmpty()) {
+                functions.add(Function.valueOf(name.trim().toUpperCase()));
+            }
+        }
+        return functions;
+    }
 
+    private Transform _createTransform(Function function, String functionName) {
         switch (function) {
             case DIVIDE:
                 return new MetricReducerOrMappingTransform(new DivideValueReducerOrMapping());
@@ -163,6 +216,7 @@ public class TransformFactory {
             case SHIFT:
                 return new MetricMappingTransform(new ShiftValueMapping());
             case MOVING:
+            case MOVINGAVERAGE:
                 return new MetricMappingTransform(new MovingValueMapping());
             case SUM_V:
                 return new MetricZipperTransform(new SumValueZipper());
@@ -223,7 +277,7 @@ public class TransformFactory {
         AVERAGEBELOW("AVERAGEBELOW", ""),
         PERCENTILE("PERCENTILE", ""),
         SCALE("SCALE", "Scale a TS by a given amount"),
-        MOVINGAVERAGE("MOVINGAVERAGE", ""),
+        MOVINGAVERAGE("MOVINGAVERAGE", "Evaluates input metrics using a moving window. Same as MOVING."),
         ZEROIFMISSINGSUM("ZEROIFMISSINGSUM", "Performs an addition of the input metrics, adding 0 to non-matching time stamps"),
         ABSOLUTE("ABSOLUTE", " Converts the data point values to their corresponding absolute value."),
         MOVING("MOVING", "Evaluates input metrics using a moving window."),
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.service.metric.transform;
+
+import com.salesforce.dva.argus.entity.Metric;
+import com.salesforce.dva.argus.system.SystemAssert;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded, least recently used store for the model state of incremental transforms. Alerts evaluate the same transforms over the same series
+ * every few minutes, so a transform can keep its model between evaluations and only fold in the datapoints that arrived since.
+ *
+ * <p>States are keyed by the transform, its constants and the identity of the series. The models are a function of the series data and the
+ * constants only, so evaluations of different alerts over the same series share a state. A constant change selects a different state, which
+ * amounts to a full recompute.</p>
+ *
+ * <p>The cache is bounded by the number of datapoints the states retain rather than by the number of states, since a state over weeks of
+ * minute data is orders of magnitude larger than one over an hour. A state larger than the whole bound is not retained.</p>
+ *
+ * @author  agent (agent@local)
+ */
+public final class TransformStateCache {
+
+    //~ Instance fields ******************************************************************************************************************************
+
+    private final long maxDatapoints;
+    private final LinkedHashMap<String, State> states = new LinkedHashMap<>(16, 0.75f, true);
+    private long retainedDatapoints;
+
+    //~ Constructors *********************************************************************************************************************************
+
+    /**
+     * Creates a new TransformStateCache object.
+     *
+     * @param  maxDatapoints  The maximum number of datapoints retained by all states together. Must be positive.
+     */
+    public TransformStateCache(final long maxDatapoints) {
+        SystemAssert.requireArgument(maxDatapoints > 0, "The maximum number of retained datapoints must be positive.");
+        this.maxDatapoints = maxDatapoints;
+    }
+
+    //~ Methods **************************************************************************************************************************************
+
+    /**
+     * Builds the key of a state.
+     *
+     * @param   name       The name of the model.
+     * @param   constants  The constants of the transform. May be null.
+     * @param   metric     The series.
+     *
+     * @return  The state key.
+     */
+    static String key(String name, List<String> constants, Metric metric) {
+        return name + (constants == null ? "[]" : constants.toString()) + metric.getIdentifier();
+    }
+
+    /**
+     * Returns a state.
+     *
+     * @param   <T>   The state type.
+     * @param   key   The state key.
+     * @param   type  The state type.
+     *
+     * @return  The state or null if there is no state of this type for the key.
+     */
+    synchronized <T> T get(String key, Class<T> type) {
+        State state = states.get(key);
+
+        return state != null && type.isInstance(state.value) ? type.cast(state.value) : null;
+    }
+
+    /**
+     * Stores a state, replacing any previous state for the key, and evicts the least recently used states until the retained datapoints are
+     * within the bound again. A state that changed size in place must be stored again so that its new size is accounted for.
+     *
+     * @param  key         The state key.
+     * @param  state       The state.
+     * @param  datapoints  The number of datapoints retained by the state.
+     */
+    synchronized void put(String key, Object state, int datapoints) {
+        State previous = states.remove(key);
+
+        if (previous != null) {
+            retainedDatapoints -= previous.datapoints;
+        }
+        if (datapoints > maxDatapoints) {
+            return;
+        }
+        states.put(key, new State(state, datapoints));
+        retainedDatapoints += datapoints;
+
+        Iterator<State> eldest = states.values().iterator();
+
+        while (retainedDatapoints > maxDatapoints) {
+            retainedDatapoints -= eldest.next().datapoints;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Returns the number of retained states.
+     *
+     * @return  The number of states.
+     */
+    public synchronized int size() {
+        return states.size();
+    }
+
+    /**
+     * Returns the number of datapoints retained by all states together.
+     *
+     * @return  The number of retained datapoints.
+     */
+    public synchronized long getRetainedDatapoints() {
+        return retainedDatapoints;
+    }
+
+    //~ Inner Classes ********************************************************************************************************************************
+
+    private static final class State {
+
+        private final Object value;
+        private final int datapoints;
+
+        State(Object value, int datapoints) {
+            this.value = value;
+            this.datapoints = datapoints;
+        }
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
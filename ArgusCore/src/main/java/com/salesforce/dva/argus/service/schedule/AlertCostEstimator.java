@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.service.schedule;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import com.salesforce.dva.argus.entity.Alert;
+import com.salesforce.dva.argus.entity.History;
+import com.salesforce.dva.argus.entity.History.JobStatus;
+
+import static com.salesforce.dva.argus.system.SystemAssert.requireArgument;
+
+/**
+ * Keeps a moving estimate of the evaluation cost of each alert, taken from the execution times recorded in its job history, and uses it to
+ * order the alerts of a minute so that every evaluator batch carries a similar cost.
+ *
+ * @author  agent (agent@local)
+ */
+class AlertCostEstimator {
+
+	//~ Static fields/initializers *******************************************************************************************************************
+
+	/** The number of most recent history records an estimate is computed from. */
+	static final int HISTORY_SAMPLES = 5;
+	private static final double SMOOTHING = 0.5;
+
+	//~ Instance fields ******************************************************************************************************************************
+
+	private final Map<BigInteger, Estimate> estimates = new ConcurrentHashMap<>();
+
+	//~ Methods **************************************************************************************************************************************
+
+	/**
+	 * Updates the estimate of an alert from its most recent history records. Only completed evaluations are taken into account.
+	 *
+	 * @param  alertId      The alert id. Cannot be null.
+	 * @param  history      The most recent history records of the alert, newest first. Cannot be null.
+	 * @param  refreshTime  The time of the update in milliseconds.
+	 */
+	void update(BigInteger alertId, List<History> history, long refreshTime) {
+		requireArgument(alertId != null, "Alert id cannot be null.");
+		requireArgument(history != null, "History cannot be null.");
+
+		double cost = Double.NaN;
+
+		for (int i = history.size() - 1; i >= 0; i--) {
+			History record = history.get(i);
+
+			if (JobStatus.SUCCESS.equals(record.getJobStatus()) || JobStatus.FAILURE.equals(record.getJobStatus())) {
+				cost = Double.isNaN(cost) ? record.getExecutionTime() : SMOOTHING * record.getExecutionTime() + (1 - SMOOTHING) * cost;
+			}
+		}
+
+		Estimate previous = estimates.get(alertId);
+
+		if (Double.isNaN(cost)) {
+			cost = previous == null ? 0 : previous.cost;
+		}
+		estimates.put(alertId, new Estimate(cost, refreshTime));
+	}
+
+	/**
+	 * Returns the estimated evaluation cost of an alert.
+	 *
+	 * @param   alertId  The alert id.
+	 *
+	 * @return  The estimated execution time in milliseconds, or 0 if the alert has no estimate yet.
+	 */
+	double getCost(BigInteger alertId) {
+		Estimate estimate = estimates.get(alertId);
+
+		return estimate == null ? 0 : estimate.cost;
+	}
+
+	/**
+	 * Returns the alerts whose estimates are the oldest, those without an estimate first.
+	 *
+	 * @param   alertIds  The ids of the alerts being scheduled. Estimates of other alerts are discarded.
+	 * @param   limit     The maximum number of ids to return.
+	 *
+	 * @return  The ids of the alerts to refresh next.
+	 */
+	List<BigInteger> getStalest(Collection<BigInteger> alertIds, int limit) {
+		estimates.keySet().retainAll(alertIds);
+		return alertIds.stream()
+			.sorted(Comparator.comparingLong(alertId -> {
+					Estimate estimate = estimates.get(alertId);
+
+					return estimate == null ? Long.MIN_VALUE : estimate.refreshTime;
+				}))
+			.limit(limit)
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Orders alerts so that each consecutive batch of the given size has about the same estimated cost. The most expensive alerts are placed first,
+	 * each in the batch with the lowest cost so far, and each batch lists its cheapest alerts first so that they are not held back by the expensive
+	 * ones. Every batch but the last takes exactly <tt>batchSize</tt> alerts, so the batches line up with what the evaluators dequeue.
+	 *
+	 * @param   alerts     The alerts to order. Cannot be null.
+	 * @param   batchSize  The number of alerts an evaluator takes at once. Must be positive.
+	 *
+	 * @return  The same alerts in balanced order.
+	 */
+	List<Alert> balance(List<Alert> alerts, int batchSize) {
+		requireArgument(alerts != null, "Alerts cannot be null.");
+		requireArgument(batchSize > 0, "Batch size must be positive.");
+
+		int batchCount = (alerts.size() + batchSize - 1) / batchSize;
+
+		if (batchCount <= 1) {
+			return alerts;
+		}
+
+		List<Alert> byCost = new ArrayList<>(alerts);
+
+		byCost.sort(Comparator.comparingDouble((Alert alert) -> getCost(alert.getId())).reversed());
+
+		PriorityQueue<Batch> open = new PriorityQueue<>(batchCount);
+		List<Batch> batches = new ArrayList<>(batchCount);
+
+		for (int i = 0; i < batchCount; i++) {
+			Batch batch = new Batch(i, i < batchCount - 1 ? batchSize : alerts.size() - (batchCount - 1) * batchSize);
+
+			open.add(batch);
+			batches.add(batch);
+		}
+		for (Alert alert : byCost) {
+			Batch batch = open.poll();
+
+			batch.alerts.add(alert);
+			batch.cost += getCost(alert.getId());
+			if (batch.alerts.size() < batch.capacity) {
+				open.add(batch);
+			}
+		}
+
+		List<Alert> result = new ArrayList<>(alerts.size());
+
+		for (Batch batch : batches) {
+			for (int i = batch.alerts.size() - 1; i >= 0; i--) {
+				result.add(batch.alerts.get(i));
+			}
+		}
+		return result;
+	}
+
+	//~ Inner Classes ********************************************************************************************************************************
+
+	private static class Estimate {
+
+		private final double cost;
+		private final long refreshTime;
+
+		Estimate(double cost, long refreshTime) {
+			this.cost = cost;
+			this.refreshTime = refreshTime;
+		}
+	}
+
+	private static class Batch implements Comparable<Batch> {
+
+		private final int index;
+		private final int capacity;
+		private final List<Alert> alerts = new ArrayList<>();
+		private double cost;
+
+		Batch(int index, int capacity) {
+			this.index = index;
+			this.capacity = capacity;
+		}
+
+		@Override
+		public int compareTo(Batch other) {
+			int result = Double.compare(cost, other.cost);
+
+			if (result == 0) {
+				result = Integer.compare(alerts.size(), other.alerts.size());
+			}
+			return result == 0 ? Integer.compare(index, other.index) : result;
+		}
+	}
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
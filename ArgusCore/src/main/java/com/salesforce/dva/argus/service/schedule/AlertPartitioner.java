@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.service.schedule;
+
+import com.salesforce.dva.argus.entity.Alert;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.salesforce.dva.argus.system.SystemAssert.requireArgument;
+
+/**
+ * Splits alerts into a fixed number of partitions by a stable hash of their id, and assigns the partitions round robin to the scheduler nodes
+ * that are currently alive. The partition of an alert never changes; only the owner of a partition does when nodes join or leave.
+ *
+ * @author  agent (agent@local)
+ */
+class AlertPartitioner {
+
+	//~ Instance fields ******************************************************************************************************************************
+
+	private final int partitionCount;
+
+	//~ Constructors *********************************************************************************************************************************
+
+	/**
+	 * Creates a new partitioner.
+	 *
+	 * @param  partitionCount  The number of partitions. Must be positive.
+	 */
+	AlertPartitioner(int partitionCount) {
+		requireArgument(partitionCount > 0, "Partition count must be positive.");
+		this.partitionCount = partitionCount;
+	}
+
+	//~ Methods **************************************************************************************************************************************
+
+	/**
+	 * Returns the partition of an alert.
+	 *
+	 * @param   alertId  The alert id. Cannot be null.
+	 *
+	 * @return  The partition, between 0 and the partition count exclusive.
+	 */
+	int getPartition(BigInteger alertId) {
+		requireArgument(alertId != null, "Alert id cannot be null.");
+
+		// the murmur3 finalizer, so that partitions do not line up with the per second offsets of the spreading wheel
+		long hash = alertId.longValue();
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return (int) Math.floorMod(hash, (long) partitionCount);
+	}
+
+	/**
+	 * Returns the node that owns a partition.
+	 *
+	 * @param   partition  The partition.
+	 * @param   nodeCount  The number of live nodes. Must be positive.
+	 *
+	 * @return  The position of the owning node, between 0 and the node count exclusive.
+	 */
+	int getOwner(int partition, int nodeCount) {
+		requireArgument(nodeCount > 0, "Node count must be positive.");
+		return partition % nodeCount;
+	}
+
+	/**
+	 * Returns the alerts in the partitions owned by a node, in their original order.
+	 *
+	 * @param   alerts        The alerts to select from. Cannot be null.
+	 * @param   nodePosition  The position of the node among the live nodes.
+	 * @param   nodeCount     The number of live nodes. Must be positive.
+	 *
+	 * @return  The alerts the node must schedule. Will never be null.
+	 */
+	List<Alert> select(List<Alert> alerts, int nodePosition, int nodeCount) {
+		requireArgument(alerts != null, "Alerts cannot be null.");
+		requireArgument(nodePosition >= 0 && nodePosition < nodeCount, "Node position must be between 0 and the node count.");
+
+		List<Alert> result = new ArrayList<>(alerts.size() / nodeCount + 1);
+
+		for (Alert alert : alerts) {
+			if (getOwner(getPartition(alert.getId()), nodeCount) == nodePosition) {
+				result.add(alert);
+			}
+		}
+		return result;
+	}
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
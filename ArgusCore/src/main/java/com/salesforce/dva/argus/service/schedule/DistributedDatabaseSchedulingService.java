@@ -48,6 +48,7 @@ import com.salesforce.dva.argus.service.DefaultService;
 import com.salesforce.dva.argus.service.DistributedSchedulingLockService;
 import com.salesforce.dva.argus.service.MetricService;
 import com.salesforce.dva.argus.service.GlobalInterlockService.LockType;
+import com.salesforce.dva.argus.service.HistoryService;
 import com.salesforce.dva.argus.service.MonitorService;
 import com.salesforce.dva.argus.service.SchedulingService;
 import com.salesforce.dva.argus.service.ServiceManagementService;
@@ -55,16 +56,21 @@ import com.salesforce.dva.argus.service.TSDBService;
 import com.salesforce.dva.argus.service.UserService;
 import com.salesforce.dva.argus.service.alert.AlertDefinitionsCache;
 import com.salesforce.dva.argus.system.SystemConfiguration;
+import com.salesforce.dva.argus.util.zookeeper.ClientNode;
+import com.salesforce.dva.argus.util.zookeeper.ClientNode.ClientsResult;
 
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.slf4j.Logger;
 
+import java.io.IOException;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
@@ -95,9 +101,15 @@ public class DistributedDatabaseSchedulingService extends DefaultService impleme
 	private final AuditService _auditService;
 	private final MetricService _metricService;
 	private final TSDBService _tsdbService;
-	private final BlockingQueue<Alert> _alertsQueue = new LinkedBlockingQueue<Alert>();
+	private final BlockingQueue<ScheduledAlert> _alertsQueue = new LinkedBlockingQueue<ScheduledAlert>();
+	private final MinuteSpreadingWheel<ScheduledAlert> _spreadingWheel;
+	private final HistoryService _historyService;
+	private final AlertCostEstimator _costEstimator;
+	private final int _costBalancingBatchSize;
 	private ExecutorService _schedulerService;
 	private Thread _alertSchedulingThread;
+	private Thread _alertSpreadingThread;
+	private Thread _alertCostRefresher;
 	private SystemConfiguration _configuration;
 	private final DistributedSchedulingLockService _distributedSchedulingService;
 	private AlertDefinitionsCache _alertDefinitionsCache;
@@ -105,6 +117,7 @@ public class DistributedDatabaseSchedulingService extends DefaultService impleme
 	private AlertEvaluationKPIReporter _alertEvaluationKPIReporter;
 	private static final Integer ALERT_SCHEDULING_BATCH_SIZE = 100;
 	private static final Long SCHEDULING_REFRESH_INTERVAL_IN_MILLS = 60000L;
+	private static final long MEMBERSHIP_SNAPSHOT_LEAD_IN_MILLIS = 5000L;
 	private static final Random _randomNumGenerator = new Random(System.nanoTime());
 
 	//~ Constructors *********************************************************************************************************************************
@@ -116,22 +129,26 @@ public class DistributedDatabaseSchedulingService extends DefaultService impleme
 	 * @param  userService                     The user service instance to use. Cannot be null.
 	 * @param  serviceManagementRecordService  The serviceManagementRecordService instance to use. Cannot be null.
 	 * @param  auditService                    The audit service. Cannot be null.
+	 * @param  historyService                  The history service used to estimate alert evaluation costs. Cannot be null.
 	 * @param  config                          The system configuration used to configure the service.
 	 */
 	@Inject
 	DistributedDatabaseSchedulingService(AlertService alertService, UserService userService, TSDBService tsdbService, MetricService metricService,
-			ServiceManagementService serviceManagementRecordService, AuditService auditService, SystemConfiguration config, DistributedSchedulingLockService distributedSchedulingLockService) {
+			ServiceManagementService serviceManagementRecordService, AuditService auditService, HistoryService historyService, SystemConfiguration config,
+			DistributedSchedulingLockService distributedSchedulingLockService) {
 		super(config);
 		requireArgument(alertService != null, "Alert service cannot be null.");
 		requireArgument(userService != null, "User service cannot be null.");
 		requireArgument(serviceManagementRecordService != null, "Service management record service cannot be null.");
 		requireArgument(auditService != null, "Audit service cannot be null.");
+		requireArgument(historyService != null, "History service cannot be null.");
 		requireArgument(config != null, "System configuration cannot be null.");
 		_alertService = alertService;
 		_userService = userService;
 		_metricService = metricService;
 		_serviceManagementRecordService = serviceManagementRecordService;
 		_auditService = auditService;
+		_historyService = historyService;
 		_tsdbService = tsdbService;
 		_configuration = config;
 		_distributedSchedulingService=distributedSchedulingLockService;
@@ -152,6 +169,26 @@ public class DistributedDatabaseSchedulingService extends DefaultService impleme
 			_schedulerService.submit(new AlertScheduler());
 		}
 
+		if(Boolean.parseBoolean(_configuration.getValue(Property.SCHEDULER_SPREAD_ENABLED.getName(), Property.SCHEDULER_SPREAD_ENABLED.getDefaultValue()))) {
+			_spreadingWheel = new MinuteSpreadingWheel<ScheduledAlert>(System.currentTimeMillis());
+			_alertSpreadingThread = new AlertSpreadingThread();
+			_alertSpreadingThread.setDaemon(true);
+			_alertSpreadingThread.start();
+		} else {
+			_spreadingWheel = null;
+		}
+
+		if(Boolean.parseBoolean(_configuration.getValue(Property.SCHEDULER_COST_BALANCING_ENABLED.getName(), Property.SCHEDULER_COST_BALANCING_ENABLED.getDefaultValue()))) {
+			_costEstimator = new AlertCostEstimator();
+			_costBalancingBatchSize = Integer.parseInt(_configuration.getValue(Property.SCHEDULER_COST_BALANCING_BATCH_SIZE.getName(), Property.SCHEDULER_COST_BALANCING_BATCH_SIZE.getDefaultValue()));
+			_alertCostRefresher = new AlertCostRefresher();
+			_alertCostRefresher.setDaemon(true);
+			_alertCostRefresher.start();
+		} else {
+			_costEstimator = null;
+			_costBalancingBatchSize = 0;
+		}
+
 		_alertSchedulingKpiReporter = new AlertSchedulingKPIReporter();
 		_alertSchedulingKpiReporter.setDaemon(true);
 		_alertSchedulingKpiReporter.start();
@@ -170,7 +207,11 @@ public class DistributedDatabaseSchedulingService extends DefaultService impleme
 			_logger.info("Request to start alert scheduling aborted as it is already running.");
 		} else {
 			_logger.info("Starting alert scheduling thread.");
-			_alertSchedulingThread = new SchedulingThread("schedule-alerts", LockType.ALERT_SCHEDULING);
+			if(Boolean.parseBoolean(_configuration.getValue(Property.SCHEDULER_PARTITIONING_ENABLED.getName(), Property.SCHEDULER_PARTITIONING_ENABLED.getDefaultValue()))) {
+				_alertSchedulingThread = new PartitionedSchedulingThread("schedule-alert-partitions");
+			} else {
+				_alertSchedulingThread = new SchedulingThread("schedule-alerts", LockType.ALERT_SCHEDULING);
+			}
 			_alertSchedulingThread.start();
 			_logger.info("Alert scheduling thread started.");
 		}
@@ -179,6 +220,8 @@ public class DistributedDatabaseSchedulingService extends DefaultService impleme
 	@Override
 	public synchronized void dispose() {
 		stopAlertScheduling();
+		_stopThread(_alertSpreadingThread);
+		_stopThread(_alertCostRefresher);
 		super.dispose();
 		_serviceManagementRecordService.dispose();
 		_alertService.dispose();
@@ -204,6 +247,20 @@ public class DistributedDatabaseSchedulingService extends DefaultService impleme
 		}
 	}
 
+	private void _stopThread(Thread thread) {
+		if (thread != null && thread.isAlive()) {
+			_logger.info("Stopping {} thread.", thread.getName());
+			thread.interrupt();
+			try {
+				_logger.info("Waiting for {} thread to terminate.", thread.getName());
+				thread.join();
+			} catch (InterruptedException ex) {
+				_logger.warn("{} thread was interrupted while shutting down.", thread.getName());
+			}
+			_logger.info("{} thread stopped.", thread.getName());
+		}
+	}
+
 	@Override
 	@Transactional
 	public synchronized void enableScheduling() {
@@ -222,6 +279,36 @@ public class DistributedDatabaseSchedulingService extends DefaultService impleme
 		_logger.info("All scheduling globally disabled.");
 	}
 
+	/*
+	 * Queues the alerts due in a minute for enqueueing. When spreading is enabled, each alert is held back by a stable offset within the minute
+	 * derived from its id, and is enqueued with the start of the minute as its logical enqueue time. When cost balancing is enabled, the alerts
+	 * released together are ordered so that each evaluator batch gets a similar estimated cost: all alerts of the minute without spreading, the
+	 * alerts sharing an offset with it.
+	 */
+	private void _scheduleAlerts(List<Alert> alerts, long minuteStartTime) {
+		if(_spreadingWheel == null) {
+			for(Alert alert : _balance(alerts)) {
+				_alertsQueue.add(new ScheduledAlert(alert, null));
+			}
+			return;
+		}
+
+		Map<Long, List<Alert>> alertsByOffset = new HashMap<>();
+
+		for(Alert alert : alerts) {
+			alertsByOffset.computeIfAbsent(MinuteSpreadingWheel.getOffset(alert.getId().longValue()), offset -> new ArrayList<>()).add(alert);
+		}
+		for(Map.Entry<Long, List<Alert>> entry : alertsByOffset.entrySet()) {
+			for(Alert alert : _balance(entry.getValue())) {
+				_spreadingWheel.schedule(new ScheduledAlert(alert, minuteStartTime), minuteStartTime + entry.getKey());
+			}
+		}
+	}
+
+	private List<Alert> _balance(List<Alert> alerts) {
+		return _costEstimator == null ? alerts : _costEstimator.balance(alerts, _costBalancingBatchSize);
+	}
+
 	@Transactional
 	private boolean _isSchedulingServiceEnabled() {
 		synchronized (_serviceManagementRecordService) {
@@ -257,7 +344,23 @@ public class DistributedDatabaseSchedulingService extends DefaultService impleme
 	public enum Property {
 
 		SCHEDULER_THREADPOOL_COUNT("service.property.scheduling.quartz.threadPool.threadCount", "10"),
-		JOBS_BLOCK_SIZE("service.property.scheduling.jobsBlockSize", "100000");
+		JOBS_BLOCK_SIZE("service.property.scheduling.jobsBlockSize", "100000"),
+		/** Spreads the alerts due in a minute over that minute instead of enqueueing them all at its start. */
+		SCHEDULER_SPREAD_ENABLED("service.property.scheduling.spread.enabled", "false"),
+		/** Orders the alerts of a minute so that each evaluator batch has about the same estimated evaluation cost. */
+		SCHEDULER_COST_BALANCING_ENABLED("service.property.scheduling.cost.balancing.enabled", "false"),
+		/** The number of alerts an evaluator dequeues at once. */
+		SCHEDULER_COST_BALANCING_BATCH_SIZE("service.property.scheduling.cost.balancing.batchSize", "50"),
+		/** The maximum number of alert cost estimates refreshed from the job history every minute. */
+		SCHEDULER_COST_REFRESH_LIMIT("service.property.scheduling.cost.refresh.limit", "1000"),
+		/** Hashes alerts into partitions owned by the live schedulers instead of handing out blocks through the scheduling lock row. */
+		SCHEDULER_PARTITIONING_ENABLED("service.property.scheduling.partitioning.enabled", "false"),
+		/** The number of alert partitions. Must be the same on every scheduler. */
+		SCHEDULER_PARTITION_COUNT("service.property.scheduling.partitioning.partitionCount", "256"),
+		/** The zookeeper cluster used to track the live schedulers. */
+		SCHEDULER_PARTITION_ZOOKEEPER_CONNECT("service.property.scheduling.partitioning.zookeeper.connect", "localhost:2185"),
+		/** The zookeeper node under which every live scheduler registers. */
+		SCHEDULER_PARTITION_MEMBERSHIP_PATH("service.property.scheduling.partitioning.zookeeper.membershipPath", "/alertSchedulers");
 
 		private final String _name;
 		private final String _defaultValue;
@@ -344,7 +447,7 @@ public class DistributedDatabaseSchedulingService extends DefaultService impleme
 							// schedule all the jobs by putting them in scheduling queue
 							_logger.info("Scheduling enabled alerts for the minute starting at {}", startTimeForCurrMinute);
 							_logger.info("Adding alerts between {} and {} to scheduler",  jobsFromIndex, jobsToIndex);
-							_alertsQueue.addAll(enabledAlerts.subList(jobsFromIndex, jobsToIndex));
+							_scheduleAlerts(enabledAlerts.subList(jobsFromIndex, jobsToIndex), startTimeForCurrMinute);
 
 							distributedSchedulingLock = _distributedSchedulingService.updateNGetDistributedScheduleByType(LockType.ALERT_SCHEDULING,jobsBlockSize,SCHEDULING_REFRESH_INTERVAL_IN_MILLS);
 							jobsFromIndex = distributedSchedulingLock.getCurrentIndex() - jobsBlockSize; 
@@ -364,20 +467,164 @@ public class DistributedDatabaseSchedulingService extends DefaultService impleme
 		}
 	}
 
+	/**
+	 * Partitioned job scheduler. Every scheduler registers an ephemeral node in zookeeper, reads the live schedulers shortly before each minute
+	 * and schedules only the alerts of the partitions it owns for that minute, so a scheduler joining or leaving is picked up within a minute.
+	 *
+	 * @author  agent (agent@local)
+	 */
+	private class PartitionedSchedulingThread extends Thread {
+
+		private final AlertPartitioner partitioner;
+		private ClientNode clientNode;
+
+		/**
+		 * Creates a new PartitionedSchedulingThread object.
+		 *
+		 * @param  name  The name of the thread.
+		 */
+		public PartitionedSchedulingThread(String name) {
+			super(name);
+			this.partitioner = new AlertPartitioner(Integer.parseInt(_configuration.getValue(Property.SCHEDULER_PARTITION_COUNT.getName(),
+					Property.SCHEDULER_PARTITION_COUNT.getDefaultValue())));
+		}
+
+		@Override
+		public void run() {
+			if (!_isSchedulingServiceEnabled()) {
+				return;
+			}
+			try {
+				// wait for the alert definitions cache to be loaded
+				while(!isInterrupted() && !_alertDefinitionsCache.isAlertsCacheInitialized()) {
+					_logger.info("Waiting for alerts cache to be initialized. Sleeping for 2 seconds..");
+					_sleep(2*1000);
+				}
+				// register ahead of the first minute so that the other schedulers already count this one
+				_register();
+
+				while (!isInterrupted()) {
+					long now = System.currentTimeMillis();
+					long minuteStartTime = 60*1000*((now + MEMBERSHIP_SNAPSHOT_LEAD_IN_MILLIS)/(60*1000)) + 60*1000;
+
+					// every scheduler reads the membership at the same offset before the minute, well clear of the boundary
+					_sleep(Math.max(0, minuteStartTime - MEMBERSHIP_SNAPSHOT_LEAD_IN_MILLIS - now));
+					if (isInterrupted()) {
+						break;
+					}
+
+					ClientsResult liveSchedulers = _readMembership();
+
+					_sleep(Math.max(0, minuteStartTime - System.currentTimeMillis()));
+					if (isInterrupted() || liveSchedulers == null) {
+						continue;
+					}
+
+					List<Alert> alerts = partitioner.select(_alertDefinitionsCache.getEnabledAlertsForMinute(minuteStartTime),
+							liveSchedulers.getNodePosition(), liveSchedulers.getNumberOfPeers());
+
+					_logger.info("Scheduling {} alerts for the minute starting at {} as scheduler {} of {}", alerts.size(), minuteStartTime,
+							liveSchedulers.getNodePosition(), liveSchedulers.getNumberOfPeers());
+					try {
+						_scheduleAlerts(alerts, minuteStartTime);
+					} catch (RuntimeException ex) {
+						_logger.error("Failed to schedule alert partitions for the minute starting at {} - {}", minuteStartTime,
+								ExceptionUtils.getFullStackTrace(ex));
+					}
+				}
+			} finally {
+				// leaving the membership hands this scheduler's partitions to the others at their next snapshot
+				_closeClientNode();
+			}
+		}
+
+		/*
+		 * Reads the live schedulers for the coming minute. A scheduler that is not registered, or whose session failed, registers again right
+		 * away and sits the minute out, since the other schedulers did not count it in their snapshot and cover its partitions.
+		 */
+		private ClientsResult _readMembership() {
+			if (clientNode != null) {
+				try {
+					ClientsResult liveSchedulers = clientNode.calculateAllNodesResult();
+
+					if (liveSchedulers.getNodePosition() >= 0) {
+						return liveSchedulers;
+					}
+					_logger.warn("This scheduler is no longer registered. Registering again.");
+				} catch (IllegalStateException ex) {
+					_logger.error("Failed to read the scheduler membership from zookeeper. Registering again - {}", ex.getMessage());
+				}
+			}
+			_register();
+			return null;
+		}
+
+		private void _register() {
+			_closeClientNode();
+			try {
+				clientNode = new ClientNode(_configuration.getValue(Property.SCHEDULER_PARTITION_ZOOKEEPER_CONNECT.getName(),
+						Property.SCHEDULER_PARTITION_ZOOKEEPER_CONNECT.getDefaultValue()),
+						_configuration.getValue(Property.SCHEDULER_PARTITION_MEMBERSHIP_PATH.getName(),
+								Property.SCHEDULER_PARTITION_MEMBERSHIP_PATH.getDefaultValue()));
+				clientNode.run();
+			} catch (IOException | IllegalStateException ex) {
+				_logger.error("Failed to register with zookeeper. Retrying before the next minute - {}", ex.getMessage());
+				_closeClientNode();
+			}
+		}
+
+		private void _closeClientNode() {
+			if (clientNode != null) {
+				clientNode.close();
+				clientNode = null;
+			}
+		}
+
+		private void _sleep(long millis) {
+			try {
+				sleep(millis);
+			} catch (InterruptedException ex) {
+				_logger.warn("Scheduling was interrupted.");
+				interrupt();
+			}
+		}
+	}
+
+	/**
+	 * An alert ready to be enqueued, with its logical enqueue time or null to enqueue it at the current time.
+	 */
+	static class ScheduledAlert {
+
+		private final Alert alert;
+		private final Long alertEnqueueTime;
+
+		ScheduledAlert(Alert alert, Long alertEnqueueTime) {
+			this.alert = alert;
+			this.alertEnqueueTime = alertEnqueueTime;
+		}
+	}
+
 	class AlertScheduler implements Runnable{
 		@Override
 		public void run() {
 			List<Alert> alertsBatch = new ArrayList<Alert>();
+			Long batchEnqueueTime = null;
 			while(true) {
 				try {
-					Alert alert = _alertsQueue.poll(10, TimeUnit.MILLISECONDS);
-					if(alert!=null) {
-						alertsBatch.add(alert);
+					ScheduledAlert scheduledAlert = _alertsQueue.poll(10, TimeUnit.MILLISECONDS);
+					// a batch is enqueued with a single logical enqueue time
+					if(scheduledAlert!=null && alertsBatch.size()>0 && !Objects.equals(batchEnqueueTime, scheduledAlert.alertEnqueueTime)) {
+						_enqueueAlerts(alertsBatch, batchEnqueueTime);
+						alertsBatch = new ArrayList<Alert>();
+					}
+					if(scheduledAlert!=null) {
+						alertsBatch.add(scheduledAlert.alert);
+						batchEnqueueTime = scheduledAlert.alertEnqueueTime;
 					}
-					if((alert==null && alertsBatch.size()>0) || alertsBatch.size()==ALERT_SCHEDULING_BATCH_SIZE) {
-						_alertService.enqueueAlerts(alertsBatch);
+					if((scheduledAlert==null && alertsBatch.size()>0) || alertsBatch.size()==ALERT_SCHEDULING_BATCH_SIZE) {
+						_enqueueAlerts(alertsBatch, batchEnqueueTime);
 						alertsBatch = new ArrayList<Alert>();
-						if(alert==null) {
+						if(scheduledAlert==null) {
 							_logger.info("Alerts queue is empty");
 						}
 					}
@@ -386,6 +633,79 @@ public class DistributedDatabaseSchedulingService extends DefaultService impleme
 				}
 			}
 		}
+
+		private void _enqueueAlerts(List<Alert> alerts, Long alertEnqueueTime) {
+			if(alertEnqueueTime == null) {
+				_alertService.enqueueAlerts(alerts);
+			} else {
+				_alertService.enqueueAlerts(alerts, alertEnqueueTime);
+			}
+		}
+	}
+
+	/**
+	 * Moves the alerts released by the spreading wheel to the scheduling queue, once per second.
+	 */
+	class AlertSpreadingThread extends Thread {
+
+		AlertSpreadingThread() {
+			super("spread-alerts");
+		}
+
+		@Override
+		public void run() {
+			while (!isInterrupted()) {
+				try {
+					long now = System.currentTimeMillis();
+					sleep(MinuteSpreadingWheel.SLOT_MILLIS - now % MinuteSpreadingWheel.SLOT_MILLIS);
+					_alertsQueue.addAll(_spreadingWheel.advance(System.currentTimeMillis()));
+				} catch (InterruptedException e) {
+					_logger.warn("Alert spreading was interrupted.");
+					interrupt();
+				} catch (Exception e) {
+					_logger.error("Exception occured when spreading alerts - "+ ExceptionUtils.getFullStackTrace(e));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Refreshes the stalest alert cost estimates from the job history once a minute.
+	 */
+	class AlertCostRefresher extends Thread {
+
+		AlertCostRefresher() {
+			super("refresh-alert-costs");
+		}
+
+		@Override
+		public void run() {
+			int limit = Integer.parseInt(_configuration.getValue(Property.SCHEDULER_COST_REFRESH_LIMIT.getName(), Property.SCHEDULER_COST_REFRESH_LIMIT.getDefaultValue()));
+
+			while (!isInterrupted()) {
+				try {
+					sleep(SCHEDULING_REFRESH_INTERVAL_IN_MILLS);
+					if(!_alertDefinitionsCache.isAlertsCacheInitialized()) {
+						continue;
+					}
+					for(BigInteger alertId : _costEstimator.getStalest(_alertDefinitionsCache.getAlertsMapById().keySet(), limit)) {
+						if(isInterrupted()) {
+							break;
+						}
+						try {
+							_costEstimator.update(alertId, _historyService.findByJob(alertId, AlertCostEstimator.HISTORY_SAMPLES), System.currentTimeMillis());
+						} catch (Exception e) {
+							_logger.warn("Failed to refresh the cost estimate of alert {}: {}", alertId, e.getMessage());
+						}
+					}
+				} catch (InterruptedException e) {
+					_logger.warn("Alert cost refresh was interrupted.");
+					interrupt();
+				} catch (Exception e) {
+					_logger.error("Exception occured when refreshing alert costs - "+ ExceptionUtils.getFullStackTrace(e));
+				}
+			}
+		}
 	}
 
 	class AlertSchedulingKPIReporter extends Thread{
@@ -401,7 +721,7 @@ public class DistributedDatabaseSchedulingService extends DefaultService impleme
 						Metric schedulingQueueSizeMetric = new Metric(MonitorService.Counter.ALERTS_SCHEDULING_QUEUE_SIZE.getScope(), MonitorService.Counter.ALERTS_SCHEDULING_QUEUE_SIZE.getMetric());
 						schedulingQueueSizeMetric.setTag("host",SystemConfiguration.getHostname());
 						Map<Long, Double> datapoints = new HashMap<>();
-						datapoints.put(nextMinuteStartTime, Double.valueOf(_alertsQueue.size()));
+						datapoints.put(nextMinuteStartTime, Double.valueOf(_alertsQueue.size() + (_spreadingWheel == null ? 0 : _spreadingWheel.size())));
 						schedulingQueueSizeMetric.addDatapoints(datapoints);
 
 						Metric enabledAlertsMetric = new Metric(MonitorService.Counter.ALERTS_ENABLED.getScope(), MonitorService.Counter.ALERTS_ENABLED.getMetric());
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.service.schedule;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static com.salesforce.dva.argus.system.SystemAssert.requireArgument;
+
+/**
+ * A timing wheel with one slot per second of the minute. Items are added with the time they are due and released by {@link #advance(long)} once
+ * that time has passed, so that work scheduled for a minute can be spread over it instead of being released all at once. Items whose due time
+ * has already passed are released on the next advance. Items due more than a minute ahead stay in their slot for as many turns as needed.
+ *
+ * @param   <T>  The type of the scheduled items.
+ *
+ * @author  agent (agent@local)
+ */
+class MinuteSpreadingWheel<T> {
+
+	//~ Static fields/initializers *******************************************************************************************************************
+
+	static final int SLOTS = 60;
+	static final long SLOT_MILLIS = 1000L;
+
+	//~ Instance fields ******************************************************************************************************************************
+
+	private final List<Deque<Entry<T>>> slots = new ArrayList<>(SLOTS);
+	private final Deque<T> overdue = new ArrayDeque<>();
+	private long lastAdvancedSlot;
+	private int size;
+
+	//~ Constructors *********************************************************************************************************************************
+
+	/**
+	 * Creates a new wheel.
+	 *
+	 * @param  now  The current time in milliseconds. Items due at or before it are overdue.
+	 */
+	MinuteSpreadingWheel(long now) {
+		for (int i = 0; i < SLOTS; i++) {
+			slots.add(new ArrayDeque<Entry<T>>());
+		}
+		lastAdvancedSlot = now / SLOT_MILLIS;
+	}
+
+	//~ Methods **************************************************************************************************************************************
+
+	/**
+	 * Returns the stable offset within a minute for an item, derived from its hash.
+	 *
+	 * @param   hash  The hash of the item, for example of the alert id.
+	 *
+	 * @return  The offset in milliseconds, a multiple of a second less than a minute.
+	 */
+	static long getOffset(long hash) {
+		hash *= 0x9E3779B97F4A7C15L;
+		return Math.floorMod(hash ^ (hash >>> 32), SLOTS) * SLOT_MILLIS;
+	}
+
+	/**
+	 * Schedules an item.
+	 *
+	 * @param  item     The item to schedule. Cannot be null.
+	 * @param  dueTime  The time in milliseconds at which the item is released.
+	 */
+	synchronized void schedule(T item, long dueTime) {
+		requireArgument(item != null, "Item cannot be null.");
+
+		long slot = dueTime / SLOT_MILLIS;
+
+		if (slot <= lastAdvancedSlot) {
+			overdue.add(item);
+		} else {
+			slots.get((int) (slot % SLOTS)).add(new Entry<>(item, slot));
+		}
+		size++;
+	}
+
+	/**
+	 * Releases the items due at or before a time, in the order of their due time.
+	 *
+	 * @param   now  The current time in milliseconds.
+	 *
+	 * @return  The released items. Never null.
+	 */
+	synchronized List<T> advance(long now) {
+		List<T> released = new ArrayList<>(overdue);
+		long nowSlot = now / SLOT_MILLIS;
+
+		overdue.clear();
+		for (long slot = Math.max(lastAdvancedSlot + 1, nowSlot - SLOTS + 1); slot <= nowSlot; slot++) {
+			Deque<Entry<T>> entries = slots.get((int) (slot % SLOTS));
+
+			for (int i = entries.size(); i > 0; i--) {
+				Entry<T> entry = entries.poll();
+
+				if (entry.slot <= nowSlot) {
+					released.add(entry.item);
+				} else {
+					entries.add(entry);
+				}
+			}
+		}
+		lastAdvancedSlot = Math.max(lastAdvancedSlot, nowSlot);
+		size -= released.size();
+		return released;
+	}
+
+	/**
+	 * Returns the number of items not released yet.
+	 *
+	 * @return  The number of scheduled items.
+	 */
+	synchronized int size() {
+		return size;
+	}
+
+	//~ Inner Classes ********************************************************************************************************************************
+
+	private static class Entry<T> {
+
+		private final T item;
+		private final long slot;
+
+		Entry(T item, long slot) {
+			this.item = item;
+			this.slot = slot;
+		}
+	}
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -4,15 +4,23 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -63,6 +71,23 @@ public abstract class AbstractSchemaService extends DefaultService implements Sc
 	private int bloomFilterFlushHourToStartAt;
 	private ScheduledExecutorService scheduledExecutorService;
 
+	/* Write-behind stage ahead of implementationSpecificPut. Keys are claimed in the in-flight sets before they are written, so that
+	 * a record which is pending or being written is not sent again by a later batch while the bloom filters do not have it yet.
+	 * Claims are released once the write completes, successfully or not, so a failed write is retried by the next batch that sees it.
+	 */
+	private final Set<String> _inFlightMetricKeys = ConcurrentHashMap.newKeySet();
+	private final Set<String> _inFlightScopes = ConcurrentHashMap.newKeySet();
+	private final Set<Pair<String, String>> _inFlightScopesAndMetrics = ConcurrentHashMap.newKeySet();
+	private final Queue<Metric> _pendingMetrics = new ConcurrentLinkedQueue<>();
+	private final Queue<String> _pendingMetricKeys = new ConcurrentLinkedQueue<>();
+	private final Queue<String> _pendingScopes = new ConcurrentLinkedQueue<>();
+	private final Queue<Pair<String, String>> _pendingScopesAndMetrics = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger _pendingCount = new AtomicInteger();
+	private final Object _flushLock = new Object();
+	private final long _writeBehindWindowMillis;
+	private final int _writeBehindMaxBatchSize;
+	private ScheduledExecutorService _writeBehindExecutorService;
+
 	protected AbstractSchemaService(SystemConfiguration config) {
 		super(config);
 
@@ -96,6 +121,16 @@ public abstract class AbstractSchemaService extends DefaultService implements Sc
 		bloomFilterFlushHourToStartAt = Integer.parseInt(config.getValue(Property.BLOOM_FILTER_FLUSH_HOUR_TO_START_AT.getName(),
 				Property.BLOOM_FILTER_FLUSH_HOUR_TO_START_AT.getDefaultValue()));
 		createScheduledExecutorService(bloomFilterFlushHourToStartAt);
+
+		_writeBehindWindowMillis = Long.parseLong(config.getValue(Property.WRITE_BEHIND_WINDOW_MS.getName(),
+				Property.WRITE_BEHIND_WINDOW_MS.getDefaultValue()));
+		_writeBehindMaxBatchSize = Integer.parseInt(config.getValue(Property.WRITE_BEHIND_MAX_BATCH_SIZE.getName(),
+				Property.WRITE_BEHIND_MAX_BATCH_SIZE.getDefaultValue()));
+		if (_writeBehindWindowMillis > 0) {
+			_writeBehindExecutorService = Executors.newSingleThreadScheduledExecutor();
+			_writeBehindExecutorService.scheduleWithFixedDelay(new WriteBehindFlushThread(), _writeBehindWindowMillis, _writeBehindWindowMillis,
+					TimeUnit.MILLISECONDS);
+		}
 	}
 
 	@Override
@@ -110,9 +145,10 @@ public abstract class AbstractSchemaService extends DefaultService implements Sc
 		requireNotDisposed();
 		SystemAssert.requireArgument(metrics != null, "Metric list cannot be null.");
 
-		// Create a list of metricsToPut that do not exist on the BLOOMFILTER and then call implementation
+		// Create a list of metricsToPut that do not exist on the BLOOMFILTER and are not already pending, and then call implementation
 		// specific put with only those subset of metricsToPut.
 		List<Metric> metricsToPut = new ArrayList<>(metrics.size());
+		List<String> metricKeysClaimed = new ArrayList<>(metrics.size());
 		Set<String> scopesToPut = new HashSet<>(metrics.size());
 
 		Set<Pair<String, String>> scopesAndMetricsNamesToPut = new HashSet<>(metrics.size());
@@ -122,8 +158,8 @@ public abstract class AbstractSchemaService extends DefaultService implements Sc
 			if(metric.getTags().isEmpty()) {
 				// if metric does not have tags
 				String key = constructKey(metric, null);
-				boolean found = bloomFilter.mightContain(key);
-				if(!found) {
+				if(_claim(key)) {
+					metricKeysClaimed.add(key);
 					metricsToPut.add(metric);
 				}
 			} else {
@@ -131,8 +167,8 @@ public abstract class AbstractSchemaService extends DefaultService implements Sc
 				boolean newTags = false;
 				for(Entry<String, String> tagEntry : metric.getTags().entrySet()) {
 					String key = constructKey(metric, tagEntry);
-					boolean found = bloomFilter.mightContain(key);
-					if(!found) {
+					if(_claim(key)) {
+						metricKeysClaimed.add(key);
 						newTags = true;
 					}
 				}
@@ -148,19 +184,137 @@ public abstract class AbstractSchemaService extends DefaultService implements Sc
 			// Check scope only bloom filter
 			String key = constructScopeOnlyKey(scopeName);
 			boolean found = bloomFilterScopeOnly.mightContain(key);
-			if(!found) {
+			if(!found && _inFlightScopes.add(scopeName)) {
 				scopesToPut.add(scopeName);
 			}
 
 			// Check scope and metric only bloom filter
 			key = constructScopeAndMetricOnlyKey(scopeName, metricName);
 			found = bloomFilterScopeAndMetricOnly.mightContain(key);
-			if(!found) {
-				scopesAndMetricsNamesToPut.add(Pair.of(scopeName, metricName));
+			Pair<String, String> scopeAndMetric = Pair.of(scopeName, metricName);
+			if(!found && _inFlightScopesAndMetrics.add(scopeAndMetric)) {
+				scopesAndMetricsNamesToPut.add(scopeAndMetric);
+			}
+		}
+
+		if (_writeBehindWindowMillis <= 0) {
+			try {
+				implementationSpecificPut(metricsToPut, scopesToPut, scopesAndMetricsNamesToPut);
+			} finally {
+				_release(metricKeysClaimed, scopesToPut, scopesAndMetricsNamesToPut);
+			}
+			return;
+		}
+
+		_pendingMetrics.addAll(metricsToPut);
+		_pendingMetricKeys.addAll(metricKeysClaimed);
+		_pendingScopes.addAll(scopesToPut);
+		_pendingScopesAndMetrics.addAll(scopesAndMetricsNamesToPut);
+		if (_pendingCount.addAndGet(metricKeysClaimed.size() + scopesToPut.size() + scopesAndMetricsNamesToPut.size()) >= _writeBehindMaxBatchSize) {
+			_flushPendingWrites();
+		}
+	}
+
+	/* Claims a metric schema key for this batch. Returns false if the key is in the bloom filter or is already pending. */
+	private boolean _claim(String key) {
+		return !bloomFilter.mightContain(key) && _inFlightMetricKeys.add(key);
+	}
+
+	private void _release(Iterable<String> metricKeys, Iterable<String> scopes, Iterable<Pair<String, String>> scopesAndMetrics) {
+		for (String key : metricKeys) {
+			_inFlightMetricKeys.remove(key);
+		}
+		for (String scope : scopes) {
+			_inFlightScopes.remove(scope);
+		}
+		for (Pair<String, String> scopeAndMetric : scopesAndMetrics) {
+			_inFlightScopesAndMetrics.remove(scopeAndMetric);
+		}
+	}
+
+	/**
+	 * Writes all records pending in the write-behind stage as a single de-duplicated bulk. The claims on the written records are released
+	 * whether or not the write succeeds, so that records which failed to be written are retried by the next batch that contains them.
+	 */
+	protected void _flushPendingWrites() {
+		synchronized (_flushLock) {
+			List<Metric> metrics = new ArrayList<>();
+			List<String> metricKeys = new ArrayList<>();
+			Set<String> scopes = new LinkedHashSet<>();
+			Set<Pair<String, String>> scopesAndMetrics = new LinkedHashSet<>();
+
+			_drain(_pendingMetrics, metrics);
+			_drain(_pendingMetricKeys, metricKeys);
+			_drain(_pendingScopes, scopes);
+			_drain(_pendingScopesAndMetrics, scopesAndMetrics);
+			_pendingCount.addAndGet(-(metricKeys.size() + scopes.size() + scopesAndMetrics.size()));
+
+			if (metrics.isEmpty() && scopes.isEmpty() && scopesAndMetrics.isEmpty()) {
+				_release(metricKeys, scopes, scopesAndMetrics);
+				return;
+			}
+			try {
+				implementationSpecificPut(_dedupe(metrics), scopes, scopesAndMetrics);
+			} catch (Exception ex) {
+				_logger.warn("Failed to write {} pending metric schema records. They will be retried by subsequent batches.", metrics.size(), ex);
+			} finally {
+				_release(metricKeys, scopes, scopesAndMetrics);
+			}
+		}
+	}
+
+	private static <T> void _drain(Queue<T> queue, Collection<T> target) {
+		for (T item = queue.poll(); item != null; item = queue.poll()) {
+			target.add(item);
+		}
+	}
+
+	/*
+	 * Collapses metrics so that every schema record (scope, metric, namespace, tag key, tag value) is carried by exactly one metric. The
+	 * tagless record of an identity gets a carrier of its own, since a carrier with tags only yields its tagged records.
+	 */
+	static List<Metric> _dedupe(List<Metric> metrics) {
+		Map<String, List<Metric>> metricsByIdentity = new HashMap<>();
+		Map<String, Integer> tagKeyOccurrences = new HashMap<>();
+		Set<String> seenRecords = new HashSet<>();
+		List<Metric> result = new ArrayList<>();
+
+		for (Metric metric : metrics) {
+			String identity = metric.getScope() + '\0' + metric.getMetric() + '\0' + metric.getNamespace();
+
+			if (metric.getTags().isEmpty()) {
+				if (seenRecords.add(identity)) {
+					_newCarrier(metric, result);
+				}
+				continue;
+			}
+
+			List<Metric> bucket = metricsByIdentity.computeIfAbsent(identity, k -> new ArrayList<>());
+
+			for (Entry<String, String> tagEntry : metric.getTags().entrySet()) {
+				if (seenRecords.add(identity + '\0' + tagEntry.getKey() + '\0' + tagEntry.getValue())) {
+					int index = tagKeyOccurrences.merge(identity + '\0' + tagEntry.getKey(), 1, Integer::sum) - 1;
+
+					_metricAt(bucket, index, metric, result).setTag(tagEntry.getKey(), tagEntry.getValue());
+				}
 			}
 		}
+		return result;
+	}
+
+	private static Metric _metricAt(List<Metric> bucket, int index, Metric template, List<Metric> result) {
+		while (bucket.size() <= index) {
+			bucket.add(_newCarrier(template, result));
+		}
+		return bucket.get(index);
+	}
 
-		implementationSpecificPut(metricsToPut, scopesToPut, scopesAndMetricsNamesToPut);
+	private static Metric _newCarrier(Metric template, List<Metric> result) {
+		Metric metric = new Metric(template.getScope(), template.getMetric());
+
+		metric.setNamespace(template.getNamespace());
+		result.add(metric);
+		return metric;
 	}
 
 	/*
@@ -176,6 +330,16 @@ public abstract class AbstractSchemaService extends DefaultService implements Sc
 	@Override
 	public void dispose() {
 		requireNotDisposed();
+		if (_writeBehindExecutorService != null) {
+			_writeBehindExecutorService.shutdown();
+			try {
+				_writeBehindExecutorService.awaitTermination(10, TimeUnit.SECONDS);
+			} catch (InterruptedException ex) {
+				_logger.warn("Shutdown of write-behind executor service was interrupted.");
+				Thread.currentThread().interrupt();
+			}
+			_flushPendingWrites();
+		}
 		if (_bloomFilterMonitorThread != null && _bloomFilterMonitorThread.isAlive()) {
 			_logger.info("Stopping bloom filter monitor thread.");
 			_bloomFilterMonitorThread.interrupt();
@@ -319,7 +483,14 @@ public abstract class AbstractSchemaService extends DefaultService implements Sc
 		/*
 		 *  Have a different configured flush start hour for different machines to prevent thundering herd problem.
 		*/
-		BLOOM_FILTER_FLUSH_HOUR_TO_START_AT("service.property.schema.bloomfilter.flush.hour.to.start.at","2");
+		BLOOM_FILTER_FLUSH_HOUR_TO_START_AT("service.property.schema.bloomfilter.flush.hour.to.start.at","2"),
+
+		/*
+		 * Window over which new schema records are aggregated and de-duplicated before being written. 0 writes every batch as it arrives.
+		 * A window is flushed early once it holds the max batch size of records.
+		*/
+		WRITE_BEHIND_WINDOW_MS("service.property.schema.write.behind.window.ms", "0"),
+		WRITE_BEHIND_MAX_BATCH_SIZE("service.property.schema.write.behind.max.batch.size", "50000");
 
 		private final String _name;
 		private final String _defaultValue;
@@ -392,6 +563,17 @@ public abstract class AbstractSchemaService extends DefaultService implements Sc
 		}
 	}
 
+	private class WriteBehindFlushThread implements Runnable {
+		@Override
+		public void run() {
+			try {
+				_flushPendingWrites();
+			} catch (Exception ex) {
+				_logger.warn("Exception occurred while flushing pending schema records.", ex);
+			}
+		}
+	}
+
 	private class BloomFilterFlushThread implements Runnable {
 		@Override
 		public void run() {
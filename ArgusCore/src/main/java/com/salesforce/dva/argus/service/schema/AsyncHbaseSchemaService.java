@@ -66,6 +66,7 @@ import org.slf4j.LoggerFactory;
 import java.nio.charset.Charset;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -73,6 +74,7 @@ import java.util.Properties;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Function;
 
 /**
  * Implementation of the schema service using Asynchbase.
@@ -94,6 +96,7 @@ public class AsyncHbaseSchemaService extends AbstractSchemaService {
     
     private static final long TIMEOUT_MS = 30 * 1000;
     private static final long SCAN_TIMEOUT_MS = 2 * 60 * 1000; 
+    private static final int MAX_SCAN_RANGES = 64;
 
     //~ Instance fields ******************************************************************************************************************************
 
@@ -104,7 +107,7 @@ public class AsyncHbaseSchemaService extends AbstractSchemaService {
     //~ Constructors *********************************************************************************************************************************
 
     @Inject
-    private AsyncHbaseSchemaService(SystemConfiguration systemConfig, AsyncHBaseClientFactory factory, MonitorService monitorService) {
+    AsyncHbaseSchemaService(SystemConfiguration systemConfig, AsyncHBaseClientFactory factory, MonitorService monitorService) {
     	super(systemConfig);
         
     	_monitorService = monitorService;
@@ -214,103 +217,26 @@ public class AsyncHbaseSchemaService extends AbstractSchemaService {
         requireNotDisposed();
         SystemAssert.requireArgument(query != null, "Metric Schema Record query cannot be null.");
 
-        final List<MetricSchemaRecord> records = new ArrayList<MetricSchemaRecord>(query.getLimit());
-        final ScanMetadata metadata = _constructScanMetadata(query);
-        String namespace = SchemaService.convertToRegex(query.getNamespace());
-        String scope = SchemaService.convertToRegex(query.getScope());
-        String metric = SchemaService.convertToRegex(query.getMetric());
-        String tagKey = SchemaService.convertToRegex(query.getTagKey());
-        String tagValue = SchemaService.convertToRegex(query.getTagValue());
+        final String tableName = _chooseTable(query);
         MetricSchemaRecord scanFrom = query.getScanFrom();
+        String scanStartRow = scanFrom == null ? null : _plusOneNConstructRowKey(scanFrom, tableName, null);
+        List<ScanRange> ranges = _planScanRanges(query, tableName, scanStartRow);
         
-        String rowKeyRegex = "^" + _constructRowKey(namespace, scope, metric, tagKey, tagValue, metadata.tableName) + "$";
-
-        String scanStartRow = scanFrom == null ? Bytes.toString(metadata.startRow)
-        									   : _plusOneNConstructRowKey(scanFrom, metadata.tableName, null);
-        
-        _logger.info("Using table: " + metadata.tableName);
-        _logger.info("Rowkey: " + rowKeyRegex);
-        
-        _logger.debug("Scan startRow: " + scanStartRow);
-        _logger.debug("Scan stopRow: " + metadata.stopRow.toString());
-        
-        List<ScanFilter> filters = new ArrayList<ScanFilter>();
-
-        filters.add(new RowFilter(CompareOp.EQUAL, new RegexStringComparator(rowKeyRegex)));
-        filters.add(new KeyOnlyFilter());
-        filters.add(new FirstKeyOnlyFilter());
-
-        FilterList fl = new FilterList(filters, FilterList.Operator.MUST_PASS_ALL);
-        final Scanner scanner = _client.newScanner(metadata.tableName);
+        _logger.info("Using table: " + tableName);
+        _logger.info("Scan ranges: " + ranges);
 
-        scanner.setStartKey(scanStartRow.getBytes());
-        scanner.setStopKey(metadata.stopRow);
-        scanner.setFilter(fl);
-        scanner.setMaxNumRows(Math.min(query.getLimit(), 10000));
+        List<List<String>> rowKeysPerRange = _scanRanges(tableName, ranges, query.getLimit(), null, query);
+        List<MetricSchemaRecord> records = new ArrayList<MetricSchemaRecord>(query.getLimit());
 
-        final Deferred<List<MetricSchemaRecord>> results = new Deferred<List<MetricSchemaRecord>>();
-
-        /**
-         * Scans HBASE rows.
-         *
-         * @author  Bhinav Sura (bhinav.sura@salesforce.com)
-         */
-        final class ScannerCB implements Callback<Object, ArrayList<ArrayList<KeyValue>>> {
-
-
-            /**
-             * Scans rows.
-             *
-             * @return  The list of metric schema records.
-             */
-            public Object scan() {
-            	_logger.trace("Getting next set of rows.");
-                return scanner.nextRows().addCallback(this);
-            }
-
-            @Override
-            public Object call(ArrayList<ArrayList<KeyValue>> rows) throws Exception {
-            	_logger.trace("Inside nextRows() callback..");
-                try {
-                    if (rows == null) {
-                        results.callback(records);
-                        scanner.close();
-                        return null;
-                    }
-                    
-                    _logger.debug("Retrieved " + rows.size() + " rows.");
-                   
-                    for(ArrayList<KeyValue> row:rows){
-                    	byte[] rowKey=row.get(0).key();
-                    	MetricSchemaRecord record = _constructMetricSchemaRecord(Bytes.toString(rowKey), metadata.tableName);
-                    	records.add(record);
-                        if (records.size() == query.getLimit()) {
-                            results.callback(records);
-                            scanner.close();
-                            return null;
-                        }
-                    }
-                    return scan();
-                } catch (Exception e) {
-                    scanner.close();
-                    return null;
+        for (List<String> rowKeys : rowKeysPerRange) {
+            for (String rowKey : rowKeys) {
+                records.add(_constructMetricSchemaRecord(rowKey, tableName));
+                if (records.size() == query.getLimit()) {
+                    return records;
                 }
             }
         }
-        
-        new ScannerCB().scan();
-        
-        try {
-			return results.join(SCAN_TIMEOUT_MS);
-		} catch (InterruptedException e) {
-			throw new SystemException("Interrupted while waiting to obtain results for query: " + query, e);
-		} catch (TimeoutException e) {
-			_logger.warn("Timed out while waiting to obtain results for query: {}. Will return an empty list.", query);
-			return Collections.emptyList();
-		} catch (Exception e) {
-			throw new SystemException("Exception occurred in getting results for query: " + query, e);
-		}
-
+        return records;
     }
     
     /**
@@ -476,88 +402,65 @@ public class AsyncHbaseSchemaService extends AbstractSchemaService {
         	return _getUniqueFastScan(query, type);
         }
         
-        final Set<String> records = new TreeSet<String>();
-        final ScanMetadata metadata = _constructScanMetadata(query);
-        String namespace = SchemaService.convertToRegex(query.getNamespace());
-        String scope = SchemaService.convertToRegex(query.getScope());
-        String metric = SchemaService.convertToRegex(query.getMetric());
-        String tagKey = SchemaService.convertToRegex(query.getTagKey());
-        String tagValue = SchemaService.convertToRegex(query.getTagValue());
+        final String tableName = _chooseTable(query);
         MetricSchemaRecord scanFrom = query.getScanFrom();
-        
-        String rowKeyRegex = "^" + _constructRowKey(namespace, scope, metric, tagKey, tagValue, metadata.tableName) + "$";
-
-        String scanStartRow = scanFrom == null ? Bytes.toString(metadata.startRow)
-        									   : _plusOneNConstructRowKey(scanFrom, metadata.tableName, type);
-        
-        _logger.info("Using table: " + metadata.tableName);
-        _logger.info("Rowkey: " + rowKeyRegex);
-        _logger.debug("Scan startRow: " + scanStartRow);
-        _logger.debug("Scan stopRow: " + Bytes.toString(metadata.stopRow));
-
-        List<ScanFilter> filters = new ArrayList<ScanFilter>();
-
-        filters.add(new RowFilter(CompareOp.EQUAL, new RegexStringComparator(rowKeyRegex)));
-        filters.add(new KeyOnlyFilter());
-        filters.add(new FirstKeyOnlyFilter());
-
-        FilterList filterList = new FilterList(filters, FilterList.Operator.MUST_PASS_ALL);
-        final Scanner scanner = _client.newScanner(metadata.tableName);
+        String scanStartRow = scanFrom == null ? null : _plusOneNConstructRowKey(scanFrom, tableName, type);
+        List<ScanRange> ranges = _planScanRanges(query, tableName, scanStartRow);
 
-        scanner.setStartKey(scanStartRow);
-        scanner.setStopKey(metadata.stopRow);
-        scanner.setFilter(filterList);
-        scanner.setMaxNumRows(10000);
+        _logger.info("Using table: " + tableName);
+        _logger.info("Scan ranges: " + ranges);
 
-        final Deferred<List<MetricSchemaRecord>> results = new Deferred<List<MetricSchemaRecord>>();
-        
+        List<List<String>> rowKeysPerRange = _scanRanges(tableName, ranges, query.getLimit(), 
+        		rowKey -> _getValueForType(_constructMetricSchemaRecord(rowKey, tableName), type), query);
+        Set<String> records = new TreeSet<String>();
         List<MetricSchemaRecord> listMetricSchemarecords = new ArrayList<>();
-        
-        
-        final class ScannerCB implements Callback<Object, ArrayList<ArrayList<KeyValue>>> {
-
-            /**
-             * Scans rows.
-             *
-             * @return  The list of metric schema records.
-             */
-            public Object scan() {
-                return scanner.nextRows().addCallback(this);
-            }
 
-            @Override
-            public Object call(ArrayList<ArrayList<KeyValue>> rows) throws Exception {
-                try {
-                    if (rows == null) {
-                        results.callback(listMetricSchemarecords);
-                        scanner.close();
-                        return null;
-                    }
-                    for (ArrayList<KeyValue> row : rows) {
-                        String rowKey = Bytes.toString(row.get(0).key());
-                        MetricSchemaRecord record = _constructMetricSchemaRecord(rowKey, metadata.tableName);
+        for (List<String> rowKeys : rowKeysPerRange) {
+            for (String rowKey : rowKeys) {
+                MetricSchemaRecord record = _constructMetricSchemaRecord(rowKey, tableName);
 
-                        if(records.add(_getValueForType(record, type))){
-                        	listMetricSchemarecords.add(record);
-                        }
-                        if (records.size() == query.getLimit()) {
-                            results.callback(listMetricSchemarecords);
-                            scanner.close();
-                            return null;
-                        }
-                    }
-                    return scan();
-                } catch (Exception e) {
-                    scanner.close();
-                    return null;
+                if (records.add(_getValueForType(record, type))) {
+                    listMetricSchemarecords.add(record);
+                }
+                if (records.size() == query.getLimit()) {
+                    return listMetricSchemarecords;
                 }
             }
         }
-        
-        new ScannerCB().scan();
-        
-        try {
-			return new ArrayList<>(results.join(SCAN_TIMEOUT_MS));
+        return listMetricSchemarecords;
+    }
+    
+    /*
+     * Runs one scanner per range concurrently. Each scanner stops once it has read limit rows, or limit distinct values when a distinct
+     * key function is given, which is the most any single range can contribute to the merged result. The row keys are returned per range, 
+     * in the order of the ranges.
+     */
+    private List<List<String>> _scanRanges(String tableName, List<ScanRange> ranges, int limit, Function<String, String> distinctKey, 
+    		MetricSchemaRecordQuery query) {
+    	List<Runnable> stops = new ArrayList<>(ranges.size());
+    	List<Deferred<List<String>>> deferreds = new ArrayList<>(ranges.size());
+    	
+    	for (ScanRange range : ranges) {
+    		List<ScanFilter> filters = new ArrayList<ScanFilter>();
+
+            filters.add(new RowFilter(CompareOp.EQUAL, new RegexStringComparator(range.rowKeyRegex)));
+            filters.add(new KeyOnlyFilter());
+            filters.add(new FirstKeyOnlyFilter());
+
+            final Scanner scanner = _client.newScanner(tableName);
+
+            scanner.setStartKey(range.startRow);
+            scanner.setStopKey(range.stopRow);
+            scanner.setFilter(new FilterList(filters, FilterList.Operator.MUST_PASS_ALL));
+            scanner.setMaxNumRows(Math.min(limit, 10000));
+            RangeScannerCB rangeScanner = new RangeScannerCB(scanner, limit, distinctKey);
+            
+            stops.add(rangeScanner::stop);
+            deferreds.add(rangeScanner.scan());
+    	}
+    	
+    	try {
+    		return _collectRanges(deferreds, stops, limit, distinctKey, SCAN_TIMEOUT_MS);
 		} catch (InterruptedException e) {
 			throw new SystemException("Interrupted while waiting to obtain results for query: " + query, e);
 		} catch (TimeoutException e) {
@@ -566,7 +469,206 @@ public class AsyncHbaseSchemaService extends AbstractSchemaService {
 		} catch (Exception e) {
 			throw new SystemException("Exception occurred in getting results for query: " + query, e);
 		}
-        
+    }
+    
+    /**
+     * Collects the row keys of concurrently running range scans, in the order of the ranges. Once the leading ranges alone fill the limit,
+     * the scans of the remaining ranges are stopped and those ranges are left out of the result.
+     *
+     * @param   deferreds      The row keys of each range scan.
+     * @param   stops          Stops the range scan at the same position.
+     * @param   limit          The number of rows, or distinct values when a distinct key function is given, to collect.
+     * @param   distinctKey    The function deriving the value a row is distinct by. May be null.
+     * @param   timeoutMillis  The time to wait for all range scans.
+     *
+     * @return  The row keys per collected range.  Will never be null.
+     *
+     * @throws  Exception  If a range scan failed, or did not finish in time.
+     */
+    static List<List<String>> _collectRanges(List<Deferred<List<String>>> deferreds, List<Runnable> stops, int limit, 
+    		Function<String, String> distinctKey, long timeoutMillis) throws Exception {
+    	List<List<String>> result = new ArrayList<>(deferreds.size());
+    	Set<String> distinctValues = new HashSet<>();
+    	int rowCount = 0;
+    	long deadline = System.currentTimeMillis() + timeoutMillis;
+    	
+    	for (int i = 0; i < deferreds.size(); i++) {
+    		List<String> rowKeys = deferreds.get(i).join(Math.max(1, deadline - System.currentTimeMillis()));
+    		
+    		result.add(rowKeys);
+    		if (distinctKey == null) {
+    			rowCount += rowKeys.size();
+    		} else {
+    			for (String rowKey : rowKeys) {
+    				distinctValues.add(distinctKey.apply(rowKey));
+    			}
+    			rowCount = distinctValues.size();
+    		}
+    		if (rowCount >= limit) {
+    			for (Runnable stop : stops.subList(i + 1, stops.size())) {
+    				stop.run();
+    			}
+    			break;
+    		}
+    	}
+    	return result;
+    }
+    
+    /*
+     * Picks the table whose scan ranges for the query have the longest common row key prefix, i.e. the tightest scan. Ties go to the
+     * table chosen by the scan metadata of the unexpanded query.
+     */
+    private String _chooseTable(MetricSchemaRecordQuery query) {
+    	String defaultTable = _constructScanMetadata(query).tableName;
+    	String otherTable = SCOPE_SCHEMA_TABLENAME.equals(defaultTable) ? METRIC_SCHEMA_TABLENAME : SCOPE_SCHEMA_TABLENAME;
+    	
+    	return _minPrefixLength(_planScanRanges(query, otherTable, null)) > _minPrefixLength(_planScanRanges(query, defaultTable, null)) 
+    			? otherTable : defaultTable;
+    }
+    
+    private static int _minPrefixLength(List<ScanRange> ranges) {
+    	int min = Integer.MAX_VALUE;
+    	
+    	for (ScanRange range : ranges) {
+    		min = Math.min(min, range.startRow.length());
+    	}
+    	return min;
+    }
+    
+    /**
+     * Plans the row key ranges to scan for a query on the given table. Alternations in the two leading fields of the row key, such as
+     * <tt>a|b</tt> or <tt>x[a|b]</tt>, are expanded so that every alternative is scanned as its own narrow range instead of falling back 
+     * to a range over the common prefix. The remaining pattern is pushed down to HBase as a row filter. Overlapping and adjacent ranges are
+     * merged so that the returned ranges are disjoint and sorted, and the concatenation of their results is in row key order.
+     *
+     * @param   query         The metric schema query.
+     * @param   tableName     The table to plan the ranges for.
+     * @param   scanStartRow  The row key from which to start scanning. May be null.
+     *
+     * @return  The sorted list of disjoint ranges to scan.  Will never be null, but may be empty.
+     */
+    List<ScanRange> _planScanRanges(MetricSchemaRecordQuery query, String tableName, String scanStartRow) {
+    	boolean scopeLeads = SCOPE_SCHEMA_TABLENAME.equals(tableName);
+    	List<String> leading = _expandAlternatives(scopeLeads ? query.getScope() : query.getMetric());
+    	List<String> second = _expandAlternatives(scopeLeads ? query.getMetric() : query.getScope());
+    	
+    	if (leading.size() * second.size() > MAX_SCAN_RANGES) {
+    		leading = Arrays.asList(scopeLeads ? query.getScope() : query.getMetric());
+    		second = Arrays.asList(scopeLeads ? query.getMetric() : query.getScope());
+    	}
+    	
+    	List<ScanRange> ranges = new ArrayList<>(leading.size() * second.size());
+    	
+    	for (String first : leading) {
+    		for (String next : second) {
+    			String scope = scopeLeads ? first : next;
+    			String metric = scopeLeads ? next : first;
+    			String rowKey = _constructRowKey(query.getNamespace(), scope, metric, query.getTagKey(), query.getTagValue(), tableName);
+    			int indexOfWildcard = _indexOfScanBoundary(rowKey.toCharArray());
+    			ScanRange range = new ScanRange();
+    			
+    			range.startRow = rowKey.substring(0, indexOfWildcard);
+    			range.stopRow = _constructStopRow(rowKey, indexOfWildcard);
+    			range.rowKeyRegex = "^" + _constructRowKey(SchemaService.convertToRegex(query.getNamespace()), SchemaService.convertToRegex(scope), 
+    					SchemaService.convertToRegex(metric), SchemaService.convertToRegex(query.getTagKey()), 
+    					SchemaService.convertToRegex(query.getTagValue()), tableName) + "$";
+    			
+    			if (scanStartRow != null && scanStartRow.compareTo(range.startRow) > 0) {
+    				if (!range.stopRow.isEmpty() && scanStartRow.compareTo(range.stopRow) >= 0) {
+    					continue;
+    				}
+    				range.startRow = scanStartRow;
+    			}
+    			ranges.add(range);
+    		}
+    	}
+    	return _mergeOverlappingRanges(ranges);
+    }
+    
+    static List<ScanRange> _mergeOverlappingRanges(List<ScanRange> ranges) {
+    	Collections.sort(ranges, (a, b) -> a.startRow.compareTo(b.startRow));
+    	
+    	List<ScanRange> merged = new ArrayList<>(ranges.size());
+    	
+    	for (ScanRange range : ranges) {
+    		ScanRange last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+    		
+    		if (last != null && (last.stopRow.isEmpty() || range.startRow.compareTo(last.stopRow) <= 0)) {
+    			if (range.stopRow.isEmpty() || (!last.stopRow.isEmpty() && range.stopRow.compareTo(last.stopRow) > 0)) {
+    				last.stopRow = range.stopRow;
+    			}
+    			if (!last.rowKeyRegex.equals(range.rowKeyRegex)) {
+    				last.rowKeyRegex = "(?:" + last.rowKeyRegex + ")|(?:" + range.rowKeyRegex + ")";
+    			}
+    		} else {
+    			merged.add(range);
+    		}
+    	}
+    	return merged;
+    }
+    
+    /**
+     * Expands the top level alternatives of a wildcard pattern. Both <tt>a|b</tt> and a bracketed group such as <tt>x[a|b]y</tt> are 
+     * expanded. Any other pattern, including one that mixes both forms such as <tt>[a|b]|c</tt>, or one that would expand into more than 
+     * <tt>MAX_SCAN_RANGES</tt> alternatives, is returned as is.
+     *
+     * @param   pattern  The wildcard pattern.  May be null.
+     *
+     * @return  The list of alternatives.  Will never be null or empty.
+     */
+    static List<String> _expandAlternatives(String pattern) {
+    	if (pattern == null || pattern.indexOf('|') < 0) {
+    		return Arrays.asList(pattern);
+    	}
+    	
+    	int open = pattern.indexOf('[');
+    	
+    	if (open < 0) {
+    		return Arrays.asList(pattern.split("\\|", -1));
+    	}
+    	
+    	int close = pattern.indexOf(']', open);
+    	
+    	if (close < 0 || _hasTopLevelAlternation(pattern)) {
+    		return Arrays.asList(pattern);
+    	}
+    	
+    	String group = pattern.substring(open + 1, close);
+    	
+    	if (group.indexOf('|') < 0 || group.indexOf('[') >= 0) {
+    		return Arrays.asList(pattern);
+    	}
+    	
+    	List<String> rest = _expandAlternatives(pattern.substring(close + 1));
+    	String[] alternatives = group.split("\\|", -1);
+    	
+    	if (alternatives.length * rest.size() > MAX_SCAN_RANGES) {
+    		return Arrays.asList(pattern);
+    	}
+    	
+    	List<String> result = new ArrayList<>(alternatives.length * rest.size());
+    	
+    	for (String alternative : alternatives) {
+    		for (String suffix : rest) {
+    			result.add(pattern.substring(0, open) + alternative + suffix);
+    		}
+    	}
+    	return result;
+    }
+    
+    private static boolean _hasTopLevelAlternation(String pattern) {
+    	int depth = 0;
+    	
+    	for (char c : pattern.toCharArray()) {
+    		if (c == '[') {
+    			depth++;
+    		} else if (c == ']' && depth > 0) {
+    			depth--;
+    		} else if (c == '|' && depth == 0) {
+    			return true;
+    		}
+    	}
+    	return false;
     }
     
     @Override
@@ -713,34 +815,8 @@ public class AsyncHbaseSchemaService extends AbstractSchemaService {
         // Find first occurrence of any wildcard character in both rowKeys.
         // Everything until this character will represent our entry point into the table.
         // We will therefore use the corresponding table where the index of wildcard in the rowKey is higher.
-        int i = 0, j = 0;
-
-        for (; (i < scopeTableRowKey.length && j < metricTableRowKey.length); i++, j++) {
-            if (SchemaService.isWildcardCharacter(scopeTableRowKey[i]) || SchemaService.isWildcardCharacter(metricTableRowKey[j])) {
-                break;
-            }
-        }
-        while (i < scopeTableRowKey.length && !SchemaService.isWildcardCharacter(scopeTableRowKey[i])) {
-            i++;
-        }
-        while (j < metricTableRowKey.length && !SchemaService.isWildcardCharacter(metricTableRowKey[j])) {
-            j++;
-        }
-
-        // If the first wildcard character is OR, then we have to backtrack until the last ROW_SEPARATOR occurrence.
-        if (i < scopeTableRowKey.length && scopeTableRowKey[i] == '|') {
-            while (i >= 0 && scopeTableRowKey[i] != ROWKEY_SEPARATOR) {
-                i--;
-            }
-            i++;
-        }
-        if (j < metricTableRowKey.length && metricTableRowKey[j] == '|') {
-            while (j >= 0 && metricTableRowKey[j] != ROWKEY_SEPARATOR) {
-                j--;
-            }
-            j++;
-        }
-
+        int i = _indexOfScanBoundary(scopeTableRowKey);
+        int j = _indexOfScanBoundary(metricTableRowKey);
         int indexOfWildcard;
         String rowKey;
 
@@ -757,7 +833,29 @@ public class AsyncHbaseSchemaService extends AbstractSchemaService {
         String start = rowKey.substring(0, indexOfWildcard);
 
         metadata.startRow = start.getBytes(Charset.forName("UTF-8"));
+        metadata.stopRow = _constructStopRow(rowKey, indexOfWildcard).getBytes(Charset.forName("UTF-8"));
+        return metadata;
+    }
+
+    /* Returns the index of the first wildcard character in the row key. If it is an OR, the index of the start of the enclosing field. */
+    private static int _indexOfScanBoundary(char[] rowKey) {
+        int i = 0;
+
+        while (i < rowKey.length && !SchemaService.isWildcardCharacter(rowKey[i])) {
+            i++;
+        }
+
+        // If the first wildcard character is OR, then we have to backtrack until the last ROW_SEPARATOR occurrence.
+        if (i < rowKey.length && rowKey[i] == '|') {
+            while (i >= 0 && rowKey[i] != ROWKEY_SEPARATOR) {
+                i--;
+            }
+            i++;
+        }
+        return i;
+    }
 
+    private static String _constructStopRow(String rowKey, int indexOfWildcard) {
         String end = "";
 
         if (indexOfWildcard > 0) {
@@ -768,8 +866,7 @@ public class AsyncHbaseSchemaService extends AbstractSchemaService {
 
             end = rowKey.substring(0, indexOfWildcard - 1) + prevPlusOne;
         }
-        metadata.stopRow = end.getBytes(Charset.forName("UTF-8"));
-        return metadata;
+        return end;
     }
 
     /**
@@ -827,6 +924,106 @@ public class AsyncHbaseSchemaService extends AbstractSchemaService {
         /** The table type. */
         public String tableName = SCOPE_SCHEMA_TABLENAME;
     }
+
+    /**
+     * Represents a single row key range of a scan plan.
+     *
+     * @author  agent (agent@local)
+     */
+    static class ScanRange {
+
+        /** The start row. */
+        public String startRow = "";
+
+        /** The end row. An empty stop row scans until the end of the table. */
+        public String stopRow = "";
+
+        /** The regular expression matched by the row filter. */
+        public String rowKeyRegex;
+
+        @Override
+        public String toString() {
+            return MessageFormat.format("[{0}, {1})", startRow.replace(ROWKEY_SEPARATOR, ':'), stopRow.replace(ROWKEY_SEPARATOR, ':'));
+        }
+    }
+
+    /**
+     * Scans the rows of a single range, stopping as soon as the range has produced enough rows.
+     *
+     * @author  agent (agent@local)
+     */
+    private final class RangeScannerCB implements Callback<Object, ArrayList<ArrayList<KeyValue>>> {
+
+        private final Scanner _scanner;
+        private final int _limit;
+        private final Function<String, String> _distinctKey;
+        private final List<String> _rowKeys = new ArrayList<>();
+        private final Set<String> _distinctValues = new HashSet<>();
+        private final Deferred<List<String>> _results = new Deferred<List<String>>();
+        private volatile boolean _stopped;
+
+        RangeScannerCB(Scanner scanner, int limit, Function<String, String> distinctKey) {
+            _scanner = scanner;
+            _limit = limit;
+            _distinctKey = distinctKey;
+        }
+
+        Deferred<List<String>> scan() {
+            _next();
+            return _results;
+        }
+
+        /* Closes the scanner once the rows already requested have arrived, without requesting more. */
+        void stop() {
+            _stopped = true;
+        }
+
+        private Object _next() {
+            return _scanner.nextRows().addCallbacks(this, new Callback<Object, Exception>() {
+                @Override
+                public Object call(Exception e) throws Exception {
+                    _scanner.close();
+                    _results.callback(e);
+                    return null;
+                }
+            });
+        }
+
+        @Override
+        public Object call(ArrayList<ArrayList<KeyValue>> rows) throws Exception {
+            try {
+                if (rows == null || _stopped) {
+                    return _done();
+                }
+                for (ArrayList<KeyValue> row : rows) {
+                    String rowKey = Bytes.toString(row.get(0).key());
+
+                    if (_distinctKey == null) {
+                        _rowKeys.add(rowKey);
+                        if (_rowKeys.size() == _limit) {
+                            return _done();
+                        }
+                    } else if (_distinctValues.add(_distinctKey.apply(rowKey))) {
+                        _rowKeys.add(rowKey);
+                        if (_distinctValues.size() == _limit) {
+                            return _done();
+                        }
+                    }
+                }
+                return _next();
+            } catch (Exception e) {
+                _scanner.close();
+                _results.callback(e);
+                return null;
+            }
+        }
+
+        private Object _done() {
+            _scanner.close();
+            _results.callback(_rowKeys);
+            return null;
+        }
+    }
     
 }
 /* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -8,7 +8,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -27,6 +29,8 @@ import com.salesforce.dva.argus.entity.SchemaQuery;
 import com.salesforce.dva.argus.service.CacheService;
 import com.salesforce.dva.argus.service.DefaultService;
 import com.salesforce.dva.argus.service.DiscoveryService;
+import com.salesforce.dva.argus.service.MonitorService;
+import com.salesforce.dva.argus.service.MonitorService.Counter;
 import com.salesforce.dva.argus.service.NamedBinding;
 import com.salesforce.dva.argus.service.SchemaService.RecordType;
 import com.salesforce.dva.argus.service.tsdb.AnnotationQuery;
@@ -40,28 +44,48 @@ public class CachedDiscoveryService extends DefaultService implements DiscoveryS
 	
 	private static final ObjectMapper MAPPER = new ObjectMapper();
 	private static final int EXPIRY_TIME_SECS = 3600;
+	private static final String LIMIT_EXCEEDED_PREFIX = "LIMIT_EXCEEDED:";
+	private static final int MAX_TRACKED_REFRESH_KEYS = 100000;
 	private final long UPPER_LIMIT_TIME_GET_QUERIES_IN_MILLIS;
+	private final int NEGATIVE_EXPIRY_TIME_SECS;
+	private final int LIMIT_EXCEEDED_EXPIRY_TIME_SECS;
+	private final long REFRESH_AFTER_MILLIS;
 	
 	//~ Instance fields ******************************************************************************************************************************
 
     protected final Logger _logger = LoggerFactory.getLogger(getClass());
     private final DiscoveryService _discoveryService;
     private final CacheService _cacheService;
+    private final MonitorService _monitorService;
     private final ExecutorService _executorService;
+    private final Map<String, Long> _cacheWriteTimes = new ConcurrentHashMap<>();
+    private final Set<String> _refreshingKeys = ConcurrentHashMap.newKeySet();
 
     //~ Constructors *********************************************************************************************************************************
 
+    public CachedDiscoveryService(CacheService cacheService, DiscoveryService discoveryService, SystemConfiguration config) {
+    	this(cacheService, discoveryService, null, config);
+    }
+
     @Inject
-    public CachedDiscoveryService(CacheService cacheService, @NamedBinding DiscoveryService discoveryService, SystemConfiguration config) {
+    public CachedDiscoveryService(CacheService cacheService, @NamedBinding DiscoveryService discoveryService, MonitorService monitorService,
+    		SystemConfiguration config) {
     	super(config);
     	SystemAssert.requireArgument(cacheService != null, "Cache Service cannot be null.");
         SystemAssert.requireArgument(discoveryService != null, "Discovery Service cannot be null.");
 		
         UPPER_LIMIT_TIME_GET_QUERIES_IN_MILLIS = Long.parseLong(config.getValue(Property.UPPER_LIMIT_TIME_GET_QUERIES_IN_MIILIS.getName(), 
 				Property.UPPER_LIMIT_TIME_GET_QUERIES_IN_MIILIS.getDefaultValue()));
+        NEGATIVE_EXPIRY_TIME_SECS = Integer.parseInt(config.getValue(Property.NEGATIVE_CACHE_EXPIRY_SECS.getName(),
+        		Property.NEGATIVE_CACHE_EXPIRY_SECS.getDefaultValue()));
+        LIMIT_EXCEEDED_EXPIRY_TIME_SECS = Integer.parseInt(config.getValue(Property.LIMIT_EXCEEDED_CACHE_EXPIRY_SECS.getName(),
+        		Property.LIMIT_EXCEEDED_CACHE_EXPIRY_SECS.getDefaultValue()));
+        REFRESH_AFTER_MILLIS = 1000L * Long.parseLong(config.getValue(Property.CACHE_REFRESH_AFTER_SECS.getName(),
+        		Property.CACHE_REFRESH_AFTER_SECS.getDefaultValue()));
         
         _cacheService = cacheService;
         _discoveryService = discoveryService;
+        _monitorService = monitorService;
         _executorService = Executors.newCachedThreadPool();
     }
 
@@ -107,34 +131,49 @@ public class CachedDiscoveryService extends DefaultService implements DiscoveryS
 		List<MetricQuery> queries = new ArrayList<>();
 		
 		if(DiscoveryService.isWildcardQuery(query)) {
-			String value = _cacheService.get(_getKey(query));
+			String key = _getKey(query);
+			String value = _cacheService.get(key);
+			int noOfTimeseriesAllowed = DiscoveryService.maxTimeseriesAllowed(query);
+			
+			if(value != null && value.startsWith(LIMIT_EXCEEDED_PREFIX)) {
+				int cachedNoOfTimeseriesAllowed = Integer.parseInt(value.substring(LIMIT_EXCEEDED_PREFIX.length()));
+				if(noOfTimeseriesAllowed <= cachedNoOfTimeseriesAllowed) {
+					_logger.info(MessageFormat.format("CACHE HIT (limit exceeded) for Wildcard Query: '{'{0}'}'", query));
+					_count(Counter.DISCOVERY_CACHE_LIMIT_EXCEEDED_HITS);
+					throw new WildcardExpansionLimitExceededException(EXCEPTION_MESSAGE);
+				}
+				// The cached verdict was reached with a smaller budget. Expand again with the budget of this query.
+				value = null;
+			}
+			
 			if(value == null) { // Cache Miss
 				_logger.info(MessageFormat.format("CACHE MISS for Wildcard Query: '{'{0}'}'. Will read from persistent storage.", query));
-				queries = _discoveryService.getMatchingQueries(query);
+				_count(Counter.DISCOVERY_CACHE_MISSES);
+				queries = _getMatchingQueriesFromStore(query, noOfTimeseriesAllowed);
 				
 				long timeToGetQueriesMillis = (System.nanoTime() - start) / 1000000;
 				_logger.info("Time to get matching queries from store in ms: " + timeToGetQueriesMillis);
 				if(timeToGetQueriesMillis > UPPER_LIMIT_TIME_GET_QUERIES_IN_MILLIS){
 					_logger.warn("Long time to get matching queries in ms: {} for query {}", timeToGetQueriesMillis, query);
 				}
-				
-				_executorService.submit(new CacheInsertWorker(query, queries));
 			} else { // Cache Hit
 				_logger.info(MessageFormat.format("CACHE HIT for Wildcard Query: '{'{0}'}'", query));
 				_logger.info("Time to get matching queries from cache in ms: " + (System.nanoTime() - start) / 1000000);
 				try {
 					JavaType type = MAPPER.getTypeFactory().constructCollectionType(List.class, MetricQuery.class);
 					List<MetricQuery> matchedQueries = MAPPER.readValue(value, type);
+					_count(matchedQueries.isEmpty() ? Counter.DISCOVERY_CACHE_NEGATIVE_HITS : Counter.DISCOVERY_CACHE_HITS);
 					_checkIfExceedsLimits(query, matchedQueries);
 					for(int i=0; i<matchedQueries.size(); i++) {
 						MetricQuery q = new MetricQuery(query);
 						_replaceWildcardFieldsFromCachedQuery(matchedQueries.get(i), q);
 						queries.add(q);
 					}
+					_refreshIfStale(key, query);
 				} catch (IOException e) {
 					_logger.warn("IOException when trying to deserialize cached data into metric queries. Will read from persistent storage.", e);
-					queries = _discoveryService.getMatchingQueries(query);
-					_executorService.submit(new CacheInsertWorker(query, queries));
+					_count(Counter.DISCOVERY_CACHE_MISSES);
+					queries = _getMatchingQueriesFromStore(query, noOfTimeseriesAllowed);
 				}
 			}
 		} else {
@@ -145,6 +184,55 @@ public class CachedDiscoveryService extends DefaultService implements DiscoveryS
 		return queries;
 	}
 	
+	/*
+	 * Expands the query against the underlying discovery service and caches the outcome. Empty expansions and expansions that exceed the 
+	 * wildcard limit are cached as well, but with a shorter expiry, so that repeated queries for them do not reach the schema store.
+	 */
+	private List<MetricQuery> _getMatchingQueriesFromStore(MetricQuery query, int noOfTimeseriesAllowed) {
+		try {
+			List<MetricQuery> queries = _discoveryService.getMatchingQueries(query);
+			_executorService.submit(new CacheInsertWorker(query, queries));
+			return queries;
+		} catch (WildcardExpansionLimitExceededException ex) {
+			_executorService.submit(new CacheInsertWorker(query, noOfTimeseriesAllowed));
+			throw ex;
+		}
+	}
+	
+	/*
+	 * Serves the cached value as is, but re-expands hot keys in the background once they have been cached for longer than the refresh 
+	 * interval, so that they are replaced before they expire instead of falling through to the schema store.
+	 */
+	private void _refreshIfStale(String key, MetricQuery query) {
+		Long writeTime = _cacheWriteTimes.get(key);
+		
+		// keys cached before this host started, or evicted from the tracked set, are tracked from their first hit
+		if(writeTime == null) {
+			_recordCacheWrite(key);
+		} else if(System.currentTimeMillis() - writeTime >= REFRESH_AFTER_MILLIS && _refreshingKeys.add(key)) {
+			_count(Counter.DISCOVERY_CACHE_REFRESHES);
+			_executorService.submit(new CacheRefreshWorker(key, new MetricQuery(query)));
+		}
+	}
+	
+	private void _recordCacheWrite(String key) {
+		long now = System.currentTimeMillis();
+		
+		if(_cacheWriteTimes.size() >= MAX_TRACKED_REFRESH_KEYS) {
+			_cacheWriteTimes.values().removeIf(writeTime -> now - writeTime >= EXPIRY_TIME_SECS * 1000L);
+			if(_cacheWriteTimes.size() >= MAX_TRACKED_REFRESH_KEYS) {
+				_cacheWriteTimes.clear();
+			}
+		}
+		_cacheWriteTimes.put(key, now);
+	}
+	
+	private void _count(Counter counter) {
+		if(_monitorService != null) {
+			_monitorService.modifyCounter(counter, 1, null);
+		}
+	}
+	
 	//~ Enums ****************************************************************************************************************************************
 	/**
 	 * The set of implementation specific configuration properties.
@@ -152,7 +240,13 @@ public class CachedDiscoveryService extends DefaultService implements DiscoveryS
 	 * @author Dilip Devaraj (ddevaraj@salesforce.com)
 	 */
 	public enum Property {
-		UPPER_LIMIT_TIME_GET_QUERIES_IN_MIILIS("service.property.schema.upper.limit.time.get.queries.in.millis", "3000");
+		UPPER_LIMIT_TIME_GET_QUERIES_IN_MIILIS("service.property.schema.upper.limit.time.get.queries.in.millis", "3000"),
+		/** The expiry of cached wildcard expansions that matched nothing. */
+		NEGATIVE_CACHE_EXPIRY_SECS("service.property.schema.negative.cache.expiry.secs", "300"),
+		/** The expiry of cached verdicts for wildcard expansions that exceeded the limit. */
+		LIMIT_EXCEEDED_CACHE_EXPIRY_SECS("service.property.schema.limit.exceeded.cache.expiry.secs", "600"),
+		/** The age after which a cached wildcard expansion that is still being read is refreshed in the background. */
+		CACHE_REFRESH_AFTER_SECS("service.property.schema.cache.refresh.after.secs", "2700");
 
 		private final String _name;
 		private final String _defaultValue;
@@ -216,26 +310,63 @@ public class CachedDiscoveryService extends DefaultService implements DiscoveryS
 		
 		private MetricQuery _wildcardQuery;
 		private List<MetricQuery> _matchedQueries;
+		private int _noOfTimeseriesAllowed;
 		
 		CacheInsertWorker(final MetricQuery wildcardQuery, final List<MetricQuery> matchedQueries) {
 			_wildcardQuery = wildcardQuery;
 			_matchedQueries = matchedQueries;
 		}
+		
+		CacheInsertWorker(final MetricQuery wildcardQuery, final int noOfTimeseriesAllowed) {
+			_wildcardQuery = wildcardQuery;
+			_noOfTimeseriesAllowed = noOfTimeseriesAllowed;
+		}
 
 		@Override
 		public void run() {
 			try {
 				String key = _getKey(_wildcardQuery);
 				if(key != null) {
-					_logger.debug("CacheInsertThread: Inserting key = {}, value = {}", _wildcardQuery, _matchedQueries);
-					String value = MAPPER.writeValueAsString(_matchedQueries);
-					_cacheService.put(key, value, EXPIRY_TIME_SECS);
+					if(_matchedQueries == null) {
+						_logger.debug("CacheInsertThread: Inserting limit exceeded verdict for key = {}", _wildcardQuery);
+						_cacheService.put(key, LIMIT_EXCEEDED_PREFIX + _noOfTimeseriesAllowed, LIMIT_EXCEEDED_EXPIRY_TIME_SECS);
+					} else {
+						_logger.debug("CacheInsertThread: Inserting key = {}, value = {}", _wildcardQuery, _matchedQueries);
+						String value = MAPPER.writeValueAsString(_matchedQueries);
+						_cacheService.put(key, value, _matchedQueries.isEmpty() ? NEGATIVE_EXPIRY_TIME_SECS : EXPIRY_TIME_SECS);
+						_recordCacheWrite(key);
+					}
 				}
 			} catch (JsonProcessingException e) {
 				_logger.warn("CacheInsertThread: Failed to serialize list of metric queries.", e);
 			}
 		}
 	}
+	
+	private class CacheRefreshWorker implements Runnable {
+		
+		private String _key;
+		private MetricQuery _wildcardQuery;
+		
+		CacheRefreshWorker(final String key, final MetricQuery wildcardQuery) {
+			_key = key;
+			_wildcardQuery = wildcardQuery;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				_logger.debug("CacheRefreshThread: Refreshing key = {}", _wildcardQuery);
+				new CacheInsertWorker(_wildcardQuery, _discoveryService.getMatchingQueries(_wildcardQuery)).run();
+			} catch (WildcardExpansionLimitExceededException ex) {
+				new CacheInsertWorker(_wildcardQuery, DiscoveryService.maxTimeseriesAllowed(_wildcardQuery)).run();
+			} catch (Exception ex) {
+				_logger.warn("CacheRefreshThread: Failed to refresh key = " + _key, ex);
+			} finally {
+				_refreshingKeys.remove(_key);
+			}
+		}
+	}
 
 	private String _getKey(MetricQuery query) {
 		try {
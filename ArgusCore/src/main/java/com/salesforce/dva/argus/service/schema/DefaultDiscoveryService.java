@@ -66,19 +66,32 @@ public class DefaultDiscoveryService extends DefaultService implements Discovery
     
     private final Logger _logger = LoggerFactory.getLogger(DefaultDiscoveryService.class);
     private final SchemaService _schemaService;
+    private final MetricSchemaIndex _schemaIndex;
 
     //~ Constructors *********************************************************************************************************************************
 
+    /**
+     * Creates a new DefaultDiscoveryService object that always resolves wildcards against the schema service.
+     *
+     * @param  schemaService  The schema service to use.
+     * @param config Service properties
+     */
+    public DefaultDiscoveryService(SchemaService schemaService, SystemConfiguration config) {
+        this(schemaService, null, config);
+    }
+
     /**
      * Creates a new DefaultDiscoveryService object.
      *
      * @param  schemaService  The schema service to use.
+     * @param  schemaIndex    The in-process schema index consulted before the schema service. May be null.
      * @param config Service properties
      */
     @Inject
-    public DefaultDiscoveryService(SchemaService schemaService, SystemConfiguration config) {
+    public DefaultDiscoveryService(SchemaService schemaService, MetricSchemaIndex schemaIndex, SystemConfiguration config) {
         super(config);
         this._schemaService = schemaService;
+        this._schemaIndex = schemaIndex;
     }
 
     //~ Methods **************************************************************************************************************************************
@@ -148,7 +161,7 @@ public class DefaultDiscoveryService extends DefaultService implements Discovery
 																						            			  .build();
             	
                 while (true) {
-                	List<MetricSchemaRecord> records = _schemaService.get(schemaQuery);
+                	List<MetricSchemaRecord> records = _getRecords(schemaQuery);
                     for (MetricSchemaRecord record : records) {
                         String identifier = _getIdentifier(record);
 
@@ -201,7 +214,7 @@ public class DefaultDiscoveryService extends DefaultService implements Discovery
                     		records = Arrays.asList(new MetricSchemaRecord(query.getNamespace(), query.getScope(), query.getMetric(), 
                     				tag.getKey(), tag.getValue()));
                     	} else {
-                    		records = _schemaService.get(schemaQuery);
+                    		records = _getRecords(schemaQuery);
                     	}
 
                         for (MetricSchemaRecord record : records) {
@@ -266,6 +279,36 @@ public class DefaultDiscoveryService extends DefaultService implements Discovery
         return expandedQueryList;
     }
 
+    @Override
+    public void dispose() {
+        super.dispose();
+        if (_schemaIndex != null) {
+            _schemaIndex.dispose();
+        }
+    }
+
+    /*
+     * Resolves the schema query against the in-process index and falls back to the schema service on a miss. An empty first page from the
+     * index may be a series created since its scope was last refreshed, so it is checked against the schema service and whatever the service
+     * returns is added to the index.
+     */
+    private List<MetricSchemaRecord> _getRecords(MetricSchemaRecordQuery schemaQuery) {
+        if (_schemaIndex != null && _schemaIndex.isEnabled()) {
+            List<MetricSchemaRecord> records = _schemaIndex.get(schemaQuery);
+
+            if (records != null && records.isEmpty() && schemaQuery.getScanFrom() == null) {
+                records = _schemaService.get(schemaQuery);
+                _schemaIndex.put(records);
+                return records;
+            }
+            if (records != null) {
+                _logger.debug("Resolved {} from the schema index.", schemaQuery);
+                return records;
+            }
+        }
+        return _schemaService.get(schemaQuery);
+    }
+
     private int _getTotalTimeseriesCount(Map<String, Integer> timeseriesCountMap) {
         int sum = 0;
         for(Integer count : timeseriesCountMap.values()) {
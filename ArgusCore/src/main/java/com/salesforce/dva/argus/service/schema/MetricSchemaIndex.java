@@ -0,0 +1,535 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dva.argus.service.schema;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.salesforce.dva.argus.entity.MetricSchemaRecord;
+import com.salesforce.dva.argus.entity.MetricSchemaRecordQuery;
+import com.salesforce.dva.argus.service.SchemaService;
+import com.salesforce.dva.argus.system.SystemAssert;
+import com.salesforce.dva.argus.system.SystemConfiguration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * An optional in-process index of metric schema records used to resolve wildcard discovery queries without a round trip to the schema
+ * store.
+ *
+ * <p>Records are held in a trie whose levels are scope, metric, namespace, tag key and tag value. Every level is a sorted map with interned
+ * keys, so the literal prefix of a wildcard pattern is resolved as a range scan and only the remaining candidates are matched against the
+ * pattern.</p>
+ *
+ * <p>The index is only authoritative for scopes that have been completely loaded from the schema store. A query against any other scope
+ * is reported as a miss (a <tt>null</tt> result) and the scope is loaded in the background. Loaded scopes are kept current from the schema
+ * store by the process that reads them: they are periodically refreshed in place, and records the discovery service reads from the store
+ * are added as they are seen.</p>
+ *
+ * @author  agent (agent@local)
+ */
+@Singleton
+public class MetricSchemaIndex {
+
+    //~ Static fields/initializers *******************************************************************************************************************
+
+    private static final String NULL_KEY = "";
+    private static final String REGEX_META_CHARACTERS = "\\^$+(){}";
+
+    //~ Instance fields ******************************************************************************************************************************
+
+    private final Logger _logger = LoggerFactory.getLogger(MetricSchemaIndex.class);
+    private final SchemaService _schemaService;
+    private final boolean _enabled;
+    private final int _maxScopes;
+    private final int _maxRecordsPerScope;
+    private final int _loadBatchSize;
+    private final long _refreshIntervalMillis;
+    private final ConcurrentSkipListMap<String, ScopeNode> _scopes = new ConcurrentSkipListMap<>();
+    private final Map<String, ScopeNode> _loading = new ConcurrentHashMap<>();
+    private final Set<String> _pendingLoads = ConcurrentHashMap.newKeySet();
+    private final Interner<String> _interner = Interners.newWeakInterner();
+    private final ExecutorService _loaderService;
+    private final ScheduledExecutorService _refreshService;
+
+    //~ Constructors *********************************************************************************************************************************
+
+    /**
+     * Creates a new MetricSchemaIndex object.
+     *
+     * @param  schemaService  The schema service from which scopes are loaded.  Cannot be null.
+     * @param  config         The system configuration.  Cannot be null.
+     */
+    @Inject
+    public MetricSchemaIndex(SchemaService schemaService, SystemConfiguration config) {
+        SystemAssert.requireArgument(schemaService != null, "Schema service cannot be null.");
+        SystemAssert.requireArgument(config != null, "System configuration cannot be null.");
+
+        _schemaService = schemaService;
+        _enabled = Boolean.parseBoolean(config.getValue(Property.ENABLED.getName(), Property.ENABLED.getDefaultValue()));
+        _maxScopes = Integer.parseInt(config.getValue(Property.MAX_SCOPES.getName(), Property.MAX_SCOPES.getDefaultValue()));
+        _maxRecordsPerScope = Integer.parseInt(config.getValue(Property.MAX_RECORDS_PER_SCOPE.getName(),
+                Property.MAX_RECORDS_PER_SCOPE.getDefaultValue()));
+        _loadBatchSize = Integer.parseInt(config.getValue(Property.LOAD_BATCH_SIZE.getName(), Property.LOAD_BATCH_SIZE.getDefaultValue()));
+        _refreshIntervalMillis = 1000L * Long.parseLong(config.getValue(Property.REFRESH_INTERVAL_SECS.getName(),
+                Property.REFRESH_INTERVAL_SECS.getDefaultValue()));
+
+        if (_enabled) {
+            _loaderService = Executors.newSingleThreadExecutor(r -> _newDaemonThread(r, "schema-index-loader"));
+            _refreshService = Executors.newSingleThreadScheduledExecutor(r -> _newDaemonThread(r, "schema-index-refresher"));
+            _refreshService.scheduleWithFixedDelay(this::_refresh, _refreshIntervalMillis, _refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            _loaderService = null;
+            _refreshService = null;
+        }
+    }
+
+    //~ Methods **************************************************************************************************************************************
+
+    private static Thread _newDaemonThread(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+
+        t.setDaemon(true);
+        return t;
+    }
+
+    /**
+     * Indicates whether the index is enabled.
+     *
+     * @return  True if the index is enabled.
+     */
+    public boolean isEnabled() {
+        return _enabled;
+    }
+
+    /**
+     * Returns the schema records matching the given query if the index is authoritative for the scope of the query. The result honours the
+     * limit and scan from record of the query in the same way the schema store does.
+     *
+     * @param   query  The schema query to evaluate.  Cannot be null.
+     *
+     * @return  The matching records, or null if the query cannot be answered from the index.
+     */
+    public List<MetricSchemaRecord> get(MetricSchemaRecordQuery query) {
+        SystemAssert.requireArgument(query != null, "Schema query cannot be null.");
+        if (!_enabled || SchemaService.containsWildcard(query.getScope())) {
+            return null;
+        }
+
+        ScopeNode scopeNode = _scopes.get(query.getScope());
+
+        if (scopeNode == null || System.currentTimeMillis() - scopeNode.loadedAt > 2 * _refreshIntervalMillis) {
+            _scheduleLoad(query.getScope());
+            return null;
+        }
+        scopeNode.lastAccessed = System.currentTimeMillis();
+        if (scopeNode.truncated) {
+            // the scope is too large to index until the next refresh checks it again
+            return null;
+        }
+
+        Map<String, Pattern> patterns = new HashMap<>();
+        MetricSchemaRecord scanFrom = query.getScanFrom();
+        int limit = query.getLimit() > 0 ? query.getLimit() : Integer.MAX_VALUE;
+        List<MetricSchemaRecord> records = new ArrayList<>();
+
+        for (Entry<String, Node> metric : _candidates(scopeNode.root.children, query.getMetric(), patterns).entrySet()) {
+            for (Entry<String, Node> namespace : _candidates(metric.getValue().children, query.getNamespace(), patterns).entrySet()) {
+                for (Entry<String, Node> tagKey : _candidates(namespace.getValue().children, query.getTagKey(), patterns).entrySet()) {
+                    for (String tagValue : _candidates(tagKey.getValue().children, query.getTagValue(), patterns).keySet()) {
+                        MetricSchemaRecord record = new MetricSchemaRecord(_fromKey(namespace.getKey()), query.getScope(), metric.getKey(),
+                            _fromKey(tagKey.getKey()), _fromKey(tagValue));
+
+                        if (scanFrom != null && _compare(record, scanFrom) <= 0) {
+                            continue;
+                        }
+                        records.add(record);
+                        if (records.size() == limit) {
+                            return records;
+                        }
+                    }
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Adds schema records read from the schema store to the scopes held by the index. Records of a scope that is being loaded are added to
+     * the load as well, so that they are not lost when it completes. Records of any other scope are ignored, since those scopes are loaded in
+     * full on first use.
+     *
+     * @param  records  The records to index.  Cannot be null, but may be empty.
+     */
+    public void put(List<MetricSchemaRecord> records) {
+        SystemAssert.requireArgument(records != null, "Record list cannot be null.");
+        if (!_enabled) {
+            return;
+        }
+        for (MetricSchemaRecord record : records) {
+            if (record.getScope() == null) {
+                continue;
+            }
+
+            ScopeNode scopeNode = _scopes.get(record.getScope());
+            ScopeNode loading = _loading.get(record.getScope());
+
+            if (scopeNode != null && !scopeNode.truncated) {
+                _add(scopeNode, record.getMetric(), record.getNamespace(), record.getTagKey(), record.getTagValue());
+            }
+            if (loading != null && loading != scopeNode) {
+                _add(loading, record.getMetric(), record.getNamespace(), record.getTagKey(), record.getTagValue());
+            }
+        }
+    }
+
+    /** Stops the background loading and refresh of the index and releases all indexed records. */
+    public void dispose() {
+        if (_enabled) {
+            _refreshService.shutdownNow();
+            _loaderService.shutdownNow();
+        }
+        _scopes.clear();
+        _loading.clear();
+        _pendingLoads.clear();
+    }
+
+    private void _scheduleLoad(String scope) {
+        if (_pendingLoads.add(scope)) {
+            try {
+                _loaderService.submit(() -> {
+                    try {
+                        _load(scope);
+                    } catch (Exception ex) {
+                        _logger.warn("Failed to load scope {} into the schema index.", scope, ex);
+                    } finally {
+                        _pendingLoads.remove(scope);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                _pendingLoads.remove(scope);
+                _logger.warn("Failed to schedule load of scope {} into the schema index.", scope, ex);
+            }
+        }
+    }
+
+    /*
+     * Loads a scope from the schema store. A scope that is already indexed is refreshed in place, so that it keeps answering queries and
+     * keeps the records added while the store is scanned. A new scope is built aside and published once it is complete; records added to it
+     * in the meantime go to the scope being built.
+     */
+    private void _load(String scope) {
+        long start = System.currentTimeMillis();
+        ScopeNode previous = _scopes.get(scope);
+        ScopeNode scopeNode = previous == null || previous.truncated ? new ScopeNode(start) : previous;
+        ScopeNode loading = scopeNode == previous ? null : scopeNode;
+
+        if (loading != null) {
+            _loading.put(scope, loading);
+        }
+        try {
+            _scan(scope, scopeNode);
+
+            int recordCount = scopeNode.recordCount.get();
+
+            if (scopeNode.truncated) {
+                // only the verdict is kept, the partial records would never be used
+                scopeNode = new ScopeNode(start);
+                scopeNode.truncated = true;
+            } else {
+                scopeNode.loadedAt = start;
+            }
+            if (previous != null) {
+                scopeNode.lastAccessed = Math.max(scopeNode.lastAccessed, previous.lastAccessed);
+            }
+            if (previous == null && _scopes.size() >= _maxScopes) {
+                _evictLeastRecentlyUsed();
+            }
+            _scopes.put(scope, scopeNode);
+            _logger.info("Loaded {} schema records for scope {} into the schema index in {} ms. Truncated = {}", recordCount,
+                scope, System.currentTimeMillis() - start, scopeNode.truncated);
+        } finally {
+            if (loading != null) {
+                _loading.remove(scope, loading);
+            }
+        }
+    }
+
+    private void _scan(String scope, ScopeNode scopeNode) {
+        MetricSchemaRecordQuery query = new MetricSchemaRecordQuery.MetricSchemaRecordQueryBuilder().namespace(
+                MetricSchemaRecordQuery.REGEX_MATCH_ANY)
+            .scope(scope)
+            .metric(MetricSchemaRecordQuery.REGEX_MATCH_ANY)
+            .tagKey(MetricSchemaRecordQuery.REGEX_MATCH_ANY)
+            .tagValue(MetricSchemaRecordQuery.REGEX_MATCH_ANY)
+            .limit(_loadBatchSize)
+            .page(1)
+            .build();
+
+        while (!scopeNode.truncated) {
+            List<MetricSchemaRecord> records = _schemaService.get(query);
+
+            for (MetricSchemaRecord record : records) {
+                _add(scopeNode, record.getMetric(), record.getNamespace(), record.getTagKey(), record.getTagValue());
+            }
+            if (records.size() < _loadBatchSize) {
+                break;
+            }
+            query.setScanFrom(records.get(records.size() - 1));
+            query.setPage(query.getPage() + 1);
+        }
+    }
+
+    private void _evictLeastRecentlyUsed() {
+        String victim = null;
+        long oldest = Long.MAX_VALUE;
+
+        for (Entry<String, ScopeNode> entry : _scopes.entrySet()) {
+            if (entry.getValue().lastAccessed < oldest) {
+                oldest = entry.getValue().lastAccessed;
+                victim = entry.getKey();
+            }
+        }
+        if (victim != null) {
+            _scopes.remove(victim);
+        }
+    }
+
+    private void _refresh() {
+        try {
+            long now = System.currentTimeMillis();
+
+            for (Entry<String, ScopeNode> entry : _scopes.entrySet()) {
+                ScopeNode scopeNode = entry.getValue();
+
+                if (now - scopeNode.lastAccessed > 2 * _refreshIntervalMillis) {
+                    _scopes.remove(entry.getKey(), scopeNode);
+                } else if (now - scopeNode.loadedAt >= _refreshIntervalMillis) {
+                    _scheduleLoad(entry.getKey());
+                }
+            }
+        } catch (Exception ex) {
+            _logger.warn("Exception occurred while refreshing the schema index.", ex);
+        }
+    }
+
+    private void _add(ScopeNode scopeNode, String metric, String namespace, String tagKey, String tagValue) {
+        Node metricNode = scopeNode.root.child(_intern(metric));
+        Node namespaceNode = metricNode.child(_intern(namespace));
+        Node tagKeyNode = namespaceNode.child(_intern(tagKey));
+        String tagValueKey = _toKey(tagValue);
+
+        if (!tagKeyNode.children.containsKey(tagValueKey)) {
+            if (scopeNode.recordCount.incrementAndGet() > _maxRecordsPerScope) {
+                scopeNode.truncated = true;
+                return;
+            }
+            tagKeyNode.children.putIfAbsent(tagValueKey, Node.LEAF);
+        }
+    }
+
+    private String _intern(String value) {
+        return _interner.intern(_toKey(value));
+    }
+
+    /*
+     * Narrows a level of the trie to the keys that match the given wildcard pattern. The literal prefix of the pattern is used as a range
+     * over the sorted keys so that only the keys sharing it are matched against the full pattern.
+     */
+    private NavigableMap<String, Node> _candidates(NavigableMap<String, Node> level, String pattern, Map<String, Pattern> patterns) {
+        if (!SchemaService.containsFilter(pattern)) {
+            return level;
+        }
+        if (!SchemaService.containsWildcard(pattern)) {
+            Node node = level.get(pattern);
+
+            return node == null ? Collections.emptyNavigableMap() : level.subMap(pattern, true, pattern, true);
+        }
+
+        String prefix = _literalPrefix(pattern);
+        NavigableMap<String, Node> range = prefix.isEmpty() ? level : level.subMap(prefix, true, prefix + Character.MAX_VALUE, true);
+        Pattern regex = patterns.computeIfAbsent(pattern, p -> Pattern.compile(SchemaService.convertToRegex(p)));
+        NavigableMap<String, Node> result = new ConcurrentSkipListMap<>();
+
+        for (Entry<String, Node> entry : range.entrySet()) {
+            if (regex.matcher(entry.getKey()).matches()) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static String _literalPrefix(String pattern) {
+        if (pattern.indexOf('|') >= 0) {
+            return NULL_KEY;
+        }
+
+        int end = 0;
+
+        while (end < pattern.length() && !SchemaService.isWildcardCharacter(pattern.charAt(end))) {
+            if (REGEX_META_CHARACTERS.indexOf(pattern.charAt(end)) >= 0) {
+                return NULL_KEY;
+            }
+            end++;
+        }
+        return pattern.substring(0, end);
+    }
+
+    private static int _compare(MetricSchemaRecord a, MetricSchemaRecord b) {
+        int result = _toKey(a.getMetric()).compareTo(_toKey(b.getMetric()));
+
+        if (result == 0) {
+            result = _toKey(a.getNamespace()).compareTo(_toKey(b.getNamespace()));
+        }
+        if (result == 0) {
+            result = _toKey(a.getTagKey()).compareTo(_toKey(b.getTagKey()));
+        }
+        if (result == 0) {
+            result = _toKey(a.getTagValue()).compareTo(_toKey(b.getTagValue()));
+        }
+        return result;
+    }
+
+    private static String _toKey(String value) {
+        return value == null ? NULL_KEY : value;
+    }
+
+    private static String _fromKey(String key) {
+        return NULL_KEY.equals(key) ? null : key;
+    }
+
+    //~ Enums ****************************************************************************************************************************************
+
+    /**
+     * The set of implementation specific configuration properties.
+     *
+     * @author  agent (agent@local)
+     */
+    public enum Property {
+
+        /** Enables the in-process schema index. */
+        ENABLED("service.property.schema.index.enabled", "false"),
+        /** The maximum number of scopes held by the index. */
+        MAX_SCOPES("service.property.schema.index.max.scopes", "1000"),
+        /** The maximum number of schema records indexed for a single scope. Larger scopes are always resolved by the schema store. */
+        MAX_RECORDS_PER_SCOPE("service.property.schema.index.max.records.per.scope", "200000"),
+        /** The number of records read from the schema store per request when loading a scope. */
+        LOAD_BATCH_SIZE("service.property.schema.index.load.batch.size", "10000"),
+        /** The interval after which an indexed scope is refreshed from the schema store. */
+        REFRESH_INTERVAL_SECS("service.property.schema.index.refresh.interval.secs", "900");
+
+        private final String _name;
+        private final String _defaultValue;
+
+        private Property(String name, String defaultValue) {
+            _name = name;
+            _defaultValue = defaultValue;
+        }
+
+        /**
+         * Returns the property name.
+         *
+         * @return  The property name.
+         */
+        public String getName() {
+            return _name;
+        }
+
+        /**
+         * Returns the default value for the property.
+         *
+         * @return  The default value.
+         */
+        public String getDefaultValue() {
+            return _defaultValue;
+        }
+    }
+
+    //~ Inner Classes ********************************************************************************************************************************
+
+    /* A level of the trie. Tag values are stored as keys of the tag key level and share the immutable leaf node. */
+    private static final class Node {
+
+        static final Node LEAF = new Node();
+
+        final ConcurrentSkipListMap<String, Node> children = new ConcurrentSkipListMap<>();
+
+        Node child(String key) {
+            Node node = children.get(key);
+
+            if (node == null) {
+                Node created = new Node();
+
+                node = children.putIfAbsent(key, created);
+                if (node == null) {
+                    node = created;
+                }
+            }
+            return node;
+        }
+    }
+
+    /* The root of the records for a single scope along with its load bookkeeping. */
+    private static final class ScopeNode {
+
+        final Node root = new Node();
+        final AtomicInteger recordCount = new AtomicInteger();
+        volatile long loadedAt;
+        volatile long lastAccessed;
+        volatile boolean truncated;
+
+        ScopeNode(long loadedAt) {
+            this.loadedAt = loadedAt;
+            this.lastAccessed = loadedAt;
+        }
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
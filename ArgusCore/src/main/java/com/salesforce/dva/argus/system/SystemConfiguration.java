@@ -231,6 +231,25 @@ public final class SystemConfiguration extends Properties {
         CLIENT_THREADS("system.property.client.threads", "2"),
         CLIENT_CONNECT_TIMEOUT("system.property.client.connect.timeout", "10000"),
         
+        TRANSFORM_PARALLEL_FUNCTIONS("system.property.transform.parallel.functions", ""),
+        TRANSFORM_PARALLEL_THRESHOLD("system.property.transform.parallel.threshold", "32"),
+        TRANSFORM_PARALLELISM("system.property.transform.parallelism", "0"),
+        TRANSFORM_INCREMENTAL_FUNCTIONS("system.property.transform.incremental.functions", ""),
+        TRANSFORM_INCREMENTAL_MAX_DATAPOINTS("system.property.transform.incremental.max.datapoints", "2000000"),
+        ALERT_ENQUEUE_COMPACT("system.property.alert.enqueue.compact", "false"),
+        ALERT_DEFINITION_CACHE_MAX_ENTRIES("system.property.alert.definition.cache.max.entries", "100000"),
+        ALERT_SIDE_EFFECTS_ASYNC("system.property.alert.sideeffects.async", "false"),
+        ALERT_SIDE_EFFECTS_CAPACITY("system.property.alert.sideeffects.capacity", "50000"),
+        ALERT_SIDE_EFFECTS_FLUSH_INTERVAL_MILLIS("system.property.alert.sideeffects.flush.interval.millis", "1000"),
+        NOTIFICATION_DISPATCH_ASYNC("system.property.notification.dispatch.async", "false"),
+        NOTIFICATION_DISPATCH_CONCURRENCY("system.property.notification.dispatch.concurrency", "GOC:4,GUS:4,CALLBACK:4,EMAIL:2"),
+        NOTIFICATION_DISPATCH_DEFAULT_CONCURRENCY("system.property.notification.dispatch.default.concurrency", "2"),
+        NOTIFICATION_DISPATCH_QUEUE_CAPACITY("system.property.notification.dispatch.queue.capacity", "5000"),
+        NOTIFICATION_DISPATCH_MAX_ATTEMPTS("system.property.notification.dispatch.max.attempts", "3"),
+        NOTIFICATION_DISPATCH_BACKOFF_MILLIS("system.property.notification.dispatch.backoff.millis", "1000"),
+        NOTIFICATION_DISPATCH_BREAKER_THRESHOLD("system.property.notification.dispatch.breaker.threshold", "10"),
+        NOTIFICATION_DISPATCH_BREAKER_COOLDOWN_MILLIS("system.property.notification.dispatch.breaker.cooldown.millis", "60000"),
+        
         CACHE_SERVICE_IMPL_CLASS("service.binding.cache", "com.salesforce.dva.argus.service.cache.NoOperationCacheService"),
         CACHE_SERVICE_PROPERTY_FILE("service.config.cache","argus.properties"),
         
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+	 
+package com.salesforce.dva.argus.util;
+
+import java.text.ParseException;
+import java.util.Calendar;
+
+import org.quartz.CronExpression;
+
+import com.salesforce.dva.argus.system.SystemAssert;
+
+/**
+ * A CRON entry compiled for repeated evaluation. Entries are interpreted exactly as the Quartz trigger built from
+ * {@link Cron#convertToQuartzCronEntry(String)}, but plain numeric entries are held as one bitmask per field so that deciding whether an entry
+ * fires in a given minute involves neither parsing nor allocation. Entries using any other Quartz syntax (names, L, W, #, years) are evaluated by
+ * a Quartz {@link CronExpression} parsed once.
+ *
+ * @author  agent (agent@local)
+ */
+public final class CronSchedule {
+
+	//~ Static fields/initializers *******************************************************************************************************************
+
+	private static final String NO_SPEC = "?";
+	private static final long ALL_MINUTES = (1L << 60) - 1;
+
+	//~ Instance fields ******************************************************************************************************************************
+
+	private final String cronEntry;
+	private final long minutes;
+	private final long hours;
+	private final long daysOfMonth;
+	private final long months;
+	private final long daysOfWeek;
+	private final CronExpression expression;
+
+	//~ Constructors *********************************************************************************************************************************
+
+	private CronSchedule(String cronEntry, long minutes, long hours, long daysOfMonth, long months, long daysOfWeek, CronExpression expression) {
+		this.cronEntry = cronEntry;
+		this.minutes = minutes;
+		this.hours = hours;
+		this.daysOfMonth = daysOfMonth;
+		this.months = months;
+		this.daysOfWeek = daysOfWeek;
+		this.expression = expression;
+	}
+
+	//~ Methods **************************************************************************************************************************************
+
+	/**
+	 * Compiles a CRON entry.
+	 *
+	 * @param   cronEntry  The CRON entry as stored on an alert. Cannot be null.
+	 *
+	 * @return  The compiled schedule.
+	 *
+	 * @throws  IllegalArgumentException  If the entry is not valid CRON syntax.
+	 */
+	public static CronSchedule compile(String cronEntry) {
+		SystemAssert.requireArgument(cronEntry != null && !cronEntry.trim().isEmpty(), "CRON entry cannot be null or empty.");
+
+		String quartzCronEntry = Cron.convertToQuartzCronEntry(cronEntry);
+		String[] fields = quartzCronEntry.split("\\s+");
+
+		if (fields.length == 6 && "0".equals(fields[0]) && (NO_SPEC.equals(fields[3]) ^ NO_SPEC.equals(fields[5]))) {
+			long minutes = parseField(fields[1], 0, 59);
+			long hours = parseField(fields[2], 0, 23);
+			long daysOfMonth = NO_SPEC.equals(fields[3]) ? parseField("*", 1, 31) : parseField(fields[3], 1, 31);
+			long months = parseField(fields[4], 1, 12);
+			long daysOfWeek = NO_SPEC.equals(fields[5]) ? parseField("*", 1, 7) : parseField(fields[5], 1, 7);
+
+			if (minutes != 0 && hours != 0 && daysOfMonth != 0 && months != 0 && daysOfWeek != 0) {
+				return new CronSchedule(cronEntry, minutes, hours, daysOfMonth, months, daysOfWeek, null);
+			}
+		}
+		try {
+			return new CronSchedule(cronEntry, ALL_MINUTES, 0, 0, 0, 0, new CronExpression(quartzCronEntry));
+		} catch (ParseException ex) {
+			throw new IllegalArgumentException("Invalid CRON entry " + cronEntry + ": " + ex.getMessage(), ex);
+		}
+	}
+
+	/*
+	 * Returns the bitmask of the values selected by a field made of numbers, ranges, steps and lists, or 0 if the field uses any other syntax or
+	 * values that Quartz could interpret differently. Those fields are left to Quartz.
+	 */
+	private static long parseField(String field, int min, int max) {
+		long mask = 0;
+
+		for (String part : field.split(",", -1)) {
+			int slash = part.indexOf('/');
+			String range = slash < 0 ? part : part.substring(0, slash);
+			int step = slash < 0 ? 1 : parseNumber(part.substring(slash + 1));
+			int start;
+			int end;
+
+			if ("*".equals(range)) {
+				start = min;
+				end = max;
+			} else {
+				int dash = range.indexOf('-');
+
+				start = parseNumber(dash < 0 ? range : range.substring(0, dash));
+				end = dash < 0 ? (slash < 0 ? start : max) : parseNumber(range.substring(dash + 1));
+			}
+			if (step < 1 || step > max - min || start < min || end > max || start > end) {
+				return 0;
+			}
+			for (int value = start; value <= end; value += step) {
+				mask |= 1L << value;
+			}
+		}
+		return mask;
+	}
+
+	private static int parseNumber(String value) {
+		if (value.isEmpty() || value.length() > 2) {
+			return -1;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if (!Character.isDigit(value.charAt(i))) {
+				return -1;
+			}
+		}
+		return Integer.parseInt(value);
+	}
+
+	/**
+	 * Returns the CRON entry this schedule was compiled from.
+	 *
+	 * @return  The CRON entry.
+	 */
+	public String getCronEntry() {
+		return cronEntry;
+	}
+
+	/**
+	 * Indicates if the schedule can fire at the given minute of any hour. Used to bucket schedules by minute so that only the schedules due in a
+	 * minute need to be evaluated.
+	 *
+	 * @param   minute  The minute of the hour, between 0 and 59.
+	 *
+	 * @return  False if the schedule never fires at this minute.
+	 */
+	public boolean mayFireAtMinute(int minute) {
+		return (minutes & (1L << minute)) != 0;
+	}
+
+	/**
+	 * Indicates if the schedule fires at the given time. Only times at the start of a minute can be fire times.
+	 *
+	 * @param   time  The time to evaluate, in the time zone the schedule applies to. Cannot be null.
+	 *
+	 * @return  True if the schedule fires at the given time.
+	 */
+	public boolean isSatisfiedBy(Calendar time) {
+		if (time.get(Calendar.SECOND) != 0 || time.get(Calendar.MILLISECOND) != 0) {
+			return false;
+		}
+		if (expression != null) {
+			return expression.isSatisfiedBy(time.getTime());
+		}
+		return (minutes & (1L << time.get(Calendar.MINUTE))) != 0 && (hours & (1L << time.get(Calendar.HOUR_OF_DAY))) != 0 &&
+			(daysOfMonth & (1L << time.get(Calendar.DAY_OF_MONTH))) != 0 && (months & (1L << (time.get(Calendar.MONTH) + 1))) != 0 &&
+			(daysOfWeek & (1L << time.get(Calendar.DAY_OF_WEEK))) != 0;
+	}
+
+	@Override
+	public String toString() {
+		return "CronSchedule{" + "cronEntry=" + cronEntry + '}';
+	}
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -78,16 +78,10 @@ public class ClientNode implements Runnable{
 		requireArgument(zookeeperURL != null, "Zookeeper cluster url cannot be null.");
 		requireArgument(electionRootPath != null, "Election root path cannot be null.");
 
-		if(zooKeeper == null){
-			try {
-				_logger.debug("Starting ZooKeeper:");
-				zooKeeper = new ZooKeeper(zookeeperURL, 3000, new ClientNodeWatcher());
-				_logger.debug("Finished starting ZooKeeper: " + zooKeeper);
-			} catch (IOException e) {
-				_logger.error(e.toString());
-				zooKeeper = null;
-			}
-		}
+		// a client node without a session cannot take part in the election, so the failure is the caller's to handle
+		_logger.debug("Starting ZooKeeper:");
+		zooKeeper = new ZooKeeper(zookeeperURL, 3000, new ClientNodeWatcher());
+		_logger.debug("Finished starting ZooKeeper: " + zooKeeper);
 
 		this.electionRootPath = electionRootPath;
 	}
@@ -176,6 +170,20 @@ public class ClientNode implements Runnable{
 		return childNodes;
 	}	
 
+	/**
+	 * Closes the zookeeper session, which removes this client node from the election.
+	 */
+	public void close() {
+		if(zooKeeper != null) {
+			try {
+				zooKeeper.close();
+			} catch (InterruptedException e) {
+				_logger.error("Exception in closing zookeeper client: {}",e);
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
 	@Override
 	public void run() {
 		final String rootNodePath = createNode(electionRootPath, false, false);
@@ -108,6 +108,101 @@ public class DefaultAlertServiceTest extends AbstractTest {
 		assertEquals(1, notificationCount.get());
 	}
 	
+	@Test
+	public void testExecuteScheduledAlerts_SharedExpressionEvaluatedOnce() throws IOException {
+		UserService userService = system.getServiceFactory().getUserService();
+		final AtomicInteger notificationCount = new AtomicInteger(0);
+		final AtomicInteger clearCount = new AtomicInteger(0);
+
+		Metric metric = new Metric("scope", "metric");
+		Map<Long, String> dps = new HashMap<Long, String>();
+		dps.put(1000L, "11");
+		metric.setDatapoints(_convertDatapoints(dps));
+
+		List<Alert> alerts = new ArrayList<>();
+		List<Notification> notifications = new ArrayList<>();
+		// the expressions differ only in whitespace the parser skips
+		String[] expressions = { "-1h:scope:metric:avg", "-1h:scope: metric:avg" };
+		for (int i = 0; i < expressions.length; i++) {
+			Alert alert = new Alert(userService.findAdminUser(), userService.findAdminUser(), "testAlert" + i, expressions[i], "* * * * *");
+			_setAlertId(alert, "10000" + (3 * i + 1));
+			Trigger trigger = new Trigger(alert, TriggerType.GREATER_THAN_OR_EQ, "testTrigger", 10, 0);
+			_setTriggerId(trigger, "10000" + (3 * i + 2));
+			Notification notification = new Notification("testNotification", alert, AuditNotifier.class.getName(), new ArrayList<String>(), 0);
+			_setNotificationId(notification, "10000" + (3 * i + 3));
+
+			alert.setTriggers(Arrays.asList(trigger));
+			alert.setNotifications(Arrays.asList(notification));
+			notification.setTriggers(alert.getTriggers());
+			alert.setEnabled(true);
+			alerts.add(alert);
+			notifications.add(notification);
+		}
+
+		DefaultAlertService spyAlertService = _initializeSpyAlertServiceWithStubs(notificationCount, clearCount, Arrays.asList(metric),
+				alerts.get(0), notifications.get(0));
+		long enqueueTime = 60 * 60 * 1000L;
+		List<AlertWithTimestamp> alertsWithTimestamp = new ArrayList<>();
+		for (Alert alert : alerts) {
+			String serializedAlert = "alert-" + alert.getId();
+			alertsWithTimestamp.add(new AlertWithTimestamp(serializedAlert, enqueueTime));
+			doReturn(alert).when(_mapper).readValue(serializedAlert, Alert.class);
+		}
+		when(_mqServiceMock.dequeue(eq(MQQueue.ALERT.getQueueName()), eq(AlertWithTimestamp.class), anyInt(), anyInt())).thenReturn(alertsWithTimestamp);
+		doNothing().when(spyAlertService).updateNotificationsActiveStatusAndCooldown(anyListOf(Notification.class));
+		doAnswer(new Answer<Notification>() {
+
+			@Override
+			public Notification answer(InvocationOnMock invocation) throws Throwable {
+				return invocation.getArgumentAt(1, Notification.class);
+			}
+		}).when(spyAlertService).mergeEntity(any(EntityManager.class), any(Notification.class));
+
+		spyAlertService.executeScheduledAlerts(2, 1000);
+
+		verify(_metricServiceMock, times(1)).getMetrics(anyString(), eq(enqueueTime));
+		verify(_monitorServiceMock).modifyCounter(MonitorService.Counter.ALERTS_EXPRESSIONS_SHARED, 1, null);
+		assertEquals(2, notificationCount.get());
+	}
+
+	@Test
+	public void testExecuteScheduledAlerts_CompactMessageResolvedFromCache() throws IOException {
+		UserService userService = system.getServiceFactory().getUserService();
+		final AtomicInteger notificationCount = new AtomicInteger(0);
+		final AtomicInteger clearCount = new AtomicInteger(0);
+
+		Metric metric = new Metric("scope", "metric");
+		Map<Long, String> dps = new HashMap<Long, String>();
+		dps.put(1000L, "11");
+		metric.setDatapoints(_convertDatapoints(dps));
+
+		Alert alert = new Alert(userService.findAdminUser(), userService.findAdminUser(), "testAlert", "-1h:scope:metric:avg", "* * * * *");
+		_setAlertId(alert, "100001");
+		Trigger trigger = new Trigger(alert, TriggerType.GREATER_THAN_OR_EQ, "testTrigger", 10, 0);
+		_setTriggerId(trigger, "100002");
+		Notification notification = new Notification("testNotification", alert, AuditNotifier.class.getName(), new ArrayList<String>(), 0);
+		_setNotificationId(notification, "100003");
+
+		alert.setTriggers(Arrays.asList(trigger));
+		alert.setNotifications(Arrays.asList(notification));
+		notification.setTriggers(alert.getTriggers());
+		alert.setEnabled(true);
+
+		DefaultAlertService spyAlertService = _initializeSpyAlertServiceWithStubs(notificationCount, clearCount, Arrays.asList(metric),
+				alert, notification);
+		when(_mqServiceMock.dequeue(eq(MQQueue.ALERT.getQueueName()), eq(AlertWithTimestamp.class), anyInt(), anyInt()))
+				.thenReturn(Arrays.asList(new AlertWithTimestamp(alert.getId(), 0L, System.currentTimeMillis())));
+		doReturn(alert).when(spyAlertService).findAlertByPrimaryKey(alert.getId());
+		when(_mapper.writeValueAsString(alert)).thenReturn("compact-alert");
+		doReturn(alert).when(_mapper).readValue("compact-alert", Alert.class);
+
+		spyAlertService.executeScheduledAlerts(1, 1000);
+		spyAlertService.executeScheduledAlerts(1, 1000);
+
+		verify(spyAlertService, times(1)).findAlertByPrimaryKey(alert.getId());
+		verify(_metricServiceMock, times(2)).getMetrics(anyString(), anyLong());
+	}
+
 	@Test
 	public void testExecuteScheduledAlerts_ForOneTimeSeriesMultipleTriggers() {
 		ServiceFactory sFactory = system.getServiceFactory();
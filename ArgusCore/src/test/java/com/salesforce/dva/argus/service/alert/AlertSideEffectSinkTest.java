@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.service.alert;
+
+import com.salesforce.dva.argus.entity.History;
+import com.salesforce.dva.argus.entity.History.JobStatus;
+import com.salesforce.dva.argus.entity.Metric;
+import com.salesforce.dva.argus.service.HistoryService;
+import com.salesforce.dva.argus.service.TSDBService;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class AlertSideEffectSinkTest {
+
+    @Test
+    public void testCloseFlushesBufferedRecordsInBulk() {
+        HistoryService historyService = mock(HistoryService.class);
+        TSDBService tsdbService = mock(TSDBService.class);
+        AlertSideEffectSink sink = new AlertSideEffectSink(historyService, tsdbService, 100, 60000L);
+
+        for (int i = 1; i <= 3; i++) {
+            sink.addHistory(new History("message", "localhost", BigInteger.valueOf(i), JobStatus.SUCCESS, 10));
+            sink.addMetric(new Metric("alerts.evaluated", "alert-" + i));
+        }
+        verify(historyService, never()).createHistories(anyListOf(History.class));
+        sink.close();
+
+        ArgumentCaptor<List> histories = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List> metrics = ArgumentCaptor.forClass(List.class);
+
+        verify(historyService, times(1)).createHistories(histories.capture());
+        verify(tsdbService, times(1)).putMetrics(metrics.capture());
+        assertEquals(3, histories.getValue().size());
+        assertEquals(3, metrics.getValue().size());
+    }
+
+    @Test
+    public void testFailedBulkHistoryWriteIsRetriedPerRecord() {
+        HistoryService historyService = mock(HistoryService.class);
+        TSDBService tsdbService = mock(TSDBService.class);
+        AlertSideEffectSink sink = new AlertSideEffectSink(historyService, tsdbService, 100, 60000L);
+        History bad = new History("bad", "localhost", BigInteger.valueOf(2), JobStatus.FAILURE, 10);
+        History[] records = {
+            new History("message", "localhost", BigInteger.ONE, JobStatus.SUCCESS, 10), bad,
+            new History("message", "localhost", BigInteger.valueOf(3), JobStatus.SUCCESS, 10)
+        };
+
+        doThrow(new RuntimeException("constraint violation")).when(historyService).createHistories(argThat(new ArgumentMatcher<List<History>>() {
+            @Override
+            public boolean matches(Object argument) {
+                return List.class.cast(argument).contains(bad);
+            }
+        }));
+        for (History record : records) {
+            sink.addHistory(record);
+        }
+        sink.close();
+        verify(historyService, times(1)).createHistories(Collections.singletonList(records[0]));
+        verify(historyService, times(1)).createHistories(Collections.singletonList(bad));
+        verify(historyService, times(1)).createHistories(Collections.singletonList(records[2]));
+    }
+
+    @Test
+    public void testFullBufferWritesInline() {
+        HistoryService historyService = mock(HistoryService.class);
+        TSDBService tsdbService = mock(TSDBService.class);
+        AlertSideEffectSink sink = new AlertSideEffectSink(historyService, tsdbService, 1, 60000L);
+
+        sink.addMetric(new Metric("alerts.evaluated", "alert-1"));
+        verify(tsdbService, never()).putMetrics(anyListOf(Metric.class));
+        sink.addMetric(new Metric("alerts.evaluated", "alert-2"));
+        verify(tsdbService, times(1)).putMetrics(anyListOf(Metric.class));
+        sink.close();
+        verify(tsdbService, times(2)).putMetrics(anyListOf(Metric.class));
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.service.alert;
+
+import com.salesforce.dva.argus.entity.Alert;
+import com.salesforce.dva.argus.entity.PrincipalUser;
+import com.salesforce.dva.argus.entity.Trigger;
+import com.salesforce.dva.argus.entity.Trigger.TriggerType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CompiledTriggersTest {
+
+    private static final Alert ALERT = _alert();
+
+    private static Alert _alert() {
+        Alert alert = mock(Alert.class);
+
+        when(alert.getOwner()).thenReturn(mock(PrincipalUser.class));
+        return alert;
+    }
+
+    /* The scan previously used by DefaultAlertService: sort the datapoints and walk backwards. */
+    private static Long _referenceFiredTime(Trigger trigger, Map<Long, Double> datapoints) {
+        List<Map.Entry<Long, Double>> sorted = new ArrayList<>(datapoints.entrySet());
+        int endIndex = sorted.size();
+
+        for (int startIndex = sorted.size() - 1; startIndex >= 0; startIndex--) {
+            if (Trigger.evaluateTrigger(trigger, sorted.get(startIndex).getValue())) {
+                if (sorted.get(endIndex - 1).getKey() - sorted.get(startIndex).getKey() >= trigger.getInertia()) {
+                    return sorted.get(endIndex - 1).getKey();
+                }
+            } else {
+                endIndex = startIndex;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testMatchesReferenceScan() {
+        Random random = new Random(7);
+        List<Trigger> triggers = new ArrayList<>();
+
+        for (TriggerType type : TriggerType.values()) {
+            if (type == TriggerType.NO_DATA) {
+                continue;
+            }
+            for (long inertia : new long[] { 0, 1, 3, 10 }) {
+                triggers.add(new Trigger(ALERT, type, "trigger", 2.0, 4.0, inertia));
+            }
+        }
+
+        CompiledTriggers compiledTriggers = new CompiledTriggers(triggers);
+
+        for (int run = 0; run < 500; run++) {
+            Map<Long, Double> datapoints = new TreeMap<>();
+            int size = random.nextInt(30);
+
+            for (int i = 0; i < size; i++) {
+                datapoints.put((long) (i + random.nextInt(2) * 100), (double) random.nextInt(6));
+            }
+            compiledTriggers.evaluate(datapoints);
+            for (int i = 0; i < triggers.size(); i++) {
+                assertEquals(triggers.get(i).getType() + " " + datapoints, _referenceFiredTime(triggers.get(i), datapoints),
+                    compiledTriggers.getFiredTime(i));
+            }
+        }
+    }
+
+    @Test
+    public void testTriggersOnSameSeriesAreIndependent() {
+        Trigger high = new Trigger(ALERT, TriggerType.GREATER_THAN, "high", 10.0, 2);
+        Trigger low = new Trigger(ALERT, TriggerType.LESS_THAN, "low", 1.0, 0);
+        Trigger noData = new Trigger(ALERT, TriggerType.NO_DATA, "no-data", 0.0, 0);
+        CompiledTriggers compiledTriggers = new CompiledTriggers(Arrays.asList(high, low, noData));
+        Map<Long, Double> datapoints = new TreeMap<>();
+
+        datapoints.put(1L, 11.0);
+        datapoints.put(2L, 12.0);
+        datapoints.put(3L, 13.0);
+        datapoints.put(4L, 0.0);
+        datapoints.put(5L, 5.0);
+        compiledTriggers.evaluate(datapoints);
+        assertTrue(compiledTriggers.isFired(0));
+        assertEquals(Long.valueOf(3L), compiledTriggers.getFiredTime(0));
+        assertEquals(Long.valueOf(4L), compiledTriggers.getFiredTime(1));
+        assertFalse(compiledTriggers.isFired(2));
+
+        datapoints.clear();
+        datapoints.put(1L, 11.0);
+        compiledTriggers.evaluate(datapoints);
+        assertNull(compiledTriggers.getFiredTime(0));
+        assertNull(compiledTriggers.getFiredTime(1));
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
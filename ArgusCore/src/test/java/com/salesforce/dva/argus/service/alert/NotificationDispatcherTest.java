@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.service.alert;
+
+import com.salesforce.dva.argus.entity.Alert;
+import com.salesforce.dva.argus.entity.Notification;
+import com.salesforce.dva.argus.service.AlertService.Notifier;
+import com.salesforce.dva.argus.service.AlertService.SupportedNotifier;
+import com.salesforce.dva.argus.service.MonitorService;
+import com.salesforce.dva.argus.service.MonitorService.Counter;
+import com.salesforce.dva.argus.service.alert.DefaultAlertService.NotificationContext;
+import com.salesforce.dva.argus.system.SystemException;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+public class NotificationDispatcherTest {
+
+    private static NotificationContext _context() {
+        NotificationContext context = mock(NotificationContext.class);
+        Notification notification = mock(Notification.class);
+        Alert alert = mock(Alert.class);
+
+        when(notification.getName()).thenReturn("notification");
+        when(alert.getId()).thenReturn(BigInteger.ONE);
+        when(context.getNotification()).thenReturn(notification);
+        when(context.getAlert()).thenReturn(alert);
+        return context;
+    }
+
+    @Test
+    public void testFailedDeliveryIsRetried() {
+        MonitorService monitorService = mock(MonitorService.class);
+        Notifier notifier = mock(Notifier.class);
+        NotificationContext context = _context();
+        NotificationDispatcher dispatcher = new NotificationDispatcher(monitorService, new HashMap<SupportedNotifier, Integer>(), 1, 10, 3, 1, 10, 60000);
+
+        doThrow(new SystemException("unavailable")).doNothing().when(notifier).sendNotification(context);
+        assertTrue(dispatcher.dispatch(SupportedNotifier.GOC, notifier, context, false, null));
+        dispatcher.close(10000);
+        verify(notifier, times(2)).sendNotification(context);
+        verify(monitorService).modifyCounter(eq(Counter.NOTIFICATIONS_DELIVERY_LATENCY), anyDouble(), anyMapOf(String.class, String.class));
+        verify(monitorService, never()).modifyCounter(eq(Counter.NOTIFICATIONS_FAILED), anyDouble(), anyMapOf(String.class, String.class));
+    }
+
+    @Test
+    public void testCircuitBreakerOpensAfterConsecutiveFailures() {
+        MonitorService monitorService = mock(MonitorService.class);
+        Notifier notifier = mock(Notifier.class);
+        NotificationContext context = _context();
+        NotificationDispatcher dispatcher = new NotificationDispatcher(monitorService, new HashMap<SupportedNotifier, Integer>(), 1, 10, 2, 1, 2, 60000);
+
+        Runnable onFailure = mock(Runnable.class);
+
+        doThrow(new SystemException("unavailable")).when(notifier).clearNotification(context);
+        assertTrue(dispatcher.admit(SupportedNotifier.GUS));
+        assertTrue(dispatcher.dispatch(SupportedNotifier.GUS, notifier, context, true, onFailure));
+        verify(notifier, timeout(10000).times(2)).clearNotification(context);
+        verify(monitorService, timeout(10000)).modifyCounter(eq(Counter.NOTIFICATIONS_FAILED), anyDouble(), anyMapOf(String.class, String.class));
+        verify(onFailure, timeout(10000)).run();
+        assertFalse(dispatcher.admit(SupportedNotifier.GUS));
+        assertFalse(dispatcher.dispatch(SupportedNotifier.GUS, notifier, context, true, null));
+        // other notifier types have their own breaker
+        assertTrue(dispatcher.admit(SupportedNotifier.EMAIL));
+        assertTrue(dispatcher.dispatch(SupportedNotifier.EMAIL, mock(Notifier.class), context, false, null));
+        dispatcher.close(10000);
+        verify(notifier, times(2)).clearNotification(context);
+        verify(monitorService, times(2)).modifyCounter(eq(Counter.NOTIFICATIONS_DROPPED), anyDouble(), anyMapOf(String.class, String.class));
+    }
+
+    @Test
+    public void testClosedDispatcherDoesNotAdmit() {
+        MonitorService monitorService = mock(MonitorService.class);
+        NotificationDispatcher dispatcher = new NotificationDispatcher(monitorService, new HashMap<SupportedNotifier, Integer>(), 1, 10, 3, 1, 10, 60000);
+
+        dispatcher.close(10000);
+        assertFalse(dispatcher.admit(SupportedNotifier.GOC));
+        verify(monitorService).modifyCounter(eq(Counter.NOTIFICATIONS_DROPPED), anyDouble(), anyMapOf(String.class, String.class));
+    }
+
+    @Test
+    public void testBackoffIsExponentialWithJitter() {
+        for (int i = 0; i < 100; i++) {
+            long first = NotificationDispatcher.getBackoff(1, 100);
+            long third = NotificationDispatcher.getBackoff(3, 100);
+
+            assertTrue(first >= 50 && first <= 100);
+            assertTrue(third >= 200 && third <= 400);
+        }
+        assertEquals(0, NotificationDispatcher.getBackoff(1, 0));
+    }
+
+    @Test
+    public void testParseConcurrency() {
+        Map<SupportedNotifier, Integer> concurrency = NotificationDispatcher.parseConcurrency("GOC:4, gus:2");
+
+        assertEquals(2, concurrency.size());
+        assertEquals(Integer.valueOf(4), concurrency.get(SupportedNotifier.GOC));
+        assertEquals(Integer.valueOf(2), concurrency.get(SupportedNotifier.GUS));
+        assertTrue(NotificationDispatcher.parseConcurrency("").isEmpty());
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.service.alert;
+
+import com.salesforce.dva.argus.entity.Notification;
+import com.salesforce.dva.argus.service.alert.NotificationsCache.NotificationState;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class NotificationsCacheTest {
+
+    private static Notification _notification(long id, Map<String, Long> cooldownExpirations, Map<String, Boolean> activeStatuses) {
+        Notification notification = mock(Notification.class);
+
+        when(notification.getId()).thenReturn(BigInteger.valueOf(id));
+        when(notification.getCooldownExpirationMap()).thenReturn(cooldownExpirations);
+        when(notification.getActiveStatusMap()).thenReturn(activeStatuses);
+        return notification;
+    }
+
+    @Test
+    public void testLocalUpdateIsAppliedImmediately() {
+        NotificationsCache cache = new NotificationsCache();
+        Map<String, Long> cooldownExpirations = new HashMap<>();
+        Map<String, Boolean> activeStatuses = new HashMap<>();
+
+        cooldownExpirations.put("1$$2", 1000L);
+        activeStatuses.put("1$$2", true);
+        assertFalse(cache.apply(_notification(1, new HashMap<>(), new HashMap<>())));
+        cache.put(_notification(1, cooldownExpirations, activeStatuses));
+        // the cache keeps its own copy
+        activeStatuses.put("1$$2", false);
+
+        Notification notification = _notification(1, new HashMap<>(), new HashMap<>());
+        ArgumentCaptor<Map> cached = ArgumentCaptor.forClass(Map.class);
+
+        assertTrue(cache.apply(notification));
+        verify(notification).setActiveStatusMap(cached.capture());
+        assertEquals(Collections.singletonMap("1$$2", true), cached.getValue());
+        verify(notification).setCooldownExpirationMap(cached.capture());
+        assertEquals(Collections.singletonMap("1$$2", 1000L), cached.getValue());
+    }
+
+    @Test
+    public void testReplaceOnlyTouchesModifiedNotifications() {
+        NotificationsCache cache = new NotificationsCache();
+        Map<Long, NotificationState> states = new HashMap<>();
+
+        states.put(1L, new NotificationState(Collections.singletonMap("a", 1L), Collections.singletonMap("a", true), 1000L));
+        states.put(2L, new NotificationState(Collections.singletonMap("b", 2L), Collections.singletonMap("b", true), 1000L));
+        cache.replaceAll(states, 1000L);
+        assertEquals(2, cache.size());
+
+        Map<Long, NotificationState> modified = new HashMap<>();
+
+        modified.put(3L, new NotificationState(Collections.singletonMap("c", 3L), Collections.<String, Boolean>emptyMap(), 2000L));
+        // notification 2 no longer has any state
+        cache.replace(Arrays.asList(2L, 3L), modified, 2000L);
+        assertEquals(2, cache.size());
+        assertTrue(cache.apply(_notification(1, new HashMap<>(), new HashMap<>())));
+        assertFalse(cache.apply(_notification(2, new HashMap<>(), new HashMap<>())));
+        assertTrue(cache.apply(_notification(3, new HashMap<>(), new HashMap<>())));
+
+        cache.replaceAll(Collections.singletonMap(3L, modified.get(3L)), 3000L);
+        assertEquals(1, cache.size());
+        assertFalse(cache.apply(_notification(1, new HashMap<>(), new HashMap<>())));
+    }
+
+    @Test
+    public void testRefreshDoesNotOverwriteNewerLocalState() {
+        NotificationsCache cache = new NotificationsCache();
+        long refreshTime = System.currentTimeMillis() - 1000L;
+        NotificationState stale = new NotificationState(Collections.singletonMap("a", 1L), Collections.singletonMap("a", false), refreshTime);
+
+        cache.put(_notification(1, Collections.singletonMap("a", 5L), Collections.singletonMap("a", true)));
+        cache.put(_notification(2, Collections.singletonMap("b", 5L), Collections.singletonMap("b", true)));
+        // the refresh started before the local updates and read the older state
+        cache.replace(Arrays.asList(1L, 2L), Collections.singletonMap(1L, stale), refreshTime);
+        cache.replaceAll(Collections.singletonMap(1L, stale), refreshTime);
+        assertEquals(2, cache.size());
+
+        Notification notification = _notification(1, new HashMap<>(), new HashMap<>());
+        ArgumentCaptor<Map> cached = ArgumentCaptor.forClass(Map.class);
+
+        assertTrue(cache.apply(notification));
+        verify(notification).setActiveStatusMap(cached.capture());
+        assertEquals(Collections.singletonMap("a", true), cached.getValue());
+        assertTrue(cache.apply(_notification(2, new HashMap<>(), new HashMap<>())));
+
+        // a refresh that started after the local updates wins
+        cache.replaceAll(Collections.singletonMap(1L, stale), System.currentTimeMillis() + 1000L);
+        assertEquals(1, cache.size());
+        assertFalse(cache.apply(_notification(2, new HashMap<>(), new HashMap<>())));
+    }
+
+    @Test
+    public void testRefresherReloadsNotificationsModifiedSinceWatermark() {
+        NotificationsCache cache = new NotificationsCache();
+        EntityManager em = mock(EntityManager.class);
+        TypedQuery<BigInteger> modifiedQuery = mock(TypedQuery.class);
+        Query cooldownQuery = mock(Query.class);
+        Query activeQuery = mock(Query.class);
+        NotificationsCacheRefresherThread refresher = new NotificationsCacheRefresherThread(cache, () -> em);
+        long refreshTime = 10 * 60 * 1000L;
+
+        when(em.createQuery(anyString(), eq(BigInteger.class))).thenReturn(modifiedQuery);
+        when(em.createNativeQuery(startsWith("select * from notification_cooldown"))).thenReturn(cooldownQuery);
+        when(em.createNativeQuery(startsWith("select * from notification_activestatus"))).thenReturn(activeQuery);
+        when(cooldownQuery.getResultList()).thenReturn(Arrays.asList(new Object[] { 1L, 100L, "a" }, new Object[] { 2L, 200L, "b" }));
+        when(activeQuery.getResultList()).thenReturn(Collections.singletonList(new Object[] { 1L, true, "a" }));
+
+        // a cold cache is reloaded in full
+        refresher.refresh(em, refreshTime);
+        assertTrue(cache.isNotificationsCacheRefreshed());
+        assertEquals(2, cache.size());
+        assertEquals(refreshTime - 60 * 1000L, cache.getWatermark());
+        verify(em).createNativeQuery("select * from notification_cooldownexpirationbytriggerandmetric");
+        verify(em, never()).createQuery(anyString(), eq(BigInteger.class));
+
+        // a warm cache only reloads the notifications modified since the watermark
+        when(modifiedQuery.getResultList()).thenReturn(Arrays.asList(BigInteger.valueOf(2), BigInteger.valueOf(3)));
+        when(cooldownQuery.getResultList()).thenReturn(Collections.singletonList(new Object[] { 3L, 300L, "c" }));
+        when(activeQuery.getResultList()).thenReturn(Collections.emptyList());
+        refresher.refresh(em, refreshTime + 10000L);
+        verify(modifiedQuery).setParameter("since", new Date(refreshTime - 60 * 1000L));
+        verify(em).createNativeQuery("select * from notification_cooldownexpirationbytriggerandmetric where notification_id IN (2,3)");
+        assertEquals(refreshTime + 10000L - 60 * 1000L, cache.getWatermark());
+        assertEquals(2, cache.size());
+        assertTrue(cache.apply(_notification(1, new HashMap<>(), new HashMap<>())));
+        assertFalse(cache.apply(_notification(2, new HashMap<>(), new HashMap<>())));
+        assertTrue(cache.apply(_notification(3, new HashMap<>(), new HashMap<>())));
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.service.cache;
+
+import com.salesforce.dva.argus.system.SystemConfiguration;
+import org.junit.Test;
+import redis.clients.jedis.BuilderFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.util.JedisClusterCRC16;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+public class RedisCacheServiceTest {
+
+    private static final int SPLIT_SLOT = 8192;
+
+    private static Response<String> _value(String value) {
+        Response<String> response = new Response<>(BuilderFactory.STRING);
+
+        response.set(value.getBytes());
+        return response;
+    }
+
+    private static Response<String> _error(JedisDataException ex) {
+        Response<String> response = new Response<>(BuilderFactory.STRING);
+
+        response.set(ex);
+        return response;
+    }
+
+    private static List<Object> _slotRange(long start, long end, String host, long port) {
+        return Arrays.<Object>asList(start, end, Arrays.<Object>asList(host.getBytes(), port));
+    }
+
+    private static JedisPool _node(List<Object> slots, Pipeline pipeline) {
+        JedisPool pool = mock(JedisPool.class);
+        Jedis jedis = mock(Jedis.class);
+
+        when(pool.getResource()).thenReturn(jedis);
+        when(jedis.clusterSlots()).thenReturn(slots);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        return pool;
+    }
+
+    private static RedisCacheService _service(JedisCluster cluster) {
+        return new RedisCacheService(new SystemConfiguration(new Properties()), cluster);
+    }
+
+    @Test
+    public void testBulkGetGroupsKeysBySlotOwner() {
+        List<Object> slots = Arrays.<Object>asList(_slotRange(0, SPLIT_SLOT - 1, "host1", 6379), _slotRange(SPLIT_SLOT, 16383, "host2", 6379));
+        Pipeline pipeline1 = mock(Pipeline.class);
+        Pipeline pipeline2 = mock(Pipeline.class);
+        Map<String, JedisPool> nodes = new LinkedHashMap<>();
+        JedisCluster cluster = mock(JedisCluster.class);
+        Set<String> keys = new HashSet<>();
+
+        nodes.put("host1:6379", _node(slots, pipeline1));
+        nodes.put("host2:6379", _node(slots, pipeline2));
+        when(cluster.getClusterNodes()).thenReturn(nodes);
+        for (int i = 0; i < 50; i++) {
+            String key = "key" + i;
+
+            keys.add(key);
+            when(pipeline1.get(key)).thenReturn(_value("host1:" + key));
+            when(pipeline2.get(key)).thenReturn(_value("host2:" + key));
+        }
+
+        RedisCacheService service = _service(cluster);
+        Map<String, String> result = service.get(keys);
+
+        assertEquals(keys, result.keySet());
+        for (String key : keys) {
+            String owner = JedisClusterCRC16.getSlot(key) < SPLIT_SLOT ? "host1:" : "host2:";
+
+            assertEquals(owner + key, result.get(key));
+        }
+        verify(pipeline1).sync();
+        verify(pipeline2).sync();
+        verify(cluster, never()).get(anyString());
+        service.dispose();
+    }
+
+    @Test
+    public void testRedirectedKeysAreRetriedThroughClusterClient() {
+        List<Object> slots = Arrays.<Object>asList(_slotRange(0, 16383, "host1", 6379));
+        Pipeline pipeline = mock(Pipeline.class);
+        Map<String, JedisPool> nodes = new LinkedHashMap<>();
+        JedisCluster cluster = mock(JedisCluster.class);
+
+        nodes.put("host1:6379", _node(slots, pipeline));
+        when(cluster.getClusterNodes()).thenReturn(nodes);
+        when(pipeline.get("local")).thenReturn(_value("local-value"));
+        when(pipeline.get("moved")).thenReturn(_error(new JedisMovedDataException("MOVED", new HostAndPort("host2", 6379), 1)));
+        when(pipeline.get("asked")).thenReturn(_error(new JedisAskDataException("ASK", new HostAndPort("host2", 6379), 2)));
+        when(cluster.get("moved")).thenReturn("moved-value");
+        when(cluster.get("asked")).thenReturn("asked-value");
+
+        RedisCacheService service = _service(cluster);
+        Map<String, String> result = service.get(new HashSet<>(Arrays.asList("local", "moved", "asked")));
+
+        assertEquals("local-value", result.get("local"));
+        assertEquals("moved-value", result.get("moved"));
+        assertEquals("asked-value", result.get("asked"));
+        verify(cluster, never()).get("local");
+        service.dispose();
+    }
+
+    @Test
+    public void testFailedKeyIsRetriedIndividuallyAndReportedMissing() {
+        List<Object> slots = Arrays.<Object>asList(_slotRange(0, 16383, "host1", 6379));
+        Pipeline pipeline = mock(Pipeline.class);
+        Map<String, JedisPool> nodes = new LinkedHashMap<>();
+        JedisCluster cluster = mock(JedisCluster.class);
+
+        nodes.put("host1:6379", _node(slots, pipeline));
+        when(cluster.getClusterNodes()).thenReturn(nodes);
+        when(pipeline.get("good")).thenReturn(_value("good-value"));
+        when(pipeline.get("retried")).thenReturn(_error(new JedisDataException("LOADING")));
+        when(pipeline.get("bad")).thenReturn(_error(new JedisDataException("WRONGTYPE")));
+        when(cluster.get("retried")).thenReturn("retried-value");
+        when(cluster.get("bad")).thenThrow(new JedisDataException("WRONGTYPE"));
+
+        RedisCacheService service = _service(cluster);
+        Map<String, String> result = service.get(new HashSet<>(Arrays.asList("good", "retried", "bad")));
+
+        assertEquals(3, result.size());
+        assertEquals("good-value", result.get("good"));
+        assertEquals("retried-value", result.get("retried"));
+        assertTrue(result.containsKey("bad"));
+        assertNull(result.get("bad"));
+        service.dispose();
+    }
+
+    @Test
+    public void testFailedPipelineFallsBackToClusterClient() {
+        List<Object> slots = Arrays.<Object>asList(_slotRange(0, 16383, "host1", 6379));
+        Pipeline pipeline = mock(Pipeline.class);
+        Map<String, JedisPool> nodes = new LinkedHashMap<>();
+        JedisCluster cluster = mock(JedisCluster.class);
+        List<String> keys = new ArrayList<>();
+
+        nodes.put("host1:6379", _node(slots, pipeline));
+        when(cluster.getClusterNodes()).thenReturn(nodes);
+        doThrow(new JedisConnectionException("connection reset")).when(pipeline).sync();
+        for (int i = 0; i < 10; i++) {
+            String key = "key" + i;
+
+            keys.add(key);
+            when(pipeline.get(key)).thenReturn(_value("stale"));
+            when(cluster.get(key)).thenReturn("value" + i);
+        }
+
+        RedisCacheService service = _service(cluster);
+        Map<String, String> result = service.get(new HashSet<>(keys));
+
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals("value" + i, result.get(keys.get(i)));
+        }
+        service.dispose();
+    }
+
+    @Test
+    public void testUnknownSlotLayoutFallsBackToClusterClient() {
+        JedisPool pool = mock(JedisPool.class);
+        Map<String, JedisPool> nodes = new LinkedHashMap<>();
+        JedisCluster cluster = mock(JedisCluster.class);
+
+        nodes.put("host1:6379", pool);
+        when(pool.getResource()).thenThrow(new JedisConnectionException("connection refused"));
+        when(cluster.getClusterNodes()).thenReturn(nodes);
+        when(cluster.get("key")).thenReturn("value");
+
+        RedisCacheService service = _service(cluster);
+
+        assertEquals("value", service.<String>get(new HashSet<>(Arrays.asList("key"))).get("key"));
+        service.dispose();
+    }
+
+    @Test
+    public void testExistReportsFailedKeysAsMissing() {
+        List<Object> slots = Arrays.<Object>asList(_slotRange(0, 16383, "host1", 6379));
+        Pipeline pipeline = mock(Pipeline.class);
+        Map<String, JedisPool> nodes = new LinkedHashMap<>();
+        JedisCluster cluster = mock(JedisCluster.class);
+        Response<Boolean> present = new Response<>(BuilderFactory.BOOLEAN);
+        Response<Boolean> failed = new Response<>(BuilderFactory.BOOLEAN);
+
+        present.set(1L);
+        failed.set(new JedisDataException("LOADING"));
+        nodes.put("host1:6379", _node(slots, pipeline));
+        when(cluster.getClusterNodes()).thenReturn(nodes);
+        when(pipeline.exists("present")).thenReturn(present);
+        when(pipeline.exists("failed")).thenReturn(failed);
+        when(cluster.exists("failed")).thenThrow(new JedisDataException("LOADING"));
+
+        RedisCacheService service = _service(cluster);
+        Map<String, Boolean> result = service.exist(new HashSet<>(Arrays.asList("present", "failed")));
+
+        assertEquals(Boolean.TRUE, result.get("present"));
+        assertEquals(Boolean.FALSE, result.get("failed"));
+        service.dispose();
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.service.metric;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MetricExpressionCacheTest {
+
+    @Test
+    public void testNormalizeRemovesSkippedWhitespaceAroundSeparators() {
+        assertEquals("SUM(-1h:scope:metric:avg,-2h:scope:metric:avg)",
+            MetricExpressionCache.normalize(" SUM( -1h:scope:metric:avg ,\n -2h : scope:metric:avg ) "));
+    }
+
+    @Test
+    public void testNormalizeKeepsConstantsAndTags() {
+        String expression = "ALIAS(-1h:scope:metric{a=b, c=d}:avg, #new name#, #literal#)";
+
+        assertEquals("ALIAS(-1h:scope:metric{a=b, c=d}:avg,#new name#,#literal#)", MetricExpressionCache.normalize(expression));
+    }
+
+    @Test
+    public void testRepeatedExpressionSharesPlan() throws ParseException {
+        MetricExpressionCache cache = new MetricExpressionCache(2, false);
+        MetricExpressionPlan plan = cache.get("SUM(-1h:scope:metric:avg, -2h:scope:metric:avg)");
+
+        assertSame(plan, cache.get("SUM(-1h:scope:metric:avg,-2h:scope:metric:avg)"));
+        cache.get("-1h:scope:a:avg");
+        cache.get("-1h:scope:b:avg");
+        assertEquals(2, cache.size());
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.service.metric;
+
+import com.salesforce.dva.argus.service.tsdb.MetricQuery.Aggregator;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricExpressionPlanTest {
+
+    private static MetricExpressionPlan.Node _query(MetricExpressionPlan.Builder builder, Aggregator aggregator, String... tags) {
+        Map<String, String> tagMap = new HashMap<>();
+
+        for (String tag : tags) {
+            tagMap.put(tag, "*");
+        }
+        return builder.query("-1h", null, "scope", "metric", tagMap, aggregator, null, null, null);
+    }
+
+    private static MetricExpressionPlan _function(String name, Aggregator aggregator, List<String> constants, String... tags) {
+        MetricExpressionPlan.Builder builder = new MetricExpressionPlan.Builder();
+        List<MetricExpressionPlan.Node> arguments = Arrays.asList(_query(builder, aggregator, tags));
+
+        return builder.build("expression", builder.function(name, arguments, constants, false));
+    }
+
+    @Test
+    public void testIdenticalSubexpressionsAreInterned() {
+        MetricExpressionPlan.Builder builder = new MetricExpressionPlan.Builder();
+        MetricExpressionPlan.Node first = builder.function("SUM", Arrays.asList(_query(builder, Aggregator.AVG)),
+            Collections.<String>emptyList(), false);
+        MetricExpressionPlan.Node second = builder.function("SUM", Arrays.asList(_query(builder, Aggregator.AVG)),
+            Collections.<String>emptyList(), false);
+        MetricExpressionPlan plan = builder.build("expression", builder.function("DIVIDE", Arrays.asList(first, second),
+            Collections.<String>emptyList(), false));
+
+        assertSame(first, second);
+        assertEquals(3, plan.getNodeCount());
+        assertTrue(plan.explain().contains("shared x2: SUM(-1h:scope:metric:avg)"));
+    }
+
+    @Test
+    public void testSumPushedDownAsZimsum() {
+        MetricExpressionPlan plan = _function("SUM", Aggregator.NONE, Collections.<String>emptyList()).pushDown();
+
+        assertEquals("SUM(-1h:scope:metric:zimsum)", plan.toString());
+        assertEquals(1, plan.getPushedDown().size());
+    }
+
+    @Test
+    public void testAggregatedQueryNotPushedDown() {
+        MetricExpressionPlan plan = _function("SUM", Aggregator.AVG, Collections.<String>emptyList()).pushDown();
+
+        assertEquals("SUM(-1h:scope:metric:avg)", plan.toString());
+        assertTrue(plan.getPushedDown().isEmpty());
+    }
+
+    @Test
+    public void testGroupByTagPushedDownOnlyForQueryTags() {
+        MetricExpressionPlan grouped = _function("GROUPBYTAG", Aggregator.NONE, Arrays.asList("host", "MAX"), "host").pushDown();
+        MetricExpressionPlan ungrouped = _function("GROUPBYTAG", Aggregator.NONE, Arrays.asList("dc", "MAX"), "host").pushDown();
+
+        assertEquals(1, grouped.getPushedDown().size());
+        assertTrue(grouped.toString().contains(":mimmax"));
+        assertTrue(ungrouped.getPushedDown().isEmpty());
+    }
+
+    @Test
+    public void testDownsamplePushedDownOnlyForAlignedWindows() {
+        MetricExpressionPlan aligned = _function("DOWNSAMPLE", Aggregator.NONE, Arrays.asList("1m-avg")).pushDown();
+        MetricExpressionPlan unaligned = _function("DOWNSAMPLE", Aggregator.NONE, Arrays.asList("5m-avg")).pushDown();
+
+        assertEquals("DOWNSAMPLE(-1h:scope:metric:none:60s-avg,#1m-avg#)", aligned.toString());
+        assertTrue(unaligned.getPushedDown().isEmpty());
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -31,15 +31,25 @@
      
 package com.salesforce.dva.argus.service.metric;
 
+import com.salesforce.dva.argus.entity.Metric;
+import com.salesforce.dva.argus.service.DiscoveryService;
+import com.salesforce.dva.argus.service.TSDBService;
+import com.salesforce.dva.argus.service.metric.transform.TransformFactory;
+import com.salesforce.dva.argus.service.tsdb.MetricQuery;
 import com.salesforce.dva.argus.system.SystemException;
 import org.junit.Test;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
 
 public class MetricReaderTest {
 
@@ -93,6 +103,57 @@ public class MetricReaderTest {
         }
     }
 
+    @Test
+    public void testRepeatedSubexpressionEvaluatedOnce() throws ParseException {
+        TSDBService tsdbService = mock(TSDBService.class);
+        DiscoveryService discoveryService = mock(DiscoveryService.class);
+
+        when(discoveryService.getMatchingQueries(any(MetricQuery.class))).thenAnswer(invocation -> Arrays.asList(invocation.getArguments()[0]));
+        when(tsdbService.getMetrics(any(List.class))).thenAnswer(invocation -> {
+            Map<MetricQuery, List<Metric>> result = new HashMap<>();
+
+            for (MetricQuery query : (List<MetricQuery>) invocation.getArguments()[0]) {
+                Metric metric = new Metric(query.getScope(), query.getMetric());
+                Map<Long, Double> datapoints = new HashMap<>();
+
+                datapoints.put(1000L, 1.0);
+                datapoints.put(2000L, 2.0);
+                metric.setDatapoints(datapoints);
+                result.put(query, Arrays.asList(metric));
+            }
+            return result;
+        });
+
+        MetricReader<Metric> reader = new MetricReader<>(tsdbService, discoveryService, new TransformFactory(tsdbService));
+        MetricExpressionPlan plan = reader.compile("SUM(-1h:scope:metric:avg, SCALE(-1h:scope:metric:avg, #2#))");
+        List<Metric> metrics = reader.evaluate(plan, 3600000L, Metric.class);
+        Map<Long, Double> expected = new HashMap<>();
+
+        expected.put(1000L, 3.0);
+        expected.put(2000L, 6.0);
+        assertEquals(3, plan.getNodeCount());
+        assertEquals(1, metrics.size());
+        assertEquals(expected, metrics.get(0).getDatapoints());
+        verify(tsdbService, times(1)).getMetrics(any(List.class));
+    }
+
+    @Test
+    public void testCompiledPlanBindsRelativeTimesOnEvaluation() throws ParseException {
+        DiscoveryService discoveryService = mock(DiscoveryService.class);
+
+        when(discoveryService.getMatchingQueries(any(MetricQuery.class))).thenAnswer(invocation -> Arrays.asList(invocation.getArguments()[0]));
+
+        MetricReader<MetricQuery> reader = new MetricReader<>(mock(TSDBService.class), discoveryService, null);
+        MetricExpressionPlan plan = reader.compile("UNION(-1h:scope:metric:avg, -1h:scope:metric:avg)");
+        List<MetricQuery> first = reader.evaluate(plan, 7200000L, MetricQuery.class);
+        List<MetricQuery> second = reader.evaluate(plan, 10800000L, MetricQuery.class);
+
+        assertEquals(2, first.size());
+        assertEquals(Long.valueOf(3600000L), first.get(0).getStartTimestamp());
+        assertEquals(Long.valueOf(7200000L), second.get(1).getStartTimestamp());
+        assertEquals(Long.valueOf(10800000L), second.get(1).getEndTimestamp());
+    }
+
     private Properties readFile(String fileName) {
         if ((fileName != null) && !fileName.isEmpty()) {
             Properties result = new Properties();
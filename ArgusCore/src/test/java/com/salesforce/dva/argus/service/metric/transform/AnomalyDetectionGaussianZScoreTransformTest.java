@@ -377,5 +377,40 @@ public class AnomalyDetectionGaussianZScoreTransformTest {
         List<Metric> results = gaussianZScoreTransform.transform(metrics);
     }
 
+    @Test
+    public void gaussianZScoreTransformIncrementalMatchesFullEvaluation() {
+        AnomalyDetectionGaussianZScoreTransform incrementalTransform = new AnomalyDetectionGaussianZScoreTransform();
+        List<String> constants = new ArrayList<>();
+        Map<Long, Double> series = new HashMap<>();
+
+        incrementalTransform.setStateCache(new TransformStateCache(100000));
+        constants.add("10s");
+        for (long timestamp = 0; timestamp < 300; timestamp += 2) {
+            series.put(timestamp, Math.sin(timestamp / 7.0) * 10 + (timestamp % 3));
+        }
+        for (long start = 0; start <= 100; start += 20) {
+            if (start == 60) {
+                series.put(150L, -50.0);
+            }
+
+            Map<Long, Double> window = new HashMap<>();
+
+            for (Map.Entry<Long, Double> entry : series.entrySet()) {
+                if (entry.getKey() >= start && entry.getKey() < start + 200) {
+                    window.put(entry.getKey(), entry.getValue());
+                }
+            }
+
+            Metric windowMetric = new Metric(TEST_SCOPE, TEST_METRIC);
+
+            windowMetric.setDatapoints(window);
+
+            List<Metric> windowMetrics = new ArrayList<>();
+
+            windowMetrics.add(windowMetric);
+            assertEquals(new AnomalyDetectionGaussianZScoreTransform().transform(windowMetrics, constants).get(0).getDatapoints(),
+                incrementalTransform.transform(windowMetrics, constants).get(0).getDatapoints());
+        }
+    }
 }
 /* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
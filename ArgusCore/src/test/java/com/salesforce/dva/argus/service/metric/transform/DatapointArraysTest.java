@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.service.metric.transform;
+
+import org.junit.Test;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DatapointArraysTest {
+
+    @Test
+    public void testOfSortsUnorderedDatapoints() {
+        Map<Long, Double> datapoints = new HashMap<>();
+
+        datapoints.put(3000L, 3.0);
+        datapoints.put(1000L, 1.0);
+        datapoints.put(2000L, 2.0);
+
+        DatapointArrays arrays = DatapointArrays.of(datapoints, null);
+
+        assertEquals(3, arrays.size());
+        assertEquals(1000L, arrays.getTimestamps()[0]);
+        assertEquals(3.0, arrays.getValues()[2], 0.0);
+        assertEquals(new TreeMap<>(datapoints), arrays.toMap());
+    }
+
+    @Test
+    public void testOfWithNullValues() {
+        Map<Long, Double> datapoints = new HashMap<>();
+
+        datapoints.put(1000L, null);
+        datapoints.put(2000L, 2.0);
+        assertNull(DatapointArrays.of(datapoints, null));
+        assertEquals(0.0, DatapointArrays.of(datapoints, 0.0).getValues()[0], 0.0);
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.service.metric.transform;
+
+import com.salesforce.dva.argus.entity.Metric;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class DatapointMergerTest {
+
+    private static Metric _metric(String name, Map<Long, Double> datapoints) {
+        Metric metric = new Metric("scope", name);
+
+        metric.setDatapoints(datapoints);
+        return metric;
+    }
+
+    @Test
+    public void testMergeStreamsDatapointsInTimestampAndSeriesOrder() {
+        Map<Long, Double> datapoints_1 = new HashMap<>();
+        Map<Long, Double> datapoints_2 = new HashMap<>();
+
+        datapoints_1.put(3000L, 13.0);
+        datapoints_1.put(1000L, 11.0);
+        datapoints_2.put(2000L, 22.0);
+        datapoints_2.put(1000L, 21.0);
+
+        DatapointMerger merger = new DatapointMerger(Arrays.asList(_metric("m1", datapoints_1), _metric("m2", datapoints_2)));
+        List<Long> timestamps = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+        List<Integer> series = new ArrayList<>();
+
+        while (merger.hasNext()) {
+            timestamps.add(merger.nextTimestamp());
+            values.add(merger.next());
+            series.add(merger.currentSeries());
+        }
+        assertEquals(Arrays.asList(1000L, 1000L, 2000L, 3000L), timestamps);
+        assertEquals(Arrays.asList(11.0, 21.0, 22.0, 13.0), values);
+        assertEquals(Arrays.asList(0, 1, 1, 0), series);
+        assertFalse(merger.hasNext());
+    }
+
+    @Test
+    public void testReduceFallsBackToBoxedReducerForNullValues() {
+        Map<Long, Double> datapoints_1 = new HashMap<>();
+        Map<Long, Double> datapoints_2 = new HashMap<>();
+
+        datapoints_1.put(1000L, 1.0);
+        datapoints_1.put(2000L, null);
+        datapoints_1.put(3000L, 3.0);
+        datapoints_2.put(1000L, 10.0);
+        datapoints_2.put(2000L, 20.0);
+
+        List<Metric> metrics = Arrays.asList(_metric("m1", datapoints_1), _metric("m2", datapoints_2));
+        SumValueReducerOrMapping reducer = new SumValueReducerOrMapping();
+        Map<Long, Double> expected = new TreeMap<>();
+
+        expected.put(1000L, 11.0);
+        expected.put(2000L, 20.0);
+        expected.put(3000L, 3.0);
+        assertEquals(expected, DatapointMerger.reduce(metrics, false, reducer, reducer::reduce));
+        expected.remove(3000L);
+        assertEquals(expected, DatapointMerger.reduce(metrics, true, reducer, reducer::reduce));
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
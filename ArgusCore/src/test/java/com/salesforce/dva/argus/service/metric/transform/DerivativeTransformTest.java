@@ -208,5 +208,40 @@ public class DerivativeTransformTest {
         expectedDps.put(3L, 2.0);
         assertEquals(metrics.get(0).getDatapoints(), expectedDps);
     }
+
+    @Test
+    public void transform_parallelExecutionMatchesSequentialOrderAndValues() {
+        List<Metric> sequentialInput = new ArrayList<Metric>();
+        List<Metric> parallelInput = new ArrayList<Metric>();
+
+        for (int i = 0; i < 500; i++) {
+            Map<Long, Double> datapoints = new HashMap<Long, Double>();
+
+            for (long t = 1; t <= 50; t++) {
+                datapoints.put(t * 1000L, (double) (i * t * t));
+            }
+
+            Metric sequential = new Metric("test-scope", "test-metric" + i);
+            Metric parallel = new Metric("test-scope", "test-metric" + i);
+
+            sequential.setDatapoints(datapoints);
+            parallel.setDatapoints(datapoints);
+            sequentialInput.add(sequential);
+            parallelInput.add(parallel);
+        }
+
+        MetricMappingTransform parallelTransform = new MetricMappingTransform(new DerivativeValueMapping());
+
+        parallelTransform.setSeriesExecutor(SeriesExecutor.create(4, 2));
+
+        List<Metric> expected = new MetricMappingTransform(new DerivativeValueMapping()).transform(sequentialInput);
+        List<Metric> actual = parallelTransform.transform(parallelInput);
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getMetric(), actual.get(i).getMetric());
+            assertEquals(expected.get(i).getDatapoints(), actual.get(i).getDatapoints());
+        }
+    }
 }
 /* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
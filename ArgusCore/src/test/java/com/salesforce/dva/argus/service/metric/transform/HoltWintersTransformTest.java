@@ -31,11 +31,19 @@
      
 package com.salesforce.dva.argus.service.metric.transform;
 
+import com.salesforce.dva.argus.entity.Metric;
+import com.salesforce.dva.argus.service.TSDBService;
+import com.salesforce.dva.argus.service.tsdb.MetricQuery;
 import org.junit.Test;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
 public class HoltWintersTransformTest {
 
@@ -108,5 +116,50 @@ public class HoltWintersTransformTest {
 
         assertEquals(expected, deviationDatapoints);
     }
+
+    @Test
+    public void testHoltWintersIncrementalEqualsFreshEvaluation() {
+        TreeMap<Long, Double> series = new TreeMap<Long, Double>();
+
+        for (long timestamp = 1000000L; timestamp <= 150000000L; timestamp += 1000000L) {
+            series.put(timestamp, 10 + Math.sin(timestamp / 5000000.0) * 5);
+        }
+
+        TSDBService tsdbService = _tsdbService(series);
+        HoltWintersForecast forecast = new HoltWintersForecast(tsdbService);
+        List<String> constants = Arrays.asList("0.1", "0.0035", "0.1", "4");
+        // the same start with more datapoints, then a window that slid past part of the first bootstrap week
+        long[][] windows = { { 70000000L, 110000000L }, { 70000000L, 120000000L }, { 90000000L, 130000000L } };
+
+        forecast.setStateCache(new TransformStateCache(100000));
+        for (long[] window : windows) {
+            List<Metric> incremental = forecast.transform(Arrays.asList(_window(series, window[0], window[1])), constants);
+            List<Metric> fresh = new HoltWintersForecast(_tsdbService(series)).transform(Arrays.asList(_window(series, window[0], window[1])),
+                constants);
+
+            assertEquals(fresh.get(0).getDatapoints(), incremental.get(0).getDatapoints());
+        }
+        verify(tsdbService, times(1)).getMetrics(anyListOf(MetricQuery.class));
+    }
+
+    private TSDBService _tsdbService(TreeMap<Long, Double> series) {
+        TSDBService tsdbService = mock(TSDBService.class);
+
+        when(tsdbService.getMetrics(anyListOf(MetricQuery.class))).thenAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            MetricQuery query = ((List<MetricQuery>) invocation.getArguments()[0]).get(0);
+
+            return Collections.singletonMap(query, Arrays.asList(_window(series, query.getStartTimestamp(), query.getEndTimestamp())));
+        });
+        return tsdbService;
+    }
+
+    private Metric _window(TreeMap<Long, Double> series, long start, long end) {
+        Metric metric = new Metric("scope", "metric");
+
+        metric.setQuery(new MetricQuery("scope", "metric", null, start, end));
+        metric.setDatapoints(series.subMap(start, true, end, true));
+        return metric;
+    }
 }
 /* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
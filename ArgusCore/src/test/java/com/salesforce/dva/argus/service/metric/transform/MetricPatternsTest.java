@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.service.metric.transform;
+
+import com.salesforce.dva.argus.entity.Metric;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MetricPatternsTest {
+
+    private static List<Metric> _createMetrics() {
+        List<Metric> metrics = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            Metric metric = new Metric("scope" + i % 2, "metric" + i);
+
+            metric.setTag("source", "host" + i);
+            metrics.add(metric);
+        }
+        return metrics;
+    }
+
+    @Test
+    public void testCompileReturnsCachedPattern() {
+        assertSame(MetricPatterns.compile("scope0:metric.*"), MetricPatterns.compile("scope0:metric.*"));
+    }
+
+    @Test
+    public void testSelectMatchesWholeIdentifier() {
+        List<Metric> metrics = _createMetrics();
+
+        assertEquals(Arrays.asList(metrics.get(0), metrics.get(2)), MetricPatterns.select(metrics, "scope0:.*", true));
+        assertEquals(Arrays.asList(metrics.get(1), metrics.get(3)), MetricPatterns.select(metrics, "scope0:.*", false));
+        assertEquals(0, MetricPatterns.select(metrics, "scope0", true).size());
+    }
+
+    @Test
+    public void testIdentifierFormat() {
+        Metric metric = new Metric("scope", "metric");
+
+        assertEquals("scope:metric", metric.getIdentifier());
+        metric.setNamespace("namespace");
+        metric.setTag("source", "host");
+        metric.setTag("device", "disk");
+        assertEquals("namespace:scope:metric{device=disk,source=host}", metric.getIdentifier());
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -32,11 +32,15 @@
 package com.salesforce.dva.argus.service.metric.transform;
 
 import com.salesforce.dva.argus.entity.Metric;
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.junit.Test;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 
@@ -356,6 +360,112 @@ public class MovingTransformTest {
         movingTransform.transform(metrics, constants);
     }
 
+    @Test
+    public void testMovingMaxAndMinTransformWithTimeInterval() {
+        Transform movingTransform = new MetricMappingTransform(new MovingValueMapping());
+        Map<Long, Double> datapoints = new HashMap<Long, Double>();
+
+        datapoints.put(1000L, 1.0);
+        datapoints.put(2000L, 5.0);
+        datapoints.put(3000L, 3.0);
+        datapoints.put(4000L, 2.0);
+
+        Metric metric = new Metric(TEST_SCOPE, TEST_METRIC);
+
+        metric.setDatapoints(datapoints);
+
+        Map<Long, Double> expectedMax = new HashMap<Long, Double>();
+
+        expectedMax.put(1000L, 1.0);
+        expectedMax.put(2000L, 5.0);
+        expectedMax.put(3000L, 5.0);
+        expectedMax.put(4000L, 3.0);
+        assertEquals(expectedMax, movingTransform.transform(Arrays.asList(metric), Arrays.asList("2s", "max")).get(0).getDatapoints());
+
+        metric.setDatapoints(datapoints);
+
+        Map<Long, Double> expectedMin = new HashMap<Long, Double>();
+
+        expectedMin.put(1000L, 1.0);
+        expectedMin.put(2000L, 1.0);
+        expectedMin.put(3000L, 3.0);
+        expectedMin.put(4000L, 2.0);
+        assertEquals(expectedMin, movingTransform.transform(Arrays.asList(metric), Arrays.asList("2s", "min")).get(0).getDatapoints());
+    }
+
+    @Test
+    public void testMovingMedianMatchesPercentileOverEveryWindow() {
+        Transform movingTransform = new MetricMappingTransform(new MovingValueMapping());
+        Random random = new Random(1);
+        Map<Long, Double> datapoints = new HashMap<Long, Double>();
+        long[] timestamps = new long[2000];
+        double[] values = new double[timestamps.length];
+
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = i * 60000L + random.nextInt(2) * 30000L;
+            values[i] = random.nextInt(10) == 0 ? 0.0 : random.nextGaussian() * 100;
+            datapoints.put(timestamps[i], values[i]);
+        }
+
+        Metric metric = new Metric(TEST_SCOPE, TEST_METRIC);
+
+        metric.setDatapoints(datapoints);
+
+        Map<Long, Double> result = movingTransform.transform(Arrays.asList(metric), Arrays.asList("1h", "median")).get(0).getDatapoints();
+
+        for (int i = 0, begin = 0; i < timestamps.length; i++) {
+            while (timestamps[i] - timestamps[begin] >= 3600000L) {
+                begin++;
+            }
+            assertEquals(new Percentile().evaluate(values, begin, i - begin + 1, 50.0), result.get(timestamps[i]), 0.0);
+        }
+    }
+
+    @Test
+    public void testMovingAvgAndSumMatchLegacyRunningSum() {
+        Transform movingTransform = new MetricMappingTransform(new MovingValueMapping());
+        Random random = new Random(2);
+        Map<Long, Double> datapoints = new HashMap<Long, Double>();
+        long[] timestamps = new long[2000];
+        double[] values = new double[timestamps.length];
+
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = i * 60000L + random.nextInt(2) * 30000L;
+            values[i] = random.nextGaussian() * 1000;
+            datapoints.put(timestamps[i], values[i]);
+        }
+
+        Metric metric = new Metric(TEST_SCOPE, TEST_METRIC);
+
+        metric.setDatapoints(datapoints);
+
+        Map<Long, Double> avg = movingTransform.transform(Arrays.asList(metric), Arrays.asList("1h", "avg")).get(0).getDatapoints();
+
+        metric.setDatapoints(datapoints);
+
+        Map<Long, Double> sum = movingTransform.transform(Arrays.asList(metric), Arrays.asList("1h", "sum")).get(0).getDatapoints();
+        double runningSum = 0.0;
+
+        // the previous implementation added each new value to a running sum and then subtracted the values that fell out of the window
+        for (int i = 0, begin = 0; i < timestamps.length; i++) {
+            runningSum += values[i];
+            while (timestamps[i] - timestamps[begin] >= 3600000L) {
+                runningSum -= values[begin++];
+            }
+            assertEquals(runningSum, sum.get(timestamps[i]), 0.0);
+            assertEquals(runningSum / (i - begin + 1), avg.get(timestamps[i]), 0.0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMovingTransformWithPercentileAbove100() {
+        Transform movingTransform = new MetricMappingTransform(new MovingValueMapping());
+        Metric metric = new Metric(TEST_SCOPE, TEST_METRIC);
+
+        metric.setDatapoints(Collections.singletonMap(1000L, 1.0));
+        movingTransform.transform(Arrays.asList(metric), Arrays.asList("1h", "p150"));
+    }
+
     @Test
     public void testMovingAvgTransformScopeName() {
         Transform movingAvgTransform = new MetricMappingTransform(new MovingValueMapping());
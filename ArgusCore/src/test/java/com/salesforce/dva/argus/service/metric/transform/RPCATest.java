@@ -87,4 +87,28 @@ public class RPCATest {
         assertTrue(MatrixApproximatelyEquals(L_matrix_r, L, 0.0001));
     }
 
+    @Test
+    public void testRSVDTransposedInputGivesTransposedDecomposition() {
+        double[][] X = new double[12][5];
+        double[][] XT = new double[5][12];
+
+        for (int i = 0; i < X.length; i++) {
+            for (int j = 0; j < X[i].length; j++) {
+                X[i][j] = Math.sin(i + 3 * j) + (i == 4 && j == 2 ? 6 : 0);
+                XT[j][i] = X[i][j];
+            }
+        }
+
+        double[][] L = new RPCA(X, 1, 1.4/3).getL().getData();
+        double[][] LT = new RPCA(XT, 1, 1.4/3).getL().getData();
+        double[][] transposed = new double[L.length][L[0].length];
+
+        for (int i = 0; i < L.length; i++) {
+            for (int j = 0; j < L[i].length; j++) {
+                transposed[i][j] = LT[j][i];
+            }
+        }
+        assertTrue(MatrixApproximatelyEquals(L, transposed, 0.0001));
+    }
+
 }
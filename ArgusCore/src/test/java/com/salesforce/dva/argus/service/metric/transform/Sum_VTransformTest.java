@@ -574,6 +574,28 @@ public class Sum_VTransformTest {
         assertEquals(3, result.get(2).getDatapoints().size());
         assertEquals(expected_3, result.get(2).getDatapoints());
     }
+
+    @Test
+    public void testSum_VZipDatapointsWithFullJoin() {
+        MetricZipperTransform sum_vTransform = new MetricZipperTransform(new SumValueZipper());
+        Map<Long, Double> original = new HashMap<Long, Double>();
+        Map<Long, Double> base = new HashMap<Long, Double>();
+
+        original.put(1000L, 1.0);
+        original.put(2000L, 2.0);
+        base.put(2000L, 20.0);
+        base.put(3000L, 30.0);
+
+        Map<Long, Double> expected = new HashMap<Long, Double>();
+
+        expected.put(1000L, 1.0);
+        expected.put(2000L, 22.0);
+        assertEquals(expected, sum_vTransform.zip(original, base));
+
+        sum_vTransform.fulljoinIndicator = true;
+        expected.put(3000L, 30.0);
+        assertEquals(expected, sum_vTransform.zip(original, base));
+    }
     
 }
 /* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.service.metric.transform;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TransformStateCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedStatesEvictedByRetainedDatapoints() {
+        TransformStateCache cache = new TransformStateCache(10);
+
+        cache.put("a", "stateA", 4);
+        cache.put("b", "stateB", 4);
+        assertEquals("stateA", cache.get("a", String.class));
+        cache.put("c", "stateC", 4);
+
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.getRetainedDatapoints());
+        assertNull(cache.get("b", String.class));
+        assertEquals("stateA", cache.get("a", String.class));
+        assertEquals("stateC", cache.get("c", String.class));
+    }
+
+    @Test
+    public void testReplacedStateIsAccountedWithItsNewSize() {
+        TransformStateCache cache = new TransformStateCache(10);
+
+        cache.put("a", "stateA", 4);
+        cache.put("a", "stateA", 9);
+
+        assertEquals(1, cache.size());
+        assertEquals(9, cache.getRetainedDatapoints());
+    }
+
+    @Test
+    public void testStateLargerThanBoundIsNotRetained() {
+        TransformStateCache cache = new TransformStateCache(10);
+
+        cache.put("a", "stateA", 4);
+        cache.put("b", "stateB", 11);
+
+        assertNull(cache.get("b", String.class));
+        assertEquals("stateA", cache.get("a", String.class));
+        assertEquals(4, cache.getRetainedDatapoints());
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.service.schedule;
+
+import com.salesforce.dva.argus.entity.Alert;
+import com.salesforce.dva.argus.entity.History;
+import com.salesforce.dva.argus.entity.History.JobStatus;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class AlertCostEstimatorTest {
+
+    private static Alert _mockAlert(long id) {
+        Alert alert = mock(Alert.class);
+
+        when(alert.getId()).thenReturn(BigInteger.valueOf(id));
+        return alert;
+    }
+
+    private static History _history(long executionTime, JobStatus status) {
+        return new History("", "localhost", BigInteger.ONE, status, executionTime);
+    }
+
+    @Test
+    public void testEstimateFromHistory() {
+        AlertCostEstimator estimator = new AlertCostEstimator();
+        BigInteger alertId = BigInteger.ONE;
+
+        assertEquals(0, estimator.getCost(alertId), 0);
+        // newest first; the skipped evaluation does not count
+        estimator.update(alertId, Arrays.asList(_history(400, JobStatus.SUCCESS), _history(0, JobStatus.SKIPPED), _history(200, JobStatus.FAILURE)), 1);
+        assertEquals(300, estimator.getCost(alertId), 0);
+        estimator.update(alertId, Arrays.asList(_history(0, JobStatus.SKIPPED)), 2);
+        assertEquals(300, estimator.getCost(alertId), 0);
+    }
+
+    @Test
+    public void testStalestFirst() {
+        AlertCostEstimator estimator = new AlertCostEstimator();
+        List<BigInteger> alertIds = Arrays.asList(BigInteger.valueOf(1), BigInteger.valueOf(2), BigInteger.valueOf(3));
+
+        estimator.update(alertIds.get(0), new ArrayList<History>(), 20);
+        estimator.update(alertIds.get(1), new ArrayList<History>(), 10);
+        assertEquals(Arrays.asList(alertIds.get(2), alertIds.get(1)), estimator.getStalest(new HashSet<>(alertIds), 2));
+    }
+
+    @Test
+    public void testBalanceSpreadsExpensiveAlerts() {
+        AlertCostEstimator estimator = new AlertCostEstimator();
+        List<Alert> alerts = new ArrayList<>();
+
+        for (int i = 1; i <= 12; i++) {
+            Alert alert = _mockAlert(i);
+
+            alerts.add(alert);
+            estimator.update(alert.getId(), Arrays.asList(_history(i <= 3 ? 10000 : 10, JobStatus.SUCCESS)), 0);
+        }
+
+        List<Alert> balanced = estimator.balance(alerts, 4);
+
+        assertEquals(new HashSet<>(alerts), new HashSet<>(balanced));
+        for (int batch = 0; batch < 3; batch++) {
+            List<Alert> batchAlerts = balanced.subList(batch * 4, batch * 4 + 4);
+            int expensive = 0;
+
+            for (Alert alert : batchAlerts) {
+                expensive += estimator.getCost(alert.getId()) > 1000 ? 1 : 0;
+            }
+            assertEquals(1, expensive);
+            assertTrue(estimator.getCost(batchAlerts.get(3).getId()) > 1000);
+        }
+    }
+
+    @Test
+    public void testBalanceFillsAllButTheLastBatch() {
+        AlertCostEstimator estimator = new AlertCostEstimator();
+        List<Alert> alerts = new ArrayList<>();
+
+        for (int i = 1; i <= 10; i++) {
+            Alert alert = _mockAlert(i);
+
+            alerts.add(alert);
+            estimator.update(alert.getId(), Arrays.asList(_history(i <= 2 ? 10000 : 10, JobStatus.SUCCESS)), 0);
+        }
+
+        List<Alert> balanced = estimator.balance(alerts, 4);
+        List<Alert> lastBatch = balanced.subList(8, 10);
+
+        assertEquals(10, balanced.size());
+        assertEquals(new HashSet<>(alerts), new HashSet<>(balanced));
+        // the two expensive alerts lead the two full batches, the cheap ones even out the costs of the rest
+        assertTrue(estimator.getCost(balanced.get(3).getId()) > 1000);
+        assertTrue(estimator.getCost(balanced.get(7).getId()) > 1000);
+        for (Alert alert : lastBatch) {
+            assertTrue(estimator.getCost(alert.getId()) < 1000);
+        }
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
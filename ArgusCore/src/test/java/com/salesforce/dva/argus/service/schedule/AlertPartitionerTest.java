@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.service.schedule;
+
+import com.salesforce.dva.argus.entity.Alert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class AlertPartitionerTest {
+
+    private static List<Alert> _mockAlerts(int count) {
+        List<Alert> alerts = new ArrayList<>(count);
+
+        for (int i = 1; i <= count; i++) {
+            Alert alert = mock(Alert.class);
+
+            when(alert.getId()).thenReturn(BigInteger.valueOf(100000 + i));
+            alerts.add(alert);
+        }
+        return alerts;
+    }
+
+    @Test
+    public void testEveryAlertScheduledByExactlyOneNode() {
+        AlertPartitioner partitioner = new AlertPartitioner(16);
+        List<Alert> alerts = _mockAlerts(1000);
+
+        for (int nodeCount = 1; nodeCount <= 20; nodeCount++) {
+            Set<Alert> scheduled = new HashSet<>();
+            int total = 0;
+
+            for (int node = 0; node < nodeCount; node++) {
+                List<Alert> selected = partitioner.select(alerts, node, nodeCount);
+
+                total += selected.size();
+                scheduled.addAll(selected);
+            }
+            assertEquals(alerts.size(), total);
+            assertEquals(alerts.size(), scheduled.size());
+        }
+    }
+
+    @Test
+    public void testPartitionsAreStableAndBalanced() {
+        AlertPartitioner partitioner = new AlertPartitioner(8);
+        int[] counts = new int[8];
+
+        for (Alert alert : _mockAlerts(8000)) {
+            int partition = partitioner.getPartition(alert.getId());
+
+            assertEquals(partition, partitioner.getPartition(alert.getId()));
+            counts[partition]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 800 && count < 1200);
+        }
+    }
+
+    @Test
+    public void testPartitionOwnersSpreadOverNodes() {
+        AlertPartitioner partitioner = new AlertPartitioner(12);
+        int[] owned = new int[3];
+
+        for (int partition = 0; partition < 12; partition++) {
+            owned[partitioner.getOwner(partition, 3)]++;
+        }
+        assertArrayEquals(new int[] { 4, 4, 4 }, owned);
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
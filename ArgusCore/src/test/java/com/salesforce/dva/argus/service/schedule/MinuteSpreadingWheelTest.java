@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.service.schedule;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MinuteSpreadingWheelTest {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    @Test
+    public void testItemsReleasedAtTheirSecond() {
+        long minuteStart = 1000 * MINUTE;
+        MinuteSpreadingWheel<String> wheel = new MinuteSpreadingWheel<>(minuteStart);
+
+        wheel.schedule("a", minuteStart + 1000);
+        wheel.schedule("b", minuteStart + 30 * 1000);
+        wheel.schedule("c", minuteStart + 30 * 1000);
+        wheel.schedule("d", minuteStart + 59 * 1000);
+        assertEquals(4, wheel.size());
+        assertEquals(Collections.emptyList(), wheel.advance(minuteStart + 999));
+        assertEquals(Arrays.asList("a"), wheel.advance(minuteStart + 1000));
+        assertEquals(Arrays.asList("b", "c"), wheel.advance(minuteStart + 45 * 1000));
+        assertEquals(Arrays.asList("d"), wheel.advance(minuteStart + MINUTE));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testOverdueItemsReleasedOnNextAdvance() {
+        long minuteStart = 1000 * MINUTE;
+        MinuteSpreadingWheel<String> wheel = new MinuteSpreadingWheel<>(minuteStart + 20 * 1000);
+
+        wheel.schedule("late", minuteStart + 5 * 1000);
+        wheel.schedule("due", minuteStart + 25 * 1000);
+        assertEquals(Arrays.asList("late"), wheel.advance(minuteStart + 20 * 1000));
+        assertEquals(Arrays.asList("due"), wheel.advance(minuteStart + 25 * 1000));
+    }
+
+    @Test
+    public void testItemsMoreThanAMinuteAheadWaitForTheirTurn() {
+        long minuteStart = 1000 * MINUTE;
+        MinuteSpreadingWheel<String> wheel = new MinuteSpreadingWheel<>(minuteStart);
+
+        wheel.schedule("next", minuteStart + MINUTE + 10 * 1000);
+        assertEquals(Collections.emptyList(), wheel.advance(minuteStart + 10 * 1000));
+        assertEquals(Collections.emptyList(), wheel.advance(minuteStart + MINUTE));
+        assertEquals(Arrays.asList("next"), wheel.advance(minuteStart + MINUTE + 10 * 1000));
+    }
+
+    @Test
+    public void testItemsOfASlotKeepTheirScheduledOrder() {
+        long minuteStart = 1000 * MINUTE;
+        MinuteSpreadingWheel<String> wheel = new MinuteSpreadingWheel<>(minuteStart);
+        List<String> items = Arrays.asList("expensive", "cheap0", "cheap1", "medium");
+
+        for (String item : items) {
+            wheel.schedule(item, minuteStart + 7 * 1000);
+        }
+        assertEquals(items, wheel.advance(minuteStart + 7 * 1000));
+    }
+
+    @Test
+    public void testOffsetsAreStableAndSpread() {
+        int[] counts = new int[MinuteSpreadingWheel.SLOTS];
+
+        for (long id = 1; id <= 6000; id++) {
+            long offset = MinuteSpreadingWheel.getOffset(id);
+
+            assertEquals(offset, MinuteSpreadingWheel.getOffset(id));
+            assertTrue(offset >= 0 && offset < MINUTE && offset % 1000 == 0);
+            counts[(int) (offset / 1000)]++;
+        }
+
+        List<Integer> sorted = new ArrayList<>();
+
+        for (int count : counts) {
+            sorted.add(count);
+        }
+        Collections.sort(sorted);
+        assertTrue(sorted.get(0) > 50 && sorted.get(sorted.size() - 1) < 150);
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
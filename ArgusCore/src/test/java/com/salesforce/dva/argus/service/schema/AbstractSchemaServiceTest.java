@@ -7,6 +7,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashSet;
 import java.util.List;
@@ -23,6 +24,7 @@ import com.salesforce.dva.argus.AbstractTest;
 import com.salesforce.dva.argus.entity.Metric;
 import com.salesforce.dva.argus.entity.MetricSchemaRecord;
 import com.salesforce.dva.argus.service.schema.ElasticSearchSchemaService;
+import com.salesforce.dva.argus.system.SystemConfiguration;
 
 
 /**
@@ -157,6 +159,69 @@ public class AbstractSchemaServiceTest extends AbstractTest {
 		assertEquals(scopesCount, 2 * scopeNames.size());
 	}
 
+	@Test
+	public void testWriteBehindAggregatesAndDedupesBatches() {
+		List<Metric> metrics = createRandomMetrics("test-scope", "test-metric", 10);
+		SystemConfiguration config = new SystemConfiguration(system.getConfiguration());
+
+		config.setProperty(AbstractSchemaService.Property.WRITE_BEHIND_WINDOW_MS.getName(), "3600000");
+
+		ElasticSearchSchemaService service = new ElasticSearchSchemaService(config, system.getServiceFactory().getMonitorService());
+		ElasticSearchSchemaService spyService = _initializeSpyService(service);
+
+		spyService.put(metrics.subList(0, 5));
+		spyService.put(metrics);
+		spyService.put(metrics);
+
+		// nothing is written until the window is flushed
+		assertEquals(0, metricsCount);
+
+		spyService._flushPendingWrites();
+
+		assertEquals(metrics.size(), metricsCount);
+		assertEquals(1, scopeAndMetricsCount);
+		assertEquals(1, scopesCount);
+
+		// claims are released after the flush, so records not in the bloom filter are written again
+		spyService.put(metrics);
+		spyService._flushPendingWrites();
+
+		assertEquals(2 * metrics.size(), metricsCount);
+	}
+
+	@Test
+	public void testDedupeCollapsesDuplicateRecords() {
+		Metric first = new Metric("scope", "metric");
+		Metric second = new Metric("scope", "metric");
+		Metric third = new Metric("scope", "metric");
+
+		first.setTag("host", "a");
+		second.setTag("host", "a");
+		third.setTag("host", "b");
+
+		List<Metric> deduped = AbstractSchemaService._dedupe(Arrays.asList(first, second, third));
+
+		assertEquals(2, deduped.size());
+		assertEquals("a", deduped.get(0).getTag("host"));
+		assertEquals("b", deduped.get(1).getTag("host"));
+	}
+
+	@Test
+	public void testDedupeKeepsTaglessRecordInMixedBatch() {
+		Metric tagless = new Metric("scope", "metric");
+		Metric tagged = new Metric("scope", "metric");
+		Metric taglessAgain = new Metric("scope", "metric");
+
+		tagged.setTag("host", "a");
+
+		List<Metric> deduped = AbstractSchemaService._dedupe(Arrays.asList(tagless, tagged, taglessAgain));
+
+		assertEquals(2, deduped.size());
+		assertTrue(deduped.get(0).getTags().isEmpty());
+		assertEquals("a", deduped.get(1).getTag("host"));
+		assertEquals(1, deduped.get(1).getTags().size());
+	}
+
 	private ElasticSearchSchemaService _initializeSpyService(ElasticSearchSchemaService service) {
 		ElasticSearchSchemaService spyService = Mockito.spy(service);
 		initCounters();
@@ -0,0 +1,191 @@
+package com.salesforce.dva.argus.service.schema;
+
+import com.salesforce.dva.argus.entity.MetricSchemaRecordQuery;
+import com.salesforce.dva.argus.entity.MetricSchemaRecordQuery.MetricSchemaRecordQueryBuilder;
+import com.salesforce.dva.argus.service.AsyncHBaseClientFactory;
+import com.salesforce.dva.argus.service.MonitorService;
+import com.salesforce.dva.argus.service.schema.AsyncHbaseSchemaService.ScanRange;
+import com.salesforce.dva.argus.system.SystemConfiguration;
+import com.stumbleupon.async.Deferred;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class AsyncHbaseSchemaServiceTest {
+
+    private static final String SCOPE_TABLE = AsyncHbaseSchemaService.Property.HBASE_SCOPESCHEMA_TABLE.getDefaultValue();
+    private AsyncHbaseSchemaService service;
+
+    @Before
+    public void setUp() {
+        service = new AsyncHbaseSchemaService(new SystemConfiguration(new Properties()), mock(AsyncHBaseClientFactory.class),
+            mock(MonitorService.class));
+    }
+
+    @After
+    public void tearDown() {
+        service.dispose();
+    }
+
+    @Test
+    public void testExpandTopLevelAlternatives() {
+        assertEquals(Arrays.asList("scope0", "scope1"), AsyncHbaseSchemaService._expandAlternatives("scope0|scope1"));
+    }
+
+    @Test
+    public void testExpandBracketedAlternatives() {
+        assertEquals(Arrays.asList("scope0.a*", "scope0.b*", "scope1.a*", "scope1.b*"),
+            AsyncHbaseSchemaService._expandAlternatives("scope[0|1].[a|b]*"));
+    }
+
+    @Test
+    public void testPatternsWithoutAlternativesAreNotExpanded() {
+        assertEquals(Arrays.asList("scope*"), AsyncHbaseSchemaService._expandAlternatives("scope*"));
+        assertEquals(Arrays.asList("scope[01]"), AsyncHbaseSchemaService._expandAlternatives("scope[01]"));
+        assertEquals(Arrays.asList((String) null), AsyncHbaseSchemaService._expandAlternatives(null));
+    }
+
+    @Test
+    public void testMixedAlternativesAreNotExpanded() {
+        assertEquals(Arrays.asList("a|b[c|d]"), AsyncHbaseSchemaService._expandAlternatives("a|b[c|d]"));
+        assertEquals(Arrays.asList("[a|b]|c"), AsyncHbaseSchemaService._expandAlternatives("[a|b]|c"));
+        assertEquals(Arrays.asList("x[a|b]y|z"), AsyncHbaseSchemaService._expandAlternatives("x[a|b]y|z"));
+    }
+
+    @Test
+    public void testPlanScanRangesScansEachAlternative() {
+        MetricSchemaRecordQuery query = new MetricSchemaRecordQueryBuilder().scope("scope1|scope0").metric("metric").tagKey("*").tagValue("*")
+            .build();
+        List<ScanRange> ranges = service._planScanRanges(query, SCOPE_TABLE, null);
+
+        assertEquals(2, ranges.size());
+        assertEquals("scope0\u0000metric\u0000", ranges.get(0).startRow);
+        assertEquals("scope0\u0000metric\u0001", ranges.get(0).stopRow);
+        assertEquals("scope1\u0000metric\u0000", ranges.get(1).startRow);
+        assertEquals("scope1\u0000metric\u0001", ranges.get(1).stopRow);
+        assertTrue("scope0\u0000metric\u0000host\u0000server\u0000#".matches(ranges.get(0).rowKeyRegex));
+        assertTrue(!"scope1\u0000metric\u0000host\u0000server\u0000#".matches(ranges.get(0).rowKeyRegex));
+    }
+
+    @Test
+    public void testPlanScanRangesStartsAtScanStartRow() {
+        MetricSchemaRecordQuery query = new MetricSchemaRecordQueryBuilder().scope("scope0|scope1").metric("metric").tagKey("*").tagValue("*")
+            .build();
+        String scanStartRow = "scope1\u0000metric\u0000host";
+        List<ScanRange> ranges = service._planScanRanges(query, SCOPE_TABLE, scanStartRow);
+
+        assertEquals(1, ranges.size());
+        assertEquals(scanStartRow, ranges.get(0).startRow);
+        assertEquals("scope1\u0000metric\u0001", ranges.get(0).stopRow);
+    }
+
+    @Test
+    public void testPlanScanRangesMergesAlternativesWithinAWiderOne() {
+        MetricSchemaRecordQuery query = new MetricSchemaRecordQueryBuilder().scope("scope|scope*").metric("metric").tagKey("*").tagValue("*")
+            .build();
+        List<ScanRange> ranges = service._planScanRanges(query, SCOPE_TABLE, null);
+
+        assertEquals(1, ranges.size());
+        assertEquals("scope", ranges.get(0).startRow);
+        assertEquals("scopf", ranges.get(0).stopRow);
+    }
+
+    @Test
+    public void testMergeOverlappingRanges() {
+        List<ScanRange> ranges = AsyncHbaseSchemaService._mergeOverlappingRanges(
+            new ArrayList<>(Arrays.asList(_range("x", "y", "^x$"), _range("b", "d", "^b$"), _range("a", "c", "^a$"))));
+
+        assertEquals(2, ranges.size());
+        assertEquals("a", ranges.get(0).startRow);
+        assertEquals("d", ranges.get(0).stopRow);
+        assertEquals("(?:^a$)|(?:^b$)", ranges.get(0).rowKeyRegex);
+        assertEquals("x", ranges.get(1).startRow);
+        assertEquals("y", ranges.get(1).stopRow);
+        assertEquals("^x$", ranges.get(1).rowKeyRegex);
+    }
+
+    @Test
+    public void testMergeContainedRange() {
+        List<ScanRange> ranges = AsyncHbaseSchemaService._mergeOverlappingRanges(
+            new ArrayList<>(Arrays.asList(_range("a", "z", "^a$"), _range("b", "c", "^a$"), _range("d", "", "^d$"))));
+
+        assertEquals(1, ranges.size());
+        assertEquals("a", ranges.get(0).startRow);
+        assertEquals("", ranges.get(0).stopRow);
+        assertEquals("(?:^a$)|(?:^d$)", ranges.get(0).rowKeyRegex);
+    }
+
+    @Test
+    public void testMergeAdjacentRanges() {
+        List<ScanRange> ranges = AsyncHbaseSchemaService._mergeOverlappingRanges(
+            new ArrayList<>(Arrays.asList(_range("b", "c", "^b$"), _range("a", "b", "^a$"))));
+
+        assertEquals(1, ranges.size());
+        assertEquals("a", ranges.get(0).startRow);
+        assertEquals("c", ranges.get(0).stopRow);
+        assertEquals("(?:^a$)|(?:^b$)", ranges.get(0).rowKeyRegex);
+    }
+
+    @Test
+    public void testCollectRangesStopsOnceLeadingRangesFillLimit() throws Exception {
+        boolean[] stopped = new boolean[3];
+        List<List<String>> result = AsyncHbaseSchemaService._collectRanges(
+            Arrays.asList(_rows("a1", "a2"), _rows("b1"), _rows("c1", "c2")), _stops(stopped), 3, null, 1000);
+
+        assertEquals(Arrays.asList(Arrays.asList("a1", "a2"), Arrays.asList("b1")), result);
+        assertTrue(!stopped[0] && !stopped[1] && stopped[2]);
+    }
+
+    @Test
+    public void testCollectRangesCountsDistinctValues() throws Exception {
+        boolean[] stopped = new boolean[3];
+        List<List<String>> result = AsyncHbaseSchemaService._collectRanges(
+            Arrays.asList(_rows("a1", "a2"), _rows("a3", "b1"), _rows("c1")), _stops(stopped), 2, rowKey -> rowKey.substring(0, 1), 1000);
+
+        assertEquals(Arrays.asList(Arrays.asList("a1", "a2"), Arrays.asList("a3", "b1")), result);
+        assertTrue(!stopped[0] && !stopped[1] && stopped[2]);
+    }
+
+    @Test
+    public void testCollectRangesReadsAllRangesBelowLimit() throws Exception {
+        boolean[] stopped = new boolean[2];
+        List<List<String>> result = AsyncHbaseSchemaService._collectRanges(Arrays.asList(_rows("a1"), _rows("b1")), _stops(stopped), 10, null,
+            1000);
+
+        assertEquals(Arrays.asList(Arrays.asList("a1"), Arrays.asList("b1")), result);
+        assertTrue(!stopped[0] && !stopped[1]);
+    }
+
+    private static ScanRange _range(String startRow, String stopRow, String rowKeyRegex) {
+        ScanRange range = new ScanRange();
+
+        range.startRow = startRow;
+        range.stopRow = stopRow;
+        range.rowKeyRegex = rowKeyRegex;
+        return range;
+    }
+
+    private static Deferred<List<String>> _rows(String... rowKeys) {
+        return Deferred.fromResult(Arrays.asList(rowKeys));
+    }
+
+    private static List<Runnable> _stops(boolean[] stopped) {
+        List<Runnable> stops = new ArrayList<>(stopped.length);
+
+        for (int i = 0; i < stopped.length; i++) {
+            int index = i;
+
+            stops.add(() -> stopped[index] = true);
+        }
+        return stops;
+    }
+}
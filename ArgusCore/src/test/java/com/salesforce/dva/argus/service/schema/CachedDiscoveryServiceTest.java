@@ -12,6 +12,7 @@ import com.salesforce.dva.argus.service.tsdb.MetricQuery;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class CachedDiscoveryServiceTest extends AbstractTest {
@@ -41,4 +42,49 @@ public class CachedDiscoveryServiceTest extends AbstractTest {
 		service.getMatchingQueries(new MetricQuery("scope*", "metric", null, System.currentTimeMillis() - (300 * 24 * 60 * 60 * 1000L), System.currentTimeMillis()));
 	}
 
+	@Test
+	public void testEmptyExpansionIsNegativelyCached() {
+		
+		CacheService cacheServiceMock = mock(CacheService.class);
+		DiscoveryService discoveryServiceMock = mock(DiscoveryService.class);
+		when(discoveryServiceMock.getMatchingQueries(any(MetricQuery.class))).thenReturn(new ArrayList<>());
+		
+		CachedDiscoveryService service = new CachedDiscoveryService(cacheServiceMock, discoveryServiceMock, system.getConfiguration());
+		List<MetricQuery> queries = service.getMatchingQueries(new MetricQuery("scope*", "metric", null, System.currentTimeMillis() - 3600000L, System.currentTimeMillis()));
+		assertTrue(queries.isEmpty());
+		verify(cacheServiceMock, timeout(5000)).put(anyString(), eq("[]"), eq(300));
+	}
+	
+	@Test
+	public void testLimitExceededVerdictIsCached() {
+		
+		CacheService cacheServiceMock = mock(CacheService.class);
+		DiscoveryService discoveryServiceMock = mock(DiscoveryService.class);
+		when(discoveryServiceMock.getMatchingQueries(any(MetricQuery.class))).thenThrow(new WildcardExpansionLimitExceededException("limit"));
+		
+		CachedDiscoveryService service = new CachedDiscoveryService(cacheServiceMock, discoveryServiceMock, system.getConfiguration());
+		MetricQuery query = new MetricQuery("scope*", "metric", null, System.currentTimeMillis() - 3600000L, System.currentTimeMillis());
+		try {
+			service.getMatchingQueries(query);
+			fail("Expected wildcard expansion limit to be exceeded.");
+		} catch (WildcardExpansionLimitExceededException ex) {
+			verify(cacheServiceMock, timeout(5000)).put(anyString(), startsWith("LIMIT_EXCEEDED:"), eq(600));
+		}
+	}
+	
+	@Test(expected = WildcardExpansionLimitExceededException.class)
+	public void testCachedLimitExceededVerdictDoesNotReachStore() {
+		
+		CacheService cacheServiceMock = mock(CacheService.class);
+		when(cacheServiceMock.get(anyString())).thenReturn("LIMIT_EXCEEDED:" + Integer.MAX_VALUE);
+		DiscoveryService discoveryServiceMock = mock(DiscoveryService.class);
+		
+		CachedDiscoveryService service = new CachedDiscoveryService(cacheServiceMock, discoveryServiceMock, system.getConfiguration());
+		try {
+			service.getMatchingQueries(new MetricQuery("scope*", "metric", null, System.currentTimeMillis() - 3600000L, System.currentTimeMillis()));
+		} finally {
+			verify(discoveryServiceMock, never()).getMatchingQueries(any(MetricQuery.class));
+		}
+	}
+
 }
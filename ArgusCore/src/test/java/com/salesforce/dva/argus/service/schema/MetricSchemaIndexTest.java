@@ -0,0 +1,163 @@
+package com.salesforce.dva.argus.service.schema;
+
+import com.salesforce.dva.argus.AbstractTest;
+import com.salesforce.dva.argus.entity.MetricSchemaRecord;
+import com.salesforce.dva.argus.entity.MetricSchemaRecordQuery;
+import com.salesforce.dva.argus.entity.MetricSchemaRecordQuery.MetricSchemaRecordQueryBuilder;
+import com.salesforce.dva.argus.service.SchemaService;
+import com.salesforce.dva.argus.system.SystemConfiguration;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class MetricSchemaIndexTest extends AbstractTest {
+
+    private MetricSchemaIndex _createIndex(SchemaService schemaService) {
+        SystemConfiguration config = new SystemConfiguration(system.getConfiguration());
+
+        config.setProperty(MetricSchemaIndex.Property.ENABLED.getName(), "true");
+        return new MetricSchemaIndex(schemaService, config);
+    }
+
+    private List<MetricSchemaRecord> _awaitLoad(MetricSchemaIndex index, MetricSchemaRecordQuery query) throws InterruptedException {
+        List<MetricSchemaRecord> records = index.get(query);
+
+        for (int i = 0; records == null && i < 100; i++) {
+            Thread.sleep(50);
+            records = index.get(query);
+        }
+        return records;
+    }
+
+    @Test
+    public void testDisabledIndexAlwaysMisses() {
+        SchemaService schemaServiceMock = mock(SchemaService.class);
+        MetricSchemaIndex index = new MetricSchemaIndex(schemaServiceMock, system.getConfiguration());
+        MetricSchemaRecordQuery query = new MetricSchemaRecordQueryBuilder().scope("scope0").metric("metric*").limit(10).build();
+
+        assertFalse(index.isEnabled());
+        assertNull(index.get(query));
+        verify(schemaServiceMock, never()).get(any(MetricSchemaRecordQuery.class));
+        index.dispose();
+    }
+
+    @Test
+    public void testWildcardQueryResolvedAfterScopeLoad() throws InterruptedException {
+        SchemaService schemaServiceMock = mock(SchemaService.class);
+        List<MetricSchemaRecord> records = new ArrayList<>();
+
+        records.add(new MetricSchemaRecord(null, "scope0", "metric0", "source", "unittest0"));
+        records.add(new MetricSchemaRecord(null, "scope0", "metric0", "source", "unittest1"));
+        records.add(new MetricSchemaRecord(null, "scope0", "metric1", "device", "device0"));
+        records.add(new MetricSchemaRecord(null, "scope0", "other", "source", "unittest0"));
+        when(schemaServiceMock.get(any(MetricSchemaRecordQuery.class))).thenReturn(records);
+
+        MetricSchemaIndex index = _createIndex(schemaServiceMock);
+        MetricSchemaRecordQuery query = new MetricSchemaRecordQueryBuilder().scope("scope0")
+                                                                            .metric("metric*")
+                                                                            .tagKey("source")
+                                                                            .tagValue("unittest[0|1]")
+                                                                            .limit(10)
+                                                                            .build();
+        List<MetricSchemaRecord> matched = _awaitLoad(index, query);
+
+        assertEquals(Arrays.asList(new MetricSchemaRecord(null, "scope0", "metric0", "source", "unittest0"),
+            new MetricSchemaRecord(null, "scope0", "metric0", "source", "unittest1")), matched);
+        index.dispose();
+    }
+
+    @Test
+    public void testLimitAndScanFrom() throws InterruptedException {
+        SchemaService schemaServiceMock = mock(SchemaService.class);
+        List<MetricSchemaRecord> records = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            records.add(new MetricSchemaRecord(null, "scope0", "metric" + i, "source", "unittest"));
+        }
+        when(schemaServiceMock.get(any(MetricSchemaRecordQuery.class))).thenReturn(records);
+
+        MetricSchemaIndex index = _createIndex(schemaServiceMock);
+        MetricSchemaRecordQuery query = new MetricSchemaRecordQueryBuilder().scope("scope0").metric("*").limit(2).build();
+        List<MetricSchemaRecord> page = _awaitLoad(index, query);
+
+        assertEquals(Arrays.asList(records.get(0), records.get(1)), page);
+        query.setScanFrom(page.get(page.size() - 1));
+        assertEquals(Arrays.asList(records.get(2), records.get(3)), index.get(query));
+        index.dispose();
+    }
+
+    @Test
+    public void testIncrementalPutOnIndexedScope() throws InterruptedException {
+        SchemaService schemaServiceMock = mock(SchemaService.class);
+
+        when(schemaServiceMock.get(any(MetricSchemaRecordQuery.class))).thenReturn(
+            Arrays.asList(new MetricSchemaRecord(null, "scope0", "metric0", "source", "unittest0")));
+
+        MetricSchemaIndex index = _createIndex(schemaServiceMock);
+        MetricSchemaRecordQuery query = new MetricSchemaRecordQueryBuilder().scope("scope0").metric("metric*").limit(10).build();
+
+        assertEquals(1, _awaitLoad(index, query).size());
+
+        index.put(Arrays.asList(new MetricSchemaRecord(null, "scope0", "metric1", "source", "unittest1"),
+            new MetricSchemaRecord(null, "scope1", "metric0", null, null)));
+        assertEquals(2, index.get(query).size());
+        assertNull(index.get(new MetricSchemaRecordQueryBuilder().scope("scope1").metric("*").limit(10).build()));
+        index.dispose();
+    }
+
+    @Test
+    public void testPutDuringLoadIsKept() throws InterruptedException {
+        SchemaService schemaServiceMock = mock(SchemaService.class);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch put = new CountDownLatch(1);
+
+        when(schemaServiceMock.get(any(MetricSchemaRecordQuery.class))).thenAnswer(invocation -> {
+            loading.countDown();
+            put.await();
+            return Arrays.asList(new MetricSchemaRecord(null, "scope0", "metric0", "source", "unittest0"));
+        });
+
+        MetricSchemaIndex index = _createIndex(schemaServiceMock);
+        MetricSchemaRecordQuery query = new MetricSchemaRecordQueryBuilder().scope("scope0").metric("metric*").limit(10).build();
+
+        assertNull(index.get(query));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        index.put(Arrays.asList(new MetricSchemaRecord(null, "scope0", "metric1", "source", "unittest1")));
+        put.countDown();
+        assertEquals(Arrays.asList(new MetricSchemaRecord(null, "scope0", "metric0", "source", "unittest0"),
+            new MetricSchemaRecord(null, "scope0", "metric1", "source", "unittest1")), _awaitLoad(index, query));
+        index.dispose();
+    }
+
+    @Test
+    public void testTruncatedScopeIsNotReloadedOnEveryQuery() throws InterruptedException {
+        SchemaService schemaServiceMock = mock(SchemaService.class);
+        SystemConfiguration config = new SystemConfiguration(system.getConfiguration());
+
+        config.setProperty(MetricSchemaIndex.Property.ENABLED.getName(), "true");
+        config.setProperty(MetricSchemaIndex.Property.MAX_RECORDS_PER_SCOPE.getName(), "1");
+        when(schemaServiceMock.get(any(MetricSchemaRecordQuery.class))).thenReturn(
+            Arrays.asList(new MetricSchemaRecord(null, "scope0", "metric0", "source", "unittest0"),
+                new MetricSchemaRecord(null, "scope0", "metric1", "source", "unittest0")));
+
+        MetricSchemaIndex index = new MetricSchemaIndex(schemaServiceMock, config);
+        MetricSchemaRecordQuery query = new MetricSchemaRecordQueryBuilder().scope("scope0").metric("metric*").limit(10).build();
+
+        assertNull(index.get(query));
+        verify(schemaServiceMock, timeout(5000)).get(any(MetricSchemaRecordQuery.class));
+        for (int i = 0; i < 10; i++) {
+            assertNull(index.get(query));
+            Thread.sleep(20);
+        }
+        verify(schemaServiceMock, times(1)).get(any(MetricSchemaRecordQuery.class));
+        index.dispose();
+    }
+}
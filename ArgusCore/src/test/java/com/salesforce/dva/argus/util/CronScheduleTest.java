@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016, Salesforce.com, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+     
+package com.salesforce.dva.argus.util;
+
+import org.junit.Test;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.CronTrigger;
+import org.quartz.TriggerBuilder;
+import java.util.Calendar;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class CronScheduleTest {
+
+    private static final String[] ENTRIES = new String[] {
+        "* * * * *", "*/5 * * * *", "5/15 * * * *", "0,30 9-17 * * *", "10-40/10 */3 * * *", "0 0 1 * *", "0 0 1 1 *", "0 12 ? * 2-6",
+        "0 12 ? * 1,7", "*/7 0-5 15 */2 *", "0 0 L * ?", "0 9 ? * MON-FRI", "30 6 ? JAN-MAR 1"
+    };
+
+    @Test
+    public void testMatchesQuartzTrigger() {
+        Calendar time = Calendar.getInstance();
+
+        time.set(2018, Calendar.FEBRUARY, 25, 0, 0, 0);
+        time.set(Calendar.MILLISECOND, 0);
+        for (String entry : ENTRIES) {
+            CronSchedule schedule = CronSchedule.compile(entry);
+            CronTrigger trigger = TriggerBuilder.newTrigger()
+                .withSchedule(CronScheduleBuilder.cronSchedule(Cron.convertToQuartzCronEntry(entry)))
+                .build();
+            Calendar minute = (Calendar) time.clone();
+
+            for (int i = 0; i < 60 * 24 * 8; i++, minute.add(Calendar.MINUTE, 37)) {
+                Date fireTime = trigger.getFireTimeAfter(new Date(minute.getTimeInMillis() - 1000));
+                boolean expected = minute.getTime().equals(fireTime);
+
+                assertEquals(entry + " at " + minute.getTime(), expected, schedule.isSatisfiedBy(minute));
+                assertTrue(entry, !expected || schedule.mayFireAtMinute(minute.get(Calendar.MINUTE)));
+            }
+        }
+    }
+
+    @Test
+    public void testNotSatisfiedWithinMinute() {
+        Calendar time = Calendar.getInstance();
+
+        time.set(2018, Calendar.MARCH, 1, 10, 0, 30);
+        assertFalse(CronSchedule.compile("* * * * *").isSatisfiedBy(time));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidEntry() {
+        CronSchedule.compile("0 0 1 * 1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfRangeEntry() {
+        CronSchedule.compile("60 * * * *");
+    }
+}
+/* Copyright (c) 2016, Salesforce.com, Inc.  All rights reserved. */
@@ -153,6 +153,33 @@ public class MetricResources extends AbstractResource {
 	}
 
 
+	/**
+	 * Describes how a metric expression is evaluated, including the sub-expressions that are shared and the transforms pushed down into the TSDB
+	 * queries.
+	 *
+	 * @param   req         HTTPServlet request. Cannot be null.
+	 * @param   expression  The expression to explain. Cannot be null.
+	 *
+	 * @return  The explanation of the evaluation plan.
+	 */
+	@GET
+	@Produces(MediaType.TEXT_PLAIN)
+	@Path("/explain")
+	@Description("Describes how a metric expression is evaluated.")
+	public String explain(@Context HttpServletRequest req,
+			@QueryParam("expression") String expression) {
+		validateAndGetOwner(req, null);
+		SystemAssert.requireArgument(expression != null && !expression.isEmpty(), "Expression cannot be null or empty");
+
+		final MetricService metricService = system.getServiceFactory().getMetricService();
+
+		try {
+			return metricService.explain(expression);
+		} catch(IllegalArgumentException e) {
+			throw new WebApplicationException(e.getMessage(), Status.BAD_REQUEST);
+		}
+	}
+
 	/**
 	 * Download the metric data for a given query. 
 	 * Single expression can consist of multiple queries. We will take the query with the longest time and instrument that.